@@ -0,0 +1,22 @@
+package com.dlima.myfinancas.api.dto;
+
+import java.util.Collection;
+
+import com.dlima.myfinancas.model.money.Money;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlteracaoSaldoDTO {
+	
+	private Money saldo;
+	private Collection<Long> lancamentos; // ids alterados desde o ultimo envio
+	private boolean ressincronizar; // ids descartados: o cliente deve recarregar a lista
+
+}
@@ -0,0 +1,24 @@
+package com.dlima.myfinancas.api.dto;
+
+import java.util.List;
+
+import com.dlima.myfinancas.model.entity.Lancamento;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlteracoesDTO {
+	
+	private List<Lancamento> alterados; // criados ou atualizados
+	private List<Long> removidos;
+	private Long token; // valor de "desde" na proxima sincronizacao
+	private boolean maisAlteracoes; // pagina cheia: chamar de novo com o token
+	private boolean ressincronizar; // "desde" anterior as marcas de exclusao guardadas: descartar a copia local e chamar com desde = 0
+
+}
@@ -0,0 +1,20 @@
+package com.dlima.myfinancas.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// estimativas do Count-Min: nunca abaixo do valor real
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConsumoDTO {
+	
+	private String chave; // id do usuario ou "METODO /rota"
+	private long requisicoes;
+	private double tempoBancoMs;
+	private long bytes;
+
+}
@@ -0,0 +1,25 @@
+package com.dlima.myfinancas.api.dto;
+
+import java.util.List;
+
+import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.entity.Usuario;
+import com.dlima.myfinancas.model.money.Money;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DashboardDTO {
+	
+	private Usuario usuario;
+	private Money saldo;
+	private List<Lancamento> lancamentosDoMes;
+	private List<Lancamento> pendentes;
+
+}
@@ -0,0 +1,17 @@
+package com.dlima.myfinancas.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ErroImportacaoDTO {
+	
+	private int linha;
+	private String mensagem;
+
+}
@@ -1,6 +1,8 @@
 package com.dlima.myfinancas.api.dto;
 
-import java.math.BigDecimal;
+import java.util.Set;
+
+import com.dlima.myfinancas.model.money.Money;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -17,9 +19,11 @@ public class LancamentoDTO {
 	private String descricao;
 	private Integer mes;
 	private Integer ano;
-	private BigDecimal valor;
+	private Money valor;
 	private Long usuario;
 	private String tipo;
 	private String status;
+	private String categoria;
+	private Set<String> tags;
 
 }
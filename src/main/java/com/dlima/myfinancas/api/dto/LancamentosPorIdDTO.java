@@ -0,0 +1,19 @@
+package com.dlima.myfinancas.api.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LancamentosPorIdDTO {
+	
+	private List<LancamentoDTO> lancamentos; // na ordem dos ids pedidos, null onde o id nao foi encontrado
+	private List<Long> naoEncontrados; // inexistentes ou de outro usuario
+
+}
@@ -0,0 +1,29 @@
+package com.dlima.myfinancas.api.dto;
+
+import java.time.LocalDate;
+
+import com.dlima.myfinancas.model.enums.TipoLancamento;
+import com.dlima.myfinancas.model.money.Money;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LinhaExtratoDTO {
+	
+	private Long id;
+	private Integer ano;
+	private Integer mes;
+	private LocalDate dataCadastro;
+	private String descricao;
+	private String categoria;
+	private TipoLancamento tipo;
+	private Money valor;
+	private Money saldo; // saldo efetivado apos o lancamento
+
+}
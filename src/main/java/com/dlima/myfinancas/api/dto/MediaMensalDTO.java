@@ -0,0 +1,21 @@
+package com.dlima.myfinancas.api.dto;
+
+import com.dlima.myfinancas.model.money.Money;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MediaMensalDTO {
+	
+	private Integer ano;
+	private Integer meses; // meses com lancamentos no ano
+	private Money mediaReceitas;
+	private Money mediaDespesas;
+
+}
@@ -0,0 +1,20 @@
+package com.dlima.myfinancas.api.dto;
+
+import com.dlima.myfinancas.model.money.Money;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrcamentoDTO {
+	
+	private Long usuario;
+	private String categoria;
+	private Money limite;
+
+}
@@ -0,0 +1,23 @@
+package com.dlima.myfinancas.api.dto;
+
+import java.util.List;
+
+import com.dlima.myfinancas.monitoramento.MetricaConsumo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RankingConsumoDTO {
+	
+	private MetricaConsumo metrica;
+	private long janelaSegundos;
+	private List<ConsumoDTO> usuarios;
+	private List<ConsumoDTO> endpoints;
+
+}
@@ -0,0 +1,22 @@
+package com.dlima.myfinancas.api.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoImportacaoDTO {
+	
+	private int lidas; // transacoes encontradas no arquivo, validas ou nao
+	private int importadas;
+	private int duplicadas; // ja importadas antes (ou repetidas no arquivo)
+	private int comErro;
+	private List<ErroImportacaoDTO> erros; // as primeiras, ate o limite configurado
+
+}
@@ -0,0 +1,24 @@
+package com.dlima.myfinancas.api.dto;
+
+import com.dlima.myfinancas.model.money.Money;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SituacaoOrcamentoDTO {
+	
+	private String categoria; // null: limite do mes inteiro
+	private Integer ano;
+	private Integer mes;
+	private Money limite;
+	private Money gasto; // despesas efetivadas e pendentes do mes
+	private Money disponivel; // negativo quando excedido
+	private boolean excedido;
+
+}
@@ -0,0 +1,22 @@
+package com.dlima.myfinancas.api.dto;
+
+import com.dlima.myfinancas.model.money.Money;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TotalTagDTO {
+	
+	private String tag;
+	private int quantidade;
+	private Money receitas;
+	private Money despesas;
+	private Money saldo;
+
+}
@@ -0,0 +1,61 @@
+package com.dlima.myfinancas.api.resource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.dlima.myfinancas.job.ReconstrucaoResumoJob;
+import com.dlima.myfinancas.monitoramento.ConsumoRequisicoes;
+import com.dlima.myfinancas.monitoramento.MetricaConsumo;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+public class AdminResource {
+
+	private final ReconstrucaoResumoJob reconstrucaoJob;
+
+	private final ObjectProvider<ConsumoRequisicoes> consumo;
+
+	@PostMapping("/reconstrucao-resumos")
+	public ResponseEntity iniciarReconstrucao(
+			@RequestParam(value = "reiniciar", defaultValue = "false") boolean reiniciar) {
+		return ResponseEntity.status(HttpStatus.ACCEPTED).body(reconstrucaoJob.iniciar(reiniciar));
+	}
+
+	@GetMapping("/reconstrucao-resumos")
+	public ResponseEntity statusReconstrucao() {
+		return ResponseEntity.ok(reconstrucaoJob.obterStatus());
+	}
+
+	@DeleteMapping("/reconstrucao-resumos")
+	public ResponseEntity cancelarReconstrucao() {
+		reconstrucaoJob.cancelar();
+		return ResponseEntity.status(HttpStatus.ACCEPTED).body(reconstrucaoJob.obterStatus());
+	}
+
+	// maiores consumidores por usuario e endpoint nos ultimos segundos (estimativas)
+	@GetMapping("/consumo")
+	public ResponseEntity maioresConsumidores(
+			@RequestParam(value = "metrica", defaultValue = "TEMPO_BANCO") MetricaConsumo metrica,
+			@RequestParam(value = "segundos", defaultValue = "60") long segundos,
+			@RequestParam(value = "limite", defaultValue = "10") int limite) {
+		ConsumoRequisicoes ranking = consumo.getIfAvailable();
+		if (ranking == null) {
+			return ResponseEntity.notFound().build();
+		}
+		if (limite < 1 || limite > ranking.getCapacidade()) {
+			return ResponseEntity.badRequest().body("Informe um limite entre 1 e " + ranking.getCapacidade() + ".");
+		}
+		return ResponseEntity.ok(ranking.obterMaiores(metrica, segundos, limite));
+	}
+
+}
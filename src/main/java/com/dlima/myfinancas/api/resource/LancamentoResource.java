@@ -1,8 +1,16 @@
 package com.dlima.myfinancas.api.resource;
 
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -14,16 +22,26 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
 
+import com.dlima.myfinancas.api.dto.AlteracoesDTO;
 import com.dlima.myfinancas.api.dto.AtualizaStatusDTO;
 import com.dlima.myfinancas.api.dto.LancamentoDTO;
+import com.dlima.myfinancas.conexoes.PoolConexoes;
+import com.dlima.myfinancas.conexoes.TipoPool;
 import com.dlima.myfinancas.exception.RegraNegocioException;
 import com.dlima.myfinancas.model.entity.Lancamento;
 import com.dlima.myfinancas.model.entity.Usuario;
 import com.dlima.myfinancas.model.enums.StatusLancamento;
 import com.dlima.myfinancas.model.enums.TipoLancamento;
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.model.repository.FiltroLancamento;
+import com.dlima.myfinancas.prazo.PrazoPadrao;
+import com.dlima.myfinancas.service.ImportacaoService;
 import com.dlima.myfinancas.service.LancamentoService;
 import com.dlima.myfinancas.service.UsuarioService;
+import com.dlima.myfinancas.service.importacao.FormatoExtrato;
+import com.dlima.myfinancas.service.tags.ConsultaTags;
 
 import lombok.RequiredArgsConstructor;
 
@@ -36,6 +54,8 @@ public class LancamentoResource {
 	
 	private final UsuarioService usuarioService;
 	
+	private final ImportacaoService importacaoService;
+	
 	@PostMapping
 	public ResponseEntity salvar(@RequestBody LancamentoDTO dto) {
 		try {
@@ -74,33 +94,146 @@ public class LancamentoResource {
 			() -> new ResponseEntity("Lançamento não encontrado na base de dados.", HttpStatus.BAD_REQUEST));
 	}
 	
+	@DeleteMapping
+	@PrazoPadrao(0) // lotes com commit proprio: um prazo so cortaria a exclusao no meio
+	public ResponseEntity deletarEmLote(
+			@RequestParam("usuario") Long idUsuario,
+			@RequestParam(value = "ano", required = false) Integer ano,
+			@RequestParam(value = "mes", required = false) Integer mes,
+			@RequestParam(value = "ids", required = false) List<Long> ids) {
+		if (ids != null) {
+			try {
+				return ResponseEntity.ok(service.deletarPorIds(idUsuario, ids));
+			} catch (RegraNegocioException e) {
+				return ResponseEntity.badRequest().body(e.getMessage());
+			}
+		}
+		
+		if (ano == null) {
+			return ResponseEntity.badRequest().body("Informe o ano ou os ids dos lançamentos a excluir.");
+		}
+		return ResponseEntity.ok(service.deletarPorPeriodo(idUsuario, ano, mes)); // quantidade removida
+	}
+	
 	@GetMapping
+	@PrazoPadrao(10000)
+	@PoolConexoes(TipoPool.RELATORIO)
 	public ResponseEntity buscar(
 			@RequestParam(value = "descricao", required = false) String descricao,
 			@RequestParam(value = "mes", required = false) Integer mes,
 			@RequestParam(value = "ano", required = false) Integer ano,
-			@RequestParam("usuario") Long idUsuario
+			@RequestParam("usuario") Long idUsuario,
+			@RequestParam(value = "tipo", required = false) TipoLancamento tipo,
+			@RequestParam(value = "status", required = false) StatusLancamento status,
+			@RequestParam(value = "valorMin", required = false) Money valorMin,
+			@RequestParam(value = "valorMax", required = false) Money valorMax,
+			@RequestParam(value = "dataCadastroDe", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate dataCadastroDe,
+			@RequestParam(value = "dataCadastroAte", required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate dataCadastroAte,
+			@RequestParam(value = "tags", required = false) List<String> tags, // com todas
+			@RequestParam(value = "algumasTags", required = false) List<String> algumasTags, // com ao menos uma
+			@RequestParam(value = "semTags", required = false) List<String> semTags // sem nenhuma
 			/* @RequestParam java.util.Map<String, String> params */
 			) {
 		
-		Lancamento lancamentoFiltro = new Lancamento();
-		lancamentoFiltro.setDescricao(descricao);
-		lancamentoFiltro.setMes(mes);
-		lancamentoFiltro.setAno(ano);
-		
 		Optional<Usuario> usuario = usuarioService.obterPorId(idUsuario);
 		if (!usuario.isPresent()) { // se não estiver presente
 			return ResponseEntity.badRequest().body(
 					"Não foi possível realizar a consulta." +
 					"Usuário não encontrado para o Id informado.");
-		} else {
-			lancamentoFiltro.setUsuario(usuario.get());
 		}
 		
-		List<Lancamento> lancamentos = service.buscar(lancamentoFiltro);
+		FiltroLancamento filtro = FiltroLancamento.builder()
+				.idUsuario(usuario.get().getId())
+				.descricao(descricao)
+				.mes(mes)
+				.ano(ano)
+				.tipo(tipo)
+				.status(status)
+				.valorMin(valorMin)
+				.valorMax(valorMax)
+				.dataCadastroDe(dataCadastroDe)
+				.dataCadastroAte(dataCadastroAte)
+				.build();
+		
+		List<Lancamento> lancamentos = service.buscar(filtro, ConsultaTags.de(tags, algumasTags, semTags));
 		return ResponseEntity.ok(lancamentos);
 	}
 	
+	/*
+	 * Extrato CSV (data;descricao;valor[;categoria]) ou OFX, enviado como multipart "arquivo".
+	 * O upload vai para um arquivo temporario e e lido aos poucos; a resposta traz as contagens
+	 * e os erros por linha.
+	 */
+	@PostMapping("/importar")
+	@PrazoPadrao(0) // arquivos grandes: a importacao segue em lotes ate o fim
+	public ResponseEntity importar(
+			@RequestParam("usuario") Long idUsuario,
+			@RequestParam("arquivo") MultipartFile arquivo,
+			@RequestParam(value = "formato", required = false) String formato,
+			@RequestParam(value = "charset", defaultValue = "UTF-8") String charset) throws IOException {
+		if (!usuarioService.obterPorId(idUsuario).isPresent()) {
+			return ResponseEntity.badRequest().body("Usuário não encontrado para o Id informado.");
+		}
+		
+		Optional<FormatoExtrato> formatoExtrato;
+		try {
+			formatoExtrato = formato == null 
+					? FormatoExtrato.doArquivo(arquivo.getOriginalFilename()) 
+					: Optional.of(FormatoExtrato.valueOf(formato.toUpperCase(Locale.ROOT)));
+		} catch (IllegalArgumentException e) {
+			formatoExtrato = Optional.empty();
+		}
+		if (!formatoExtrato.isPresent()) {
+			return ResponseEntity.badRequest().body("Informe o formato do extrato: CSV ou OFX.");
+		}
+		Charset charsetExtrato;
+		try {
+			charsetExtrato = Charset.forName(charset);
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().body("Charset não suportado: " + charset);
+		}
+		
+		Path temporario = Files.createTempFile("extrato-", ".tmp");
+		try {
+			arquivo.transferTo(temporario.toFile());
+			return ResponseEntity.ok(importacaoService.importar(idUsuario, temporario, formatoExtrato.get(), charsetExtrato));
+		} catch (RegraNegocioException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		} finally {
+			Files.deleteIfExists(temporario);
+		}
+	}
+	
+	// totais por tag: ano, mes e status opcionais
+	@GetMapping("/tags/totais")
+	@PrazoPadrao(10000)
+	public ResponseEntity totaisPorTag(
+			@RequestParam("usuario") Long idUsuario,
+			@RequestParam(value = "ano", required = false) Integer ano,
+			@RequestParam(value = "mes", required = false) Integer mes,
+			@RequestParam(value = "status", required = false) StatusLancamento status) {
+		if (mes != null && ano == null) {
+			return ResponseEntity.badRequest().body("Informe o ano do mês.");
+		}
+		return ResponseEntity.ok(service.obterTotaisPorTag(idUsuario, ano, mes, status));
+	}
+	
+	// sincronizacao incremental: desde = token da resposta anterior (0 na primeira vez)
+	@GetMapping("/alteracoes")
+	public ResponseEntity alteracoes(
+			@RequestParam("usuario") Long idUsuario,
+			@RequestParam(value = "desde", defaultValue = "0") Long desde,
+			@RequestParam(value = "limite", defaultValue = "500") int limite) {
+		if (limite < 1 || limite > 1000) {
+			return ResponseEntity.badRequest().body("Informe um limite entre 1 e 1000.");
+		}
+		AlteracoesDTO alteracoes = service.obterAlteracoes(idUsuario, desde, limite);
+		if (alteracoes.isRessincronizar()) {
+			return ResponseEntity.status(HttpStatus.GONE).body(alteracoes); // token expirado: sincronizar tudo de novo
+		}
+		return ResponseEntity.ok(alteracoes);
+	}
+	
 	@PutMapping("{id}/atualiza-status")
 	public ResponseEntity atualizarStatus(@PathVariable("id") Long id, @RequestBody AtualizaStatusDTO dto) {
 		return service.obterPorId(id).map(entidade -> {
@@ -122,6 +255,18 @@ public class LancamentoResource {
 			new ResponseEntity("Lançamento não encontrado na base de dados.", HttpStatus.BAD_REQUEST));
 	}
 	
+	// varios lancamentos do usuario numa consulta: GET /api/lancamentos?usuario=1&ids=3,1,2
+	@GetMapping(params = "ids")
+	public ResponseEntity obterLancamentos(
+			@RequestParam("usuario") Long idUsuario,
+			@RequestParam("ids") List<Long> ids) {
+		try {
+			return ResponseEntity.ok(service.obterPorIds(idUsuario, ids));
+		} catch (RegraNegocioException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+	}
+	
 	@GetMapping("{id}")
 	public ResponseEntity obterLancamento(@PathVariable("id") Long id) {
 		return service.obterPorId(id)
@@ -137,6 +282,8 @@ public class LancamentoResource {
 		lancamento.setAno(dto.getAno());
 		lancamento.setMes(dto.getMes());
 		lancamento.setValor(dto.getValor());
+		lancamento.setCategoria(dto.getCategoria());
+		lancamento.setTags(dto.getTags());
 		
 		Usuario usuario = usuarioService.obterPorId(dto.getUsuario())
 			.orElseThrow( () -> new RegraNegocioException(
@@ -165,6 +312,8 @@ public class LancamentoResource {
 				.ano(lancamento.getAno())
 				.status(lancamento.getStatus().name()) // .name transforma ENUM em String
 				.tipo(lancamento.getTipo().name())
+				.categoria(lancamento.getCategoria())
+				.tags(lancamento.getTags())
 				.usuario(lancamento.getUsuario().getId())
 				.build();
 	}
@@ -0,0 +1,68 @@
+package com.dlima.myfinancas.api.resource;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.dlima.myfinancas.api.dto.OrcamentoDTO;
+import com.dlima.myfinancas.exception.RegraNegocioException;
+import com.dlima.myfinancas.model.entity.Orcamento;
+import com.dlima.myfinancas.service.OrcamentoService;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/orcamentos")
+@RequiredArgsConstructor
+public class OrcamentoResource {
+
+	private final OrcamentoService service;
+
+	// cria ou substitui o limite da categoria (sem categoria: limite do mes inteiro)
+	@PostMapping
+	public ResponseEntity salvar(@RequestBody OrcamentoDTO dto) {
+		try {
+			Orcamento orcamento = Orcamento.builder()
+					.idUsuario(dto.getUsuario())
+					.categoria(dto.getCategoria())
+					.limite(dto.getLimite())
+					.build();
+			return new ResponseEntity(service.salvar(orcamento), HttpStatus.CREATED);
+		} catch (RegraNegocioException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+	}
+
+	@GetMapping
+	public ResponseEntity listar(@RequestParam("usuario") Long idUsuario) {
+		return ResponseEntity.ok(service.obterPorUsuario(idUsuario));
+	}
+
+	@DeleteMapping
+	public ResponseEntity remover(
+			@RequestParam("usuario") Long idUsuario,
+			@RequestParam(value = "categoria", required = false) String categoria) {
+		if (!service.remover(idUsuario, categoria)) {
+			return new ResponseEntity("Orçamento não encontrado na base de dados.", HttpStatus.NOT_FOUND);
+		}
+		return new ResponseEntity(HttpStatus.NO_CONTENT);
+	}
+
+	@GetMapping("/situacao")
+	public ResponseEntity situacao(
+			@RequestParam("usuario") Long idUsuario,
+			@RequestParam("ano") Integer ano,
+			@RequestParam("mes") Integer mes) {
+		if (mes < 1 || mes > 12) {
+			return ResponseEntity.badRequest().body("Informe um Mês válido.");
+		}
+		return ResponseEntity.ok(service.obterSituacao(idUsuario, ano, mes));
+	}
+
+}
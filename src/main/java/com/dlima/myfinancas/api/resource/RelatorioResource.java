@@ -0,0 +1,48 @@
+package com.dlima.myfinancas.api.resource;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.dlima.myfinancas.service.RelatorioService;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/relatorios")
+@RequiredArgsConstructor
+public class RelatorioResource {
+
+	private final RelatorioService service;
+
+	@GetMapping("/totais-anuais")
+	public ResponseEntity totaisAnuais(@RequestParam("usuario") Long idUsuario) {
+		return ResponseEntity.ok(service.obterTotaisAnuais(idUsuario));
+	}
+
+	@GetMapping("/totais-mensais")
+	public ResponseEntity totaisMensais(
+			@RequestParam("usuario") Long idUsuario,
+			@RequestParam(value = "ano", required = false) Integer ano) {
+		return ResponseEntity.ok(service.obterTotaisMensais(idUsuario, ano));
+	}
+
+	@GetMapping("/medias-mensais")
+	public ResponseEntity mediasMensais(@RequestParam("usuario") Long idUsuario) {
+		return ResponseEntity.ok(service.obterMediasMensais(idUsuario));
+	}
+
+	@GetMapping("/maiores-despesas")
+	public ResponseEntity maioresDespesas(
+			@RequestParam("usuario") Long idUsuario,
+			@RequestParam(value = "ano", required = false) Integer ano,
+			@RequestParam(value = "quantidade", defaultValue = "10") int quantidade) {
+		if (quantidade < 1 || quantidade > 100) {
+			return ResponseEntity.badRequest().body("Informe uma quantidade entre 1 e 100.");
+		}
+		return ResponseEntity.ok(service.obterMaioresDespesas(idUsuario, ano, quantidade));
+	}
+
+}
@@ -1,23 +1,35 @@
 package com.dlima.myfinancas.api.resource;
 
-import java.math.BigDecimal;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Optional;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.dlima.myfinancas.api.dto.UsuarioDTO;
+import com.dlima.myfinancas.conexoes.PoolConexoes;
+import com.dlima.myfinancas.conexoes.TipoPool;
 import com.dlima.myfinancas.exception.ErroAutenticacao;
 import com.dlima.myfinancas.exception.RegraNegocioException;
 import com.dlima.myfinancas.model.entity.Usuario;
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.service.DashboardService;
+import com.dlima.myfinancas.service.EventosUsuarioService;
 import com.dlima.myfinancas.service.LancamentoService;
 import com.dlima.myfinancas.service.UsuarioService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import lombok.RequiredArgsConstructor;
 
@@ -30,6 +42,12 @@ public class UsuarioResource  /* UsuarioControler */ {
 	
 	private final LancamentoService lancamentoService;
 	
+	private final DashboardService dashboardService;
+	
+	private final EventosUsuarioService eventosService;
+	
+	private final ObjectMapper objectMapper;
+	
 	@PostMapping
 	public ResponseEntity salvar(@RequestBody UsuarioDTO dto) {
 		Usuario usuario = Usuario.builder()
@@ -57,6 +75,7 @@ public class UsuarioResource  /* UsuarioControler */ {
 	}
 	
 	@GetMapping("{id}/saldo")
+	@PoolConexoes(TipoPool.RELATORIO)
 	public ResponseEntity obterSaldo(@PathVariable("id") Long id) {
 		Optional<Usuario> usuario = service.obterPorId(id);
 		
@@ -64,8 +83,58 @@ public class UsuarioResource  /* UsuarioControler */ {
 			return new ResponseEntity(HttpStatus.NOT_FOUND);
 		}
 		
-		BigDecimal saldo = lancamentoService.obterSaldoPorUsuario(id);
+		Money saldo = lancamentoService.obterSaldoPorUsuario(id);
 		return ResponseEntity.ok(saldo);
 	}
+	
+	@GetMapping("{id}/dashboard")
+	public ResponseEntity obterDashboard(@PathVariable("id") Long id) {
+		return dashboardService.obterDashboard(id)
+				.map(dashboard -> new ResponseEntity(dashboard, HttpStatus.OK))
+				.orElseGet( () -> new ResponseEntity(HttpStatus.NOT_FOUND));
+	}
+	
+	// Server-Sent Events: evento "alteracao" com o novo saldo e os ids alterados
+	// (tipado: o Spring so trata o corpo como stream quando o generico e SseEmitter)
+	@GetMapping(value = "{id}/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public ResponseEntity<SseEmitter> assinarEventos(@PathVariable("id") Long id) {
+		if (!service.obterPorId(id).isPresent()) {
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		}
+		return ResponseEntity.ok(eventosService.assinar(id));
+	}
+	
+	/*
+	 * Lancamentos efetivados do periodo com o saldo apos cada um. O array JSON e escrito a medida
+	 * que o banco entrega as linhas, fora da thread da requisicao.
+	 */
+	@GetMapping(value = "{id}/extrato", produces = MediaType.APPLICATION_JSON_VALUE)
+	@PoolConexoes(TipoPool.RELATORIO)
+	public ResponseEntity<StreamingResponseBody> obterExtrato(
+			@PathVariable("id") Long id,
+			@RequestParam("ano") Integer ano,
+			@RequestParam(value = "mes", required = false) Integer mes) {
+		if (mes != null && (mes < 1 || mes > 12)) {
+			return ResponseEntity.badRequest().build();
+		}
+		if (!service.obterPorId(id).isPresent()) {
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		}
+		
+		StreamingResponseBody extrato = saida -> {
+			try (JsonGenerator json = objectMapper.getFactory().createGenerator(saida)) {
+				json.writeStartArray();
+				lancamentoService.exportarExtrato(id, ano, mes, linha -> {
+					try {
+						json.writeObject(linha);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e); // cliente desconectado: encerra a consulta
+					}
+				});
+				json.writeEndArray();
+			}
+		};
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(extrato);
+	}
 
 }
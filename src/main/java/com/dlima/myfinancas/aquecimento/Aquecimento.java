@@ -0,0 +1,323 @@
+package com.dlima.myfinancas.aquecimento;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.dlima.myfinancas.api.dto.LancamentoDTO;
+import com.dlima.myfinancas.conexoes.DataSourcePools;
+import com.dlima.myfinancas.conexoes.TipoPool;
+import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.entity.Usuario;
+import com.dlima.myfinancas.model.enums.StatusLancamento;
+import com.dlima.myfinancas.model.enums.TipoLancamento;
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.model.repository.FiltroLancamento;
+import com.dlima.myfinancas.model.repository.LancamentoRepository;
+import com.dlima.myfinancas.model.repository.UsuarioRepository;
+import com.dlima.myfinancas.service.DashboardService;
+import com.dlima.myfinancas.service.LancamentoService;
+import com.dlima.myfinancas.sharding.ContextoShard;
+import com.dlima.myfinancas.sharding.RoteadorShards;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+
+import lombok.Getter;
+
+/*
+ * Aquecimento antes de a aplicacao ficar pronta. ApplicationRunners rodam antes do
+ * ApplicationReadyEvent, e o health "aquecimento" fica OUT_OF_SERVICE ate o fim.
+ *
+ * Etapas:
+ * - conexoes: abre todas as conexoes de cada pool (OLTP e RELATORIO, por shard)
+ * - consultas: repete as consultas dos repositorios, com um usuario que nao existe, para
+ *   compilar o JPQL e deixar os caminhos quentes para o JIT
+ * - json: serializa Lancamento e le e escreve LancamentoDTO
+ * - usuarios-ativos: com myfinancas.aquecimento.usuarios-ativos > 0, monta o dashboard e os
+ *   totais por tag dos usuarios com mais lancamentos no mes, o que enche os caches de busca e o indice de tags
+ *
+ * Cada etapa para no tempo maximo do aquecimento inteiro; uma falha encerra so a etapa.
+ */
+@Component
+@ConditionalOnProperty(name = "myfinancas.aquecimento.habilitado", havingValue = "true", matchIfMissing = true)
+public class Aquecimento implements ApplicationRunner, HealthIndicator, Ordered {
+
+	private static final Logger log = LoggerFactory.getLogger(Aquecimento.class);
+
+	private static final Long SEM_USUARIO = -1l;
+
+	private static final String SEM_EMAIL = "aquecimento@myfinancas";
+
+	private static final Pageable PAGINA = PageRequest.of(0, 10);
+
+	private final DataSource dataSource;
+
+	private final ObjectProvider<RoteadorShards> roteador;
+
+	private final LancamentoRepository lancamentoRepository;
+
+	private final UsuarioRepository usuarioRepository;
+
+	private final TransactionTemplate leitura;
+
+	private final ObjectMapper objectMapper;
+
+	private final DashboardService dashboardService;
+
+	private final LancamentoService lancamentoService;
+
+	private final int iteracoes;
+
+	private final long tempoMaximoMs;
+
+	private final int usuariosAtivos;
+
+	@Getter
+	private final Map<String, Etapa> etapas = Collections.synchronizedMap(new LinkedHashMap<>());
+
+	@Getter
+	private volatile boolean concluido;
+
+	@Getter
+	private volatile long duracaoMs;
+
+	public Aquecimento(DataSource dataSource, ObjectProvider<RoteadorShards> roteador,
+			LancamentoRepository lancamentoRepository, UsuarioRepository usuarioRepository,
+			PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+			DashboardService dashboardService, LancamentoService lancamentoService,
+			@Value("${myfinancas.aquecimento.iteracoes:200}") int iteracoes,
+			@Value("${myfinancas.aquecimento.tempo-maximo-ms:60000}") long tempoMaximoMs,
+			@Value("${myfinancas.aquecimento.usuarios-ativos:0}") int usuariosAtivos) {
+		this.dataSource = dataSource;
+		this.roteador = roteador;
+		this.lancamentoRepository = lancamentoRepository;
+		this.usuarioRepository = usuarioRepository;
+		this.leitura = new TransactionTemplate(transactionManager);
+		this.leitura.setReadOnly(true);
+		this.objectMapper = objectMapper;
+		this.dashboardService = dashboardService;
+		this.lancamentoService = lancamentoService;
+		this.iteracoes = iteracoes;
+		this.tempoMaximoMs = tempoMaximoMs;
+		this.usuariosAtivos = usuariosAtivos;
+	}
+
+	@Override
+	public int getOrder() {
+		return Ordered.HIGHEST_PRECEDENCE; // antes dos demais runners
+	}
+
+	@Override
+	public void run(ApplicationArguments args) {
+		long inicio = System.nanoTime();
+		long limite = inicio + TimeUnit.MILLISECONDS.toNanos(tempoMaximoMs);
+
+		executar("conexoes", limite, this::pools, this::abrir);
+		executar("consultas", limite, () -> Collections.nCopies(iteracoes, SEM_USUARIO), this::consultar);
+		executar("json", limite, () -> Collections.nCopies(iteracoes, exemplo()), this::serializar);
+		if (usuariosAtivos > 0) {
+			executar("usuarios-ativos", limite, this::usuariosMaisAtivos, this::carregar);
+		}
+
+		duracaoMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+		concluido = true;
+		registrar();
+	}
+
+	@Override
+	public Health health() {
+		if (!concluido) {
+			return Health.outOfService().withDetail("etapas", etapas).build();
+		}
+		return Health.up().withDetail("duracaoMs", duracaoMs).withDetail("etapas", etapas).build();
+	}
+
+	private <T> void executar(String nome, long limite, Supplier<List<T>> itens, Consumer<T> iteracao) {
+		Etapa etapa = new Etapa();
+		etapas.put(nome, etapa);
+		long inicio = System.nanoTime();
+		try {
+			for (T item : itens.get()) {
+				if (System.nanoTime() - limite >= 0) {
+					break;
+				}
+				iteracao.accept(item);
+				etapa.iteracoes++;
+			}
+		} catch (RuntimeException e) {
+			etapa.erro = e.toString();
+			log.warn("Aquecimento: etapa {} interrompida", nome, e);
+		}
+		etapa.duracaoMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+	}
+
+	// cada pool Hikari separado; sem sharding, os do dataSource principal
+	private List<DataSource> pools() {
+		List<DataSource> bancos = new ArrayList<>();
+		RoteadorShards shards = roteador.getIfAvailable();
+		if (shards == null) {
+			bancos.add(dataSource);
+		} else {
+			for (int shard = 0; shard < shards.quantidade(); shard++) {
+				bancos.add(shards.getDataSource(shard));
+			}
+		}
+
+		List<DataSource> pools = new ArrayList<>();
+		try {
+			for (DataSource banco : bancos) {
+				if (!banco.isWrapperFor(DataSourcePools.class)) {
+					pools.add(banco);
+					continue;
+				}
+				DataSourcePools separados = banco.unwrap(DataSourcePools.class);
+				for (TipoPool tipo : TipoPool.values()) {
+					pools.add(separados.getPool(tipo));
+				}
+			}
+		} catch (SQLException e) {
+			throw new IllegalStateException("Não foi possível localizar os pools de conexão", e);
+		}
+		return pools;
+	}
+
+	// pede ao mesmo tempo quantas conexoes o pool permite, para que todas sejam abertas agora
+	private void abrir(DataSource pool) {
+		List<Connection> conexoes = new ArrayList<>();
+		try {
+			int quantidade = pool.isWrapperFor(HikariDataSource.class) 
+					? pool.unwrap(HikariDataSource.class).getMaximumPoolSize() : 1;
+			for (int i = 0; i < quantidade; i++) {
+				conexoes.add(pool.getConnection());
+			}
+		} catch (SQLException e) {
+			throw new IllegalStateException("Falha ao abrir conexão", e);
+		} finally {
+			for (Connection conexao : conexoes) {
+				try {
+					conexao.close();
+				} catch (SQLException e) {
+					log.debug("Falha ao devolver conexão ao pool", e);
+				}
+			}
+		}
+	}
+
+	private void consultar(Long idUsuario) {
+		int ano = LocalDate.now().getYear();
+		lancamentoRepository.obterSaldoPorTipoLancamentoEUsuarioEStatus(idUsuario, TipoLancamento.RECEITA, StatusLancamento.EFETIVADO);
+		lancamentoRepository.obterColunasPorUsuario(idUsuario);
+		lancamentoRepository.obterIdsPorUsuarioEPeriodo(idUsuario, ano, null, PAGINA);
+		lancamentoRepository.obterAlteradosDesde(idUsuario, 0l, PAGINA);
+		lancamentoRepository.obterValoresGravados(idUsuario);
+		lancamentoRepository.obterColunasPorIds(idUsuario, Collections.singleton(idUsuario));
+		lancamentoRepository.obterHashesImportados(idUsuario, Collections.singleton(""));
+		lancamentoRepository.obterColunasTagsPorUsuario(idUsuario);
+		lancamentoRepository.buscar(FiltroLancamento.builder().idUsuario(idUsuario).descricao("a").ano(ano).build());
+		leitura.execute(status -> {
+			try (Stream<Object[]> resumo = lancamentoRepository.obterColunasResumoPorUsuario(idUsuario);
+					Stream<Object[]> extrato = lancamentoRepository.obterExtrato(idUsuario, ano, 1, 12, 0l)) {
+				return resumo.count() + extrato.count();
+			}
+		});
+
+		usuarioRepository.findById(idUsuario);
+		usuarioRepository.existsByEmail(SEM_EMAIL);
+		usuarioRepository.findByEmail(SEM_EMAIL);
+		usuarioRepository.obterIdsApos(Long.MAX_VALUE, PAGINA);
+	}
+
+	private void serializar(Lancamento lancamento) {
+		try {
+			objectMapper.writeValueAsString(Collections.singletonList(lancamento));
+			String json = objectMapper.writeValueAsString(LancamentoDTO.builder().id(lancamento.getId())
+					.descricao(lancamento.getDescricao()).mes(lancamento.getMes()).ano(lancamento.getAno())
+					.valor(lancamento.getValor()).usuario(lancamento.getUsuario().getId())
+					.tipo(lancamento.getTipo().name()).status(lancamento.getStatus().name())
+					.categoria(lancamento.getCategoria()).tags(lancamento.getTags()).build());
+			objectMapper.readValue(json, LancamentoDTO.class);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// os mais ativos do mes em cada shard
+	private List<Long> usuariosMaisAtivos() {
+		LocalDate hoje = LocalDate.now();
+		Pageable pagina = PageRequest.of(0, usuariosAtivos);
+		RoteadorShards shards = roteador.getIfAvailable();
+		if (shards == null) {
+			return lancamentoRepository.obterUsuariosMaisAtivos(hoje.getYear(), hoje.getMonthValue(), pagina);
+		}
+		List<Long> ids = new ArrayList<>();
+		for (int shard = 0; shard < shards.quantidade(); shard++) {
+			ids.addAll(ContextoShard.executar(shard,
+					() -> lancamentoRepository.obterUsuariosMaisAtivos(hoje.getYear(), hoje.getMonthValue(), pagina)));
+		}
+		return ids;
+	}
+
+	private void carregar(Long idUsuario) {
+		dashboardService.obterDashboard(idUsuario);
+		lancamentoService.obterTotaisPorTag(idUsuario, null, null, null);
+	}
+
+	private static Lancamento exemplo() {
+		LocalDate hoje = LocalDate.now();
+		return Lancamento.builder().id(1l).descricao("Aquecimento").ano(hoje.getYear()).mes(hoje.getMonthValue())
+				.usuario(Usuario.builder().id(1l).nome("aquecimento").email(SEM_EMAIL).build())
+				.valor(Money.of(1234)).dataCadastro(hoje).tipo(TipoLancamento.DESPESA).status(StatusLancamento.PENDENTE)
+				.categoria("outros").tags(new TreeSet<>(Arrays.asList("casa", "mercado"))).build();
+	}
+
+	private void registrar() {
+		StringBuilder relatorio = new StringBuilder("Aquecimento concluido em ").append(duracaoMs).append(" ms");
+		etapas.forEach((nome, etapa) -> relatorio.append("\n  etapa ").append(nome).append(": ")
+				.append(etapa.iteracoes).append(" iteracoes, ").append(etapa.duracaoMs).append(" ms")
+				.append(etapa.erro == null ? "" : ", erro: " + etapa.erro));
+		log.info(relatorio.toString());
+	}
+
+	@Getter
+	public static class Etapa {
+
+		private int iteracoes;
+
+		private long duracaoMs;
+
+		private String erro;
+
+	}
+
+}
@@ -0,0 +1,616 @@
+package com.dlima.myfinancas.armazenamento;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+import org.springframework.dao.DataIntegrityViolationException;
+
+import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.entity.TagsConverter;
+import com.dlima.myfinancas.model.entity.Usuario;
+import com.dlima.myfinancas.model.enums.StatusLancamento;
+import com.dlima.myfinancas.model.enums.TipoLancamento;
+import com.dlima.myfinancas.model.money.Money;
+
+/*
+ * Usuarios e lancamentos em arquivos locais, sem banco (perfil embarcado).
+ *
+ * Log estruturado: toda gravacao acrescenta um registro e um indice em memoria aponta para a
+ * versao atual de cada id. Os lancamentos ficam num arquivo por usuario, entao as consultas de
+ * um usuario leem so o arquivo dele. Quando a maior parte de um arquivo e de versoes antigas,
+ * ele e reescrito apenas com os registros vivos e trocado atomicamente.
+ *
+ * Os usuarios ficam inteiros em memoria. Nao ha transacoes: cada gravacao vale ao retornar
+ * (e vai para o disco antes, com sincronizar=true); um rollback do Spring nao a desfaz.
+ */
+public class ArmazenamentoEmbarcado implements Closeable {
+
+	private static final byte GRAVAR = 1;
+
+	private static final byte REMOVER = 2;
+
+	private static final long SEM_USUARIO = 0; // arquivo dos lancamentos gravados sem usuario
+
+	private static final long COMPACTAR_A_PARTIR_DE = 64 * 1024;
+
+	private static final String PREFIXO_SEGMENTO = "usuario-";
+
+	private static final TagsConverter TAGS = new TagsConverter(); // mesmo texto da coluna
+
+	private final Path diretorio;
+
+	private final boolean sincronizar;
+
+	private final FileChannel canalTrava;
+
+	private final FileLock trava;
+
+	private final ReentrantReadWriteLock bloqueio = new ReentrantReadWriteLock();
+
+	private final ArquivoRegistros arquivoControle;
+
+	private final ArquivoRegistros arquivoUsuarios;
+
+	private final Map<Long, Usuario> usuarios = new HashMap<>();
+
+	private final Map<String, Long> idsPorEmail = new HashMap<>();
+
+	private final Map<Long, Segmento> segmentos = new HashMap<>();
+
+	private final Map<Long, Long> usuarioDoLancamento = new HashMap<>();
+
+	private final AtomicLong sequencia = new AtomicLong();
+
+	private long ultimoIdUsuario;
+
+	private long ultimoIdLancamento;
+
+	public ArmazenamentoEmbarcado(Path diretorio, boolean sincronizar) throws IOException {
+		this.diretorio = diretorio;
+		this.sincronizar = sincronizar;
+		Files.createDirectories(diretorio.resolve("lancamentos"));
+
+		canalTrava = FileChannel.open(diretorio.resolve("trava"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		trava = canalTrava.tryLock();
+		if (trava == null) {
+			canalTrava.close();
+			throw new IllegalStateException("Diretório " + diretorio + " em uso por outro processo.");
+		}
+
+		arquivoControle = new ArquivoRegistros(diretorio.resolve("controle.log"));
+		arquivoControle.percorrer((posicao, dados) -> {
+			DataInputStream entrada = entrada(dados);
+			ultimoIdUsuario = Math.max(ultimoIdUsuario, entrada.readLong());
+			ultimoIdLancamento = Math.max(ultimoIdLancamento, entrada.readLong());
+			sequencia.accumulateAndGet(entrada.readLong(), Math::max);
+		});
+
+		arquivoUsuarios = new ArquivoRegistros(diretorio.resolve("usuarios.log"));
+		arquivoUsuarios.percorrer((posicao, dados) -> reproduzirUsuario(dados));
+
+		try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(diretorio.resolve("lancamentos"))) {
+			for (Path arquivo : arquivos) {
+				String nome = arquivo.getFileName().toString();
+				if (nome.endsWith(".compactando")) {
+					Files.delete(arquivo); // compactacao interrompida: o original continua valendo
+				} else if (nome.startsWith(PREFIXO_SEGMENTO) && nome.endsWith(".log")) {
+					long idUsuario = Long.parseLong(nome.substring(PREFIXO_SEGMENTO.length(), nome.length() - 4));
+					reproduzirSegmento(segmento(idUsuario));
+				}
+			}
+		}
+		indexarLancamentos();
+	}
+
+	/* como o indice unico uk_usuario_email do banco: dois usuarios nao dividem o mesmo email */
+	public Usuario salvarUsuario(Usuario usuario) {
+		bloqueio.writeLock().lock();
+		try {
+			Long dono = usuario.getEmail() == null ? null : idsPorEmail.get(usuario.getEmail());
+			if (dono != null && !dono.equals(usuario.getId())) {
+				throw new DataIntegrityViolationException("Email já cadastrado (uk_usuario_email).");
+			}
+			if (usuario.getId() == null) {
+				usuario.setId(++ultimoIdUsuario);
+			}
+			ultimoIdUsuario = Math.max(ultimoIdUsuario, usuario.getId());
+			gravar(arquivoUsuarios, codificar(usuario));
+			indexar(copiar(usuario));
+			return usuario;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			bloqueio.writeLock().unlock();
+		}
+	}
+
+	public Optional<Usuario> obterUsuario(Long id) {
+		bloqueio.readLock().lock();
+		try {
+			return Optional.ofNullable(usuarios.get(id)).map(ArmazenamentoEmbarcado::copiar);
+		} finally {
+			bloqueio.readLock().unlock();
+		}
+	}
+
+	public Optional<Usuario> obterUsuarioPorEmail(String email) {
+		bloqueio.readLock().lock();
+		try {
+			Long id = idsPorEmail.get(email);
+			return id == null ? Optional.empty() : obterUsuario(id);
+		} finally {
+			bloqueio.readLock().unlock();
+		}
+	}
+
+	public List<Usuario> listarUsuarios() {
+		bloqueio.readLock().lock();
+		try {
+			return usuarios.values().stream()
+					.sorted(Comparator.comparing(Usuario::getId))
+					.map(ArmazenamentoEmbarcado::copiar)
+					.collect(Collectors.toList());
+		} finally {
+			bloqueio.readLock().unlock();
+		}
+	}
+
+	/* como a chave estrangeira do banco: usuario com lancamentos nao pode ser removido */
+	public boolean removerUsuario(Long id) {
+		bloqueio.writeLock().lock();
+		try {
+			Usuario usuario = usuarios.get(id);
+			if (usuario == null) {
+				return false;
+			}
+			Segmento segmento = segmentos.get(id);
+			if (segmento != null && !segmento.vivos.isEmpty()) {
+				throw new DataIntegrityViolationException("Usuário " + id + " possui lançamentos.");
+			}
+			gravar(arquivoUsuarios, codificarRemocao(id, 0));
+			usuarios.remove(id);
+			idsPorEmail.remove(usuario.getEmail());
+			return true;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			bloqueio.writeLock().unlock();
+		}
+	}
+
+	public Lancamento salvarLancamento(Lancamento lancamento) {
+		bloqueio.writeLock().lock();
+		try {
+			long idUsuario = idUsuario(lancamento);
+			if (idUsuario != SEM_USUARIO && !usuarios.containsKey(idUsuario)) {
+				throw new DataIntegrityViolationException("Usuário " + idUsuario + " não encontrado.");
+			}
+			if (lancamento.getId() == null) {
+				lancamento.setId(++ultimoIdLancamento);
+			}
+			ultimoIdLancamento = Math.max(ultimoIdLancamento, lancamento.getId());
+			if (lancamento.getSequenciaAlteracao() != null) {
+				sequencia.accumulateAndGet(lancamento.getSequenciaAlteracao(), Math::max);
+			}
+
+			Long anterior = usuarioDoLancamento.get(lancamento.getId());
+			Segmento segmento = segmento(idUsuario);
+			byte[] dados = codificar(lancamento);
+			long posicao = gravar(segmento.arquivo, dados);
+			segmento.registrarVivo(lancamento.getId(), posicao, dados.length, sequenciaOuZero(lancamento));
+			usuarioDoLancamento.put(lancamento.getId(), idUsuario);
+			if (anterior != null && anterior != idUsuario) { // trocou de usuario: sai do arquivo antigo
+				removerDoSegmento(segmentos.get(anterior), lancamento.getId(), 0);
+			}
+			compactarSeNecessario(segmento);
+			return lancamento;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			bloqueio.writeLock().unlock();
+		}
+	}
+
+	public Optional<Lancamento> obterLancamento(Long id) {
+		bloqueio.readLock().lock();
+		try {
+			Long idUsuario = usuarioDoLancamento.get(id);
+			if (idUsuario == null) {
+				return Optional.empty();
+			}
+			Segmento segmento = segmentos.get(idUsuario);
+			return Optional.of(decodificar(idUsuario, segmento.arquivo.ler(segmento.vivos.get(id).posicao)));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			bloqueio.readLock().unlock();
+		}
+	}
+
+	/* le so o arquivo do usuario, na ordem em que os registros estao gravados */
+	public List<Lancamento> lancamentosDoUsuario(Long idUsuario) {
+		bloqueio.readLock().lock();
+		try {
+			Segmento segmento = segmentos.get(idUsuario == null ? SEM_USUARIO : idUsuario);
+			return segmento == null ? new ArrayList<>() : lerVivos(segmento);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			bloqueio.readLock().unlock();
+		}
+	}
+
+	public List<Lancamento> todosLancamentos() {
+		bloqueio.readLock().lock();
+		try {
+			List<Lancamento> todos = new ArrayList<>(usuarioDoLancamento.size());
+			for (Segmento segmento : segmentos.values()) {
+				todos.addAll(lerVivos(segmento));
+			}
+			return todos;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			bloqueio.readLock().unlock();
+		}
+	}
+
+	public int quantidadeLancamentos() {
+		bloqueio.readLock().lock();
+		try {
+			return usuarioDoLancamento.size();
+		} finally {
+			bloqueio.readLock().unlock();
+		}
+	}
+
+	/* a sequencia fica no registro de remocao: sobrevive ao reinicio como a dos lancamentos */
+	public boolean removerLancamento(Long id, long sequenciaRemocao) {
+		bloqueio.writeLock().lock();
+		try {
+			Long idUsuario = usuarioDoLancamento.remove(id);
+			if (idUsuario == null) {
+				return false;
+			}
+			Segmento segmento = segmentos.get(idUsuario);
+			removerDoSegmento(segmento, id, sequenciaRemocao);
+			compactarSeNecessario(segmento);
+			return true;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			bloqueio.writeLock().unlock();
+		}
+	}
+
+	public long proximaSequencia() {
+		return sequencia.incrementAndGet();
+	}
+
+	@Override
+	public void close() throws IOException {
+		bloqueio.writeLock().lock();
+		try {
+			for (Segmento segmento : segmentos.values()) {
+				segmento.arquivo.close();
+			}
+			arquivoUsuarios.close();
+			arquivoControle.close();
+			trava.release();
+			canalTrava.close();
+		} finally {
+			bloqueio.writeLock().unlock();
+		}
+	}
+
+	private long gravar(ArquivoRegistros arquivo, byte[] dados) throws IOException {
+		long posicao = arquivo.anexar(dados);
+		if (sincronizar) {
+			arquivo.sincronizar();
+		}
+		return posicao;
+	}
+
+	private void removerDoSegmento(Segmento segmento, Long id, long sequenciaRemocao) throws IOException {
+		gravar(segmento.arquivo, codificarRemocao(id, sequenciaRemocao));
+		segmento.removerVivo(id);
+		sequencia.accumulateAndGet(sequenciaRemocao, Math::max);
+	}
+
+	/* reescreve o arquivo quando mais da metade dele sao versoes antigas ou remocoes */
+	private void compactarSeNecessario(Segmento segmento) throws IOException {
+		long tamanho = segmento.arquivo.tamanho();
+		if (tamanho < COMPACTAR_A_PARTIR_DE || tamanho < 2 * segmento.bytesVivos) {
+			return;
+		}
+		// os registros de remocao somem: o controle guarda os maiores ids e a sequencia
+		gravar(arquivoControle, codificarControle());
+
+		Path caminho = segmento.arquivo.caminho();
+		Path temporario = caminho.resolveSibling(caminho.getFileName() + ".compactando");
+		Files.deleteIfExists(temporario);
+		Map<Long, Posicao> novos = new HashMap<>();
+		try (ArquivoRegistros novo = new ArquivoRegistros(temporario)) {
+			for (Map.Entry<Long, Posicao> vivo : porPosicao(segmento)) {
+				byte[] dados = segmento.arquivo.ler(vivo.getValue().posicao);
+				novos.put(vivo.getKey(), new Posicao(novo.anexar(dados), dados.length, vivo.getValue().sequencia));
+			}
+			novo.sincronizar();
+		}
+		segmento.arquivo.close();
+		Files.move(temporario, caminho, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		segmento.arquivo = new ArquivoRegistros(caminho);
+		segmento.vivos.clear();
+		segmento.bytesVivos = 0;
+		novos.forEach((id, posicao) -> segmento.registrarVivo(id, posicao.posicao, posicao.tamanho, posicao.sequencia));
+	}
+
+	private List<Lancamento> lerVivos(Segmento segmento) throws IOException {
+		List<Lancamento> lancamentos = new ArrayList<>(segmento.vivos.size());
+		for (Map.Entry<Long, Posicao> vivo : porPosicao(segmento)) {
+			lancamentos.add(decodificar(segmento.idUsuario, segmento.arquivo.ler(vivo.getValue().posicao)));
+		}
+		return lancamentos;
+	}
+
+	private static List<Map.Entry<Long, Posicao>> porPosicao(Segmento segmento) {
+		List<Map.Entry<Long, Posicao>> vivos = new ArrayList<>(segmento.vivos.entrySet());
+		vivos.sort(Comparator.comparingLong(vivo -> vivo.getValue().posicao));
+		return vivos;
+	}
+
+	private Segmento segmento(long idUsuario) throws IOException {
+		Segmento segmento = segmentos.get(idUsuario);
+		if (segmento == null) {
+			Path arquivo = diretorio.resolve("lancamentos").resolve(PREFIXO_SEGMENTO + idUsuario + ".log");
+			segmento = new Segmento(idUsuario, new ArquivoRegistros(arquivo));
+			segmentos.put(idUsuario, segmento);
+		}
+		return segmento;
+	}
+
+	private void reproduzirUsuario(byte[] dados) throws IOException {
+		DataInputStream entrada = entrada(dados);
+		byte operacao = entrada.readByte();
+		long id = entrada.readLong();
+		ultimoIdUsuario = Math.max(ultimoIdUsuario, id);
+		if (operacao == REMOVER) {
+			Usuario removido = usuarios.remove(id);
+			if (removido != null) {
+				idsPorEmail.remove(removido.getEmail());
+			}
+			return;
+		}
+		indexar(new Usuario(id, lerTexto(entrada), lerTexto(entrada), lerTexto(entrada)));
+	}
+
+	private void reproduzirSegmento(Segmento segmento) throws IOException {
+		segmento.arquivo.percorrer((posicao, dados) -> {
+			DataInputStream entrada = entrada(dados);
+			byte operacao = entrada.readByte();
+			long id = entrada.readLong();
+			long sequenciaRegistro = entrada.readLong();
+			ultimoIdLancamento = Math.max(ultimoIdLancamento, id);
+			sequencia.accumulateAndGet(sequenciaRegistro, Math::max);
+			if (operacao == GRAVAR) {
+				segmento.registrarVivo(id, posicao, dados.length, sequenciaRegistro);
+			} else {
+				segmento.removerVivo(id);
+			}
+		});
+	}
+
+	/* um lancamento vivo em dois arquivos (queda ao trocar de usuario) fica com a versao de maior sequencia */
+	private void indexarLancamentos() {
+		Map<Long, Posicao> escolhidos = new HashMap<>();
+		for (Segmento segmento : segmentos.values()) {
+			for (Map.Entry<Long, Posicao> vivo : segmento.vivos.entrySet()) {
+				Posicao escolhido = escolhidos.get(vivo.getKey());
+				if (escolhido == null || vivo.getValue().sequencia > escolhido.sequencia) {
+					escolhidos.put(vivo.getKey(), vivo.getValue());
+					usuarioDoLancamento.put(vivo.getKey(), segmento.idUsuario);
+				}
+			}
+		}
+		for (Segmento segmento : segmentos.values()) {
+			new ArrayList<>(segmento.vivos.keySet()).stream()
+					.filter(id -> usuarioDoLancamento.get(id) != segmento.idUsuario)
+					.forEach(segmento::removerVivo);
+		}
+	}
+
+	private void indexar(Usuario usuario) {
+		Usuario anterior = usuarios.put(usuario.getId(), usuario);
+		if (anterior != null && anterior.getEmail() != null) {
+			idsPorEmail.remove(anterior.getEmail());
+		}
+		if (usuario.getEmail() != null) {
+			idsPorEmail.put(usuario.getEmail(), usuario.getId());
+		}
+	}
+
+	private Lancamento decodificar(long idUsuario, byte[] dados) throws IOException {
+		DataInputStream entrada = entrada(dados);
+		entrada.readByte();
+		Lancamento lancamento = new Lancamento();
+		lancamento.setId(entrada.readLong());
+		long sequenciaAlteracao = entrada.readLong();
+		lancamento.setSequenciaAlteracao(sequenciaAlteracao == 0 ? null : sequenciaAlteracao);
+		lancamento.setDescricao(lerTexto(entrada));
+		lancamento.setMes(entrada.readBoolean() ? entrada.readInt() : null);
+		lancamento.setAno(entrada.readBoolean() ? entrada.readInt() : null);
+		lancamento.setValor(entrada.readBoolean() ? Money.ofCents(entrada.readLong()) : null);
+		lancamento.setDataCadastro(entrada.readBoolean() ? LocalDate.ofEpochDay(entrada.readLong()) : null);
+		String tipo = lerTexto(entrada);
+		lancamento.setTipo(tipo == null ? null : TipoLancamento.valueOf(tipo));
+		String status = lerTexto(entrada);
+		lancamento.setStatus(status == null ? null : StatusLancamento.valueOf(status));
+		lancamento.setCategoria(lerTexto(entrada));
+		// registros gravados antes da importacao de extratos terminam na categoria
+		lancamento.setHashImportacao(entrada.available() > 0 ? lerTexto(entrada) : null);
+		lancamento.setTags(entrada.available() > 0 ? TAGS.convertToEntityAttribute(lerTexto(entrada)) : null);
+		Usuario usuario = usuarios.get(idUsuario);
+		lancamento.setUsuario(usuario == null ? null : copiar(usuario));
+		return lancamento;
+	}
+
+	private static byte[] codificar(Lancamento lancamento) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+		DataOutputStream saida = new DataOutputStream(bytes);
+		saida.writeByte(GRAVAR);
+		saida.writeLong(lancamento.getId());
+		saida.writeLong(sequenciaOuZero(lancamento));
+		escreverTexto(saida, lancamento.getDescricao());
+		escreverInteiro(saida, lancamento.getMes());
+		escreverInteiro(saida, lancamento.getAno());
+		escreverLongo(saida, lancamento.getValor() == null ? null : lancamento.getValor().cents());
+		escreverLongo(saida, lancamento.getDataCadastro() == null ? null : lancamento.getDataCadastro().toEpochDay());
+		escreverTexto(saida, lancamento.getTipo() == null ? null : lancamento.getTipo().name());
+		escreverTexto(saida, lancamento.getStatus() == null ? null : lancamento.getStatus().name());
+		escreverTexto(saida, lancamento.getCategoria());
+		escreverTexto(saida, lancamento.getHashImportacao());
+		escreverTexto(saida, TAGS.convertToDatabaseColumn(lancamento.getTags()));
+		return bytes.toByteArray();
+	}
+
+	private static byte[] codificar(Usuario usuario) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		DataOutputStream saida = new DataOutputStream(bytes);
+		saida.writeByte(GRAVAR);
+		saida.writeLong(usuario.getId());
+		escreverTexto(saida, usuario.getNome());
+		escreverTexto(saida, usuario.getEmail());
+		escreverTexto(saida, usuario.getSenha());
+		return bytes.toByteArray();
+	}
+
+	private static byte[] codificarRemocao(long id, long sequenciaRemocao) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(17);
+		DataOutputStream saida = new DataOutputStream(bytes);
+		saida.writeByte(REMOVER);
+		saida.writeLong(id);
+		saida.writeLong(sequenciaRemocao);
+		return bytes.toByteArray();
+	}
+
+	private byte[] codificarControle() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(24);
+		DataOutputStream saida = new DataOutputStream(bytes);
+		saida.writeLong(ultimoIdUsuario);
+		saida.writeLong(ultimoIdLancamento);
+		saida.writeLong(sequencia.get());
+		return bytes.toByteArray();
+	}
+
+	private static DataInputStream entrada(byte[] dados) {
+		return new DataInputStream(new ByteArrayInputStream(dados));
+	}
+
+	private static void escreverTexto(DataOutputStream saida, String texto) throws IOException {
+		saida.writeBoolean(texto != null);
+		if (texto != null) {
+			saida.writeUTF(texto);
+		}
+	}
+
+	private static String lerTexto(DataInputStream entrada) throws IOException {
+		return entrada.readBoolean() ? entrada.readUTF() : null;
+	}
+
+	private static void escreverInteiro(DataOutputStream saida, Integer valor) throws IOException {
+		saida.writeBoolean(valor != null);
+		if (valor != null) {
+			saida.writeInt(valor);
+		}
+	}
+
+	private static void escreverLongo(DataOutputStream saida, Long valor) throws IOException {
+		saida.writeBoolean(valor != null);
+		if (valor != null) {
+			saida.writeLong(valor);
+		}
+	}
+
+	private static long idUsuario(Lancamento lancamento) {
+		return lancamento.getUsuario() == null || lancamento.getUsuario().getId() == null
+				? SEM_USUARIO : lancamento.getUsuario().getId();
+	}
+
+	private static long sequenciaOuZero(Lancamento lancamento) {
+		return lancamento.getSequenciaAlteracao() == null ? 0 : lancamento.getSequenciaAlteracao();
+	}
+
+	private static Usuario copiar(Usuario usuario) {
+		return new Usuario(usuario.getId(), usuario.getNome(), usuario.getEmail(), usuario.getSenha());
+	}
+
+	/* lancamentos de um usuario: arquivo proprio e posicao da versao atual de cada id */
+	private static final class Segmento {
+
+		private final long idUsuario;
+
+		private final Map<Long, Posicao> vivos = new HashMap<>();
+
+		private ArquivoRegistros arquivo;
+
+		private long bytesVivos;
+
+		Segmento(long idUsuario, ArquivoRegistros arquivo) {
+			this.idUsuario = idUsuario;
+			this.arquivo = arquivo;
+		}
+
+		void registrarVivo(long id, long posicao, int tamanho, long sequencia) {
+			removerVivo(id);
+			vivos.put(id, new Posicao(posicao, tamanho, sequencia));
+			bytesVivos += ArquivoRegistros.CABECALHO + tamanho;
+		}
+
+		void removerVivo(long id) {
+			Posicao anterior = vivos.remove(id);
+			if (anterior != null) {
+				bytesVivos -= ArquivoRegistros.CABECALHO + anterior.tamanho;
+			}
+		}
+
+	}
+
+	private static final class Posicao {
+
+		private final long posicao;
+
+		private final int tamanho;
+
+		private final long sequencia;
+
+		Posicao(long posicao, int tamanho, long sequencia) {
+			this.posicao = posicao;
+			this.tamanho = tamanho;
+			this.sequencia = sequencia;
+		}
+
+	}
+
+}
@@ -0,0 +1,116 @@
+package com.dlima.myfinancas.armazenamento;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/*
+ * Arquivo so de acrescimo: cada registro e [tamanho][crc32][dados]. Na abertura, um final
+ * incompleto ou corrompido (queda no meio de uma gravacao) e descartado.
+ */
+final class ArquivoRegistros implements Closeable {
+
+	static final int CABECALHO = 8;
+
+	private final Path caminho;
+
+	private final FileChannel canal;
+
+	private long tamanho;
+
+	ArquivoRegistros(Path caminho) throws IOException {
+		this.caminho = caminho;
+		this.canal = FileChannel.open(caminho, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		this.tamanho = canal.size();
+	}
+
+	interface Leitor {
+
+		void registro(long posicao, byte[] dados) throws IOException;
+
+	}
+
+	void percorrer(Leitor leitor) throws IOException {
+		long posicao = 0;
+		ByteBuffer cabecalho = ByteBuffer.allocate(CABECALHO);
+		while (posicao + CABECALHO <= tamanho) {
+			cabecalho.clear();
+			lerCompleto(cabecalho, posicao);
+			cabecalho.flip();
+			int quantidade = cabecalho.getInt();
+			int crc = cabecalho.getInt();
+			if (quantidade < 0 || posicao + CABECALHO + quantidade > tamanho) {
+				break;
+			}
+			ByteBuffer dados = ByteBuffer.allocate(quantidade);
+			lerCompleto(dados, posicao + CABECALHO);
+			if (crc(dados.array()) != crc) {
+				break;
+			}
+			leitor.registro(posicao, dados.array());
+			posicao += CABECALHO + quantidade;
+		}
+		if (posicao < tamanho) {
+			canal.truncate(posicao);
+			tamanho = posicao;
+		}
+	}
+
+	/* devolve a posicao do registro, usada depois em ler */
+	long anexar(byte[] dados) throws IOException {
+		ByteBuffer registro = ByteBuffer.allocate(CABECALHO + dados.length);
+		registro.putInt(dados.length).putInt(crc(dados)).put(dados).flip();
+		long posicao = tamanho;
+		while (registro.hasRemaining()) {
+			canal.write(registro, posicao + registro.position());
+		}
+		tamanho += CABECALHO + dados.length;
+		return posicao;
+	}
+
+	byte[] ler(long posicao) throws IOException {
+		ByteBuffer cabecalho = ByteBuffer.allocate(CABECALHO);
+		lerCompleto(cabecalho, posicao);
+		cabecalho.flip();
+		ByteBuffer dados = ByteBuffer.allocate(cabecalho.getInt());
+		lerCompleto(dados, posicao + CABECALHO);
+		return dados.array();
+	}
+
+	void sincronizar() throws IOException {
+		canal.force(false);
+	}
+
+	long tamanho() {
+		return tamanho;
+	}
+
+	Path caminho() {
+		return caminho;
+	}
+
+	@Override
+	public void close() throws IOException {
+		canal.close();
+	}
+
+	private void lerCompleto(ByteBuffer destino, long posicao) throws IOException {
+		while (destino.hasRemaining()) {
+			if (canal.read(destino, posicao + destino.position()) < 0) {
+				throw new EOFException(caminho + ": fim do arquivo na posição " + posicao);
+			}
+		}
+	}
+
+	private static int crc(byte[] dados) {
+		CRC32 crc = new CRC32();
+		crc.update(dados, 0, dados.length);
+		return (int) crc.getValue();
+	}
+
+}
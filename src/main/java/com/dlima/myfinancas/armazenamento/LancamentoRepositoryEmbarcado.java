@@ -0,0 +1,282 @@
+package com.dlima.myfinancas.armazenamento;
+
+import java.sql.Date;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.entity.LancamentoRemovido;
+import com.dlima.myfinancas.model.enums.StatusLancamento;
+import com.dlima.myfinancas.model.enums.TipoLancamento;
+import com.dlima.myfinancas.model.repository.FiltroLancamento;
+import com.dlima.myfinancas.model.repository.LancamentoRemovidoRepository;
+import com.dlima.myfinancas.model.repository.LancamentoRepository;
+
+/*
+ * As consultas de LancamentoRepository sobre o arquivo do usuario, com os mesmos tipos nas
+ * linhas (Money, enums) que o JPQL devolve. As marcas de exclusao continuam no banco, pelo
+ * LancamentoRemovidoRepository.
+ */
+public class LancamentoRepositoryEmbarcado extends RepositorioEmbarcado<Lancamento> implements LancamentoRepository {
+
+	private static final Comparator<Lancamento> POR_PERIODO = Comparator
+			.comparing(Lancamento::getAno, Comparator.nullsLast(Comparator.naturalOrder()))
+			.thenComparing(Lancamento::getMes, Comparator.nullsLast(Comparator.naturalOrder()))
+			.thenComparing(Lancamento::getId);
+
+	private final ArmazenamentoEmbarcado armazenamento;
+
+	private final LancamentoRemovidoRepository removidoRepository;
+
+	private final Map<Long, ReentrantLock> bloqueios = new ConcurrentHashMap<>();
+
+	public LancamentoRepositoryEmbarcado(ArmazenamentoEmbarcado armazenamento,
+			LancamentoRemovidoRepository removidoRepository) {
+		this.armazenamento = armazenamento;
+		this.removidoRepository = removidoRepository;
+	}
+
+	@Override
+	public Long obterSaldoPorTipoLancamentoEUsuarioEStatus(Long idUsuario, TipoLancamento tipo, StatusLancamento status) {
+		List<Lancamento> somados = armazenamento.lancamentosDoUsuario(idUsuario).stream()
+				.filter(lancamento -> lancamento.getTipo() == tipo && lancamento.getStatus() == status)
+				.filter(lancamento -> lancamento.getValor() != null)
+				.collect(Collectors.toList());
+		// como SUM: nulo quando nao ha lancamentos
+		return somados.isEmpty() ? null : somados.stream().mapToLong(lancamento -> lancamento.getValor().cents()).sum();
+	}
+
+	@Override
+	public List<Object[]> obterColunasPorUsuario(Long idUsuario) {
+		return armazenamento.lancamentosDoUsuario(idUsuario).stream()
+				.sorted(POR_PERIODO)
+				.map(l -> new Object[] { l.getId(), l.getValor(), l.getAno(), l.getMes(), l.getTipo(), l.getStatus() })
+				.collect(Collectors.toList());
+	}
+
+	@Override
+	public List<Long> obterIdsPorUsuarioEPeriodo(Long idUsuario, Integer ano, Integer mes, Pageable pageable) {
+		Stream<Long> ids = armazenamento.lancamentosDoUsuario(idUsuario).stream()
+				.filter(lancamento -> Objects.equals(lancamento.getAno(), ano))
+				.filter(lancamento -> mes == null || Objects.equals(lancamento.getMes(), mes))
+				.map(Lancamento::getId)
+				.sorted();
+		return pagina(ids, pageable).collect(Collectors.toList());
+	}
+
+	@Override
+	public List<Lancamento> obterAlteradosDesde(Long idUsuario, Long desde, Pageable pageable) {
+		Stream<Lancamento> alterados = armazenamento.lancamentosDoUsuario(idUsuario).stream()
+				.filter(lancamento -> lancamento.getSequenciaAlteracao() != null)
+				.filter(lancamento -> lancamento.getSequenciaAlteracao() > desde)
+				.sorted(Comparator.comparing(Lancamento::getSequenciaAlteracao));
+		return pagina(alterados, pageable).collect(Collectors.toList());
+	}
+
+	@Override
+	public Stream<Object[]> obterColunasResumoPorUsuario(Long idUsuario) {
+		return armazenamento.lancamentosDoUsuario(idUsuario).stream()
+				.map(l -> new Object[] { l.getAno(), l.getMes(), l.getTipo(), l.getStatus(), l.getValor(), l.getCategoria() });
+	}
+
+	@Override
+	public List<Object[]> obterValoresGravados(Long id) {
+		return armazenamento.obterLancamento(id)
+				.map(l -> new Object[] { l.getUsuario() == null ? null : l.getUsuario().getId(),
+						l.getAno(), l.getMes(), l.getTipo(), l.getStatus(), l.getValor(), l.getCategoria() })
+				.map(Collections::singletonList)
+				.orElseGet(Collections::emptyList);
+	}
+
+	@Override
+	public List<Lancamento> buscar(FiltroLancamento filtro) {
+		String prefixo = filtro.getDescricao() == null ? null : filtro.getDescricao().toLowerCase(Locale.ROOT);
+		return armazenamento.lancamentosDoUsuario(Objects.requireNonNull(filtro.getIdUsuario())).stream()
+				.filter(l -> filtro.getTipo() == null || filtro.getTipo() == l.getTipo())
+				.filter(l -> filtro.getStatus() == null || filtro.getStatus() == l.getStatus())
+				.filter(l -> filtro.getAno() == null || filtro.getAno().equals(l.getAno()))
+				.filter(l -> filtro.getMes() == null || filtro.getMes().equals(l.getMes()))
+				.filter(l -> dentro(l.getValor(), filtro.getValorMin(), filtro.getValorMax()))
+				.filter(l -> dentro(l.getDataCadastro(), filtro.getDataCadastroDe(), filtro.getDataCadastroAte()))
+				.filter(l -> prefixo == null 
+						|| (l.getDescricao() != null && l.getDescricao().toLowerCase(Locale.ROOT).startsWith(prefixo)))
+				.collect(Collectors.toList());
+	}
+
+	/* como no SQL: valor nulo nao atende a nenhuma faixa informada */
+	private static <T extends Comparable<? super T>> boolean dentro(T valor, T minimo, T maximo) {
+		if (minimo == null && maximo == null) {
+			return true;
+		}
+		return valor != null && (minimo == null || valor.compareTo(minimo) >= 0) 
+				&& (maximo == null || valor.compareTo(maximo) <= 0);
+	}
+
+	@Override
+	public List<String> obterHashesImportados(Long idUsuario, Collection<String> hashes) {
+		return armazenamento.lancamentosDoUsuario(idUsuario).stream()
+				.map(Lancamento::getHashImportacao)
+				.filter(hash -> hash != null && hashes.contains(hash))
+				.collect(Collectors.toList());
+	}
+
+	@Override
+	public List<Object[]> obterColunasPorIds(Long idUsuario, Collection<Long> ids) {
+		return ids.stream().distinct()
+				.map(armazenamento::obterLancamento)
+				.filter(Optional::isPresent)
+				.map(Optional::get)
+				.filter(l -> l.getUsuario() != null && Objects.equals(l.getUsuario().getId(), idUsuario))
+				.map(l -> new Object[] { l.getId(), l.getDescricao(), l.getMes(), l.getAno(), l.getValor(),
+						l.getTipo(), l.getStatus(), l.getCategoria(), l.getTags() })
+				.collect(Collectors.toList());
+	}
+
+	@Override
+	public List<Object[]> obterColunasTagsPorUsuario(Long idUsuario) {
+		return armazenamento.lancamentosDoUsuario(idUsuario).stream()
+				.sorted(Comparator.comparing(Lancamento::getId))
+				.map(l -> new Object[] { l.getId(), l.getValor(), l.getAno(), l.getMes(), l.getTipo(), l.getStatus(), l.getTags() })
+				.collect(Collectors.toList());
+	}
+
+	@Override
+	public List<Long> obterUsuariosMaisAtivos(Integer ano, Integer mes, Pageable pageable) {
+		Map<Long, Long> quantidades = todos().stream()
+				.filter(l -> l.getUsuario() != null && ano.equals(l.getAno()) && mes.equals(l.getMes()))
+				.collect(Collectors.groupingBy(l -> l.getUsuario().getId(), Collectors.counting()));
+		Stream<Long> ids = quantidades.entrySet().stream()
+				.sorted(Map.Entry.<Long, Long>comparingByValue().reversed())
+				.map(Map.Entry::getKey);
+		return pagina(ids, pageable).collect(Collectors.toList());
+	}
+
+	// mesmas colunas e tipos da consulta nativa, com o saldo acumulado aqui
+	@Override
+	public Stream<Object[]> obterExtrato(Long idUsuario, Integer ano, Integer mesDe, Integer mesAte, Long saldoInicial) {
+		long[] saldo = { saldoInicial };
+		return armazenamento.lancamentosDoUsuario(idUsuario).stream()
+				.filter(l -> ano.equals(l.getAno()) && l.getMes() != null && l.getMes() >= mesDe && l.getMes() <= mesAte)
+				.filter(l -> l.getStatus() == StatusLancamento.EFETIVADO)
+				.sorted(Comparator.comparing(Lancamento::getMes)
+						.thenComparing(Lancamento::getDataCadastro, Comparator.nullsLast(Comparator.naturalOrder()))
+						.thenComparing(Lancamento::getId))
+				.map(l -> {
+					saldo[0] += l.getTipo() == TipoLancamento.RECEITA ? l.getValor().cents() : -l.getValor().cents();
+					return new Object[] { l.getId(), l.getAno(), l.getMes(), 
+							l.getDataCadastro() == null ? null : Date.valueOf(l.getDataCadastro()),
+							l.getDescricao(), l.getCategoria(), l.getTipo().name(), l.getValor().cents(), saldo[0] };
+				});
+	}
+
+	@Override
+	public long proximaSequenciaAlteracao() {
+		return armazenamento.proximaSequencia();
+	}
+
+	/*
+	 * No lugar do SELECT ... FOR UPDATE: um bloqueio por usuario, liberado ao fim da transacao
+	 * em andamento (como em UsuarioRepositoryEmbarcado.bloquearPorId).
+	 */
+	@Override
+	public void bloquearAlteracoes(Long idUsuario) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			ReentrantLock bloqueio = bloqueio(idUsuario);
+			bloqueio.lock();
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					bloqueio.unlock();
+				}
+			});
+		}
+	}
+
+	// cada lote faz commit sozinho: o bloqueio vale ate a ultima marca gravada
+	@Override
+	public int deletarRegistrandoRemocao(Long idUsuario, Collection<Long> ids) {
+		ReentrantLock bloqueio = bloqueio(idUsuario);
+		bloqueio.lock();
+		try {
+			int removidos = 0;
+			for (Long id : ids) {
+				if (!doUsuario(id, idUsuario)) {
+					continue;
+				}
+				long sequencia = armazenamento.proximaSequencia();
+				removidoRepository.save(new LancamentoRemovido(id, idUsuario, sequencia, LocalDateTime.now()));
+				if (armazenamento.removerLancamento(id, sequencia)) {
+					removidos++;
+				}
+			}
+			return removidos;
+		} finally {
+			bloqueio.unlock();
+		}
+	}
+
+	private ReentrantLock bloqueio(Long idUsuario) {
+		return bloqueios.computeIfAbsent(idUsuario, chave -> new ReentrantLock());
+	}
+
+	@Override
+	protected List<Lancamento> todos() {
+		return armazenamento.todosLancamentos();
+	}
+
+	// buscar sempre filtra pelo usuario: le so o arquivo dele
+	@Override
+	protected List<Lancamento> candidatos(Lancamento modelo) {
+		if (modelo.getUsuario() != null && modelo.getUsuario().getId() != null) {
+			return armazenamento.lancamentosDoUsuario(modelo.getUsuario().getId());
+		}
+		return todos();
+	}
+
+	@Override
+	protected Optional<Lancamento> porId(Long id) {
+		return armazenamento.obterLancamento(id);
+	}
+
+	@Override
+	protected Lancamento gravar(Lancamento lancamento) {
+		return armazenamento.salvarLancamento(lancamento);
+	}
+
+	@Override
+	protected boolean remover(Long id) {
+		return armazenamento.removerLancamento(id, 0);
+	}
+
+	@Override
+	protected Long idDe(Lancamento lancamento) {
+		return lancamento.getId();
+	}
+
+	private boolean doUsuario(Long id, Long idUsuario) {
+		return armazenamento.obterLancamento(id)
+				.map(Lancamento::getUsuario)
+				.filter(usuario -> Objects.equals(usuario.getId(), idUsuario))
+				.isPresent();
+	}
+
+	private static <E> Stream<E> pagina(Stream<E> linhas, Pageable pageable) {
+		return pageable.isPaged() ? linhas.skip(pageable.getOffset()).limit(pageable.getPageSize()) : linhas;
+	}
+
+}
@@ -0,0 +1,275 @@
+package com.dlima.myfinancas.armazenamento;
+
+import java.beans.PropertyDescriptor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import javax.persistence.Entity;
+import javax.persistence.EntityNotFoundException;
+
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.support.MutableSortDefinition;
+import org.springframework.beans.support.PropertyComparator;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.ExampleMatcher.PropertySpecifier;
+import org.springframework.data.domain.ExampleMatcher.StringMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/*
+ * Operacoes de JpaRepository sobre uma lista em memoria: cada repositorio informa como ler, gravar
+ * e remover no ArmazenamentoEmbarcado. Example compara as propriedades preenchidas do modelo
+ * (inclusive de entidades associadas, como usuario.id) com o StringMatcher e ignoreCase pedidos;
+ * valores nulos do modelo sao sempre ignorados.
+ */
+public abstract class RepositorioEmbarcado<T> implements JpaRepository<T, Long> {
+
+	protected abstract List<T> todos();
+
+	protected abstract Optional<T> porId(Long id);
+
+	protected abstract T gravar(T entidade);
+
+	protected abstract boolean remover(Long id);
+
+	protected abstract Long idDe(T entidade);
+
+	// registros que podem corresponder ao modelo de um Example; por padrao, todos
+	protected List<T> candidatos(T modelo) {
+		return todos();
+	}
+
+	@Override
+	public <S extends T> S save(S entidade) {
+		gravar(entidade);
+		return entidade;
+	}
+
+	@Override
+	public <S extends T> S saveAndFlush(S entidade) {
+		return save(entidade);
+	}
+
+	@Override
+	public <S extends T> List<S> saveAll(Iterable<S> entidades) {
+		List<S> salvas = new ArrayList<>();
+		entidades.forEach(entidade -> salvas.add(save(entidade)));
+		return salvas;
+	}
+
+	// cada gravacao ja foi para o arquivo
+	@Override
+	public void flush() {
+	}
+
+	@Override
+	public Optional<T> findById(Long id) {
+		return porId(id);
+	}
+
+	@Override
+	public boolean existsById(Long id) {
+		return porId(id).isPresent();
+	}
+
+	@Override
+	public T getOne(Long id) {
+		return porId(id).orElseThrow(() -> new EntityNotFoundException("Registro " + id + " não encontrado."));
+	}
+
+	@Override
+	public List<T> findAll() {
+		return todos();
+	}
+
+	@Override
+	public List<T> findAll(Sort sort) {
+		return ordenar(todos(), sort);
+	}
+
+	@Override
+	public Page<T> findAll(Pageable pageable) {
+		return paginar(todos(), pageable);
+	}
+
+	@Override
+	public List<T> findAllById(Iterable<Long> ids) {
+		List<T> encontradas = new ArrayList<>();
+		ids.forEach(id -> porId(id).ifPresent(encontradas::add));
+		return encontradas;
+	}
+
+	@Override
+	public long count() {
+		return todos().size();
+	}
+
+	@Override
+	public void deleteById(Long id) {
+		if (!remover(id)) {
+			throw new EmptyResultDataAccessException("Registro " + id + " não encontrado.", 1);
+		}
+	}
+
+	@Override
+	public void delete(T entidade) {
+		if (idDe(entidade) != null) {
+			remover(idDe(entidade));
+		}
+	}
+
+	@Override
+	public void deleteAll(Iterable<? extends T> entidades) {
+		entidades.forEach(this::delete);
+	}
+
+	@Override
+	public void deleteInBatch(Iterable<T> entidades) {
+		entidades.forEach(this::delete);
+	}
+
+	@Override
+	public void deleteAll() {
+		todos().forEach(this::delete);
+	}
+
+	@Override
+	public void deleteAllInBatch() {
+		deleteAll();
+	}
+
+	@Override
+	public <S extends T> Optional<S> findOne(Example<S> example) {
+		List<S> encontradas = findAll(example);
+		if (encontradas.size() > 1) {
+			throw new IncorrectResultSizeDataAccessException(1, encontradas.size());
+		}
+		return encontradas.stream().findFirst();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <S extends T> List<S> findAll(Example<S> example) {
+		return (List<S>) candidatos(example.getProbe()).stream()
+				.filter(entidade -> corresponde(example, entidade))
+				.collect(Collectors.toList());
+	}
+
+	@Override
+	public <S extends T> List<S> findAll(Example<S> example, Sort sort) {
+		return ordenar(findAll(example), sort);
+	}
+
+	@Override
+	public <S extends T> Page<S> findAll(Example<S> example, Pageable pageable) {
+		return paginar(findAll(example), pageable);
+	}
+
+	@Override
+	public <S extends T> long count(Example<S> example) {
+		return findAll(example).size();
+	}
+
+	@Override
+	public <S extends T> boolean exists(Example<S> example) {
+		return candidatos(example.getProbe()).stream().anyMatch(entidade -> corresponde(example, entidade));
+	}
+
+	protected static <E> List<E> ordenar(List<E> lista, Sort sort) {
+		Comparator<E> comparador = null;
+		for (Sort.Order ordem : sort) {
+			Comparator<E> daOrdem = new PropertyComparator<>(
+					new MutableSortDefinition(ordem.getProperty(), ordem.isIgnoreCase(), ordem.isAscending()));
+			comparador = comparador == null ? daOrdem : comparador.thenComparing(daOrdem);
+		}
+		if (comparador != null) {
+			lista.sort(comparador);
+		}
+		return lista;
+	}
+
+	protected static <E> Page<E> paginar(List<E> lista, Pageable pageable) {
+		if (pageable.isUnpaged()) {
+			return new PageImpl<>(lista, pageable, lista.size());
+		}
+		ordenar(lista, pageable.getSort());
+		int inicio = (int) Math.min(pageable.getOffset(), lista.size());
+		int fim = Math.min(inicio + pageable.getPageSize(), lista.size());
+		return new PageImpl<>(new ArrayList<>(lista.subList(inicio, fim)), pageable, lista.size());
+	}
+
+	private static boolean corresponde(Example<?> example, Object entidade) {
+		List<Boolean> comparacoes = new ArrayList<>();
+		comparar(example.getMatcher(), "", example.getProbe(), entidade, comparacoes);
+		return example.getMatcher().isAllMatching()
+				? !comparacoes.contains(Boolean.FALSE)
+				: comparacoes.isEmpty() || comparacoes.contains(Boolean.TRUE);
+	}
+
+	private static void comparar(ExampleMatcher matcher, String prefixo, Object modelo, Object entidade,
+			List<Boolean> comparacoes) {
+		BeanWrapper doModelo = PropertyAccessorFactory.forBeanPropertyAccess(modelo);
+		BeanWrapper daEntidade = entidade == null ? null : PropertyAccessorFactory.forBeanPropertyAccess(entidade);
+		for (PropertyDescriptor propriedade : doModelo.getPropertyDescriptors()) {
+			String nome = propriedade.getName();
+			String caminho = prefixo + nome;
+			if (propriedade.getReadMethod() == null || "class".equals(nome) || matcher.isIgnoredPath(caminho)
+					|| Collection.class.isAssignableFrom(propriedade.getPropertyType())) {
+				continue;
+			}
+			Object esperado = doModelo.getPropertyValue(nome);
+			if (esperado == null) {
+				continue;
+			}
+			Object valor = daEntidade == null ? null : daEntidade.getPropertyValue(nome);
+			if (esperado.getClass().isAnnotationPresent(Entity.class)) {
+				comparar(matcher, caminho + ".", esperado, valor, comparacoes);
+			} else if (esperado instanceof String) {
+				comparacoes.add(valor != null && compararTexto(matcher, caminho, (String) esperado, valor.toString()));
+			} else {
+				comparacoes.add(esperado.equals(valor));
+			}
+		}
+	}
+
+	private static boolean compararTexto(ExampleMatcher matcher, String caminho, String esperado, String valor) {
+		StringMatcher tipo = matcher.getDefaultStringMatcher();
+		boolean ignorarCaixa = matcher.isIgnoreCaseEnabled();
+		PropertySpecifier especificacao = matcher.getPropertySpecifiers().getForPath(caminho);
+		if (especificacao != null) {
+			tipo = especificacao.getStringMatcher() == null ? tipo : especificacao.getStringMatcher();
+			ignorarCaixa = especificacao.getIgnoreCase() == null ? ignorarCaixa : especificacao.getIgnoreCase();
+		}
+		if (tipo == StringMatcher.REGEX) {
+			return Pattern.compile(esperado, ignorarCaixa ? Pattern.CASE_INSENSITIVE : 0).matcher(valor).matches();
+		}
+		if (ignorarCaixa) {
+			esperado = esperado.toLowerCase(Locale.ROOT);
+			valor = valor.toLowerCase(Locale.ROOT);
+		}
+		switch (tipo) {
+		case STARTING:
+			return valor.startsWith(esperado);
+		case ENDING:
+			return valor.endsWith(esperado);
+		case CONTAINING:
+			return valor.contains(esperado);
+		default:
+			return valor.equals(esperado);
+		}
+	}
+
+}
@@ -0,0 +1,100 @@
+package com.dlima.myfinancas.armazenamento;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.dlima.myfinancas.model.entity.Usuario;
+import com.dlima.myfinancas.model.repository.UsuarioRepository;
+
+public class UsuarioRepositoryEmbarcado extends RepositorioEmbarcado<Usuario> implements UsuarioRepository {
+
+	private final ArmazenamentoEmbarcado armazenamento;
+
+	private final Map<Long, ReentrantLock> bloqueios = new ConcurrentHashMap<>();
+
+	public UsuarioRepositoryEmbarcado(ArmazenamentoEmbarcado armazenamento) {
+		this.armazenamento = armazenamento;
+	}
+
+	@Override
+	public boolean existsByEmail(String email) {
+		return armazenamento.obterUsuarioPorEmail(email).isPresent();
+	}
+
+	@Override
+	public Optional<Usuario> findByEmail(String email) {
+		return armazenamento.obterUsuarioPorEmail(email);
+	}
+
+	/*
+	 * No lugar do SELECT ... FOR UPDATE: um bloqueio por usuario, liberado ao fim da transacao
+	 * em andamento. Sem transacao nao ha ate quando segurar, e o usuario so e lido.
+	 */
+	@Override
+	public Optional<Usuario> bloquearPorId(Long id) {
+		Optional<Usuario> usuario = armazenamento.obterUsuario(id);
+		if (usuario.isPresent() && TransactionSynchronizationManager.isSynchronizationActive()) {
+			ReentrantLock bloqueio = bloqueios.computeIfAbsent(id, chave -> new ReentrantLock());
+			bloqueio.lock();
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					bloqueio.unlock();
+				}
+			});
+		}
+		return usuario;
+	}
+
+	@Override
+	public List<Long> obterIdsApos(Long ultimoId, Pageable pageable) {
+		return armazenamento.listarUsuarios().stream()
+				.map(Usuario::getId)
+				.filter(id -> id > ultimoId)
+				.limit(pageable.isPaged() ? pageable.getPageSize() : Long.MAX_VALUE)
+				.collect(Collectors.toList());
+	}
+
+	@Override
+	public Stream<String> obterEmails() {
+		return armazenamento.listarUsuarios().stream()
+				.map(Usuario::getEmail)
+				.filter(Objects::nonNull);
+	}
+
+	@Override
+	protected List<Usuario> todos() {
+		return armazenamento.listarUsuarios();
+	}
+
+	@Override
+	protected Optional<Usuario> porId(Long id) {
+		return armazenamento.obterUsuario(id);
+	}
+
+	@Override
+	protected Usuario gravar(Usuario usuario) {
+		return armazenamento.salvarUsuario(usuario);
+	}
+
+	@Override
+	protected boolean remover(Long id) {
+		return armazenamento.removerUsuario(id);
+	}
+
+	@Override
+	protected Long idDe(Usuario usuario) {
+		return usuario.getId();
+	}
+
+}
@@ -0,0 +1,29 @@
+package com.dlima.myfinancas.conexoes;
+
+/* Pool da operacao corrente, lido pelo DataSourcePools ao abrir a conexao */
+public final class ContextoPool {
+	
+	private static final ThreadLocal<TipoPool> ATUAL = new ThreadLocal<>();
+	
+	private ContextoPool() {
+	}
+	
+	public static TipoPool atual() {
+		return ATUAL.get();
+	}
+	
+	static TipoPool definir(TipoPool pool) {
+		TipoPool anterior = ATUAL.get();
+		ATUAL.set(pool);
+		return anterior;
+	}
+	
+	static void restaurar(TipoPool anterior) {
+		if (anterior == null) {
+			ATUAL.remove();
+		} else {
+			ATUAL.set(anterior);
+		}
+	}
+
+}
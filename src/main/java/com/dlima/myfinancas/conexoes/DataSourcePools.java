@@ -0,0 +1,114 @@
+package com.dlima.myfinancas.conexoes;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import com.dlima.myfinancas.prazo.ContextoPrazo;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.pool.HikariPool;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/*
+ * Um pool Hikari por TipoPool sobre o mesmo banco, escolhido pelo ContextoPool. Fora de um
+ * servico (ex.: inicializacao do Hibernate, repositorios chamados direto) usa o OLTP.
+ * Cada pool tem tamanho e espera proprios: esgotar um nao prende as conexoes do outro.
+ */
+public class DataSourcePools extends AbstractRoutingDataSource implements Closeable, MeterBinder {
+	
+	private final Map<TipoPool, HikariDataSource> pools;
+	
+	private DataSourcePools(Map<TipoPool, HikariDataSource> pools) {
+		this.pools = pools;
+		setTargetDataSources(new HashMap<>(pools));
+		setDefaultTargetDataSource(pools.get(TipoPool.OLTP));
+		afterPropertiesSet();
+	}
+	
+	// pools nome-oltp e nome-relatorio; as conexoes so sao abertas no primeiro uso
+	public static DataSourcePools criar(String nome, DataSourceProperties banco, PropriedadesPools propriedades) {
+		Map<TipoPool, HikariDataSource> pools = new EnumMap<>(TipoPool.class);
+		pools.put(TipoPool.OLTP, criarPool(nome + "-oltp", banco, propriedades.getOltp()));
+		pools.put(TipoPool.RELATORIO, criarPool(nome + "-relatorio", banco, propriedades.getRelatorio()));
+		return new DataSourcePools(pools);
+	}
+	
+	public HikariDataSource getPool(TipoPool tipo) {
+		return pools.get(tipo);
+	}
+	
+	@Override
+	protected Object determineCurrentLookupKey() {
+		return ContextoPool.atual();
+	}
+	
+	/*
+	 * A espera por uma conexao livre vai ate o restante do prazo da requisicao, se for menor que
+	 * o tempo-espera-ms do pool: os 15 s do RELATORIO nao seguram uma requisicao de prazo menor.
+	 * Antes da primeira conexao o pool ainda nao existe e vale o tempo-espera-ms.
+	 */
+	@Override
+	public Connection getConnection() throws SQLException {
+		HikariDataSource pool = (HikariDataSource) determineTargetDataSource();
+		Long restanteMs = ContextoPrazo.restanteMs();
+		HikariPoolMXBean iniciado = pool.getHikariPoolMXBean();
+		if (restanteMs != null && restanteMs < pool.getConnectionTimeout() && iniciado instanceof HikariPool) {
+			return ((HikariPool) iniciado).getConnection(Math.max(1, restanteMs));
+		}
+		return pool.getConnection();
+	}
+	
+	@Override
+	public void close() {
+		pools.values().forEach(HikariDataSource::close);
+	}
+	
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		for (HikariDataSource pool : pools.values()) {
+			conexoes(registry, pool, "ativas", HikariPoolMXBean::getActiveConnections);
+			conexoes(registry, pool, "ociosas", HikariPoolMXBean::getIdleConnections);
+			conexoes(registry, pool, "aguardando", HikariPoolMXBean::getThreadsAwaitingConnection);
+			Gauge.builder("myfinancas.pools.maximo", pool, HikariDataSource::getMaximumPoolSize)
+					.tag("pool", pool.getPoolName()).register(registry);
+		}
+	}
+	
+	// 0 antes da primeira conexao (o pool ainda nao existe)
+	private static void conexoes(MeterRegistry registry, HikariDataSource pool, String estado,
+			ToIntFunction<HikariPoolMXBean> valor) {
+		Gauge.builder("myfinancas.pools.conexoes", pool, p -> p.getHikariPoolMXBean() == null 
+					? 0 : valor.applyAsInt(p.getHikariPoolMXBean()))
+				.tag("pool", pool.getPoolName())
+				.tag("estado", estado)
+				.register(registry);
+	}
+	
+	private static HikariDataSource criarPool(String nome, DataSourceProperties banco, PropriedadesPools.Pool pool) {
+		HikariDataSource dataSource = DataSourceBuilder.create()
+				.type(HikariDataSource.class)
+				.url(banco.determineUrl())
+				.username(banco.determineUsername())
+				.password(banco.determinePassword())
+				.driverClassName(banco.determineDriverClassName())
+				.build();
+		dataSource.setPoolName(nome);
+		dataSource.setMaximumPoolSize(pool.getMaximoConexoes());
+		dataSource.setConnectionTimeout(pool.getTempoEsperaMs());
+		return dataSource;
+	}
+
+}
@@ -0,0 +1,36 @@
+package com.dlima.myfinancas.conexoes;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/*
+ * Endpoint anotado com @PoolConexoes: a requisicao inteira usa aquele pool, inclusive as
+ * consultas sem anotacao feitas antes (ex.: o usuario conferido antes da busca). Respostas em
+ * stream continuam em outra thread, onde vale a anotacao do servico chamado.
+ */
+public class InterceptorPool implements AsyncHandlerInterceptor {
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		PoolConexoes anotacao = handler instanceof HandlerMethod
+				? ((HandlerMethod) handler).getMethodAnnotation(PoolConexoes.class) : null;
+		if (anotacao != null) {
+			ContextoPool.definir(anotacao.value());
+		}
+		return true;
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+		ContextoPool.restaurar(null);
+	}
+
+	@Override
+	public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		ContextoPool.restaurar(null);
+	}
+
+}
@@ -0,0 +1,21 @@
+package com.dlima.myfinancas.conexoes;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/*
+ * Pool usado pelo metodo de servico (na interface ou na implementacao). Sem a anotacao o
+ * metodo usa o OLTP; chamadas aninhadas continuam no pool de quem chamou. Num endpoint vale
+ * para a requisicao inteira (InterceptorPool).
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface PoolConexoes {
+	
+	TipoPool value();
+
+}
@@ -0,0 +1,29 @@
+package com.dlima.myfinancas.conexoes;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/* myfinancas.pools.* */
+@Data
+public class PropriedadesPools {
+	
+	private boolean habilitado = true;
+	
+	private Pool oltp = new Pool(10, 2000);
+	
+	private Pool relatorio = new Pool(4, 15000);
+	
+	@Data
+	@NoArgsConstructor
+	@AllArgsConstructor
+	public static class Pool {
+		
+		private int maximoConexoes;
+		
+		// espera por uma conexao livre antes de falhar
+		private long tempoEsperaMs;
+		
+	}
+
+}
@@ -0,0 +1,50 @@
+package com.dlima.myfinancas.conexoes;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.Order;
+
+/*
+ * Define o pool antes de qualquer metodo publico dos servicos, logo depois do shard e por fora
+ * do @Transactional: a conexao da transacao ja sai do pool certo. Chamadas aninhadas mantem o
+ * pool de quem chamou (a transacao delas usa a mesma conexao).
+ */
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class SelecaoPoolAspect {
+	
+	private final Map<Method, TipoPool> porMetodo = new ConcurrentHashMap<>();
+	
+	@Around("execution(public * com.dlima.myfinancas.service..*Service+.*(..))")
+	public Object selecionar(ProceedingJoinPoint chamada) throws Throwable {
+		if (ContextoPool.atual() != null) {
+			return chamada.proceed();
+		}
+		
+		Method metodo = ((MethodSignature) chamada.getSignature()).getMethod();
+		Class<?> alvo = AopUtils.getTargetClass(chamada.getTarget());
+		TipoPool anterior = ContextoPool.definir(porMetodo.computeIfAbsent(
+				AopUtils.getMostSpecificMethod(metodo, alvo), SelecaoPoolAspect::pool));
+		try {
+			return chamada.proceed();
+		} finally {
+			ContextoPool.restaurar(anterior);
+		}
+	}
+	
+	// procura tambem nas interfaces
+	private static TipoPool pool(Method metodo) {
+		PoolConexoes anotacao = AnnotatedElementUtils.findMergedAnnotation(metodo, PoolConexoes.class);
+		return anotacao == null ? TipoPool.OLTP : anotacao.value();
+	}
+
+}
@@ -0,0 +1,9 @@
+package com.dlima.myfinancas.conexoes;
+
+/* Pools de conexao separados: uma consulta pesada nao espera conexao no lugar de uma escrita */
+public enum TipoPool {
+	
+	OLTP, // interativo: escritas e leituras pontuais (padrao)
+	RELATORIO // buscas, extratos, saldos e relatorios
+	
+}
@@ -0,0 +1,10 @@
+package com.dlima.myfinancas.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@EnableScheduling
+@Configuration
+public class AgendamentoConfiguration {
+
+}
@@ -0,0 +1,46 @@
+package com.dlima.myfinancas.config;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+import com.dlima.myfinancas.armazenamento.ArmazenamentoEmbarcado;
+import com.dlima.myfinancas.armazenamento.LancamentoRepositoryEmbarcado;
+import com.dlima.myfinancas.armazenamento.UsuarioRepositoryEmbarcado;
+import com.dlima.myfinancas.model.repository.LancamentoRemovidoRepository;
+
+/*
+ * Perfil embarcado: LancamentoRepository e UsuarioRepository sobre ArmazenamentoEmbarcado.
+ * Os repositorios JPA continuam registrados (os demais dependem do mesmo contexto), mas os
+ * servicos recebem estes, marcados como @Primary. Nao combina com sharding.
+ */
+@Configuration
+@Profile("embarcado")
+public class ArmazenamentoEmbarcadoConfiguration {
+	
+	@Bean(destroyMethod = "close")
+	public ArmazenamentoEmbarcado armazenamentoEmbarcado(
+			@Value("${myfinancas.embarcado.diretorio:./dados}") String diretorio,
+			@Value("${myfinancas.embarcado.sincronizar:true}") boolean sincronizar) throws IOException {
+		return new ArmazenamentoEmbarcado(Paths.get(diretorio), sincronizar);
+	}
+	
+	@Bean
+	@Primary
+	public LancamentoRepositoryEmbarcado lancamentoRepositoryEmbarcado(ArmazenamentoEmbarcado armazenamento,
+			LancamentoRemovidoRepository removidoRepository) {
+		return new LancamentoRepositoryEmbarcado(armazenamento, removidoRepository);
+	}
+	
+	@Bean
+	@Primary
+	public UsuarioRepositoryEmbarcado usuarioRepositoryEmbarcado(ArmazenamentoEmbarcado armazenamento) {
+		return new UsuarioRepositoryEmbarcado(armazenamento);
+	}
+
+}
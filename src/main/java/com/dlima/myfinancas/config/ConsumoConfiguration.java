@@ -0,0 +1,41 @@
+package com.dlima.myfinancas.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import com.dlima.myfinancas.monitoramento.ConsumoRequisicoes;
+import com.dlima.myfinancas.monitoramento.FiltroConsumo;
+
+/*
+ * Maiores consumidores por usuario e endpoint (GET /api/admin/consumo). Com a configuracao
+ * padrao: janela de 6 fatias de 10 s, sketch 4 x 1024 e 50 candidatos por fatia, cerca de
+ * 600 KB por dimensao.
+ */
+@Configuration
+@ConditionalOnProperty(name = "myfinancas.consumo.habilitado", havingValue = "true", matchIfMissing = true)
+public class ConsumoConfiguration {
+
+	@Bean
+	public ConsumoRequisicoes consumoRequisicoes(
+			@Value("${myfinancas.consumo.fatias:6}") int fatias,
+			@Value("${myfinancas.consumo.duracao-fatia-ms:10000}") long duracaoFatiaMs,
+			@Value("${myfinancas.consumo.profundidade:4}") int profundidade,
+			@Value("${myfinancas.consumo.largura:1024}") int largura,
+			@Value("${myfinancas.consumo.candidatos:50}") int candidatos) {
+		return new ConsumoRequisicoes(fatias, duracaoFatiaMs, profundidade, largura, candidatos);
+	}
+
+	// dentro do FiltroOrcamentoSql, cuja medicao fornece o tempo de banco
+	@Bean
+	public FilterRegistrationBean<FiltroConsumo> filtroConsumo(ConsumoRequisicoes consumoRequisicoes) {
+		FilterRegistrationBean<FiltroConsumo> registro = new FilterRegistrationBean<>(new FiltroConsumo(consumoRequisicoes));
+		registro.addUrlPatterns("/api/lancamentos/*", "/api/usuarios/*");
+		registro.setOrder(Ordered.HIGHEST_PRECEDENCE + 20);
+		return registro;
+	}
+
+}
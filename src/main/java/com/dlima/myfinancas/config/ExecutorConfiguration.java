@@ -0,0 +1,79 @@
+package com.dlima.myfinancas.config;
+
+import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import com.dlima.myfinancas.event.AnelEventos;
+import com.dlima.myfinancas.event.ConsumidorEventos;
+import com.dlima.myfinancas.event.EstrategiaEspera;
+import com.dlima.myfinancas.event.LancamentoAlteradoEvent;
+import com.dlima.myfinancas.monitoramento.ContadorSql;
+import com.dlima.myfinancas.prazo.ContextoPrazo;
+
+@Configuration
+public class ExecutorConfiguration {
+	
+	// pool limitado para as consultas paralelas do dashboard; com a fila cheia a propria thread da requisicao executa
+	@Bean
+	public ThreadPoolTaskExecutor dashboardExecutor(
+			@Value("${myfinancas.dashboard.threads:8}") int threads,
+			@Value("${myfinancas.dashboard.fila:100}") int fila) {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(threads);
+		executor.setMaxPoolSize(threads);
+		executor.setQueueCapacity(fila);
+		executor.setThreadNamePrefix("dashboard-");
+		// consultas paralelas contam na requisicao e respeitam o prazo dela
+		executor.setTaskDecorator(tarefa -> ContextoPrazo.propagar(ContadorSql.propagar(tarefa)));
+		executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+		executor.setWaitForTasksToCompleteOnShutdown(true);
+		return executor;
+	}
+	
+	// envio das notificacoes SSE; com a fila cheia o envio e adiado (as pendencias ficam aglutinadas no assinante)
+	@Bean
+	public ThreadPoolTaskExecutor eventosExecutor(
+			@Value("${myfinancas.eventos.threads:4}") int threads,
+			@Value("${myfinancas.eventos.fila:1000}") int fila) {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(threads);
+		executor.setMaxPoolSize(threads);
+		executor.setQueueCapacity(fila);
+		executor.setThreadNamePrefix("eventos-");
+		executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+		return executor;
+	}
+	
+	// workers do ReconstrucaoResumoJob; o coordenador limita os lotes em andamento, entao a fila nunca enche
+	@Bean
+	public ThreadPoolTaskExecutor reconstrucaoExecutor(@Value("${myfinancas.reconstrucao.threads:2}") int threads) {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(threads);
+		executor.setMaxPoolSize(threads);
+		executor.setQueueCapacity(threads * 2);
+		executor.setThreadNamePrefix("reconstrucao-");
+		return executor;
+	}
+	
+	/*
+	 * Eventos de lancamento confirmados, entregues em lote aos ConsumidorEventos fora da thread
+	 * da requisicao; cada consumidor tem a sua thread. Capacidade em potencia de 2.
+	 */
+	@Bean
+	public AnelEventos<LancamentoAlteradoEvent> anelEventos(
+			List<ConsumidorEventos<LancamentoAlteradoEvent>> consumidores,
+			@Value("${myfinancas.eventos.anel.capacidade:4096}") int capacidade,
+			@Value("${myfinancas.eventos.anel.espera:BLOQUEAR}") EstrategiaEspera espera,
+			@Value("${myfinancas.eventos.anel.tamanho-lote:256}") int tamanhoLote,
+			@Value("${myfinancas.eventos.anel.tempo-encerramento-ms:10000}") long tempoEncerramentoMs,
+			@Value("${myfinancas.eventos.anel.espera-maxima-produtor-ms:1000}") long esperaMaximaProdutorMs) {
+		return new AnelEventos<>("eventos-lancamento", capacidade, espera, tamanhoLote, tempoEncerramentoMs,
+				esperaMaximaProdutorMs, consumidores);
+	}
+
+}
@@ -0,0 +1,27 @@
+package com.dlima.myfinancas.config;
+
+import java.util.Arrays;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+@Configuration
+public class InicializacaoConfiguration {
+
+	// static: precisam existir antes dos demais beans serem definidos/criados
+	@Bean
+	@ConditionalOnProperty(name = "myfinancas.inicializacao.lazy", havingValue = "true")
+	public static InicializacaoPreguicosaPostProcessor inicializacaoPreguicosaPostProcessor(Environment environment) {
+		String[] criticos = environment.getProperty("myfinancas.inicializacao.beans-criticos", String[].class, new String[0]);
+		return new InicializacaoPreguicosaPostProcessor(Arrays.asList(criticos));
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "myfinancas.inicializacao.relatorio", havingValue = "true")
+	public static RelatorioInicializacao relatorioInicializacao(Environment environment) {
+		return new RelatorioInicializacao(environment.getProperty("myfinancas.inicializacao.relatorio-beans", Integer.class, 20));
+	}
+
+}
@@ -0,0 +1,36 @@
+package com.dlima.myfinancas.config;
+
+import java.util.Collection;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+
+/*
+ * Marca como lazy todos os beans da aplicacao, exceto os informados como criticos.
+ * Beans de infraestrutura do Spring (ROLE_INFRASTRUCTURE) continuam sendo criados no boot.
+ */
+public class InicializacaoPreguicosaPostProcessor implements BeanFactoryPostProcessor {
+
+	private final Collection<String> beansCriticos;
+
+	public InicializacaoPreguicosaPostProcessor(Collection<String> beansCriticos) {
+		this.beansCriticos = beansCriticos;
+	}
+
+	@Override
+	public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+		for (String nome : beanFactory.getBeanDefinitionNames()) {
+			if (beansCriticos.contains(nome)) {
+				continue;
+			}
+
+			BeanDefinition definicao = beanFactory.getBeanDefinition(nome);
+			if (definicao.getRole() == BeanDefinition.ROLE_APPLICATION) {
+				definicao.setLazyInit(true);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,38 @@
+package com.dlima.myfinancas.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import com.dlima.myfinancas.monitoramento.ContadorSqlPostProcessor;
+import com.dlima.myfinancas.monitoramento.FiltroOrcamentoSql;
+
+/*
+ * Contagem de comandos SQL por requisicao. myfinancas.sql.cabecalhos=true devolve a contagem
+ * nos cabecalhos da resposta (depuracao e testes); o orcamento vale sempre e so gera log.
+ */
+@Configuration
+@ConditionalOnProperty(name = "myfinancas.sql.monitorar", havingValue = "true", matchIfMissing = true)
+public class MonitoramentoSqlConfiguration {
+
+	@Bean
+	public static ContadorSqlPostProcessor contadorSqlPostProcessor() {
+		return new ContadorSqlPostProcessor();
+	}
+
+	@Bean
+	public FilterRegistrationBean<FiltroOrcamentoSql> filtroOrcamentoSql(
+			@Value("${myfinancas.sql.orcamento-comandos:20}") int orcamentoComandos,
+			@Value("${myfinancas.sql.orcamento-ms:500}") long orcamentoMs,
+			@Value("${myfinancas.sql.cabecalhos:false}") boolean cabecalhos) {
+		FilterRegistrationBean<FiltroOrcamentoSql> registro =
+				new FilterRegistrationBean<>(new FiltroOrcamentoSql(orcamentoComandos, orcamentoMs, cabecalhos));
+		registro.addUrlPatterns("/api/*");
+		registro.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+		return registro;
+	}
+
+}
@@ -0,0 +1,92 @@
+package com.dlima.myfinancas.config;
+
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.dlima.myfinancas.conexoes.DataSourcePools;
+import com.dlima.myfinancas.conexoes.InterceptorPool;
+import com.dlima.myfinancas.conexoes.PropriedadesPools;
+import com.dlima.myfinancas.conexoes.SelecaoPoolAspect;
+import com.dlima.myfinancas.sharding.RoteadorShards;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/*
+ * Pools OLTP e RELATORIO (myfinancas.pools.oltp/relatorio.maximo-conexoes e tempo-espera-ms),
+ * escolhidos por @PoolConexoes nos metodos dos servicos ou nos endpoints. Sem sharding os dois ficam sobre
+ * spring.datasource; com sharding a ShardingConfiguration cria um par por shard.
+ * Desabilitado: um unico pool, como antes.
+ *
+ * spring.jpa.open-in-view fica desligado (application.properties): com ele a primeira conexao da
+ * requisicao ficaria presa ate o fim, e as consultas de relatorio rodariam nela.
+ */
+@Configuration
+@ConditionalOnProperty(name = "myfinancas.pools.habilitado", havingValue = "true", matchIfMissing = true)
+public class PoolsConexoesConfiguration {
+	
+	@Bean
+	@ConfigurationProperties("myfinancas.pools")
+	public PropriedadesPools propriedadesPools() {
+		return new PropriedadesPools();
+	}
+	
+	@Bean
+	public SelecaoPoolAspect selecaoPoolAspect() {
+		return new SelecaoPoolAspect();
+	}
+	
+	// separada: os testes @WebMvcTest carregam os WebMvcConfigurer, nao os DataSources
+	@Configuration
+	@ConditionalOnProperty(name = "myfinancas.pools.habilitado", havingValue = "true", matchIfMissing = true)
+	public static class PoolsConexoesWeb implements WebMvcConfigurer {
+		
+		@Override
+		public void addInterceptors(InterceptorRegistry registry) {
+			registry.addInterceptor(new InterceptorPool()).addPathPatterns("/api/**");
+		}
+		
+	}
+	
+	// substitui o pool do DataSourceAutoConfiguration; fechado no destroy (DataSourceContadorSql.close)
+	@Bean
+	@Primary
+	@ConditionalOnProperty(name = "myfinancas.sharding.habilitado", havingValue = "false", matchIfMissing = true)
+	public DataSource dataSource(DataSourceProperties banco, PropriedadesPools propriedades) {
+		return DataSourcePools.criar("myfinancas", banco, propriedades);
+	}
+	
+	// myfinancas.pools.conexoes{pool, estado} e myfinancas.pools.maximo{pool}, de cada shard quando houver
+	@Bean
+	public MeterBinder metricasPools(DataSource dataSource, ObjectProvider<RoteadorShards> roteador) {
+		return registry -> {
+			RoteadorShards shards = roteador.getIfAvailable();
+			if (shards == null) {
+				desembrulhar(dataSource).bindTo(registry);
+				return;
+			}
+			for (int shard = 0; shard < shards.quantidade(); shard++) {
+				desembrulhar(shards.getDataSource(shard)).bindTo(registry);
+			}
+		};
+	}
+	
+	private static DataSourcePools desembrulhar(DataSource dataSource) {
+		try {
+			return dataSource.unwrap(DataSourcePools.class);
+		} catch (SQLException e) {
+			throw new IllegalStateException("DataSource sem pools separados", e);
+		}
+	}
+
+}
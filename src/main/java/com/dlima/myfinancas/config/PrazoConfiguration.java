@@ -0,0 +1,42 @@
+package com.dlima.myfinancas.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.dlima.myfinancas.prazo.InterceptorPrazo;
+import com.dlima.myfinancas.prazo.PrazoPostProcessor;
+
+/*
+ * Prazo por requisicao (cabecalho X-Prazo-Ms, @PrazoPadrao ou myfinancas.prazo.padrao-ms) levado
+ * ate o banco como query timeout. Prazo esgotado responde 504 (TratadorPrazoEsgotado).
+ */
+@Configuration
+@ConditionalOnProperty(name = "myfinancas.prazo.habilitado", havingValue = "true", matchIfMissing = true)
+public class PrazoConfiguration implements WebMvcConfigurer {
+	
+	private final long padraoMs;
+	
+	private final long maximoMs;
+	
+	public PrazoConfiguration(
+			@Value("${myfinancas.prazo.padrao-ms:30000}") long padraoMs,
+			@Value("${myfinancas.prazo.maximo-ms:60000}") long maximoMs) {
+		this.padraoMs = padraoMs;
+		this.maximoMs = maximoMs;
+	}
+
+	@Bean
+	public static PrazoPostProcessor prazoPostProcessor() {
+		return new PrazoPostProcessor();
+	}
+	
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(new InterceptorPrazo(padraoMs, maximoMs)).addPathPatterns("/api/**");
+	}
+
+}
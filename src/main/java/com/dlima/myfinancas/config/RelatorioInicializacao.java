@@ -0,0 +1,132 @@
+package com.dlima.myfinancas.config;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+/*
+ * Mede o tempo gasto na criacao de cada bean (tempo proprio, sem as dependencias
+ * criadas durante a sua inicializacao) e o tempo de cada fase do boot.
+ */
+public class RelatorioInicializacao implements InstantiationAwareBeanPostProcessor,
+		ApplicationListener<ApplicationEvent>, ApplicationContextAware {
+
+	private static final Logger log = LoggerFactory.getLogger(RelatorioInicializacao.class);
+
+	private final int quantidadeBeans;
+
+	private final long inicioJvm = ManagementFactory.getRuntimeMXBean().getStartTime();
+
+	private long inicioContexto = System.currentTimeMillis();
+
+	private long contextoAtualizado;
+
+	private long aplicacaoPronta;
+
+	private final Map<String, Long> tempoPorBean = new ConcurrentHashMap<>();
+
+	// pilha por thread dos beans em criacao
+	private final ThreadLocal<Deque<Medicao>> emCriacao = ThreadLocal.withInitial(ArrayDeque::new);
+
+	public RelatorioInicializacao(int quantidadeBeans) {
+		this.quantidadeBeans = quantidadeBeans;
+	}
+
+	@Override
+	public void setApplicationContext(ApplicationContext applicationContext) {
+		inicioContexto = applicationContext.getStartupDate();
+	}
+
+	@Override
+	public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) throws BeansException {
+		emCriacao.get().push(new Medicao(beanName));
+		return null;
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+		Deque<Medicao> pilha = emCriacao.get();
+		if (pilha.isEmpty() || !pilha.peek().nome.equals(beanName)) {
+			return bean; // objeto produzido por FactoryBean, ja medido
+		}
+
+		Medicao medicao = pilha.pop();
+		long total = System.nanoTime() - medicao.inicio;
+		tempoPorBean.merge(beanName, total - medicao.dependencias, Long::sum);
+
+		if (!pilha.isEmpty()) {
+			pilha.peek().dependencias += total; // desconta do bean que dependia deste
+		}
+		return bean;
+	}
+
+	@Override
+	public void onApplicationEvent(ApplicationEvent event) {
+		if (event instanceof ContextRefreshedEvent && contextoAtualizado == 0) {
+			contextoAtualizado = System.currentTimeMillis();
+		} else if (event instanceof ApplicationReadyEvent && aplicacaoPronta == 0) {
+			aplicacaoPronta = System.currentTimeMillis();
+			emCriacao.remove();
+			registrar();
+		}
+	}
+
+	public Map<String, Long> getFases() {
+		Map<String, Long> fases = new LinkedHashMap<>();
+		fases.put("jvm-ate-contexto", inicioContexto - inicioJvm);
+		fases.put("criacao-beans", contextoAtualizado - inicioContexto);
+		fases.put("pos-refresh", aplicacaoPronta - contextoAtualizado);
+		return fases;
+	}
+
+	// tempo desde a criacao do contexto ate a aplicacao ficar pronta, em ms
+	public long getTempoContextoMs() {
+		return aplicacaoPronta - inicioContexto;
+	}
+
+	// tempo proprio de cada bean, em ns
+	public List<Map.Entry<String, Long>> getBeansMaisLentos() {
+		List<Map.Entry<String, Long>> beans = new ArrayList<>(tempoPorBean.entrySet());
+		beans.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+		return beans.subList(0, Math.min(quantidadeBeans, beans.size()));
+	}
+
+	private void registrar() {
+		StringBuilder relatorio = new StringBuilder("Relatorio de inicializacao (ms)");
+		getFases().forEach((fase, tempo) -> relatorio.append("\n  fase ").append(fase).append(": ").append(tempo));
+		getBeansMaisLentos().forEach(bean -> relatorio.append("\n  bean ").append(bean.getKey())
+				.append(": ").append(bean.getValue() / 1_000_000));
+		log.info(relatorio.toString());
+	}
+
+	private static class Medicao {
+
+		private final String nome;
+
+		private final long inicio = System.nanoTime();
+
+		private long dependencias;
+
+		private Medicao(String nome) {
+			this.nome = nome;
+		}
+
+	}
+
+}
@@ -0,0 +1,92 @@
+package com.dlima.myfinancas.config;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.dlima.myfinancas.conexoes.DataSourcePools;
+import com.dlima.myfinancas.conexoes.PropriedadesPools;
+import com.dlima.myfinancas.service.cache.FiltroBloomEmails;
+import com.dlima.myfinancas.sharding.DataSourceShards;
+import com.dlima.myfinancas.sharding.PropriedadesSharding;
+import com.dlima.myfinancas.sharding.RoteadorShards;
+import com.dlima.myfinancas.sharding.RoteamentoShardAspect;
+import com.zaxxer.hikari.HikariDataSource;
+
+/*
+ * Usuarios distribuidos em varios bancos (myfinancas.sharding.shards[n].url/username/password).
+ * Cada shard tem o schema completo, com as sequences intercaladas (ver RoteadorShards).
+ * Desabilitado: um unico banco em spring.datasource, como antes.
+ */
+@Configuration
+@ConditionalOnProperty(name = "myfinancas.sharding.habilitado", havingValue = "true")
+public class ShardingConfiguration {
+	
+	@Bean
+	@ConfigurationProperties("myfinancas.sharding")
+	public PropriedadesSharding propriedadesSharding() {
+		return new PropriedadesSharding();
+	}
+	
+	// fecha os pools dos shards ao encerrar (RoteadorShards.close); com myfinancas.pools, um par OLTP/RELATORIO por shard
+	@Bean
+	public RoteadorShards roteadorShards(PropriedadesSharding propriedades, ObjectProvider<PropriedadesPools> pools,
+			FiltroBloomEmails filtroEmails) {
+		List<DataSource> dataSources = new ArrayList<>();
+		for (DataSourceProperties shard : propriedades.getShards()) {
+			if (pools.getIfAvailable() != null) {
+				dataSources.add(DataSourcePools.criar("shard-" + dataSources.size(), shard, pools.getIfAvailable()));
+				continue;
+			}
+			HikariDataSource dataSource = DataSourceBuilder.create()
+					.type(HikariDataSource.class)
+					.url(shard.getUrl())
+					.username(shard.getUsername())
+					.password(shard.getPassword())
+					.driverClassName(shard.getDriverClassName())
+					.build();
+			dataSource.setPoolName("shard-" + dataSources.size());
+			dataSources.add(dataSource);
+		}
+		RoteadorShards roteador = new RoteadorShards(dataSources, propriedades.getIntervaloIds(), propriedades.getNosVirtuais());
+		roteador.setEmailPodeExistir(filtroEmails::podeConter);
+		return roteador;
+	}
+	
+	/*
+	 * A conexao real so e pedida no primeiro comando SQL, quando o shard ja foi definido
+	 * pelo RoteamentoShardAspect; o inicio da transacao nao prende a conexao do shard padrao.
+	 */
+	@Bean
+	@Primary
+	public DataSource dataSource(RoteadorShards roteadorShards) {
+		Map<Object, Object> destinos = new HashMap<>();
+		for (int shard = 0; shard < roteadorShards.quantidade(); shard++) {
+			destinos.put(shard, roteadorShards.getDataSource(shard));
+		}
+		DataSourceShards roteamento = new DataSourceShards();
+		roteamento.setTargetDataSources(destinos);
+		roteamento.setDefaultTargetDataSource(roteadorShards.getDataSource(0));
+		roteamento.afterPropertiesSet();
+		return new LazyConnectionDataSourceProxy(roteamento);
+	}
+	
+	@Bean
+	public RoteamentoShardAspect roteamentoShardAspect(RoteadorShards roteadorShards) {
+		return new RoteamentoShardAspect(roteadorShards);
+	}
+
+}
@@ -1,14 +1,21 @@
 package com.dlima.myfinancas.config;
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.format.FormatterRegistry;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
-import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
-@EnableWebMvc
+import com.dlima.myfinancas.model.money.Money;
+
 @Configuration
 public class WebConfiguration implements WebMvcConfigurer {
 	
+	// parametros em reais ("500", "12.30"), ex.: valorMin e valorMax da busca de lancamentos
+	@Override
+	public void addFormatters(FormatterRegistry registry) {
+		registry.addConverter(String.class, Money.class, texto -> Money.parse(texto.trim()));
+	}
+	
 	@Override
 	public void addCorsMappings(CorsRegistry registry) {
 		registry.addMapping("/**").allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS");
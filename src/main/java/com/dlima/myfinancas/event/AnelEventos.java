@@ -0,0 +1,341 @@
+package com.dlima.myfinancas.event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.context.SmartLifecycle;
+import org.springframework.util.ClassUtils;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+/*
+ * Fila circular de tamanho fixo entre quem publica (threads das requisicoes, apos o commit) e
+ * consumidores com thread propria. Publicar e reservar uma sequencia com incrementAndGet,
+ * gravar a posicao e marcar a sequencia como publicada: sem locks e sem alocar nos. Cada
+ * consumidor le tudo o que ja foi publicado de uma vez e recebe em lote; anel cheio faz o
+ * produtor esperar pelo consumidor mais lento, ate esperaMaximaProdutorMs: depois disso o
+ * evento e descartado (e contado), para um consumidor travado nao prender as requisicoes.
+ *
+ * Nada se perde no encerramento: stop para de aceitar eventos no anel, os consumidores esvaziam
+ * o que foi publicado (ate tempoEncerramentoMs) e o que chegar depois, ou antes do start, e
+ * entregue na propria thread de quem publicou.
+ */
+@Slf4j
+public class AnelEventos<E> implements SmartLifecycle, MeterBinder {
+
+	private final String nome;
+
+	private final Object[] eventos;
+
+	private final int mascara;
+
+	private final AtomicLongArray publicadas; // sequencia gravada em cada posicao
+
+	private final AtomicLong reservada = new AtomicLong(-1); // ultima sequencia entregue a um produtor
+
+	private final List<Consumidor> consumidores = new ArrayList<>();
+
+	private final EstrategiaEspera espera;
+
+	private final int tamanhoMaximoLote;
+
+	private final long tempoEncerramentoMs;
+
+	private final long esperaMaximaProdutorNanos;
+
+	private final ReentrantLock trava = new ReentrantLock();
+
+	private final Condition publicado = trava.newCondition();
+
+	private final AtomicInteger bloqueados = new AtomicInteger(); // consumidores dormindo em BLOQUEAR
+
+	private final AtomicInteger produzindo = new AtomicInteger();
+
+	private final LongAdder anelCheio = new LongAdder();
+
+	private final LongAdder descartados = new LongAdder();
+
+	private volatile boolean ativo;
+
+	public AnelEventos(String nome, int capacidade, EstrategiaEspera espera, int tamanhoMaximoLote,
+			long tempoEncerramentoMs, long esperaMaximaProdutorMs, List<? extends ConsumidorEventos<E>> consumidores) {
+		if (capacidade <= 0 || Integer.bitCount(capacidade) != 1) {
+			throw new IllegalArgumentException("A capacidade do anel deve ser uma potência de 2: " + capacidade);
+		}
+		this.nome = nome;
+		this.eventos = new Object[capacidade];
+		this.mascara = capacidade - 1;
+		this.publicadas = new AtomicLongArray(capacidade);
+		for (int posicao = 0; posicao < capacidade; posicao++) {
+			publicadas.set(posicao, -1);
+		}
+		this.espera = espera;
+		this.tamanhoMaximoLote = tamanhoMaximoLote;
+		this.tempoEncerramentoMs = tempoEncerramentoMs;
+		this.esperaMaximaProdutorNanos = TimeUnit.MILLISECONDS.toNanos(esperaMaximaProdutorMs);
+		for (ConsumidorEventos<E> destino : consumidores) {
+			this.consumidores.add(new Consumidor(destino));
+		}
+	}
+
+	public void publicar(E evento) {
+		if (consumidores.isEmpty()) {
+			return;
+		}
+		produzindo.incrementAndGet(); // antes de ler ativo: stop espera os produtores em andamento
+		try {
+			if (!ativo) {
+				entregarNaThreadAtual(evento);
+				return;
+			}
+			long sequencia = reservar();
+			if (sequencia < 0) {
+				descartados.increment();
+				return;
+			}
+			eventos[posicao(sequencia)] = evento;
+			publicadas.set(posicao(sequencia), sequencia);
+		} finally {
+			produzindo.decrementAndGet();
+		}
+		if (espera == EstrategiaEspera.BLOQUEAR && bloqueados.get() > 0) {
+			trava.lock();
+			try {
+				publicado.signalAll();
+			} finally {
+				trava.unlock();
+			}
+		}
+	}
+
+	/*
+	 * Reserva so quando ha espaco: uma sequencia reservada precisa ser publicada, senao os
+	 * consumidores param nela. -1 quando o anel continua cheio apos a espera maxima.
+	 */
+	private long reservar() {
+		long limite = 0;
+		while (true) {
+			long atual = reservada.get();
+			if (atual + 1 - eventos.length <= menorConsumida()) {
+				if (reservada.compareAndSet(atual, atual + 1)) {
+					return atual + 1;
+				}
+				continue;
+			}
+			if (limite == 0) {
+				anelCheio.increment();
+				limite = System.nanoTime() + esperaMaximaProdutorNanos;
+			} else if (System.nanoTime() - limite >= 0) {
+				return -1;
+			}
+			LockSupport.parkNanos(1000);
+		}
+	}
+
+	/* eventos publicados que o consumidor mais lento ainda nao terminou */
+	public long pendentes() {
+		return consumidores.isEmpty() ? 0 : reservada.get() - menorConsumida();
+	}
+
+	@Override
+	public void start() {
+		ativo = true;
+		for (Consumidor consumidor : consumidores) {
+			consumidor.thread = new Thread(consumidor, nome + "-" + consumidor.nome);
+			consumidor.thread.setDaemon(true);
+			consumidor.thread.start();
+		}
+	}
+
+	@Override
+	public void stop() {
+		ativo = false;
+		while (produzindo.get() > 0) { // publicacoes que ja tinham visto o anel ativo
+			Thread.yield();
+		}
+		long limite = System.currentTimeMillis() + tempoEncerramentoMs;
+		for (Consumidor consumidor : consumidores) {
+			if (consumidor.thread == null) {
+				continue;
+			}
+			trava.lock();
+			try {
+				publicado.signalAll();
+			} finally {
+				trava.unlock();
+			}
+			try {
+				consumidor.thread.join(Math.max(1, limite - System.currentTimeMillis()));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (consumidor.thread.isAlive()) {
+				consumidor.thread.interrupt();
+				log.warn("{}: {} eventos não entregues a {} no encerramento", nome,
+						reservada.get() - consumidor.consumida.get(), consumidor.nome);
+			}
+			consumidor.thread = null;
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return ativo;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("myfinancas.eventos.anel.ocupacao", this, AnelEventos::pendentes)
+				.tag("anel", nome).register(registry);
+		Gauge.builder("myfinancas.eventos.anel.capacidade", eventos, posicoes -> posicoes.length)
+				.tag("anel", nome).register(registry);
+		FunctionCounter.builder("myfinancas.eventos.anel.cheio", anelCheio, LongAdder::sum)
+				.tag("anel", nome).description("publicacoes que esperaram espaco no anel").register(registry);
+		FunctionCounter.builder("myfinancas.eventos.anel.descartados", descartados, LongAdder::sum)
+				.tag("anel", nome).description("eventos descartados com o anel cheio apos a espera maxima").register(registry);
+		for (Consumidor consumidor : consumidores) {
+			Gauge.builder("myfinancas.eventos.anel.atraso", consumidor, c -> reservada.get() - c.consumida.get())
+					.tag("anel", nome).tag("consumidor", consumidor.nome)
+					.description("eventos publicados ainda nao processados pelo consumidor").register(registry);
+			FunctionCounter.builder("myfinancas.eventos.anel.processados", consumidor.processados, LongAdder::sum)
+					.tag("anel", nome).tag("consumidor", consumidor.nome).register(registry);
+			FunctionCounter.builder("myfinancas.eventos.anel.lotes", consumidor.lotes, LongAdder::sum)
+					.tag("anel", nome).tag("consumidor", consumidor.nome).register(registry);
+			FunctionCounter.builder("myfinancas.eventos.anel.falhas", consumidor.falhas, LongAdder::sum)
+					.tag("anel", nome).tag("consumidor", consumidor.nome).register(registry);
+		}
+	}
+
+	private long menorConsumida() {
+		long menor = Long.MAX_VALUE;
+		for (Consumidor consumidor : consumidores) {
+			menor = Math.min(menor, consumidor.consumida.get());
+		}
+		return menor;
+	}
+
+	/* ultima sequencia de uma sequencia continua de publicadas a partir de proxima */
+	private long ultimaPublicada(long proxima) {
+		long sequencia = proxima;
+		long limite = reservada.get();
+		while (sequencia <= limite && publicadas.get(posicao(sequencia)) == sequencia) {
+			sequencia++;
+		}
+		return sequencia - 1;
+	}
+
+	private int posicao(long sequencia) {
+		return (int) sequencia & mascara;
+	}
+
+	private void entregarNaThreadAtual(E evento) {
+		List<E> lote = Collections.singletonList(evento);
+		for (Consumidor consumidor : consumidores) {
+			consumidor.entregar(lote);
+		}
+	}
+
+	private final class Consumidor implements Runnable {
+
+		private final ConsumidorEventos<E> destino;
+
+		private final String nome;
+
+		private final AtomicLong consumida = new AtomicLong(-1);
+
+		private final LongAdder processados = new LongAdder();
+
+		private final LongAdder lotes = new LongAdder();
+
+		private final LongAdder falhas = new LongAdder();
+
+		private volatile Thread thread;
+
+		private Consumidor(ConsumidorEventos<E> destino) {
+			this.destino = destino;
+			this.nome = ClassUtils.getUserClass(destino).getSimpleName();
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void run() {
+			long proxima = consumida.get() + 1;
+			while (!Thread.currentThread().isInterrupted()) {
+				long disponivel = ultimaPublicada(proxima);
+				if (disponivel < proxima) {
+					// encerrado, sem produtor no meio de uma publicacao e nada mais reservado
+					if (!ativo && produzindo.get() == 0 && reservada.get() < proxima) {
+						return;
+					}
+					aguardar(proxima);
+					continue;
+				}
+				long ultima = Math.min(disponivel, proxima + tamanhoMaximoLote - 1);
+				List<E> lote = new ArrayList<>((int) (ultima - proxima + 1));
+				for (long sequencia = proxima; sequencia <= ultima; sequencia++) {
+					lote.add((E) eventos[posicao(sequencia)]);
+				}
+				try {
+					entregar(lote);
+				} finally {
+					consumida.set(ultima); // libera as posicoes para os produtores
+				}
+				proxima = ultima + 1;
+			}
+		}
+
+		// Error tambem: a thread do consumidor nao pode morrer com posicoes ainda presas
+		private void entregar(List<E> lote) {
+			try {
+				destino.processar(lote);
+				processados.add(lote.size());
+				lotes.increment();
+			} catch (Throwable e) {
+				falhas.increment();
+				log.error("{}: {} falhou ao processar {} eventos", AnelEventos.this.nome, nome, lote.size(), e);
+			}
+		}
+
+		private void aguardar(long proxima) {
+			switch (espera) {
+			case OCUPADA:
+				break;
+			case CEDER:
+				Thread.yield();
+				break;
+			case DORMIR:
+				LockSupport.parkNanos(100_000);
+				break;
+			default:
+				bloqueados.incrementAndGet();
+				trava.lock();
+				try {
+					// o aviso do produtor pode ter sido dado antes do incremento: espera com limite
+					if (ativo && ultimaPublicada(proxima) < proxima) {
+						publicado.await(10, TimeUnit.MILLISECONDS);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					trava.unlock();
+					bloqueados.decrementAndGet();
+				}
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,13 @@
+package com.dlima.myfinancas.event;
+
+import java.util.List;
+
+/*
+ * Recebe os eventos do AnelEventos em lotes, na ordem de publicacao, numa thread propria.
+ * Uma excecao e registrada no log e o lote e descartado para este consumidor.
+ */
+public interface ConsumidorEventos<E> {
+	
+	void processar(List<E> lote);
+
+}
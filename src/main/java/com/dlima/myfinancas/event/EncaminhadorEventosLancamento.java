@@ -0,0 +1,20 @@
+package com.dlima.myfinancas.event;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import lombok.RequiredArgsConstructor;
+
+/* leva os LancamentoAlteradoEvent confirmados para o anel; a requisicao nao espera os consumidores */
+@Component
+@RequiredArgsConstructor
+public class EncaminhadorEventosLancamento {
+	
+	private final AnelEventos<LancamentoAlteradoEvent> anelEventos;
+	
+	@TransactionalEventListener(fallbackExecution = true)
+	public void aoAlterarLancamento(LancamentoAlteradoEvent evento) {
+		anelEventos.publicar(evento);
+	}
+
+}
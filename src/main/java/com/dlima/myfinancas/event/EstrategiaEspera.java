@@ -0,0 +1,11 @@
+package com.dlima.myfinancas.event;
+
+/* como um consumidor do AnelEventos espera por eventos novos (e um produtor por espaco livre) */
+public enum EstrategiaEspera {
+	
+	OCUPADA, // repete a verificacao sem parar: menor latencia, um nucleo ocupado por consumidor
+	CEDER, // Thread.yield entre as verificacoes
+	DORMIR, // pausas curtas (LockSupport.parkNanos)
+	BLOQUEAR // dorme ate o produtor avisar: sem custo de CPU parado, mais latencia
+
+}
@@ -0,0 +1,24 @@
+package com.dlima.myfinancas.event;
+
+import java.util.Collection;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/*
+ * Publicado pelo LancamentoService a cada escrita; os dados derivados do usuario
+ * (caches, agregados) escutam este evento para se manterem consistentes.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class LancamentoAlteradoEvent {
+	
+	private final Long idUsuario;
+	
+	private final Collection<Long> idsLancamentos;
+	
+	private final TipoAlteracao tipo;
+
+}
@@ -0,0 +1,10 @@
+package com.dlima.myfinancas.event;
+
+public enum TipoAlteracao {
+	
+	CRIADO,
+	ATUALIZADO,
+	STATUS_ALTERADO, // atualizacao que trocou o status
+	REMOVIDO
+
+}
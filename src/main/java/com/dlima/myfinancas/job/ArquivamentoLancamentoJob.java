@@ -0,0 +1,160 @@
+package com.dlima.myfinancas.job;
+
+import java.time.Year;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.dlima.myfinancas.sharding.ContextoShard;
+import com.dlima.myfinancas.sharding.RoteadorShards;
+
+/*
+ * Mantem as particoes por ano de financas.lancamento (ver db/lancamento-particionado.sql):
+ * cria as particoes dos proximos anos e move os anos encerrados para lancamento_arquivo.
+ * As particoes continuam anexadas a tabela pai, entao buscar e saldo enxergam todos os niveis.
+ *
+ * Arquivar so mexe no catalogo: a particao do ano sai de lancamento e entra sob lancamento_arquivo,
+ * que tambem e particionada por ano. Nenhuma linha e copiada, e o CHECK de cada particao folha
+ * dispensa a varredura de validacao nos ATTACH. Os DETACH pedem ACCESS EXCLUSIVE na tabela pai;
+ * a espera pelo bloqueio e limitada (myfinancas.arquivamento.espera-bloqueio-ms) para nao
+ * enfileirar as leituras e escritas atras dela; se esgotar, o ano fica para a proxima execucao.
+ *
+ * Com sharding, cada shard tem suas particoes: executar repete tudo em cada um (sem particao
+ * DEFAULT, um shard sem a particao do ano novo recusaria os lancamentos a partir de 1o de janeiro).
+ * criarParticao e arquivar agem no shard do ContextoShard corrente.
+ */
+@Component
+@ConditionalOnProperty(name = "myfinancas.arquivamento.habilitado", havingValue = "true")
+public class ArquivamentoLancamentoJob {
+
+	private static final Logger log = LoggerFactory.getLogger(ArquivamentoLancamentoJob.class);
+
+	private static final String PARTICOES_ANUAIS =
+			"SELECT c.relname FROM pg_inherits i "
+			+ "JOIN pg_class c ON c.oid = i.inhrelid "
+			+ "JOIN pg_class p ON p.oid = i.inhparent "
+			+ "JOIN pg_namespace n ON n.oid = p.relnamespace "
+			+ "WHERE n.nspname = 'financas' AND p.relname = 'lancamento' AND c.relname ~ '^lancamento_[0-9]{4}$' "
+			+ "ORDER BY c.relname"; // anos em ordem crescente: o arquivo so cresce de forma contigua
+
+	private static final String CHECK_EXISTE =
+			"SELECT count(*) FROM pg_constraint c JOIN pg_namespace n ON n.oid = c.connamespace "
+			+ "WHERE n.nspname = 'financas' AND c.conname = ?";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final int anosQuentes;
+
+	private final long esperaBloqueioMs;
+
+	private final RoteadorShards roteador; // null sem sharding
+
+	public ArquivamentoLancamentoJob(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+			ObjectProvider<RoteadorShards> roteador,
+			@Value("${myfinancas.arquivamento.anos-quentes:2}") int anosQuentes,
+			@Value("${myfinancas.arquivamento.espera-bloqueio-ms:5000}") long esperaBloqueioMs) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = transactionTemplate;
+		this.anosQuentes = anosQuentes;
+		this.esperaBloqueioMs = esperaBloqueioMs;
+		this.roteador = roteador.getIfAvailable();
+	}
+
+	@Scheduled(cron = "${myfinancas.arquivamento.cron:0 0 3 1 * *}")
+	public void executar() {
+		if (roteador == null) {
+			manterParticoes();
+			return;
+		}
+		for (int shard = 0; shard < roteador.quantidade(); shard++) {
+			try {
+				ContextoShard.executar(shard, () -> {
+					manterParticoes();
+					return null;
+				});
+			} catch (DataAccessException e) {
+				// um shard fora do ar nao impede os demais
+				log.warn("Partições do shard {} não mantidas, nova tentativa na próxima execução", shard, e);
+			}
+		}
+	}
+
+	private void manterParticoes() {
+		int anoAtual = Year.now().getValue();
+		criarParticao(anoAtual);
+		criarParticao(anoAtual + 1);
+
+		int primeiroAnoQuente = anoAtual - anosQuentes + 1;
+		for (Integer ano : anosParticionados()) {
+			if (ano >= primeiroAnoQuente) {
+				break;
+			}
+			try {
+				arquivar(ano);
+			} catch (DataAccessException e) {
+				// o arquivo cresce de forma contigua: os anos seguintes esperam a proxima execucao
+				log.warn("Lançamentos de {} não arquivados, nova tentativa na próxima execução", ano, e);
+				break;
+			}
+		}
+	}
+
+	public void criarParticao(int ano) {
+		jdbcTemplate.execute(String.format(
+				"CREATE TABLE IF NOT EXISTS financas.lancamento_%d PARTITION OF financas.lancamento "
+				+ "FOR VALUES FROM (%d) TO (%d)", ano, ano, ano + 1));
+		garantirCheck(ano);
+	}
+
+	/*
+	 * Move a particao do ano para baixo de lancamento_arquivo e estende o limite superior do arquivo.
+	 * So o CHECK do proprio ano e validado (fora do bloqueio exclusivo, e so se ainda nao existir).
+	 */
+	public void arquivar(int ano) {
+		garantirCheck(ano);
+		transactionTemplate.execute(status -> {
+			jdbcTemplate.execute(String.format("SET LOCAL lock_timeout = %d", esperaBloqueioMs));
+			jdbcTemplate.execute(String.format("ALTER TABLE financas.lancamento DETACH PARTITION financas.lancamento_%d", ano));
+			jdbcTemplate.execute("ALTER TABLE financas.lancamento DETACH PARTITION financas.lancamento_arquivo");
+			jdbcTemplate.execute(String.format(
+					"ALTER TABLE financas.lancamento_arquivo ATTACH PARTITION financas.lancamento_%d "
+					+ "FOR VALUES FROM (%d) TO (%d)", ano, ano, ano + 1));
+			jdbcTemplate.execute(String.format(
+					"ALTER TABLE financas.lancamento ATTACH PARTITION financas.lancamento_arquivo "
+					+ "FOR VALUES FROM (MINVALUE) TO (%d)", ano + 1));
+			return null;
+		});
+		log.info("Lançamentos de {} movidos para financas.lancamento_arquivo", ano);
+	}
+
+	/*
+	 * CHECK igual ao intervalo da particao. Criado NOT VALID (instantaneo) e validado a parte:
+	 * VALIDATE CONSTRAINT varre so o ano e nao bloqueia leituras nem escritas.
+	 */
+	private void garantirCheck(int ano) {
+		String nome = String.format("ck_lancamento_%d_ano", ano);
+		if (jdbcTemplate.queryForObject(CHECK_EXISTE, Integer.class, nome) > 0) {
+			return;
+		}
+		jdbcTemplate.execute(String.format("ALTER TABLE financas.lancamento_%d ADD CONSTRAINT %s "
+				+ "CHECK (ano >= %d AND ano < %d) NOT VALID", ano, nome, ano, ano + 1));
+		jdbcTemplate.execute(String.format("ALTER TABLE financas.lancamento_%d VALIDATE CONSTRAINT %s", ano, nome));
+	}
+
+	private List<Integer> anosParticionados() {
+		return jdbcTemplate.query(PARTICOES_ANUAIS,
+				(rs, linha) -> Integer.valueOf(rs.getString(1).substring("lancamento_".length())));
+	}
+
+}
@@ -0,0 +1,101 @@
+package com.dlima.myfinancas.job;
+
+import java.time.LocalDateTime;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.dlima.myfinancas.model.entity.LancamentoRemovido;
+import com.dlima.myfinancas.model.repository.CheckpointJobRepository;
+import com.dlima.myfinancas.model.repository.LancamentoRemovidoRepository;
+import com.dlima.myfinancas.sharding.ContextoShard;
+import com.dlima.myfinancas.sharding.RoteadorShards;
+
+/*
+ * Apaga as marcas de exclusao (lancamento_removido) mais antigas que a retencao. Sem elas, um
+ * cliente com token anterior nao saberia dos lancamentos removidos: o maior token apagado fica
+ * no CheckpointJob LancamentoRemovido.CHECKPOINT_EXPURGO, e obterAlteracoes pede a sincronizacao
+ * completa para um "desde" abaixo dele.
+ *
+ * O token minimo e gravado antes de apagar: se o expurgo parar no meio, so sobram marcas que
+ * ninguem mais le. As marcas saem em lotes, cada um na sua transacao. Com sharding, cada shard
+ * tem suas marcas e seu checkpoint.
+ */
+@Component
+@ConditionalOnProperty(name = "myfinancas.sincronizacao.expurgo-habilitado", havingValue = "true", matchIfMissing = true)
+public class ExpurgoRemovidosJob {
+
+	private static final Logger log = LoggerFactory.getLogger(ExpurgoRemovidosJob.class);
+
+	private final LancamentoRemovidoRepository removidoRepository;
+
+	private final CheckpointJobRepository checkpointRepository;
+
+	private final RoteadorShards roteador; // null sem sharding
+
+	private final int retencaoDias;
+
+	private final int tamanhoLote;
+
+	public ExpurgoRemovidosJob(LancamentoRemovidoRepository removidoRepository, CheckpointJobRepository checkpointRepository,
+			ObjectProvider<RoteadorShards> roteador,
+			@Value("${myfinancas.sincronizacao.retencao-dias:90}") int retencaoDias,
+			@Value("${myfinancas.sincronizacao.expurgo-tamanho-lote:1000}") int tamanhoLote) {
+		this.removidoRepository = removidoRepository;
+		this.checkpointRepository = checkpointRepository;
+		this.roteador = roteador.getIfAvailable();
+		this.retencaoDias = retencaoDias;
+		this.tamanhoLote = tamanhoLote;
+	}
+
+	@Scheduled(cron = "${myfinancas.sincronizacao.expurgo-cron:0 30 3 * * *}")
+	public void executar() {
+		if (roteador == null) {
+			expurgar();
+			return;
+		}
+		for (int shard = 0; shard < roteador.quantidade(); shard++) {
+			try {
+				ContextoShard.executar(shard, this::expurgar);
+			} catch (DataAccessException e) {
+				// um shard fora do ar nao impede os demais
+				log.warn("Marcas de exclusão do shard {} não expurgadas, nova tentativa na próxima execução", shard, e);
+			}
+		}
+	}
+
+	/* apaga as marcas vencidas do shard corrente e devolve quantas saíram */
+	public int expurgar() {
+		LocalDateTime agora = LocalDateTime.now();
+		Long ultimaSequencia = removidoRepository.obterUltimaSequenciaRemovidaAntesDe(agora.minusDays(retencaoDias));
+		if (ultimaSequencia == null) {
+			return 0;
+		}
+		avancarTokenMinimo(ultimaSequencia, agora);
+
+		int expurgados = 0;
+		int lote;
+		do {
+			lote = removidoRepository.deletarAteSequencia(ultimaSequencia, tamanhoLote);
+			expurgados += lote;
+		} while (lote == tamanhoLote);
+		log.info("{} marcas de exclusão expurgadas; token mínimo da sincronização: {}", expurgados, ultimaSequencia);
+		return expurgados;
+	}
+
+	private void avancarTokenMinimo(Long sequencia, LocalDateTime agora) {
+		if (checkpointRepository.avancarUltimoIdConcluido(LancamentoRemovido.CHECKPOINT_EXPURGO, sequencia, agora) > 0
+				|| checkpointRepository.existsById(LancamentoRemovido.CHECKPOINT_EXPURGO)) {
+			return;
+		}
+		// primeira execucao; uma instancia concorrente gravando junto falha na chave e tenta de novo depois
+		checkpointRepository.inserirConcluido(LancamentoRemovido.CHECKPOINT_EXPURGO, sequencia, agora);
+	}
+
+}
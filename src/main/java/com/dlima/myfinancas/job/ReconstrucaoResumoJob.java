@@ -0,0 +1,321 @@
+package com.dlima.myfinancas.job;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import com.dlima.myfinancas.model.entity.CheckpointJob;
+import com.dlima.myfinancas.model.enums.SituacaoJob;
+import com.dlima.myfinancas.model.repository.CheckpointJobRepository;
+import com.dlima.myfinancas.model.repository.UsuarioRepository;
+import com.dlima.myfinancas.service.ResumoMensalService;
+import com.dlima.myfinancas.sharding.ContextoShard;
+import com.dlima.myfinancas.sharding.RoteadorShards;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/*
+ * Recalcula os resumos mensais de todos os usuarios (ex.: depois de corrigir dados ou mudar
+ * uma regra de saldo). Um coordenador le os ids em lotes por chave e distribui os lotes num
+ * pool limitado; cada worker reconstroi os usuarios do seu lote, um por transacao.
+ *
+ * Checkpoint: lotes terminam fora de ordem, entao o progresso salvo e o maior id ate o qual
+ * todos os lotes terminaram. Uma execucao interrompida retoma a partir dele. A situacao final
+ * so e gravada depois que todos os lotes em andamento pararam: nenhum deles a sobrescreve com
+ * EXECUTANDO, e uma nova execucao nao comeca com workers da anterior ainda ativos.
+ *
+ * Trafego normal tem prioridade: ha um limite de usuarios por segundo e os workers esperam
+ * enquanto o pool de conexoes estiver acima da ocupacao configurada.
+ */
+@Component
+public class ReconstrucaoResumoJob implements MeterBinder {
+
+	static final String NOME = "reconstrucao-resumo";
+
+	private static final Logger log = LoggerFactory.getLogger(ReconstrucaoResumoJob.class);
+
+	private final ResumoMensalService resumoService;
+
+	private final UsuarioRepository usuarioRepository;
+
+	private final CheckpointJobRepository checkpointRepository;
+
+	private final ThreadPoolTaskExecutor executor;
+
+	private final RoteadorShards roteador; // null sem sharding
+
+	private final DataSource dataSource;
+
+	private final int tamanhoLote;
+
+	private final long intervaloNanos; // 0: sem limite de usuarios por segundo
+
+	private final double ocupacaoMaximaPool;
+
+	private final AtomicBoolean executando = new AtomicBoolean();
+
+	private final AtomicBoolean cancelado = new AtomicBoolean();
+
+	private final AtomicLong usuarios = new AtomicLong();
+
+	private final AtomicLong lancamentos = new AtomicLong();
+
+	private final AtomicLong falhas = new AtomicLong();
+
+	private final AtomicLong proximaVez = new AtomicLong();
+
+	private final TreeMap<Long, Long> lotesConcluidos = new TreeMap<>(); // inicio exclusivo -> ultimo id
+
+	private volatile CheckpointJob checkpoint;
+
+	private volatile Thread coordenador;
+
+	public ReconstrucaoResumoJob(ResumoMensalService resumoService, UsuarioRepository usuarioRepository,
+			CheckpointJobRepository checkpointRepository,
+			@Qualifier("reconstrucaoExecutor") ThreadPoolTaskExecutor executor,
+			ObjectProvider<RoteadorShards> roteador, DataSource dataSource,
+			@Value("${myfinancas.reconstrucao.tamanho-lote:500}") int tamanhoLote,
+			@Value("${myfinancas.reconstrucao.usuarios-por-segundo:0}") double usuariosPorSegundo,
+			@Value("${myfinancas.reconstrucao.ocupacao-maxima-pool:0.75}") double ocupacaoMaximaPool) {
+		this.resumoService = resumoService;
+		this.usuarioRepository = usuarioRepository;
+		this.checkpointRepository = checkpointRepository;
+		this.executor = executor;
+		this.roteador = roteador.getIfAvailable();
+		this.dataSource = dataSource;
+		this.tamanhoLote = tamanhoLote;
+		this.intervaloNanos = usuariosPorSegundo > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / usuariosPorSegundo) : 0;
+		this.ocupacaoMaximaPool = ocupacaoMaximaPool;
+	}
+
+	/* inicia em segundo plano; sem reiniciar, continua do checkpoint de uma execucao interrompida */
+	public synchronized CheckpointJob iniciar(boolean reiniciar) {
+		if (executando.get()) {
+			return obterStatus();
+		}
+
+		CheckpointJob anterior = checkpointRepository.findById(NOME).orElse(null);
+		boolean retomar = !reiniciar && anterior != null && anterior.getSituacao() != SituacaoJob.CONCLUIDO;
+		checkpoint = retomar ? anterior : CheckpointJob.builder()
+				.nome(NOME)
+				.ultimoIdConcluido(0l)
+				.usuariosProcessados(0l)
+				.lancamentosProcessados(0l)
+				.falhas(0l)
+				.inicio(LocalDateTime.now())
+				.build();
+		checkpoint.setSituacao(SituacaoJob.EXECUTANDO);
+		checkpoint.setAtualizacao(LocalDateTime.now());
+		checkpoint = checkpointRepository.save(checkpoint);
+
+		usuarios.set(checkpoint.getUsuariosProcessados());
+		lancamentos.set(checkpoint.getLancamentosProcessados());
+		falhas.set(checkpoint.getFalhas());
+		lotesConcluidos.clear();
+		cancelado.set(false);
+		executando.set(true);
+
+		long inicio = checkpoint.getUltimoIdConcluido();
+		log.info("Reconstrução dos resumos {} a partir do id {}", retomar ? "retomada" : "iniciada", inicio);
+		coordenador = new Thread(() -> executar(inicio), "reconstrucao-coordenador");
+		coordenador.setDaemon(true);
+		coordenador.start();
+		return obterStatus();
+	}
+
+	public void cancelar() {
+		cancelado.set(true);
+	}
+
+	public CheckpointJob obterStatus() {
+		CheckpointJob atual = checkpoint != null ? checkpoint : checkpointRepository.findById(NOME).orElse(null);
+		if (atual == null) {
+			return CheckpointJob.builder().nome(NOME).build();
+		}
+		synchronized (lotesConcluidos) {
+			return atual.toBuilder()
+					.usuariosProcessados(usuarios.get())
+					.lancamentosProcessados(lancamentos.get())
+					.falhas(falhas.get())
+					.build();
+		}
+	}
+
+	// usado nos testes
+	boolean aguardar(long timeoutMs) throws InterruptedException {
+		Thread atual = coordenador;
+		if (atual != null) {
+			atual.join(timeoutMs);
+		}
+		return !executando.get();
+	}
+
+	private void executar(long inicio) {
+		int maximoLotes = executor.getMaxPoolSize() * 2;
+		Semaphore vagas = new Semaphore(maximoLotes);
+		SituacaoJob situacaoFinal = SituacaoJob.CONCLUIDO;
+		boolean lotesEncerrados = false;
+		try {
+			long ultimo = inicio;
+			while (!cancelado.get()) {
+				List<Long> ids = listarIds(ultimo, tamanhoLote);
+				if (ids.isEmpty()) {
+					break;
+				}
+				long inicioLote = ultimo;
+				ultimo = ids.get(ids.size() - 1);
+
+				vagas.acquire();
+				try {
+					executor.execute(() -> {
+						try {
+							processarLote(inicioLote, ids);
+						} finally {
+							vagas.release();
+						}
+					});
+				} catch (RuntimeException e) {
+					vagas.release(); // lote recusado pelo executor
+					throw e;
+				}
+			}
+			vagas.acquire(maximoLotes); // espera os lotes em andamento
+			lotesEncerrados = true;
+			if (cancelado.get()) {
+				situacaoFinal = SituacaoJob.CANCELADO;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			situacaoFinal = SituacaoJob.CANCELADO;
+		} catch (RuntimeException e) {
+			log.error("Reconstrução dos resumos interrompida", e);
+			situacaoFinal = SituacaoJob.FALHOU;
+		} finally {
+			if (!lotesEncerrados) {
+				// falha no coordenador: os lotes em andamento param no proximo usuario, sem avancar o checkpoint
+				cancelado.set(true);
+				vagas.acquireUninterruptibly(maximoLotes);
+			}
+			salvarCheckpoint(situacaoFinal);
+			executando.set(false);
+			log.info("Reconstrução dos resumos {}: {} usuários, {} lançamentos, {} falhas",
+					situacaoFinal, usuarios.get(), lancamentos.get(), falhas.get());
+		}
+	}
+
+	private void processarLote(long inicioExclusivo, List<Long> ids) {
+		for (Long id : ids) {
+			if (cancelado.get()) {
+				return; // lote incompleto: o checkpoint nao passa dele e a retomada o refaz
+			}
+			aguardarVez();
+			try {
+				lancamentos.addAndGet(resumoService.reconstruir(id));
+				usuarios.incrementAndGet();
+			} catch (RuntimeException e) {
+				falhas.incrementAndGet();
+				log.warn("Falha ao reconstruir os resumos do usuário {}", id, e);
+			}
+		}
+		registrarLoteConcluido(inicioExclusivo, ids.get(ids.size() - 1));
+	}
+
+	private void registrarLoteConcluido(long inicioExclusivo, long ultimoId) {
+		synchronized (lotesConcluidos) {
+			lotesConcluidos.put(inicioExclusivo, ultimoId);
+			long marca = checkpoint.getUltimoIdConcluido();
+			while (lotesConcluidos.containsKey(marca)) {
+				marca = lotesConcluidos.remove(marca);
+			}
+			checkpoint.setUltimoIdConcluido(marca);
+		}
+		salvarCheckpoint(SituacaoJob.EXECUTANDO);
+	}
+
+	private void salvarCheckpoint(SituacaoJob situacao) {
+		synchronized (lotesConcluidos) {
+			checkpoint.setSituacao(situacao);
+			checkpoint.setUsuariosProcessados(usuarios.get());
+			checkpoint.setLancamentosProcessados(lancamentos.get());
+			checkpoint.setFalhas(falhas.get());
+			checkpoint.setAtualizacao(LocalDateTime.now());
+			checkpointRepository.save(checkpoint);
+		}
+	}
+
+	/* ids de todos os shards em ordem crescente (ids intercalados), ou do unico banco */
+	private List<Long> listarIds(long ultimo, int quantidade) {
+		PageRequest pagina = PageRequest.of(0, quantidade);
+		if (roteador == null) {
+			return usuarioRepository.obterIdsApos(ultimo, pagina);
+		}
+		List<Long> ids = new ArrayList<>();
+		for (int shard = 0; shard < roteador.quantidade(); shard++) {
+			ids.addAll(ContextoShard.executar(shard, () -> usuarioRepository.obterIdsApos(ultimo, pagina)));
+		}
+		Collections.sort(ids);
+		return ids.size() > quantidade ? new ArrayList<>(ids.subList(0, quantidade)) : ids;
+	}
+
+	private void aguardarVez() {
+		while (!cancelado.get() && ocupacaoPool() > ocupacaoMaximaPool) {
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(200));
+		}
+		if (intervaloNanos == 0) {
+			return;
+		}
+		long agora = System.nanoTime();
+		long vez = Math.max(proximaVez.getAndUpdate(v -> Math.max(v, agora) + intervaloNanos), agora);
+		if (vez > agora) {
+			LockSupport.parkNanos(vez - agora);
+		}
+	}
+
+	/* conexoes ativas / maximo do pool Hikari; 0 quando o DataSource nao e um Hikari */
+	private double ocupacaoPool() {
+		try {
+			if (!dataSource.isWrapperFor(HikariDataSource.class)) {
+				return 0;
+			}
+			HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+			HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+			return pool == null ? 0 : (double) pool.getActiveConnections() / hikari.getMaximumPoolSize();
+		} catch (SQLException e) {
+			return 0;
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("myfinancas.reconstrucao.usuarios", usuarios, AtomicLong::get).register(registry);
+		Gauge.builder("myfinancas.reconstrucao.lancamentos", lancamentos, AtomicLong::get).register(registry);
+		Gauge.builder("myfinancas.reconstrucao.falhas", falhas, AtomicLong::get).register(registry);
+		Gauge.builder("myfinancas.reconstrucao.executando", executando, e -> e.get() ? 1 : 0).register(registry);
+		Gauge.builder("myfinancas.reconstrucao.ultimo-id-concluido", this,
+				job -> job.checkpoint == null ? 0 : job.checkpoint.getUltimoIdConcluido()).register(registry);
+	}
+
+}
@@ -0,0 +1,45 @@
+package com.dlima.myfinancas.model.entity;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import com.dlima.myfinancas.model.enums.SituacaoJob;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/* Progresso persistido de um job em lotes: permite retomar depois de uma parada */
+@Entity
+@Table(name = "checkpoint_job", schema = "financas")
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckpointJob {
+	
+	@Id
+	private String nome;
+	
+	@Enumerated(value = EnumType.STRING)
+	private SituacaoJob situacao;
+	
+	private Long ultimoIdConcluido; // todos os ids ate este ja foram processados
+	
+	private Long usuariosProcessados;
+	
+	private Long lancamentosProcessados;
+	
+	private Long falhas;
+	
+	private LocalDateTime inicio;
+	
+	private LocalDateTime atualizacao;
+
+}
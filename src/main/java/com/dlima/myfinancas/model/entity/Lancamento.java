@@ -1,7 +1,8 @@
 package com.dlima.myfinancas.model.entity;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
 
 import javax.persistence.Column;
 import javax.persistence.Convert;
@@ -11,22 +12,37 @@ import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 
 import org.springframework.data.jpa.convert.threeten.Jsr310JpaConverters;
 
+import com.dlima.myfinancas.api.dto.SituacaoOrcamentoDTO;
 import com.dlima.myfinancas.model.enums.StatusLancamento;
 import com.dlima.myfinancas.model.enums.TipoLancamento;
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.model.money.MoneyConverter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 @Entity
-@Table(name = "lancamento", schema = "financas")
+@Table(name = "lancamento", schema = "financas", indexes = {
+		@Index(name = "idx_lancamento_usuario_ano_mes", columnList = "id_usuario, ano, mes"),
+		@Index(name = "idx_lancamento_usuario_tipo_status", columnList = "id_usuario, tipo, status"),
+		@Index(name = "idx_lancamento_usuario_sequencia", columnList = "id_usuario, sequencia_alteracao"),
+		@Index(name = "idx_lancamento_usuario_hash_importacao", columnList = "id_usuario, hash_importacao"),
+		@Index(name = "idx_lancamento_usuario_data_cadastro", columnList = "id_usuario, data_cadastro"),
+		@Index(name = "idx_lancamento_usuario_tipo_valor", columnList = "id_usuario, tipo, valor") })
 @Data
 @Builder
 @NoArgsConstructor
@@ -47,7 +63,8 @@ public class Lancamento {
 	@JoinColumn(name = "id_usuario")
 	private Usuario usuario;
 
-	private BigDecimal valor;
+	@Convert(converter = MoneyConverter.class) // centavos em coluna bigint
+	private Money valor;
 	
 //	API de Data
 	@Column(name = "data_cadastro")
@@ -61,5 +78,29 @@ public class Lancamento {
 	
 	@Enumerated(value = EnumType.STRING)
 	private StatusLancamento status;
+	
+	// ordem global das alteracoes (financas.seq_alteracao_lancamento), usada na sincronizacao incremental
+	@Column(name = "sequencia_alteracao")
+	private Long sequenciaAlteracao;
+	
+	// opcional: permite orcamentos por categoria
+	private String categoria;
+	
+	// normalizadas (minusculas, sem espacos nas pontas); consultas por tag usam o IndiceTags
+	@Convert(converter = TagsConverter.class)
+	@Column(length = 1000)
+	private Set<String> tags;
+	
+	// conteudo da linha do extrato que originou o lancamento, para nao importar duas vezes
+	@Column(name = "hash_importacao", length = 32)
+	@JsonIgnore
+	private String hashImportacao;
+	
+	// orcamentos afetados, preenchidos por salvar e atualizar para a resposta; nao e gravado
+	@Transient
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
+	private List<SituacaoOrcamentoDTO> orcamentos;
 
 }
@@ -0,0 +1,46 @@
+package com.dlima.myfinancas.model.entity;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * Marca de exclusao de um lancamento, lida pela sincronizacao incremental. As marcas mais antigas
+ * que a retencao sao apagadas pelo ExpurgoRemovidosJob.
+ */
+@Entity
+@Table(name = "lancamento_removido", schema = "financas", indexes = {
+		@Index(name = "idx_lancamento_removido_usuario_sequencia", columnList = "id_usuario, sequencia_alteracao"),
+		@Index(name = "idx_lancamento_removido_sequencia", columnList = "sequencia_alteracao"),
+		@Index(name = "idx_lancamento_removido_data", columnList = "data_remocao") })
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LancamentoRemovido {
+	
+	// CheckpointJob do expurgo: ultimoIdConcluido e o menor token ainda valido na sincronizacao
+	public static final String CHECKPOINT_EXPURGO = "expurgo-removidos";
+	
+	@Id
+	private Long id; // id do lancamento removido
+	
+	@Column(name = "id_usuario")
+	private Long idUsuario;
+	
+	@Column(name = "sequencia_alteracao")
+	private Long sequenciaAlteracao;
+	
+	@Column(name = "data_remocao")
+	private LocalDateTime dataRemocao;
+
+}
@@ -0,0 +1,45 @@
+package com.dlima.myfinancas.model.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.model.money.MoneyConverter;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * Limite mensal de despesas de um usuario, para o mes inteiro (sem categoria) ou para uma categoria.
+ * Um por categoria (uk_orcamento_usuario_categoria; o do mes inteiro, uk_orcamento_usuario_mes em db/orcamento.sql).
+ */
+@Entity
+@Table(name = "orcamento", schema = "financas", indexes = {
+		@Index(name = "uk_orcamento_usuario_categoria", columnList = "id_usuario, categoria", unique = true) })
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Orcamento {
+	
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+	
+	@Column(name = "id_usuario")
+	private Long idUsuario;
+	
+	private String categoria;
+	
+	@Convert(converter = MoneyConverter.class)
+	private Money limite;
+
+}
@@ -0,0 +1,61 @@
+package com.dlima.myfinancas.model.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.model.money.MoneyConverter;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*
+ * Totais de um usuario por mes e categoria, derivados de financas.lancamento (cancelados ficam
+ * de fora). Os totais do mes sao a soma das categorias.
+ */
+@Entity
+@Table(name = "resumo_mensal", schema = "financas", indexes = {
+		@Index(name = "idx_resumo_mensal_usuario_ano_mes", columnList = "id_usuario, ano, mes, categoria", unique = true) })
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumoMensal {
+	
+	// categoria gravada para lancamentos sem categoria (a coluna faz parte da chave unica)
+	public static final String SEM_CATEGORIA = "";
+	
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+	
+	@Column(name = "id_usuario")
+	private Long idUsuario;
+	
+	private Integer ano;
+	
+	private Integer mes;
+	
+	private String categoria;
+	
+	@Convert(converter = MoneyConverter.class)
+	private Money receitasEfetivadas;
+	
+	@Convert(converter = MoneyConverter.class)
+	private Money despesasEfetivadas;
+	
+	@Convert(converter = MoneyConverter.class)
+	private Money receitasPendentes;
+	
+	@Convert(converter = MoneyConverter.class)
+	private Money despesasPendentes;
+
+}
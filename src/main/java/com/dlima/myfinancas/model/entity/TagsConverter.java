@@ -0,0 +1,27 @@
+package com.dlima.myfinancas.model.entity;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/* persiste as tags (ja normalizadas, sem virgula) numa coluna: "alimentacao,projeto x" */
+@Converter
+public class TagsConverter implements AttributeConverter<Set<String>, String> {
+
+	public static final char SEPARADOR = ',';
+
+	@Override
+	public String convertToDatabaseColumn(Set<String> tags) {
+		return tags == null || tags.isEmpty() ? null : String.join(String.valueOf(SEPARADOR), new TreeSet<>(tags));
+	}
+
+	@Override
+	public Set<String> convertToEntityAttribute(String coluna) {
+		return coluna == null || coluna.isEmpty() 
+				? null : new TreeSet<>(Arrays.asList(coluna.split(String.valueOf(SEPARADOR))));
+	}
+
+}
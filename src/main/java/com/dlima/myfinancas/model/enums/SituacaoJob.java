@@ -0,0 +1,10 @@
+package com.dlima.myfinancas.model.enums;
+
+public enum SituacaoJob {
+	
+	EXECUTANDO,
+	CONCLUIDO,
+	CANCELADO,
+	FALHOU
+
+}
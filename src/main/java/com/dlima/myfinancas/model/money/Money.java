@@ -0,0 +1,193 @@
+package com.dlima.myfinancas.model.money;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/*
+ * Valor monetario com escala fixa de 2 casas, guardado como long de centavos.
+ * Mesma precisao da coluna numeric(19,2) usada antes, sem os objetos intermediarios
+ * de BigDecimal no JDBC, no Hibernate e no Jackson.
+ */
+@JsonSerialize(using = MoneyJsonSerializer.class)
+@JsonDeserialize(using = MoneyJsonDeserializer.class)
+public final class Money implements Comparable<Money>, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final int ESCALA = 2;
+
+	public static final Money ZERO = new Money(0);
+
+	private final long cents;
+
+	private Money(long cents) {
+		this.cents = cents;
+	}
+
+	public static Money ofCents(long cents) {
+		return cents == 0 ? ZERO : new Money(cents);
+	}
+
+	// arredonda para 2 casas como o numeric do PostgreSQL (metade para longe do zero)
+	public static Money of(BigDecimal valor) {
+		return ofCents(valor.setScale(ESCALA, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+	}
+
+	public static Money of(long reais) {
+		return ofCents(Math.multiplyExact(reais, 100));
+	}
+
+	public static Money parse(CharSequence texto) {
+		return ofCents(parseCents(texto, null, 0, texto.length()));
+	}
+
+	public static Money parse(char[] texto, int inicio, int tamanho) {
+		return ofCents(parseCents(null, texto, inicio, inicio + tamanho));
+	}
+
+	/*
+	 * Converte "[-]digitos[.digitos]" em centavos sem criar objetos, lendo de sequencia ou de chars.
+	 * Casas alem da segunda sao arredondadas (metade para longe do zero).
+	 */
+	private static long parseCents(CharSequence sequencia, char[] chars, int inicio, int fim) {
+		int i = inicio;
+		boolean negativo = false;
+		if (i < fim && (charAt(sequencia, chars, i) == '-' || charAt(sequencia, chars, i) == '+')) {
+			negativo = charAt(sequencia, chars, i++) == '-';
+		}
+
+		long digitos = 0;
+		int casas = -1; // -1: ainda na parte inteira
+		int arredondamento = 0;
+		boolean algumDigito = false;
+		for (; i < fim; i++) {
+			char c = charAt(sequencia, chars, i);
+			if (c >= '0' && c <= '9') {
+				algumDigito = true;
+				if (casas < ESCALA) {
+					digitos = Math.addExact(Math.multiplyExact(digitos, 10), c - '0');
+					if (casas >= 0) {
+						casas++;
+					}
+				} else if (casas == ESCALA) {
+					arredondamento = c >= '5' ? 1 : 0;
+					casas++;
+				}
+			} else if (c == '.' && casas < 0) {
+				casas = 0;
+			} else if ((c == 'e' || c == 'E') && algumDigito) {
+				// notacao cientifica e rara (ex.: 1E+3 vindo de BigDecimal.toString)
+				return of(new BigDecimal(texto(sequencia, chars, inicio, fim))).cents;
+			} else {
+				throw new NumberFormatException("Valor monetário inválido: " + texto(sequencia, chars, inicio, fim));
+			}
+		}
+
+		if (!algumDigito) {
+			throw new NumberFormatException("Valor monetário inválido: " + texto(sequencia, chars, inicio, fim));
+		}
+
+		for (int c = Math.max(casas, 0); c < ESCALA; c++) {
+			digitos = Math.multiplyExact(digitos, 10);
+		}
+		digitos = Math.addExact(digitos, arredondamento);
+		return negativo ? -digitos : digitos;
+	}
+
+	private static char charAt(CharSequence sequencia, char[] chars, int i) {
+		return chars != null ? chars[i] : sequencia.charAt(i);
+	}
+
+	private static String texto(CharSequence sequencia, char[] chars, int inicio, int fim) {
+		return chars != null ? new String(chars, inicio, fim - inicio) : sequencia.subSequence(inicio, fim).toString();
+	}
+
+	public long cents() {
+		return cents;
+	}
+
+	public Money plus(Money outro) {
+		return ofCents(Math.addExact(cents, outro.cents));
+	}
+
+	public Money minus(Money outro) {
+		return ofCents(Math.subtractExact(cents, outro.cents));
+	}
+
+	public Money negate() {
+		return ofCents(Math.negateExact(cents));
+	}
+
+	// divisao com arredondamento bancario (metade para o par), usada em medias
+	public Money dividedBy(long divisor) {
+		long quociente = cents / divisor;
+		long resto = cents % divisor;
+		long dobroResto = Math.abs(resto) * 2;
+		long absDivisor = Math.abs(divisor);
+		if (dobroResto > absDivisor || (dobroResto == absDivisor && (quociente & 1) != 0)) {
+			quociente += (cents < 0) == (divisor < 0) ? 1 : -1;
+		}
+		return ofCents(quociente);
+	}
+
+	public int signum() {
+		return Long.signum(cents);
+	}
+
+	public boolean isPositive() {
+		return cents > 0;
+	}
+
+	public BigDecimal toBigDecimal() {
+		return BigDecimal.valueOf(cents, ESCALA);
+	}
+
+	/* escreve o valor em destino a partir de inicio e retorna o tamanho escrito (no maximo 22 chars) */
+	public int writeTo(char[] destino, int inicio) {
+		long resto = cents;
+		boolean negativo = resto < 0;
+		int fim = inicio + 22;
+		int pos = fim;
+		int casas = 0;
+		do {
+			int digito = (int) Math.abs(resto % 10);
+			destino[--pos] = (char) ('0' + digito);
+			resto /= 10;
+			if (++casas == ESCALA) {
+				destino[--pos] = '.';
+			}
+		} while (resto != 0 || casas <= ESCALA);
+		if (negativo) {
+			destino[--pos] = '-';
+		}
+		int tamanho = fim - pos;
+		System.arraycopy(destino, pos, destino, inicio, tamanho);
+		return tamanho;
+	}
+
+	@Override
+	public int compareTo(Money outro) {
+		return Long.compare(cents, outro.cents);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof Money && ((Money) obj).cents == cents;
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(cents);
+	}
+
+	@Override
+	public String toString() {
+		char[] texto = new char[22];
+		return new String(texto, 0, writeTo(texto, 0));
+	}
+
+}
@@ -0,0 +1,20 @@
+package com.dlima.myfinancas.model.money;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/* persiste Money como bigint de centavos */
+@Converter
+public class MoneyConverter implements AttributeConverter<Money, Long> {
+
+	@Override
+	public Long convertToDatabaseColumn(Money valor) {
+		return valor == null ? null : valor.cents();
+	}
+
+	@Override
+	public Money convertToEntityAttribute(Long cents) {
+		return cents == null ? null : Money.ofCents(cents);
+	}
+
+}
@@ -0,0 +1,33 @@
+package com.dlima.myfinancas.model.money;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+/* aceita numeros (10, 10.5) e textos ("10.50") lendo direto do buffer do parser */
+public class MoneyJsonDeserializer extends StdDeserializer<Money> {
+
+	private static final long serialVersionUID = 1L;
+
+	public MoneyJsonDeserializer() {
+		super(Money.class);
+	}
+
+	@Override
+	public Money deserialize(JsonParser parser, DeserializationContext contexto) throws IOException {
+		JsonToken token = parser.getCurrentToken();
+		if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT && token != JsonToken.VALUE_STRING) {
+			return (Money) contexto.handleUnexpectedToken(Money.class, parser);
+		}
+
+		try {
+			return Money.parse(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+		} catch (NumberFormatException | ArithmeticException e) {
+			return (Money) contexto.handleWeirdStringValue(Money.class, parser.getText(), "valor monetário inválido");
+		}
+	}
+
+}
@@ -0,0 +1,26 @@
+package com.dlima.myfinancas.model.money;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/* escreve o valor como numero JSON (ex.: 10.50) usando um buffer de chars por thread */
+public class MoneyJsonSerializer extends StdSerializer<Money> {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[22]);
+
+	public MoneyJsonSerializer() {
+		super(Money.class);
+	}
+
+	@Override
+	public void serialize(Money valor, JsonGenerator gerador, SerializerProvider provider) throws IOException {
+		char[] buffer = BUFFER.get();
+		gerador.writeRawValue(buffer, 0, valor.writeTo(buffer, 0));
+	}
+
+}
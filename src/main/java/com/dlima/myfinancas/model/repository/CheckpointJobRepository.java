@@ -0,0 +1,35 @@
+package com.dlima.myfinancas.model.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.dlima.myfinancas.model.entity.CheckpointJob;
+
+public interface CheckpointJobRepository extends JpaRepository<CheckpointJob, String> {
+	
+	// so avanca: duas instancias concorrentes nao baixam o valor gravado pela outra
+	@Modifying
+	@Transactional
+	@Query(value = "UPDATE CheckpointJob c SET c.ultimoIdConcluido = :ultimoId, c.atualizacao = :atualizacao "
+			+ "WHERE c.nome = :nome AND c.ultimoIdConcluido < :ultimoId")
+	int avancarUltimoIdConcluido(
+			@Param("nome") String nome, 
+			@Param("ultimoId") Long ultimoId, 
+			@Param("atualizacao") LocalDateTime atualizacao);
+	
+	// INSERT e nao save (merge): com duas instancias, a segunda falha na chave em vez de sobrescrever
+	@Modifying
+	@Transactional
+	@Query(value = "INSERT INTO financas.checkpoint_job (nome, situacao, ultimo_id_concluido, inicio, atualizacao) "
+			+ "VALUES (:nome, 'CONCLUIDO', :ultimoId, :atualizacao, :atualizacao)", nativeQuery = true)
+	int inserirConcluido(
+			@Param("nome") String nome, 
+			@Param("ultimoId") Long ultimoId, 
+			@Param("atualizacao") LocalDateTime atualizacao);
+
+}
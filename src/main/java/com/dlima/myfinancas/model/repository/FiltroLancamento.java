@@ -0,0 +1,47 @@
+package com.dlima.myfinancas.model.repository;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+import com.dlima.myfinancas.model.enums.StatusLancamento;
+import com.dlima.myfinancas.model.enums.TipoLancamento;
+import com.dlima.myfinancas.model.money.Money;
+
+import lombok.Builder;
+import lombok.Value;
+
+/*
+ * Criterios de LancamentoRepository.buscar; nulos sao ignorados. Faixas sao inclusivas e
+ * a descricao e prefixo sem diferenciar maiusculas, como no buscar por Example.
+ * Imutavel e com equals: serve de chave no CacheBuscaLancamento.
+ */
+@Value
+@Builder(toBuilder = true)
+public class FiltroLancamento {
+
+	private final Long idUsuario;
+
+	private final String descricao;
+
+	private final Integer mes;
+
+	private final Integer ano;
+
+	private final TipoLancamento tipo;
+
+	private final StatusLancamento status;
+
+	private final Money valorMin;
+
+	private final Money valorMax;
+
+	private final LocalDate dataCadastroDe;
+
+	private final LocalDate dataCadastroAte;
+
+	/* mesma busca com a descricao em minusculas */
+	public FiltroLancamento normalizado() {
+		return descricao == null ? this : toBuilder().descricao(descricao.toLowerCase(Locale.ROOT)).build();
+	}
+
+}
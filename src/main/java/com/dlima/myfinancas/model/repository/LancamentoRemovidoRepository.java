@@ -0,0 +1,34 @@
+package com.dlima.myfinancas.model.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.dlima.myfinancas.model.entity.LancamentoRemovido;
+
+public interface LancamentoRemovidoRepository extends JpaRepository<LancamentoRemovido, Long> {
+	
+	@Query(value = "SELECT r FROM LancamentoRemovido r WHERE r.idUsuario = :idUsuario "
+			+ "AND r.sequenciaAlteracao > :desde ORDER BY r.sequenciaAlteracao")
+	List<LancamentoRemovido> obterRemovidosDesde(
+			@Param("idUsuario") Long idUsuario, 
+			@Param("desde") Long desde, 
+			Pageable pageable);
+	
+	@Query(value = "SELECT max(r.sequenciaAlteracao) FROM LancamentoRemovido r WHERE r.dataRemocao < :limite")
+	Long obterUltimaSequenciaRemovidaAntesDe(@Param("limite") LocalDateTime limite);
+	
+	// um lote por chamada (e por transacao): o expurgo nao segura bloqueios de uma vez so
+	@Modifying
+	@Transactional
+	@Query(value = "DELETE FROM financas.lancamento_removido WHERE id IN (SELECT r.id FROM financas.lancamento_removido r "
+			+ "WHERE r.sequencia_alteracao <= :sequencia LIMIT :tamanhoLote)", nativeQuery = true)
+	int deletarAteSequencia(@Param("sequencia") Long sequencia, @Param("tamanhoLote") int tamanhoLote);
+
+}
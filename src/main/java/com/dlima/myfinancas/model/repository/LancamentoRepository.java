@@ -1,22 +1,101 @@
 package com.dlima.myfinancas.model.repository;
 
-import java.math.BigDecimal;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_FLUSH_MODE;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import com.dlima.myfinancas.model.entity.Lancamento;
 import com.dlima.myfinancas.model.enums.StatusLancamento;
 import com.dlima.myfinancas.model.enums.TipoLancamento;
 
-public interface LancamentoRepository extends JpaRepository<Lancamento, Long>{
+public interface LancamentoRepository extends JpaRepository<Lancamento, Long>, LancamentoRepositoryCustom {
 	
-	@Query(value = "SELECT SUM(l.valor) FROM Lancamento l JOIN l.usuario u "
-			+ "WHERE u.id = :idUsuario AND l.tipo =:tipo AND l.status = :status GROUP BY u")
-	BigDecimal obterSaldoPorTipoLancamentoEUsuarioEStatus(
+	// sem JOIN com usuario: a consulta usa apenas o indice (id_usuario, tipo, status) de cada particao
+	@Query(value = "SELECT SUM(l.valor) FROM Lancamento l "
+			+ "WHERE l.usuario.id = :idUsuario AND l.tipo = :tipo AND l.status = :status")
+	Long obterSaldoPorTipoLancamentoEUsuarioEStatus( // soma em centavos
 			@Param("idUsuario") Long idUsuario, 
 			@Param("tipo") TipoLancamento tipo,
 			@Param("status") StatusLancamento status);
+	
+	// colunas usadas pelo motor de relatorios, ordenadas por periodo
+	@Query(value = "SELECT l.id, l.valor, l.ano, l.mes, l.tipo, l.status FROM Lancamento l "
+			+ "WHERE l.usuario.id = :idUsuario ORDER BY l.ano, l.mes, l.id")
+	List<Object[]> obterColunasPorUsuario(@Param("idUsuario") Long idUsuario);
+	
+	@Query(value = "SELECT l.id FROM Lancamento l "
+			+ "WHERE l.usuario.id = :idUsuario AND l.ano = :ano AND (:mes IS NULL OR l.mes = :mes) ORDER BY l.id")
+	List<Long> obterIdsPorUsuarioEPeriodo(
+			@Param("idUsuario") Long idUsuario, 
+			@Param("ano") Integer ano, 
+			@Param("mes") Integer mes, 
+			Pageable pageable);
+	
+	// usa o indice (id_usuario, sequencia_alteracao): custo proporcional as alteracoes, nao ao historico
+	@Query(value = "SELECT l FROM Lancamento l WHERE l.usuario.id = :idUsuario "
+			+ "AND l.sequenciaAlteracao > :desde ORDER BY l.sequenciaAlteracao")
+	List<Lancamento> obterAlteradosDesde(
+			@Param("idUsuario") Long idUsuario, 
+			@Param("desde") Long desde, 
+			Pageable pageable);
+	
+	// colunas dos resumos mensais, lidas aos poucos do cursor (usar dentro de uma transacao e fechar o Stream)
+	@QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+	@Query(value = "SELECT l.ano, l.mes, l.tipo, l.status, l.valor, l.categoria FROM Lancamento l WHERE l.usuario.id = :idUsuario")
+	Stream<Object[]> obterColunasResumoPorUsuario(@Param("idUsuario") Long idUsuario);
+	
+	// valores gravados no banco, sem flush: alteracoes ainda pendentes na entidade gerenciada nao aparecem
+	@QueryHints(@QueryHint(name = HINT_FLUSH_MODE, value = "COMMIT"))
+	@Query(value = "SELECT l.usuario.id, l.ano, l.mes, l.tipo, l.status, l.valor, l.categoria FROM Lancamento l WHERE l.id = :id")
+	List<Object[]> obterValoresGravados(@Param("id") Long id);
+
+	// usa o indice (id_usuario, hash_importacao): linhas de extrato ja importadas entre as do lote
+	@Query(value = "SELECT l.hashImportacao FROM Lancamento l WHERE l.usuario.id = :idUsuario AND l.hashImportacao IN :hashes")
+	List<String> obterHashesImportados(@Param("idUsuario") Long idUsuario, @Param("hashes") Collection<String> hashes);
+
+	// colunas de LancamentoDTO sem carregar o usuario; ids de outros usuarios ficam de fora
+	@Query(value = "SELECT l.id, l.descricao, l.mes, l.ano, l.valor, l.tipo, l.status, l.categoria, l.tags "
+			+ "FROM Lancamento l WHERE l.usuario.id = :idUsuario AND l.id IN :ids")
+	List<Object[]> obterColunasPorIds(@Param("idUsuario") Long idUsuario, @Param("ids") Collection<Long> ids);
+
+	// colunas do indice de tags, em ordem de id (os ordinais do indice seguem os ids)
+	@Query(value = "SELECT l.id, l.valor, l.ano, l.mes, l.tipo, l.status, l.tags FROM Lancamento l "
+			+ "WHERE l.usuario.id = :idUsuario ORDER BY l.id")
+	List<Object[]> obterColunasTagsPorUsuario(@Param("idUsuario") Long idUsuario);
+
+	// usuarios com mais lancamentos no periodo, carregados nos caches durante o aquecimento
+	@Query(value = "SELECT l.usuario.id FROM Lancamento l WHERE l.ano = :ano AND l.mes = :mes "
+			+ "GROUP BY l.usuario.id ORDER BY COUNT(l.id) DESC")
+	List<Long> obterUsuariosMaisAtivos(@Param("ano") Integer ano, @Param("mes") Integer mes, Pageable pageable);
+
+	/*
+	 * Extrato do periodo numa passada: a soma acumulada (funcao de janela) dos lancamentos efetivados
+	 * parte de saldoInicial, o saldo anterior ao periodo, entao os meses anteriores nao sao lidos.
+	 * Usa o indice (id_usuario, ano, mes); ler dentro de uma transacao e fechar o Stream.
+	 */
+	@QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+	@Query(nativeQuery = true, value = "SELECT l.id, l.ano, l.mes, l.data_cadastro, l.descricao, l.categoria, l.tipo, l.valor, "
+			+ ":saldoInicial + SUM(CASE WHEN l.tipo = 'RECEITA' THEN l.valor ELSE -l.valor END) "
+			+ "OVER (ORDER BY l.ano, l.mes, l.data_cadastro, l.id ROWS UNBOUNDED PRECEDING) AS saldo "
+			+ "FROM financas.lancamento l WHERE l.id_usuario = :idUsuario AND l.ano = :ano "
+			+ "AND l.mes BETWEEN :mesDe AND :mesAte AND l.status = 'EFETIVADO' "
+			+ "ORDER BY l.ano, l.mes, l.data_cadastro, l.id")
+	Stream<Object[]> obterExtrato(
+			@Param("idUsuario") Long idUsuario, 
+			@Param("ano") Integer ano, 
+			@Param("mesDe") Integer mesDe, 
+			@Param("mesAte") Integer mesAte, 
+			@Param("saldoInicial") Long saldoInicial);
 
-}
\ No newline at end of file
+}
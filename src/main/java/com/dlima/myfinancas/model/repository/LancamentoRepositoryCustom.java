@@ -0,0 +1,25 @@
+package com.dlima.myfinancas.model.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import com.dlima.myfinancas.model.entity.Lancamento;
+
+public interface LancamentoRepositoryCustom {
+	
+	// proximo valor de financas.seq_alteracao_lancamento
+	long proximaSequenciaAlteracao();
+	
+	/*
+	 * Bloqueia a linha do usuario ate o fim da transacao: as alteracoes do mesmo usuario pegam
+	 * sequencias na ordem em que fazem commit. Chamar antes de proximaSequenciaAlteracao.
+	 */
+	void bloquearAlteracoes(Long idUsuario);
+	
+	// exclui os lancamentos do usuario e grava as marcas de exclusao na mesma transacao, com o usuario bloqueado
+	int deletarRegistrandoRemocao(Long idUsuario, Collection<Long> ids);
+	
+	// lancamentos do usuario que atendem a todos os criterios informados
+	List<Lancamento> buscar(FiltroLancamento filtro);
+
+}
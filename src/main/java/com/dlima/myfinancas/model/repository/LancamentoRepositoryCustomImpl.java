@@ -0,0 +1,134 @@
+package com.dlima.myfinancas.model.repository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.money.Money;
+
+/* SQL de sequence gerado pelo dialeto do Hibernate: o mesmo codigo roda no PostgreSQL e no H2 dos testes */
+public class LancamentoRepositoryCustomImpl implements LancamentoRepositoryCustom {
+	
+	static final String SEQUENCIA_ALTERACAO = "financas.seq_alteracao_lancamento";
+	
+	@PersistenceContext
+	private EntityManager entityManager;
+	
+	// sem flush: query nativa gravaria antes da hora a entidade alterada, que seria atualizada de novo no commit
+	@Override
+	public long proximaSequenciaAlteracao() {
+		Number valor = (Number) entityManager
+				.createNativeQuery(dialeto().getSequenceNextValString(SEQUENCIA_ALTERACAO))
+				.setFlushMode(FlushModeType.COMMIT)
+				.getSingleResult();
+		return valor.longValue();
+	}
+	
+	// FOR UPDATE no banco, nao na JVM: vale entre instancias; sem flush pelo mesmo motivo
+	@Override
+	public void bloquearAlteracoes(Long idUsuario) {
+		entityManager.createNativeQuery("SELECT u.id FROM financas.usuario u WHERE u.id = :idUsuario FOR UPDATE")
+				.setParameter("idUsuario", idUsuario)
+				.setFlushMode(FlushModeType.COMMIT)
+				.getResultList();
+	}
+	
+	@Override
+	@Transactional
+	public int deletarRegistrandoRemocao(Long idUsuario, Collection<Long> ids) {
+		bloquearAlteracoes(idUsuario);
+		// um INSERT ... SELECT por lote, cada marca com seu proprio valor da sequence
+		entityManager.createNativeQuery("INSERT INTO financas.lancamento_removido (id, id_usuario, sequencia_alteracao, data_remocao) "
+					+ "SELECT l.id, l.id_usuario, " + dialeto().getSelectSequenceNextValString(SEQUENCIA_ALTERACAO)
+					+ ", CURRENT_TIMESTAMP FROM financas.lancamento l WHERE l.id_usuario = :idUsuario AND l.id IN (:ids)")
+				.setParameter("idUsuario", idUsuario)
+				.setParameter("ids", ids)
+				.executeUpdate();
+		
+		return entityManager.createQuery("DELETE FROM Lancamento l WHERE l.usuario.id = :idUsuario AND l.id IN :ids")
+				.setParameter("idUsuario", idUsuario)
+				.setParameter("ids", ids)
+				.executeUpdate();
+	}
+	
+	/*
+	 * Igualdades primeiro e faixas depois, sobre colunas simples (sem funcao), para usar os
+	 * indices compostos que comecam por id_usuario: (id_usuario, data_cadastro) nas faixas de
+	 * data e (id_usuario, tipo, valor) nas de valor.
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public List<Lancamento> buscar(FiltroLancamento filtro) {
+		Objects.requireNonNull(filtro.getIdUsuario());
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Lancamento> consulta = cb.createQuery(Lancamento.class);
+		Root<Lancamento> lancamento = consulta.from(Lancamento.class);
+		lancamento.fetch("usuario"); // na mesma consulta: sem open-in-view o usuario nao esta no contexto
+		
+		List<Predicate> criterios = new ArrayList<>();
+		criterios.add(cb.equal(lancamento.get("usuario").get("id"), filtro.getIdUsuario()));
+		if (filtro.getTipo() != null) {
+			criterios.add(cb.equal(lancamento.get("tipo"), filtro.getTipo()));
+		}
+		if (filtro.getStatus() != null) {
+			criterios.add(cb.equal(lancamento.get("status"), filtro.getStatus()));
+		}
+		if (filtro.getAno() != null) {
+			criterios.add(cb.equal(lancamento.get("ano"), filtro.getAno()));
+		}
+		if (filtro.getMes() != null) {
+			criterios.add(cb.equal(lancamento.get("mes"), filtro.getMes()));
+		}
+		Path<Money> valor = lancamento.get("valor");
+		if (filtro.getValorMin() != null) {
+			criterios.add(cb.greaterThanOrEqualTo(valor, filtro.getValorMin()));
+		}
+		if (filtro.getValorMax() != null) {
+			criterios.add(cb.lessThanOrEqualTo(valor, filtro.getValorMax()));
+		}
+		Path<LocalDate> dataCadastro = lancamento.get("dataCadastro");
+		if (filtro.getDataCadastroDe() != null) {
+			criterios.add(cb.greaterThanOrEqualTo(dataCadastro, filtro.getDataCadastroDe()));
+		}
+		if (filtro.getDataCadastroAte() != null) {
+			criterios.add(cb.lessThanOrEqualTo(dataCadastro, filtro.getDataCadastroAte()));
+		}
+		if (filtro.getDescricao() != null) {
+			// como o Example do buscar: prefixo sem diferenciar maiusculas
+			criterios.add(cb.like(cb.lower(lancamento.get("descricao")), 
+					escaparLike(filtro.getDescricao().toLowerCase(Locale.ROOT)) + "%", '\\'));
+		}
+		
+		consulta.select(lancamento).where(criterios.toArray(new Predicate[0]));
+		return entityManager.createQuery(consulta).getResultList();
+	}
+	
+	private static String escaparLike(String texto) {
+		return texto.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+	}
+	
+	private Dialect dialeto() {
+		return entityManager.getEntityManagerFactory()
+				.unwrap(SessionFactoryImplementor.class)
+				.getJdbcServices()
+				.getDialect();
+	}
+
+}
@@ -0,0 +1,24 @@
+package com.dlima.myfinancas.model.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.dlima.myfinancas.model.entity.Orcamento;
+
+public interface OrcamentoRepository extends JpaRepository<Orcamento, Long> {
+	
+	// categoria null vira "categoria IS NULL": o orcamento do mes inteiro
+	Optional<Orcamento> findByIdUsuarioAndCategoria(Long idUsuario, String categoria);
+	
+	List<Orcamento> findByIdUsuario(Long idUsuario);
+	
+	// orcamentos afetados por uma despesa: o do mes inteiro e o da categoria dela
+	@Query(value = "SELECT o FROM Orcamento o WHERE o.idUsuario = :idUsuario "
+			+ "AND (o.categoria IS NULL OR o.categoria = :categoria)")
+	List<Orcamento> obterAplicaveis(@Param("idUsuario") Long idUsuario, @Param("categoria") String categoria);
+
+}
@@ -0,0 +1,20 @@
+package com.dlima.myfinancas.model.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.dlima.myfinancas.model.entity.ResumoMensal;
+
+public interface ResumoMensalRepository extends JpaRepository<ResumoMensal, Long> {
+	
+	List<ResumoMensal> findByIdUsuarioOrderByAnoAscMesAsc(Long idUsuario);
+	
+	@Modifying
+	@Query(value = "DELETE FROM ResumoMensal r WHERE r.idUsuario = :idUsuario")
+	int deletarPorUsuario(@Param("idUsuario") Long idUsuario);
+
+}
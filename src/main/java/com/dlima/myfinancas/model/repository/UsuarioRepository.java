@@ -1,8 +1,20 @@
 package com.dlima.myfinancas.model.repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import com.dlima.myfinancas.model.entity.Usuario;
 
@@ -14,4 +26,18 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long>{
 	
 	Optional<Usuario> findByEmail(String email);
 	
+	// SELECT ... FOR UPDATE: serializa recalculos de dados derivados do mesmo usuario
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query(value = "SELECT u FROM Usuario u WHERE u.id = :id")
+	Optional<Usuario> bloquearPorId(@Param("id") Long id);
+	
+	// paginacao por chave: cada lote continua do ultimo id, sem OFFSET
+	@Query(value = "SELECT u.id FROM Usuario u WHERE u.id > :ultimoId ORDER BY u.id")
+	List<Long> obterIdsApos(@Param("ultimoId") Long ultimoId, Pageable pageable);
+	
+	// todos os emails, lidos aos poucos do cursor (usar dentro de uma transacao e fechar o Stream)
+	@QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+	@Query(value = "SELECT u.email FROM Usuario u WHERE u.email IS NOT NULL")
+	Stream<String> obterEmails();
+	
 }
\ No newline at end of file
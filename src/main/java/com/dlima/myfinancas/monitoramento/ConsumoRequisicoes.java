@@ -0,0 +1,61 @@
+package com.dlima.myfinancas.monitoramento;
+
+import java.util.function.LongSupplier;
+
+import com.dlima.myfinancas.api.dto.RankingConsumoDTO;
+
+/*
+ * Requisicoes, tempo de banco e bytes de resposta por usuario e por endpoint numa janela
+ * deslizante de fatias (myfinancas.consumo.fatias x duracao-fatia-ms), alimentados pelo
+ * FiltroConsumo. A memoria depende so da configuracao do sketch, nao do numero de usuarios.
+ */
+public class ConsumoRequisicoes {
+
+	private final JanelaConsumo usuarios;
+
+	private final JanelaConsumo endpoints;
+
+	private final int quantidadeFatias;
+
+	private final long duracaoFatiaMs;
+
+	private final int capacidade;
+
+	public ConsumoRequisicoes(int quantidadeFatias, long duracaoFatiaMs, int profundidade, int largura, int capacidade) {
+		this(quantidadeFatias, duracaoFatiaMs, profundidade, largura, capacidade, System::currentTimeMillis);
+	}
+
+	ConsumoRequisicoes(int quantidadeFatias, long duracaoFatiaMs, int profundidade, int largura, int capacidade,
+			LongSupplier relogio) {
+		this.usuarios = new JanelaConsumo(quantidadeFatias, duracaoFatiaMs, profundidade, largura, capacidade, relogio);
+		this.endpoints = new JanelaConsumo(quantidadeFatias, duracaoFatiaMs, profundidade, largura, capacidade, relogio);
+		this.quantidadeFatias = quantidadeFatias;
+		this.duracaoFatiaMs = duracaoFatiaMs;
+		this.capacidade = capacidade;
+	}
+
+	/* usuario null: requisicao sem usuario identificado, conta so no endpoint */
+	public void registrar(Long usuario, String endpoint, long tempoBancoMicros, long bytes) {
+		long[] valores = { 1, tempoBancoMicros, bytes };
+		if (usuario != null) {
+			usuarios.registrar(usuario.toString(), valores);
+		}
+		endpoints.registrar(endpoint, valores);
+	}
+
+	/* janela arredondada para fatias inteiras, entre uma fatia e a janela toda */
+	public RankingConsumoDTO obterMaiores(MetricaConsumo metrica, long segundos, int limite) {
+		int fatias = (int) Math.max(1, Math.min(quantidadeFatias, (segundos * 1000 + duracaoFatiaMs - 1) / duracaoFatiaMs));
+		return RankingConsumoDTO.builder()
+				.metrica(metrica)
+				.janelaSegundos(fatias * duracaoFatiaMs / 1000)
+				.usuarios(usuarios.maiores(metrica, fatias, limite))
+				.endpoints(endpoints.maiores(metrica, fatias, limite))
+				.build();
+	}
+
+	public int getCapacidade() {
+		return capacidade;
+	}
+
+}
@@ -0,0 +1,85 @@
+package com.dlima.myfinancas.monitoramento;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Comandos SQL executados pela thread atual desde iniciar(). O FiltroOrcamentoSql abre uma
+ * medicao por requisicao; o DataSourceContadorSql registra cada execucao na medicao aberta.
+ * Tarefas enviadas a executores so entram na conta quando passam por propagar (TaskDecorator).
+ */
+public final class ContadorSql {
+
+	private static final ThreadLocal<Medicao> ATUAL = new ThreadLocal<>();
+
+	private ContadorSql() {
+	}
+
+	/* abre uma nova medicao e devolve a anterior, que deve ser restaurada com encerrar */
+	public static Medicao iniciar() {
+		Medicao anterior = ATUAL.get();
+		ATUAL.set(new Medicao());
+		return anterior;
+	}
+
+	public static Medicao encerrar(Medicao anterior) {
+		Medicao atual = ATUAL.get();
+		if (anterior == null) {
+			ATUAL.remove();
+		} else {
+			ATUAL.set(anterior);
+		}
+		return atual;
+	}
+
+	public static Medicao atual() {
+		return ATUAL.get();
+	}
+
+	/* soma os comandos da tarefa na medicao de quem a criou (ex.: consultas paralelas do dashboard) */
+	public static Runnable propagar(Runnable tarefa) {
+		Medicao medicao = ATUAL.get();
+		if (medicao == null) {
+			return tarefa;
+		}
+		return () -> {
+			Medicao anterior = ATUAL.get();
+			ATUAL.set(medicao);
+			try {
+				tarefa.run();
+			} finally {
+				encerrar(anterior);
+			}
+		};
+	}
+
+	static void registrar(long nanos) {
+		Medicao medicao = ATUAL.get();
+		if (medicao != null) {
+			medicao.quantidade.incrementAndGet();
+			medicao.nanos.addAndGet(nanos);
+		}
+	}
+
+	public static final class Medicao {
+
+		private final AtomicInteger quantidade = new AtomicInteger();
+
+		private final AtomicLong nanos = new AtomicLong();
+
+		public int getQuantidade() {
+			return quantidade.get();
+		}
+
+		public long getTempoMs() {
+			return TimeUnit.NANOSECONDS.toMillis(nanos.get());
+		}
+
+		public long getTempoNanos() {
+			return nanos.get();
+		}
+
+	}
+
+}
@@ -0,0 +1,19 @@
+package com.dlima.myfinancas.monitoramento;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+/* Troca cada DataSource do contexto pelo DataSourceContadorSql, depois de configurado */
+public class ContadorSqlPostProcessor implements BeanPostProcessor {
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String nome) throws BeansException {
+		if (bean instanceof DataSource && !(bean instanceof DataSourceContadorSql)) {
+			return new DataSourceContadorSql((DataSource) bean);
+		}
+		return bean;
+	}
+
+}
@@ -0,0 +1,85 @@
+package com.dlima.myfinancas.monitoramento;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/*
+ * Envolve as conexoes para contar e cronometrar cada execute* de Statement, PreparedStatement
+ * e CallableStatement (executeBatch conta como um comando). unwrap/isWrapperFor continuam
+ * chegando ao pool, entao metricas e health checks do Hikari nao mudam. close repassa ao
+ * alvo, para o destroy do bean ainda fechar o pool.
+ */
+public class DataSourceContadorSql extends DelegatingDataSource implements Closeable {
+
+	public DataSourceContadorSql(DataSource alvo) {
+		super(alvo);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (getTargetDataSource() instanceof Closeable) {
+			((Closeable) getTargetDataSource()).close();
+		}
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return envolver(getTargetDataSource().getConnection());
+	}
+
+	@Override
+	public Connection getConnection(String usuario, String senha) throws SQLException {
+		return envolver(getTargetDataSource().getConnection(usuario, senha));
+	}
+
+	private static Connection envolver(Connection conexao) {
+		return (Connection) Proxy.newProxyInstance(DataSourceContadorSql.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, (proxy, metodo, argumentos) -> {
+					Object resultado = invocar(conexao, metodo, argumentos);
+					if (resultado instanceof Statement) {
+						return envolver((Statement) resultado, metodo.getReturnType());
+					}
+					return resultado;
+				});
+	}
+
+	private static Statement envolver(Statement comando, Class<?> tipo) {
+		Class<?> interfaceComando = tipo == CallableStatement.class || tipo == PreparedStatement.class
+				? tipo : Statement.class;
+		InvocationHandler contador = (proxy, metodo, argumentos) -> {
+			if (!metodo.getName().startsWith("execute")) {
+				return invocar(comando, metodo, argumentos);
+			}
+			long inicio = System.nanoTime();
+			try {
+				return invocar(comando, metodo, argumentos);
+			} finally {
+				ContadorSql.registrar(System.nanoTime() - inicio);
+			}
+		};
+		return (Statement) Proxy.newProxyInstance(DataSourceContadorSql.class.getClassLoader(),
+				new Class<?>[] { interfaceComando }, contador);
+	}
+
+	private static Object invocar(Object alvo, Method metodo, Object[] argumentos) throws Throwable {
+		try {
+			return metodo.invoke(alvo, argumentos);
+		} catch (InvocationTargetException e) {
+			throw e.getTargetException();
+		}
+	}
+
+}
@@ -0,0 +1,96 @@
+package com.dlima.myfinancas.monitoramento;
+
+import java.io.IOException;
+import java.util.Map;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+/*
+ * Registra cada requisicao no ConsumoRequisicoes: usuario (parametro "usuario" ou {id} de
+ * /api/usuarios), endpoint (metodo + rota), tempo dos comandos SQL da thread da requisicao
+ * (medidos pelo FiltroOrcamentoSql) e bytes da resposta. Respostas assincronas (extrato, SSE)
+ * sao registradas ao terminar.
+ */
+public class FiltroConsumo extends OncePerRequestFilter {
+
+	private final ConsumoRequisicoes consumo;
+
+	public FiltroConsumo(ConsumoRequisicoes consumo) {
+		this.consumo = consumo;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		RespostaContadora resposta = new RespostaContadora(response);
+		ContadorSql.Medicao medicao = ContadorSql.atual();
+		long nanosAntes = medicao == null ? 0 : medicao.getTempoNanos();
+		try {
+			chain.doFilter(request, resposta);
+		} finally {
+			long tempoBancoMicros = medicao == null ? 0 : (medicao.getTempoNanos() - nanosAntes) / 1000;
+			if (request.isAsyncStarted()) {
+				request.getAsyncContext().addListener(new AoTerminar(() -> registrar(request, tempoBancoMicros, resposta)));
+			} else {
+				registrar(request, tempoBancoMicros, resposta);
+			}
+		}
+	}
+
+	private void registrar(HttpServletRequest request, long tempoBancoMicros, RespostaContadora resposta) {
+		Object rota = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		// sem rota (404) todas as urls caem na mesma chave
+		String endpoint = request.getMethod() + " " + (rota == null ? "(sem rota)" : rota);
+		consumo.registrar(usuario(request, rota), endpoint, tempoBancoMicros, resposta.getBytes());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Long usuario(HttpServletRequest request, Object rota) {
+		String usuario = request.getParameter("usuario");
+		if (usuario == null && rota != null && rota.toString().startsWith("/api/usuarios/")) {
+			Map<String, String> variaveis = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+			usuario = variaveis == null ? null : variaveis.get("id");
+		}
+		try {
+			return usuario == null ? null : Long.valueOf(usuario.trim());
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private static final class AoTerminar implements AsyncListener {
+
+		private final Runnable acao;
+
+		private AoTerminar(Runnable acao) {
+			this.acao = acao;
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) {
+			acao.run();
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) {
+		}
+
+		@Override
+		public void onError(AsyncEvent event) {
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+		}
+
+	}
+
+}
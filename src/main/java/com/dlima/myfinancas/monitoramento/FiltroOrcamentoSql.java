@@ -0,0 +1,73 @@
+package com.dlima.myfinancas.monitoramento;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+/*
+ * Mede os comandos SQL de cada requisicao e registra as que passam do orcamento (quantidade
+ * ou tempo). Com cabecalhos ligados (so para depuracao), o corpo fica em buffer ate o fim para
+ * que X-Sql-Quantidade e X-Sql-Tempo-Ms ainda possam ser escritos; streams SSE ficam de fora.
+ */
+public class FiltroOrcamentoSql extends OncePerRequestFilter {
+
+	public static final String CABECALHO_QUANTIDADE = "X-Sql-Quantidade";
+
+	public static final String CABECALHO_TEMPO = "X-Sql-Tempo-Ms";
+
+	private static final Logger log = LoggerFactory.getLogger(FiltroOrcamentoSql.class);
+
+	private final int orcamentoComandos;
+
+	private final long orcamentoMs;
+
+	private final boolean cabecalhos;
+
+	public FiltroOrcamentoSql(int orcamentoComandos, long orcamentoMs, boolean cabecalhos) {
+		this.orcamentoComandos = orcamentoComandos;
+		this.orcamentoMs = orcamentoMs;
+		this.cabecalhos = cabecalhos;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		boolean escreverCabecalhos = cabecalhos && !aceitaEventos(request);
+		ContentCachingResponseWrapper resposta = escreverCabecalhos ? new ContentCachingResponseWrapper(response) : null;
+
+		ContadorSql.Medicao anterior = ContadorSql.iniciar();
+		ContadorSql.Medicao medicao;
+		try {
+			chain.doFilter(request, resposta != null ? resposta : response);
+		} finally {
+			medicao = ContadorSql.encerrar(anterior);
+		}
+
+		if (medicao.getQuantidade() > orcamentoComandos || medicao.getTempoMs() > orcamentoMs) {
+			log.warn("{} {} executou {} comandos SQL em {} ms (orçamento: {} comandos, {} ms)",
+					request.getMethod(), request.getRequestURI(), medicao.getQuantidade(), medicao.getTempoMs(),
+					orcamentoComandos, orcamentoMs);
+		}
+		if (resposta != null) {
+			resposta.setHeader(CABECALHO_QUANTIDADE, String.valueOf(medicao.getQuantidade()));
+			resposta.setHeader(CABECALHO_TEMPO, String.valueOf(medicao.getTempoMs()));
+			resposta.copyBodyToResponse();
+		}
+	}
+
+	private static boolean aceitaEventos(HttpServletRequest request) {
+		String aceita = request.getHeader(HttpHeaders.ACCEPT);
+		return aceita != null && aceita.contains(MediaType.TEXT_EVENT_STREAM_VALUE);
+	}
+
+}
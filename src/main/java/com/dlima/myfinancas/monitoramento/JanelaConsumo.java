@@ -0,0 +1,148 @@
+package com.dlima.myfinancas.monitoramento;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+import com.dlima.myfinancas.api.dto.ConsumoDTO;
+
+/*
+ * Maiores consumidores de uma dimensao (usuarios ou endpoints) nas ultimas fatias de tempo.
+ * Cada fatia tem o seu SketchContagem e, por metrica, ate capacidade candidatos: as chaves de
+ * maior estimativa vistas na fatia. A consulta junta os candidatos das fatias da janela e soma
+ * as estimativas de cada uma. Uma fatia reaproveitada depois de sair da janela e zerada.
+ */
+final class JanelaConsumo {
+
+	private static final int METRICAS = MetricaConsumo.values().length;
+
+	private final Fatia[] fatias;
+
+	private final long duracaoFatiaMs;
+
+	private final int capacidade;
+
+	private final LongSupplier relogio;
+
+	JanelaConsumo(int quantidadeFatias, long duracaoFatiaMs, int profundidade, int largura, int capacidade,
+			LongSupplier relogio) {
+		this.fatias = new Fatia[quantidadeFatias];
+		for (int i = 0; i < quantidadeFatias; i++) {
+			fatias[i] = new Fatia(new SketchContagem(METRICAS, profundidade, largura));
+		}
+		this.duracaoFatiaMs = duracaoFatiaMs;
+		this.capacidade = capacidade;
+		this.relogio = relogio;
+	}
+
+	/* valores na ordem de MetricaConsumo */
+	void registrar(String chave, long[] valores) {
+		long periodo = relogio.getAsLong() / duracaoFatiaMs;
+		Fatia fatia = fatias[(int) (periodo % fatias.length)];
+		long hash = SketchContagem.hash(chave);
+		synchronized (fatia) {
+			if (fatia.periodo != periodo) {
+				fatia.reiniciar(periodo);
+			}
+			fatia.sketch.adicionar(hash, valores);
+			for (int metrica = 0; metrica < METRICAS; metrica++) {
+				if (valores[metrica] > 0) {
+					fatia.oferecer(metrica, chave, fatia.sketch.estimar(hash, metrica), capacidade);
+				}
+			}
+		}
+	}
+
+	/* as limite maiores chaves pela metrica nas ultimas quantidadeFatias fatias, a atual inclusive */
+	List<ConsumoDTO> maiores(MetricaConsumo metrica, int quantidadeFatias, int limite) {
+		long atual = relogio.getAsLong() / duracaoFatiaMs;
+		long primeiro = atual - Math.min(quantidadeFatias, fatias.length) + 1;
+
+		Set<String> chaves = new HashSet<>();
+		for (Fatia fatia : fatias) {
+			synchronized (fatia) {
+				if (fatia.periodo >= primeiro && fatia.periodo <= atual) {
+					chaves.addAll(fatia.candidatos.get(metrica.ordinal()).keySet());
+				}
+			}
+		}
+
+		Map<String, long[]> totais = new HashMap<>();
+		for (String chave : chaves) {
+			long hash = SketchContagem.hash(chave);
+			long[] total = new long[METRICAS];
+			for (Fatia fatia : fatias) {
+				synchronized (fatia) {
+					if (fatia.periodo >= primeiro && fatia.periodo <= atual) {
+						for (int m = 0; m < METRICAS; m++) {
+							total[m] += fatia.sketch.estimar(hash, m);
+						}
+					}
+				}
+			}
+			totais.put(chave, total);
+		}
+
+		return totais.entrySet().stream()
+				.sorted(Comparator.<Map.Entry<String, long[]>>comparingLong(total -> total.getValue()[metrica.ordinal()])
+						.reversed())
+				.limit(limite)
+				.map(total -> ConsumoDTO.builder()
+						.chave(total.getKey())
+						.requisicoes(total.getValue()[MetricaConsumo.REQUISICOES.ordinal()])
+						.tempoBancoMs(total.getValue()[MetricaConsumo.TEMPO_BANCO.ordinal()] / 1000.0)
+						.bytes(total.getValue()[MetricaConsumo.BYTES.ordinal()])
+						.build())
+				.collect(Collectors.toList());
+	}
+
+	private static final class Fatia {
+
+		private final SketchContagem sketch;
+
+		// por metrica, chave -> estimativa quando foi vista pela ultima vez
+		private final List<Map<String, Long>> candidatos = new ArrayList<>();
+
+		private long periodo = -1;
+
+		private Fatia(SketchContagem sketch) {
+			this.sketch = sketch;
+			for (int i = 0; i < METRICAS; i++) {
+				candidatos.add(new HashMap<>());
+			}
+		}
+
+		private void reiniciar(long novoPeriodo) {
+			sketch.limpar();
+			candidatos.forEach(Map::clear);
+			periodo = novoPeriodo;
+		}
+
+		// entra no lugar do menor candidato quando a fatia ja tem capacidade chaves
+		private void oferecer(int metrica, String chave, long estimativa, int capacidade) {
+			Map<String, Long> estimativas = candidatos.get(metrica);
+			if (estimativas.size() < capacidade || estimativas.containsKey(chave)) {
+				estimativas.put(chave, estimativa);
+				return;
+			}
+			Map.Entry<String, Long> menor = null;
+			for (Map.Entry<String, Long> candidato : estimativas.entrySet()) {
+				if (menor == null || candidato.getValue() < menor.getValue()) {
+					menor = candidato;
+				}
+			}
+			if (estimativa > menor.getValue()) {
+				estimativas.remove(menor.getKey());
+				estimativas.put(chave, estimativa);
+			}
+		}
+
+	}
+
+}
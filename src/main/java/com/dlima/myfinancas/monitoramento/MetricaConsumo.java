@@ -0,0 +1,9 @@
+package com.dlima.myfinancas.monitoramento;
+
+public enum MetricaConsumo {
+	
+	REQUISICOES,
+	TEMPO_BANCO, // microssegundos de comandos SQL
+	BYTES // corpo da resposta
+
+}
@@ -0,0 +1,100 @@
+package com.dlima.myfinancas.monitoramento;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/* Conta o corpo escrito na resposta: bytes pelo OutputStream, caracteres pelo Writer */
+class RespostaContadora extends HttpServletResponseWrapper {
+
+	private volatile long bytes; // um escritor por vez
+
+	private ServletOutputStream saida;
+
+	private PrintWriter escritor;
+
+	RespostaContadora(HttpServletResponse response) {
+		super(response);
+	}
+
+	long getBytes() {
+		return bytes;
+	}
+
+	@Override
+	public ServletOutputStream getOutputStream() throws IOException {
+		if (saida == null) {
+			ServletOutputStream original = super.getOutputStream();
+			saida = new ServletOutputStream() {
+
+				@Override
+				public void write(int b) throws IOException {
+					original.write(b);
+					bytes++;
+				}
+
+				@Override
+				public void write(byte[] b, int inicio, int tamanho) throws IOException {
+					original.write(b, inicio, tamanho);
+					bytes += tamanho;
+				}
+
+				@Override
+				public void flush() throws IOException {
+					original.flush();
+				}
+
+				@Override
+				public void close() throws IOException {
+					original.close();
+				}
+
+				@Override
+				public boolean isReady() {
+					return original.isReady();
+				}
+
+				@Override
+				public void setWriteListener(WriteListener listener) {
+					original.setWriteListener(listener);
+				}
+
+			};
+		}
+		return saida;
+	}
+
+	@Override
+	public PrintWriter getWriter() throws IOException {
+		if (escritor == null) {
+			escritor = new PrintWriter(new FilterWriter(super.getWriter()) {
+
+				@Override
+				public void write(int c) throws IOException {
+					super.write(c);
+					bytes++;
+				}
+
+				@Override
+				public void write(char[] c, int inicio, int tamanho) throws IOException {
+					super.write(c, inicio, tamanho);
+					bytes += tamanho;
+				}
+
+				@Override
+				public void write(String s, int inicio, int tamanho) throws IOException {
+					super.write(s, inicio, tamanho);
+					bytes += tamanho;
+				}
+
+			});
+		}
+		return escritor;
+	}
+
+}
@@ -0,0 +1,80 @@
+package com.dlima.myfinancas.monitoramento;
+
+import java.util.Arrays;
+
+/*
+ * Count-Min: profundidade linhas de largura contadores para cada metrica. Cada chave soma em
+ * uma coluna por linha; a estimativa e o menor dos contadores, que nunca fica abaixo do valor
+ * real e so passa dele quando outras chaves caem nas mesmas colunas.
+ *
+ * Memoria fixa (metricas * profundidade * largura longs), qualquer que seja o numero de chaves.
+ * Sem sincronizacao: quem usa protege o acesso.
+ */
+final class SketchContagem {
+
+	private final int metricas;
+
+	private final int profundidade;
+
+	private final int mascara; // largura - 1, largura potencia de 2
+
+	private final long[] contadores;
+
+	SketchContagem(int metricas, int profundidade, int largura) {
+		if (Integer.bitCount(largura) != 1) {
+			throw new IllegalArgumentException("A largura do sketch deve ser potência de 2: " + largura);
+		}
+		this.metricas = metricas;
+		this.profundidade = profundidade;
+		this.mascara = largura - 1;
+		this.contadores = new long[metricas * profundidade * largura];
+	}
+
+	void adicionar(long hash, long[] valores) {
+		for (int linha = 0; linha < profundidade; linha++) {
+			int coluna = coluna(hash, linha);
+			for (int metrica = 0; metrica < metricas; metrica++) {
+				contadores[indice(metrica, linha, coluna)] += valores[metrica];
+			}
+		}
+	}
+
+	long estimar(long hash, int metrica) {
+		long minimo = Long.MAX_VALUE;
+		for (int linha = 0; linha < profundidade; linha++) {
+			minimo = Math.min(minimo, contadores[indice(metrica, linha, coluna(hash, linha))]);
+		}
+		return minimo;
+	}
+
+	void limpar() {
+		Arrays.fill(contadores, 0);
+	}
+
+	private int indice(int metrica, int linha, int coluna) {
+		return (metrica * profundidade + linha) * (mascara + 1) + coluna;
+	}
+
+	// duas metades do hash combinadas (h1 + linha * h2): uma funcao de hash diferente por linha
+	private int coluna(long hash, int linha) {
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32) | 1;
+		return (h1 + linha * h2) & mascara;
+	}
+
+	/* FNV-1a de 64 bits seguido da mistura final do MurmurHash3 */
+	static long hash(String chave) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < chave.length(); i++) {
+			hash ^= chave.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+}
@@ -0,0 +1,70 @@
+package com.dlima.myfinancas.prazo;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Prazo da requisicao corrente (System.nanoTime limite), aberto pelo InterceptorPrazo e lido
+ * pelo DataSourcePrazo a cada comando SQL. Tarefas enviadas a executores so herdam o prazo
+ * quando passam por propagar (TaskDecorator).
+ */
+public final class ContextoPrazo {
+	
+	private static final ThreadLocal<Long> LIMITE = new ThreadLocal<>();
+	
+	private ContextoPrazo() {
+	}
+	
+	public static void iniciar(long prazoMs) {
+		LIMITE.set(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(prazoMs));
+	}
+	
+	public static void encerrar() {
+		LIMITE.remove();
+	}
+	
+	// null sem prazo; negativo depois de esgotado
+	public static Long restanteMs() {
+		Long limite = LIMITE.get();
+		return limite == null ? null : TimeUnit.NANOSECONDS.toMillis(limite - System.nanoTime());
+	}
+	
+	public static boolean esgotado() {
+		Long limite = LIMITE.get();
+		return limite != null && limite - System.nanoTime() <= 0;
+	}
+	
+	/* a tarefa roda sem prazo, mesmo dentro de uma requisicao (ex.: acertos que nao podem ficar pela metade) */
+	public static void semPrazo(Runnable tarefa) {
+		Long anterior = LIMITE.get();
+		LIMITE.remove();
+		try {
+			tarefa.run();
+		} finally {
+			if (anterior != null) {
+				LIMITE.set(anterior);
+			}
+		}
+	}
+	
+	/* a tarefa roda com o prazo de quem a criou (ex.: consultas paralelas do dashboard) */
+	public static Runnable propagar(Runnable tarefa) {
+		Long limite = LIMITE.get();
+		if (limite == null) {
+			return tarefa;
+		}
+		return () -> {
+			Long anterior = LIMITE.get();
+			LIMITE.set(limite);
+			try {
+				tarefa.run();
+			} finally {
+				if (anterior == null) {
+					LIMITE.remove();
+				} else {
+					LIMITE.set(anterior);
+				}
+			}
+		};
+	}
+
+}
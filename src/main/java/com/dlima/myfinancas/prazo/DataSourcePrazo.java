@@ -0,0 +1,129 @@
+package com.dlima.myfinancas.prazo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/*
+ * Antes de cada execute* aplica o restante do prazo da requisicao como query timeout (em
+ * segundos, arredondado para cima): o banco cancela o comando quando o prazo acaba. Com o prazo
+ * ja esgotado o comando nem e enviado. Falhas depois do prazo saem como SQLTimeoutException,
+ * que o Hibernate e o JdbcTemplate traduzem para QueryTimeoutException.
+ *
+ * Sem prazo o timeout volta a 0: no H2 ele vale para a conexao inteira, que retorna ao pool.
+ *
+ * Com o prazo esgotado nem a conexao e pedida. A espera por uma conexao livre e do pool:
+ * o DataSourcePools a limita ao restante do prazo; outros pools esperam o proprio timeout
+ * (ex.: um Hikari unico, com myfinancas.pools.habilitado=false) e a falha, se o prazo tiver
+ * acabado durante a espera, tambem sai como SQLTimeoutException.
+ */
+public class DataSourcePrazo extends DelegatingDataSource implements Closeable {
+	
+	static final String SQL_STATE_CANCELADO = "57014";
+
+	public DataSourcePrazo(DataSource alvo) {
+		super(alvo);
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		verificarPrazo();
+		try {
+			return envolver(getTargetDataSource().getConnection());
+		} catch (SQLException e) {
+			throw comoPrazoEsgotado(e);
+		}
+	}
+
+	@Override
+	public Connection getConnection(String usuario, String senha) throws SQLException {
+		verificarPrazo();
+		try {
+			return envolver(getTargetDataSource().getConnection(usuario, senha));
+		} catch (SQLException e) {
+			throw comoPrazoEsgotado(e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (getTargetDataSource() instanceof Closeable) {
+			((Closeable) getTargetDataSource()).close();
+		}
+	}
+
+	private static Connection envolver(Connection conexao) {
+		return (Connection) Proxy.newProxyInstance(DataSourcePrazo.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, (proxy, metodo, argumentos) -> {
+					Object resultado = invocar(conexao, metodo, argumentos);
+					if (resultado instanceof Statement) {
+						return envolver((Statement) resultado, metodo.getReturnType());
+					}
+					return resultado;
+				});
+	}
+
+	private static Statement envolver(Statement comando, Class<?> tipo) {
+		Class<?> interfaceComando = tipo == CallableStatement.class || tipo == PreparedStatement.class
+				? tipo : Statement.class;
+		InvocationHandler prazo = (proxy, metodo, argumentos) -> {
+			if (!metodo.getName().startsWith("execute")) {
+				return invocar(comando, metodo, argumentos);
+			}
+			aplicarPrazo(comando);
+			try {
+				return invocar(comando, metodo, argumentos);
+			} catch (SQLException e) {
+				throw comoPrazoEsgotado(e);
+			}
+		};
+		return (Statement) Proxy.newProxyInstance(DataSourcePrazo.class.getClassLoader(),
+				new Class<?>[] { interfaceComando }, prazo);
+	}
+
+	private static void verificarPrazo() throws SQLException {
+		if (ContextoPrazo.esgotado()) {
+			throw new SQLTimeoutException("Prazo da requisição esgotado", SQL_STATE_CANCELADO);
+		}
+	}
+
+	private static SQLException comoPrazoEsgotado(SQLException e) {
+		if (ContextoPrazo.esgotado() && !(e instanceof SQLTimeoutException)) {
+			return new SQLTimeoutException("Prazo da requisição esgotado", SQL_STATE_CANCELADO, e);
+		}
+		return e;
+	}
+
+	private static void aplicarPrazo(Statement comando) throws SQLException {
+		Long restanteMs = ContextoPrazo.restanteMs();
+		if (restanteMs != null && restanteMs <= 0) {
+			throw new SQLTimeoutException("Prazo da requisição esgotado", SQL_STATE_CANCELADO);
+		}
+		int segundos = restanteMs == null ? 0 : (int) Math.min(Integer.MAX_VALUE, (restanteMs + 999) / 1000);
+		if (comando.getQueryTimeout() != segundos) {
+			comando.setQueryTimeout(segundos);
+		}
+	}
+
+	private static Object invocar(Object alvo, Method metodo, Object[] argumentos) throws Throwable {
+		try {
+			return metodo.invoke(alvo, argumentos);
+		} catch (InvocationTargetException e) {
+			throw e.getTargetException();
+		}
+	}
+
+}
@@ -0,0 +1,71 @@
+package com.dlima.myfinancas.prazo;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/*
+ * Abre o prazo da requisicao: o cabecalho X-Prazo-Ms (limitado a maximoMs) ou o @PrazoPadrao
+ * do endpoint ou padraoMs. Respostas em stream continuam em outra thread, sem prazo.
+ */
+public class InterceptorPrazo implements AsyncHandlerInterceptor {
+	
+	public static final String CABECALHO = "X-Prazo-Ms";
+	
+	private final long padraoMs;
+	
+	private final long maximoMs;
+	
+	public InterceptorPrazo(long padraoMs, long maximoMs) {
+		this.padraoMs = padraoMs;
+		this.maximoMs = maximoMs;
+	}
+	
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+		String cabecalho = request.getHeader(CABECALHO);
+		long prazoMs = cabecalho == null ? padrao(handler) : lerCabecalho(cabecalho);
+		if (prazoMs < 0) {
+			response.setStatus(HttpStatus.BAD_REQUEST.value());
+			response.setContentType("text/plain;charset=UTF-8");
+			response.getWriter().write("Informe em " + CABECALHO + " um prazo positivo em milissegundos.");
+			return false;
+		}
+		if (prazoMs > 0) {
+			ContextoPrazo.iniciar(prazoMs);
+		}
+		return true;
+	}
+	
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+		ContextoPrazo.encerrar();
+	}
+	
+	@Override
+	public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		ContextoPrazo.encerrar();
+	}
+	
+	private long padrao(Object handler) {
+		PrazoPadrao anotacao = handler instanceof HandlerMethod 
+				? ((HandlerMethod) handler).getMethodAnnotation(PrazoPadrao.class) : null;
+		return anotacao == null ? padraoMs : anotacao.value();
+	}
+	
+	// -1 quando invalido
+	private long lerCabecalho(String cabecalho) {
+		try {
+			long prazoMs = Long.parseLong(cabecalho.trim());
+			return prazoMs > 0 ? Math.min(prazoMs, maximoMs) : -1;
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+}
@@ -0,0 +1,20 @@
+package com.dlima.myfinancas.prazo;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/*
+ * Prazo do endpoint quando a requisicao nao traz o cabecalho X-Prazo-Ms, no lugar de
+ * myfinancas.prazo.padrao-ms. 0: sem prazo.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface PrazoPadrao {
+	
+	long value(); // milissegundos
+
+}
@@ -0,0 +1,19 @@
+package com.dlima.myfinancas.prazo;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+/* Troca cada DataSource do contexto pelo DataSourcePrazo, depois de configurado */
+public class PrazoPostProcessor implements BeanPostProcessor {
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String nome) throws BeansException {
+		if (bean instanceof DataSource && !(bean instanceof DataSourcePrazo)) {
+			return new DataSourcePrazo((DataSource) bean);
+		}
+		return bean;
+	}
+
+}
@@ -0,0 +1,54 @@
+package com.dlima.myfinancas.prazo;
+
+import java.sql.SQLTimeoutException;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Comando cancelado pelo prazo: 504. Sem conexao dentro da espera do pool: 503, ou 504 quando
+ * foi o prazo que acabou durante a espera. Os dois casos contam em myfinancas.requisicoes.canceladas
+ * por endpoint (metodo + padrao da rota).
+ */
+@RestControllerAdvice
+public class TratadorPrazoEsgotado {
+	
+	private final ObjectProvider<MeterRegistry> registry;
+	
+	public TratadorPrazoEsgotado(ObjectProvider<MeterRegistry> registry) {
+		this.registry = registry;
+	}
+	
+	@ExceptionHandler(QueryTimeoutException.class)
+	public ResponseEntity prazoEsgotado(HttpServletRequest request) {
+		contar(request, "prazo");
+		return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body("Prazo da requisição esgotado.");
+	}
+	
+	@ExceptionHandler(CannotCreateTransactionException.class)
+	public ResponseEntity semConexao(CannotCreateTransactionException e, HttpServletRequest request) {
+		if (e.contains(SQLTimeoutException.class)) {
+			return prazoEsgotado(request);
+		}
+		contar(request, "sem-conexao");
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Nenhuma conexão disponível, tente novamente.");
+	}
+	
+	private void contar(HttpServletRequest request, String motivo) {
+		Object rota = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		String endpoint = request.getMethod() + " " + (rota == null ? request.getRequestURI() : rota);
+		registry.ifAvailable(r -> r.counter("myfinancas.requisicoes.canceladas", "endpoint", endpoint, "motivo", motivo)
+				.increment());
+	}
+
+}
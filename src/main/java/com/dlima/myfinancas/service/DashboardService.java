@@ -0,0 +1,14 @@
+package com.dlima.myfinancas.service;
+
+import java.util.Optional;
+
+import com.dlima.myfinancas.api.dto.DashboardDTO;
+import com.dlima.myfinancas.conexoes.PoolConexoes;
+import com.dlima.myfinancas.conexoes.TipoPool;
+
+public interface DashboardService {
+	
+	@PoolConexoes(TipoPool.RELATORIO)
+	Optional<DashboardDTO> obterDashboard(Long idUsuario);
+
+}
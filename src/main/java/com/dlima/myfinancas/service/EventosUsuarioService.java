@@ -0,0 +1,9 @@
+package com.dlima.myfinancas.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface EventosUsuarioService {
+	
+	SseEmitter assinar(Long idUsuario);
+
+}
@@ -0,0 +1,15 @@
+package com.dlima.myfinancas.service;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+
+import com.dlima.myfinancas.api.dto.ResultadoImportacaoDTO;
+import com.dlima.myfinancas.service.importacao.FormatoExtrato;
+
+public interface ImportacaoService {
+	
+	// le o extrato aos poucos e grava os lancamentos em lotes; linhas ja importadas sao ignoradas
+	ResultadoImportacaoDTO importar(Long idUsuario, Path arquivo, FormatoExtrato formato, Charset charset) throws IOException;
+
+}
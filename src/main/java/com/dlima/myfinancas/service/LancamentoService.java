@@ -1,28 +1,65 @@
 package com.dlima.myfinancas.service;
 
-import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+import com.dlima.myfinancas.api.dto.AlteracoesDTO;
+import com.dlima.myfinancas.api.dto.LancamentosPorIdDTO;
+import com.dlima.myfinancas.api.dto.LinhaExtratoDTO;
+import com.dlima.myfinancas.api.dto.TotalTagDTO;
+import com.dlima.myfinancas.conexoes.PoolConexoes;
+import com.dlima.myfinancas.conexoes.TipoPool;
 import com.dlima.myfinancas.model.entity.Lancamento;
 import com.dlima.myfinancas.model.enums.StatusLancamento;
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.model.repository.FiltroLancamento;
+import com.dlima.myfinancas.service.tags.ConsultaTags;
 
 public interface LancamentoService {
 	
 	Lancamento salvar(Lancamento lancamento);
 	
+	// lancamentos de um extrato, ja validados; ignora hashImportacao ja gravado e devolve quantos gravou
+	int salvarImportados(Long idUsuario, List<Lancamento> lote);
+	
 	Lancamento atualizar(Lancamento lancamento);
 	
 	void deletar(Lancamento lancamento);
 	
+	int deletarPorPeriodo(Long idUsuario, Integer ano, Integer mes);
+	
+	// ate myfinancas.lancamentos.maximo-ids, como obterPorIds
+	int deletarPorIds(Long idUsuario, List<Long> ids);
+	
+	@PoolConexoes(TipoPool.RELATORIO)
 	List<Lancamento> buscar(Lancamento lancamentoFiltro);
 	
+	// faixas de valor e data cadastro, tipo e status; tags opcionais (null ou vazia: sem filtro de tags)
+	@PoolConexoes(TipoPool.RELATORIO)
+	List<Lancamento> buscar(FiltroLancamento filtro, ConsultaTags tags);
+	
+	// receitas e despesas por tag; ano, mes e status opcionais (sem status: todos menos os cancelados)
+	@PoolConexoes(TipoPool.RELATORIO)
+	List<TotalTagDTO> obterTotaisPorTag(Long idUsuario, Integer ano, Integer mes, StatusLancamento status);
+	
 	void atualizarStatus(Lancamento lancamento, StatusLancamento status);
 	
 	void validar(Lancamento lancamento);
 
 	Optional<Lancamento> obterPorId(Long id);
 	
-	BigDecimal obterSaldoPorUsuario(Long id);
+	// ate myfinancas.lancamentos.maximo-ids numa consulta; so os lancamentos do usuario, na ordem dos ids
+	LancamentosPorIdDTO obterPorIds(Long idUsuario, List<Long> ids);
+	
+	@PoolConexoes(TipoPool.RELATORIO)
+	Money obterSaldoPorUsuario(Long id);
+	
+	// desde anterior ao token minimo do expurgo das marcas de exclusao: so ressincronizar = true
+	AlteracoesDTO obterAlteracoes(Long idUsuario, Long desde, int limite);
+	
+	// lancamentos efetivados do periodo (mes null: o ano todo) com o saldo apos cada um, em ordem, um a um
+	@PoolConexoes(TipoPool.RELATORIO)
+	void exportarExtrato(Long idUsuario, Integer ano, Integer mes, Consumer<LinhaExtratoDTO> destino);
 
 }
@@ -0,0 +1,23 @@
+package com.dlima.myfinancas.service;
+
+import java.util.List;
+
+import com.dlima.myfinancas.api.dto.SituacaoOrcamentoDTO;
+import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.entity.Orcamento;
+
+public interface OrcamentoService {
+	
+	// cria ou troca o limite do usuario para a categoria (null: mes inteiro)
+	Orcamento salvar(Orcamento orcamento);
+	
+	boolean remover(Long idUsuario, String categoria);
+	
+	List<Orcamento> obterPorUsuario(Long idUsuario);
+	
+	List<SituacaoOrcamentoDTO> obterSituacao(Long idUsuario, Integer ano, Integer mes);
+	
+	// orcamentos afetados por uma despesa no mes dela; vazio para receitas
+	List<SituacaoOrcamentoDTO> verificar(Lancamento lancamento);
+
+}
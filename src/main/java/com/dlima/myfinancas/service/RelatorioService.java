@@ -0,0 +1,27 @@
+package com.dlima.myfinancas.service;
+
+import java.util.List;
+
+import com.dlima.myfinancas.api.dto.LancamentoDTO;
+import com.dlima.myfinancas.api.dto.MediaMensalDTO;
+import com.dlima.myfinancas.api.dto.TotalPeriodoDTO;
+import com.dlima.myfinancas.conexoes.PoolConexoes;
+import com.dlima.myfinancas.conexoes.TipoPool;
+
+public interface RelatorioService {
+	
+	@PoolConexoes(TipoPool.RELATORIO)
+	List<TotalPeriodoDTO> obterTotaisAnuais(Long idUsuario);
+	
+	@PoolConexoes(TipoPool.RELATORIO)
+	List<TotalPeriodoDTO> obterTotaisMensais(Long idUsuario, Integer ano);
+	
+	@PoolConexoes(TipoPool.RELATORIO)
+	List<MediaMensalDTO> obterMediasMensais(Long idUsuario);
+	
+	@PoolConexoes(TipoPool.RELATORIO)
+	List<LancamentoDTO> obterMaioresDespesas(Long idUsuario, Integer ano, int quantidade);
+	
+	void invalidar(Long idUsuario);
+
+}
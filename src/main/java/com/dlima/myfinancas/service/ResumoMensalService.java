@@ -0,0 +1,26 @@
+package com.dlima.myfinancas.service;
+
+import java.util.List;
+import java.util.Map;
+
+import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.entity.ResumoMensal;
+import com.dlima.myfinancas.model.money.Money;
+
+public interface ResumoMensalService {
+	
+	// recalcula os resumos do usuario a partir dos lancamentos; retorna quantos lancamentos foram lidos
+	int reconstruir(Long idUsuario);
+	
+	// troca a contribuicao de anterior pela de atual (null: lancamento criado ou removido), na transacao de quem chama
+	void aplicar(Lancamento anterior, Lancamento atual);
+	
+	// despesas efetivadas e pendentes do mes por categoria (ResumoMensal.SEM_CATEGORIA para as sem categoria)
+	Map<String, Money> obterGastosDoMes(Long idUsuario, Integer ano, Integer mes);
+	
+	List<ResumoMensal> obterPorUsuario(Long idUsuario);
+	
+	// receitas menos despesas efetivadas dos meses anteriores a ano/mes, sem ler os lancamentos
+	Money obterSaldoAntesDe(Long idUsuario, Integer ano, Integer mes);
+
+}
@@ -0,0 +1,247 @@
+package com.dlima.myfinancas.service.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.dlima.myfinancas.event.LancamentoAlteradoEvent;
+import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.entity.Usuario;
+import com.dlima.myfinancas.model.repository.FiltroLancamento;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/*
+ * Resultados de buscar por filtro normalizado. Cada usuario tem uma geracao que sobe a cada
+ * alteracao (apos o commit): entradas de geracao antiga deixam de valer sem varrer as chaves
+ * e saem quando sao lidas ou pela ordem LRU. As geracoes ficam em FAIXAS contadores fixos,
+ * escolhidos pelo id: a memoria nao cresce com os usuarios, e uma alteracao invalida tambem
+ * as entradas dos outros usuarios da mesma faixa (so uma falta a mais).
+ *
+ * As geracoes so veem as escritas desta instancia. Uma escrita em outra instancia aparece aqui
+ * quando a entrada vence (validade-ms): e o atraso maximo entre instancias.
+ *
+ * O tamanho e limitado pela quantidade total de lancamentos guardados. Lancamento e uma
+ * entidade mutavel: o cache guarda copias e devolve copias novas a cada acerto, entao quem
+ * alterar o resultado (orcamentos, serializacao, dashboard) nao altera o de ninguem.
+ */
+@Component
+public class CacheBuscaLancamento implements MeterBinder {
+
+	private final long capacidade;
+
+	private final long validadeMs;
+
+	private final LongSupplier relogio;
+
+	static final int FAIXAS = 4096; // potencia de 2
+	
+	private final AtomicLongArray geracoes = new AtomicLongArray(FAIXAS);
+
+	private final LinkedHashMap<Chave, Entrada> entradas = new LinkedHashMap<>(64, 0.75f, true); // ordem de acesso
+
+	private long ocupacao; // lancamentos guardados, protegido por entradas
+
+	private final LongAdder acertos = new LongAdder();
+
+	private final LongAdder faltas = new LongAdder();
+
+	private final LongAdder remocoes = new LongAdder();
+
+	@Autowired
+	public CacheBuscaLancamento(@Value("${myfinancas.busca.cache-lancamentos:50000}") long capacidade,
+			@Value("${myfinancas.busca.cache-validade-ms:5000}") long validadeMs) {
+		this(capacidade, validadeMs, System::currentTimeMillis);
+	}
+
+	CacheBuscaLancamento(long capacidade, long validadeMs, LongSupplier relogio) {
+		this.capacidade = capacidade;
+		this.validadeMs = validadeMs;
+		this.relogio = relogio;
+	}
+
+	/* null quando o filtro nao tem usuario: sem geracao para invalidar, o resultado nao e guardado */
+	public Chave chave(Lancamento filtro) {
+		if (filtro.getUsuario() == null || filtro.getUsuario().getId() == null) {
+			return null;
+		}
+		// todo campo persistente entra no Example do buscar, entao entra aqui; o buscar ignora maiusculas nos textos
+		return new Chave(filtro.getUsuario().getId(), Arrays.asList(minusculas(filtro.getDescricao()), filtro.getMes(),
+				filtro.getAno(), filtro.getTipo(), filtro.getStatus(), filtro.getValor(), filtro.getDataCadastro(),
+				filtro.getId(), filtro.getSequenciaAlteracao(), minusculas(filtro.getCategoria()),
+				filtro.getTags() == null ? null : new HashSet<>(filtro.getTags()), minusculas(filtro.getHashImportacao())));
+	}
+	
+	private static String minusculas(String texto) {
+		return texto == null ? null : texto.toLowerCase(Locale.ROOT);
+	}
+	
+	public Chave chave(FiltroLancamento filtro) {
+		return filtro.getIdUsuario() == null ? null : new Chave(filtro.getIdUsuario(), filtro.normalizado());
+	}
+
+	public long geracao(Long idUsuario) {
+		return geracoes.get(faixa(idUsuario));
+	}
+	
+	private static int faixa(Long idUsuario) {
+		return Long.hashCode(idUsuario) & (FAIXAS - 1);
+	}
+
+	public List<Lancamento> obter(Chave chave) {
+		long geracaoAtual = geracao(chave.getIdUsuario());
+		synchronized (entradas) {
+			Entrada entrada = entradas.get(chave);
+			if (entrada != null && entrada.geracao == geracaoAtual && relogio.getAsLong() < entrada.validaAte) {
+				acertos.increment();
+				return copiar(entrada.lancamentos);
+			}
+			if (entrada != null) {
+				entradas.remove(chave);
+				ocupacao -= entrada.peso;
+			}
+		}
+		faltas.increment();
+		return null;
+	}
+
+	/* geracao deve ser lida antes da consulta: se o usuario alterou algo no meio, o resultado e descartado */
+	public void guardar(Chave chave, long geracao, List<Lancamento> lancamentos) {
+		long peso = lancamentos.size() + 1;
+		if (peso > capacidade || geracao != geracao(chave.getIdUsuario())) {
+			return;
+		}
+		Entrada nova = new Entrada(geracao, relogio.getAsLong() + validadeMs, copiar(lancamentos), peso);
+		synchronized (entradas) {
+			Entrada anterior = entradas.put(chave, nova);
+			if (anterior != null) {
+				ocupacao -= anterior.peso;
+			}
+			ocupacao += peso;
+
+			Iterator<Entrada> menosUsadas = entradas.values().iterator();
+			while (ocupacao > capacidade && menosUsadas.hasNext()) {
+				ocupacao -= menosUsadas.next().peso;
+				menosUsadas.remove();
+				remocoes.increment();
+			}
+		}
+	}
+
+	public void invalidar(Long idUsuario) {
+		if (idUsuario != null) {
+			geracoes.incrementAndGet(faixa(idUsuario));
+			return;
+		}
+		for (int faixa = 0; faixa < FAIXAS; faixa++) {
+			geracoes.incrementAndGet(faixa);
+		}
+		synchronized (entradas) {
+			entradas.clear();
+			ocupacao = 0;
+		}
+	}
+
+	private static List<Lancamento> copiar(List<Lancamento> lancamentos) {
+		List<Lancamento> copias = new ArrayList<>(lancamentos.size());
+		for (Lancamento lancamento : lancamentos) {
+			copias.add(copiar(lancamento));
+		}
+		return copias;
+	}
+	
+	// sem os orcamentos (@Transient), que nao vem da busca
+	private static Lancamento copiar(Lancamento lancamento) {
+		Usuario usuario = lancamento.getUsuario();
+		return Lancamento.builder()
+				.id(lancamento.getId())
+				.descricao(lancamento.getDescricao())
+				.mes(lancamento.getMes())
+				.ano(lancamento.getAno())
+				.usuario(usuario == null ? null : Usuario.builder()
+						.id(usuario.getId())
+						.nome(usuario.getNome())
+						.email(usuario.getEmail())
+						.senha(usuario.getSenha())
+						.build())
+				.valor(lancamento.getValor())
+				.dataCadastro(lancamento.getDataCadastro())
+				.tipo(lancamento.getTipo())
+				.status(lancamento.getStatus())
+				.sequenciaAlteracao(lancamento.getSequenciaAlteracao())
+				.categoria(lancamento.getCategoria())
+				.tags(lancamento.getTags() == null ? null : new TreeSet<>(lancamento.getTags()))
+				.hashImportacao(lancamento.getHashImportacao())
+				.build();
+	}
+	
+	@TransactionalEventListener(fallbackExecution = true)
+	public void aoAlterarLancamento(LancamentoAlteradoEvent evento) {
+		invalidar(evento.getIdUsuario());
+	}
+
+	public double taxaAcerto() {
+		long total = acertos.sum() + faltas.sum();
+		return total == 0 ? 0 : (double) acertos.sum() / total;
+	}
+
+	public long ocupacao() {
+		synchronized (entradas) {
+			return ocupacao;
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("myfinancas.busca.cache.requisicoes", acertos, LongAdder::sum)
+				.tag("resultado", "acerto").register(registry);
+		FunctionCounter.builder("myfinancas.busca.cache.requisicoes", faltas, LongAdder::sum)
+				.tag("resultado", "falta").register(registry);
+		FunctionCounter.builder("myfinancas.busca.cache.remocoes", remocoes, LongAdder::sum)
+				.description("entradas removidas por falta de espaco").register(registry);
+		Gauge.builder("myfinancas.busca.cache.ocupacao", this, CacheBuscaLancamento::ocupacao)
+				.description("lancamentos guardados").register(registry);
+		Gauge.builder("myfinancas.busca.cache.taxa-acerto", this, CacheBuscaLancamento::taxaAcerto)
+				.register(registry);
+	}
+
+	@Getter
+	@EqualsAndHashCode
+	@AllArgsConstructor
+	public static final class Chave {
+
+		private final Long idUsuario;
+		private final Object criterios; // campos do Example ou FiltroLancamento normalizado
+
+	}
+
+	@AllArgsConstructor
+	private static final class Entrada {
+
+		private final long geracao;
+		private final long validaAte;
+		private final List<Lancamento> lancamentos;
+		private final long peso;
+
+	}
+
+}
@@ -0,0 +1,86 @@
+package com.dlima.myfinancas.service.cache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.dlima.myfinancas.model.repository.UsuarioRepository;
+import com.dlima.myfinancas.sharding.ContextoShard;
+import com.dlima.myfinancas.sharding.RoteadorShards;
+
+/*
+ * Monta o FiltroBloomEmails na inicializacao, lendo os emails de cada shard por cursor.
+ * Se a leitura falhar o filtro nao e liberado e o cadastro segue consultando o banco.
+ */
+@Component
+public class CargaFiltroBloomEmails implements ApplicationRunner, Ordered {
+
+	private static final Logger log = LoggerFactory.getLogger(CargaFiltroBloomEmails.class);
+
+	private final FiltroBloomEmails filtro;
+
+	private final UsuarioRepository usuarioRepository;
+
+	private final ObjectProvider<RoteadorShards> roteador;
+
+	private final TransactionTemplate leitura;
+
+	public CargaFiltroBloomEmails(FiltroBloomEmails filtro, UsuarioRepository usuarioRepository,
+			ObjectProvider<RoteadorShards> roteador, PlatformTransactionManager transactionManager) {
+		this.filtro = filtro;
+		this.usuarioRepository = usuarioRepository;
+		this.roteador = roteador;
+		this.leitura = new TransactionTemplate(transactionManager);
+		this.leitura.setReadOnly(true);
+	}
+
+	@Override
+	public int getOrder() {
+		return Ordered.HIGHEST_PRECEDENCE + 1; // logo depois do aquecimento dos pools
+	}
+
+	@Override
+	public void run(ApplicationArguments args) {
+		long inicio = System.nanoTime();
+		long emails = 0;
+		try {
+			RoteadorShards shards = roteador.getIfAvailable();
+			if (shards == null) {
+				emails = carregar();
+			} else {
+				for (int shard = 0; shard < shards.quantidade(); shard++) {
+					emails += ContextoShard.executar(shard, this::carregar);
+				}
+			}
+		} catch (RuntimeException e) {
+			log.warn("Filtro de emails nao carregado: o cadastro continua consultando o banco", e);
+			return;
+		}
+		filtro.concluirCarga();
+
+		if (emails > filtro.getCapacidade()) {
+			log.warn("Filtro de emails com {} emails acima da capacidade {}: aumente myfinancas.usuarios.filtro-emails.capacidade",
+					emails, filtro.getCapacidade());
+		}
+		log.info("Filtro de emails carregado com {} emails em {} ms", emails,
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+	}
+
+	private long carregar() {
+		return leitura.execute(status -> {
+			try (Stream<String> emails = usuarioRepository.obterEmails()) {
+				return filtro.carregar(emails);
+			}
+		});
+	}
+
+}
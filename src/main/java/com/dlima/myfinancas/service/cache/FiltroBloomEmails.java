@@ -0,0 +1,148 @@
+package com.dlima.myfinancas.service.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/*
+ * Filtro de Bloom dos emails cadastrados. "Nao contem" e certo: o cadastro pula a consulta
+ * de existencia (e, com sharding, a procura nos demais shards). "Pode conter" consulta o banco
+ * como antes. O indice unico uk_usuario_email continua decidindo: um email gravado por fora
+ * do servico depois da carga so deixa de ser visto aqui, nunca duplicado.
+ *
+ * Bits so sao ligados (emails removidos viram falsos positivos ate a proxima carga).
+ * Antes da carga tudo "pode conter".
+ */
+@Component
+public class FiltroBloomEmails implements MeterBinder {
+
+	private final long capacidade;
+
+	private final long quantidadeBits;
+
+	private final int funcoes;
+
+	private final AtomicLongArray bits;
+
+	private volatile boolean carregado;
+
+	private final LongAdder emails = new LongAdder();
+
+	private final LongAdder ausentes = new LongAdder();
+
+	private final LongAdder talvez = new LongAdder();
+
+	public FiltroBloomEmails(
+			@Value("${myfinancas.usuarios.filtro-emails.capacidade:1000000}") long capacidade,
+			@Value("${myfinancas.usuarios.filtro-emails.falsos-positivos:0.01}") double falsosPositivos) {
+		if (capacidade < 1 || falsosPositivos <= 0 || falsosPositivos >= 1) {
+			throw new IllegalArgumentException("Capacidade deve ser positiva e falsos-positivos entre 0 e 1.");
+		}
+		// m = -n ln p / (ln 2)^2 e k = m / n ln 2: o tamanho que da a taxa pedida com n emails
+		long palavras = (long) Math.ceil(-capacidade * Math.log(falsosPositivos) / (Math.log(2) * Math.log(2)) / 64);
+		if (palavras > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Filtro de emails grande demais: reduza a capacidade.");
+		}
+		this.capacidade = capacidade;
+		this.bits = new AtomicLongArray((int) palavras);
+		this.quantidadeBits = palavras * 64;
+		this.funcoes = Math.max(1, (int) Math.round((double) quantidadeBits / capacidade * Math.log(2)));
+	}
+
+	public boolean podeConter(String email) {
+		if (email == null || !carregado) {
+			return true;
+		}
+		long hash = hash(email);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 1; i <= funcoes; i++) {
+			long bit = indice(h1 + (long) i * h2);
+			if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+				ausentes.increment();
+				return false;
+			}
+		}
+		talvez.increment();
+		return true;
+	}
+
+	public void adicionar(String email) {
+		if (email == null) {
+			return;
+		}
+		long hash = hash(email);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 1; i <= funcoes; i++) {
+			long bit = indice(h1 + (long) i * h2);
+			int palavra = (int) (bit >>> 6);
+			long mascara = 1L << bit;
+			long atual;
+			do {
+				atual = bits.get(palavra);
+			} while ((atual & mascara) == 0 && !bits.compareAndSet(palavra, atual, atual | mascara));
+		}
+		emails.increment();
+	}
+
+	/* emails cadastrados ao mesmo tempo entram por adicionar; so depois da carga o filtro responde "nao contem" */
+	public long carregar(Stream<String> cadastrados) {
+		long antes = emails.sum();
+		cadastrados.forEach(this::adicionar);
+		return emails.sum() - antes;
+	}
+
+	public void concluirCarga() {
+		carregado = true;
+	}
+
+	public boolean isCarregado() {
+		return carregado;
+	}
+
+	public long quantidade() {
+		return emails.sum();
+	}
+
+	public long getCapacidade() {
+		return capacidade;
+	}
+
+	private long indice(long combinado) {
+		return (combinado & Long.MAX_VALUE) % quantidadeBits;
+	}
+
+	// FNV-1a de 64 bits com mistura final: as duas metades alimentam o hash duplo de Kirsch-Mitzenmacher
+	private static long hash(String email) {
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : email.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b;
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("myfinancas.usuarios.filtro-emails.consultas", ausentes, LongAdder::sum)
+				.tag("resultado", "ausente").description("cadastros que pularam a consulta de email").register(registry);
+		FunctionCounter.builder("myfinancas.usuarios.filtro-emails.consultas", talvez, LongAdder::sum)
+				.tag("resultado", "talvez").register(registry);
+		Gauge.builder("myfinancas.usuarios.filtro-emails.emails", this, FiltroBloomEmails::quantidade)
+				.description("emails adicionados desde a inicializacao").register(registry);
+	}
+
+}
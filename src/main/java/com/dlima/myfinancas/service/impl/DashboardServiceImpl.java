@@ -0,0 +1,75 @@
+package com.dlima.myfinancas.service.impl;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import com.dlima.myfinancas.api.dto.DashboardDTO;
+import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.entity.Usuario;
+import com.dlima.myfinancas.model.enums.StatusLancamento;
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.service.DashboardService;
+import com.dlima.myfinancas.service.LancamentoService;
+import com.dlima.myfinancas.service.UsuarioService;
+
+@Service
+public class DashboardServiceImpl implements DashboardService {
+	
+	private UsuarioService usuarioService;
+	
+	private LancamentoService lancamentoService;
+	
+	private Executor executor;
+	
+	public DashboardServiceImpl(UsuarioService usuarioService, LancamentoService lancamentoService,
+			@Qualifier("dashboardExecutor") Executor executor) {
+		this.usuarioService = usuarioService;
+		this.lancamentoService = lancamentoService;
+		this.executor = executor;
+	}
+
+	@Override
+	public Optional<DashboardDTO> obterDashboard(Long idUsuario) {
+		// como nos demais /usuarios/{id}: um id inexistente (404) nao gasta consultas de lancamentos
+		Optional<Usuario> usuario = usuarioService.obterPorId(idUsuario);
+		if (!usuario.isPresent()) {
+			return Optional.empty();
+		}
+		LocalDate hoje = LocalDate.now();
+		Usuario usuarioFiltro = Usuario.builder().id(idUsuario).build(); // basta o id para filtrar
+		
+		// as consultas de lancamentos partem juntas: a latencia e a da busca por id mais a da mais lenta
+		CompletableFuture<Money> saldo = 
+				CompletableFuture.supplyAsync(() -> lancamentoService.obterSaldoPorUsuario(idUsuario), executor);
+		CompletableFuture<List<Lancamento>> doMes = 
+				CompletableFuture.supplyAsync(() -> lancamentoService.buscar(Lancamento.builder()
+						.usuario(usuarioFiltro).ano(hoje.getYear()).mes(hoje.getMonthValue()).build()), executor);
+		CompletableFuture<List<Lancamento>> pendentes = 
+				CompletableFuture.supplyAsync(() -> lancamentoService.buscar(Lancamento.builder()
+						.usuario(usuarioFiltro).status(StatusLancamento.PENDENTE).build()), executor);
+		
+		try {
+			CompletableFuture.allOf(saldo, doMes, pendentes).join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+		
+		return Optional.of(DashboardDTO.builder()
+				.usuario(usuario.get())
+				.saldo(saldo.join())
+				.lancamentosDoMes(doMes.join())
+				.pendentes(pendentes.join())
+				.build());
+	}
+
+}
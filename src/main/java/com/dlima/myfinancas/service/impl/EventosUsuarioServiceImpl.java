@@ -0,0 +1,257 @@
+package com.dlima.myfinancas.service.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.dlima.myfinancas.api.dto.AlteracaoSaldoDTO;
+import com.dlima.myfinancas.event.ConsumidorEventos;
+import com.dlima.myfinancas.event.LancamentoAlteradoEvent;
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.service.EventosUsuarioService;
+import com.dlima.myfinancas.service.LancamentoService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/*
+ * Assinaturas SSE por usuario. Uma conexao ociosa custa apenas o SseEmitter e um
+ * Assinante; nenhuma thread fica presa a ela. A cada alteracao o saldo e calculado
+ * uma vez por usuario e repassado a todos os assinantes dele.
+ *
+ * Consumidores lentos: cada assinante tem no maximo um envio em andamento; o que chega
+ * enquanto isso e aglutinado (vale o saldo mais recente e a uniao dos ids). Se os ids
+ * pendentes passarem do limite eles sao descartados e o cliente recebe ressincronizar = true.
+ */
+@Slf4j
+@Service
+public class EventosUsuarioServiceImpl implements EventosUsuarioService, ConsumidorEventos<LancamentoAlteradoEvent> {
+
+	static final String EVENTO_ALTERACAO = "alteracao";
+
+	private LancamentoService lancamentoService;
+
+	private Executor executor;
+
+	private long timeoutMs;
+
+	private int maximoConexoesPorUsuario;
+
+	private int maximoIdsPendentes;
+
+	private final Map<Long, List<Assinante>> assinantes = new ConcurrentHashMap<>();
+
+	public EventosUsuarioServiceImpl(LancamentoService lancamentoService,
+			@Qualifier("eventosExecutor") Executor executor,
+			@Value("${myfinancas.eventos.timeout-ms:1800000}") long timeoutMs,
+			@Value("${myfinancas.eventos.conexoes-por-usuario:5}") int maximoConexoesPorUsuario,
+			@Value("${myfinancas.eventos.ids-pendentes:500}") int maximoIdsPendentes) {
+		this.lancamentoService = lancamentoService;
+		this.executor = executor;
+		this.timeoutMs = timeoutMs;
+		this.maximoConexoesPorUsuario = maximoConexoesPorUsuario;
+		this.maximoIdsPendentes = maximoIdsPendentes;
+	}
+
+	@Override
+	public SseEmitter assinar(Long idUsuario) {
+		SseEmitter emissor = new SseEmitter(timeoutMs);
+		registrar(idUsuario, emissor);
+		return emissor;
+	}
+
+	public void registrar(Long idUsuario, SseEmitter emissor) {
+		Assinante assinante = new Assinante(idUsuario, emissor);
+		emissor.onCompletion(() -> remover(assinante));
+		emissor.onTimeout(() -> remover(assinante));
+		emissor.onError(erro -> remover(assinante));
+
+		// a inclusao fica dentro do compute: um remover simultaneo que esvazie a lista nao a descarta com o novo assinante
+		List<Assinante> doUsuario = assinantes.compute(idUsuario, (id, atuais) -> {
+			List<Assinante> lista = atuais != null ? atuais : new CopyOnWriteArrayList<>();
+			lista.add(assinante);
+			return lista;
+		});
+
+		// excesso de abas abertas: encerra as conexoes mais antigas
+		while (doUsuario.size() > maximoConexoesPorUsuario) {
+			Assinante antigo = doUsuario.get(0);
+			remover(antigo);
+			antigo.emissor.complete();
+		}
+	}
+
+	public int quantidadeAssinantes(Long idUsuario) {
+		List<Assinante> doUsuario = assinantes.get(idUsuario);
+		return doUsuario == null ? 0 : doUsuario.size();
+	}
+
+	/*
+	 * Lote vindo do AnelEventos, ja fora da thread que fez o commit: as alteracoes de um mesmo
+	 * usuario sao somadas e o saldo e consultado uma vez por usuario no lote.
+	 */
+	@Override
+	public void processar(List<LancamentoAlteradoEvent> lote) {
+		Map<Long, Set<Long>> idsPorUsuario = new LinkedHashMap<>();
+		for (LancamentoAlteradoEvent evento : lote) {
+			if (evento.getIdUsuario() != null && quantidadeAssinantes(evento.getIdUsuario()) > 0) {
+				idsPorUsuario.computeIfAbsent(evento.getIdUsuario(), id -> new LinkedHashSet<>())
+						.addAll(evento.getIdsLancamentos());
+			}
+		}
+		idsPorUsuario.forEach(this::distribuir);
+	}
+
+	/*
+	 * Mantem a conexao viva em proxies e detecta clientes que ja foram embora. A thread do
+	 * agendador so distribui: o send bloqueante roda no eventosExecutor, e um cliente parado
+	 * nao atrasa os heartbeats dos demais nem os outros jobs agendados.
+	 */
+	@Scheduled(fixedDelayString = "${myfinancas.eventos.heartbeat-ms:25000}")
+	public void enviarHeartbeat() {
+		for (List<Assinante> doUsuario : assinantes.values()) {
+			for (Assinante assinante : doUsuario) {
+				// quem esta recebendo uma alteracao (ou um heartbeat anterior) nao precisa de outro
+				if (assinante.enviando.compareAndSet(false, true)) {
+					executar(() -> heartbeat(assinante), assinante);
+				}
+			}
+		}
+	}
+
+	private void heartbeat(Assinante assinante) {
+		if (enviar(assinante, SseEmitter.event().comment("heartbeat"))) {
+			assinante.enviando.set(false);
+			agendarSePendente(assinante);
+		}
+	}
+
+	public void distribuir(Long idUsuario, Collection<Long> idsLancamentos) {
+		List<Assinante> doUsuario = assinantes.get(idUsuario);
+		if (doUsuario == null || doUsuario.isEmpty()) {
+			return;
+		}
+		Money saldo = lancamentoService.obterSaldoPorUsuario(idUsuario);
+		for (Assinante assinante : doUsuario) {
+			assinante.acumular(saldo, idsLancamentos);
+			if (assinante.enviando.compareAndSet(false, true)) {
+				executar(() -> drenar(assinante), assinante);
+			}
+		}
+	}
+
+	private void drenar(Assinante assinante) {
+		AlteracaoSaldoDTO alteracao;
+		while ((alteracao = assinante.retirar()) != null) {
+			if (!enviar(assinante, SseEmitter.event().name(EVENTO_ALTERACAO).data(alteracao))) {
+				return; // desconectado: a flag fica marcada e nada mais e agendado
+			}
+		}
+		assinante.enviando.set(false);
+		// algo pode ter chegado entre o ultimo retirar e a liberacao da flag
+		agendarSePendente(assinante);
+	}
+
+	private void agendarSePendente(Assinante assinante) {
+		if (assinante.temPendencias() && assinante.enviando.compareAndSet(false, true)) {
+			executar(() -> drenar(assinante), assinante);
+		}
+	}
+
+	private boolean enviar(Assinante assinante, SseEmitter.SseEventBuilder evento) {
+		try {
+			// a flag enviando garante um unico envio por vez em cada emissor
+			assinante.emissor.send(evento);
+			return true;
+		} catch (IOException | RuntimeException e) {
+			log.debug("Assinante do usuario {} desconectado: {}", assinante.idUsuario, e.getMessage());
+			remover(assinante);
+			assinante.emissor.completeWithError(e);
+			return false;
+		}
+	}
+
+	private void executar(Runnable tarefa, Assinante assinante) {
+		try {
+			executor.execute(tarefa);
+		} catch (RejectedExecutionException e) {
+			// pool saturado: as pendencias ficam acumuladas e saem na proxima alteracao
+			if (assinante != null) {
+				assinante.enviando.set(false);
+			}
+			log.warn("Fila de eventos cheia, envio adiado");
+		}
+	}
+
+	private void remover(Assinante assinante) {
+		assinantes.computeIfPresent(assinante.idUsuario, (id, doUsuario) -> {
+			doUsuario.remove(assinante);
+			return doUsuario.isEmpty() ? null : doUsuario;
+		});
+	}
+
+	private final class Assinante {
+
+		private final Long idUsuario;
+
+		private final SseEmitter emissor;
+
+		private final AtomicBoolean enviando = new AtomicBoolean();
+
+		private Money saldo;
+
+		private Set<Long> ids = new LinkedHashSet<>();
+
+		private boolean ressincronizar;
+
+		private Assinante(Long idUsuario, SseEmitter emissor) {
+			this.idUsuario = idUsuario;
+			this.emissor = emissor;
+		}
+
+		private synchronized void acumular(Money saldoAtual, Collection<Long> idsAlterados) {
+			saldo = saldoAtual;
+			if (ressincronizar) {
+				return;
+			}
+			ids.addAll(idsAlterados);
+			if (ids.size() > maximoIdsPendentes) {
+				ids.clear();
+				ressincronizar = true;
+			}
+		}
+
+		private synchronized boolean temPendencias() {
+			return saldo != null;
+		}
+
+		private synchronized AlteracaoSaldoDTO retirar() {
+			if (saldo == null) {
+				return null;
+			}
+			List<Long> enviados = new ArrayList<>(ids);
+			AlteracaoSaldoDTO alteracao = new AlteracaoSaldoDTO(saldo, enviados, ressincronizar);
+			saldo = null;
+			ids = new LinkedHashSet<>();
+			ressincronizar = false;
+			return alteracao;
+		}
+
+	}
+
+}
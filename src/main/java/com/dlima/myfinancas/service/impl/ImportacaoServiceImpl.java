@@ -0,0 +1,200 @@
+package com.dlima.myfinancas.service.impl;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.dlima.myfinancas.api.dto.ErroImportacaoDTO;
+import com.dlima.myfinancas.api.dto.ResultadoImportacaoDTO;
+import com.dlima.myfinancas.exception.RegraNegocioException;
+import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.entity.Usuario;
+import com.dlima.myfinancas.model.enums.StatusLancamento;
+import com.dlima.myfinancas.model.enums.TipoLancamento;
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.service.ImportacaoService;
+import com.dlima.myfinancas.service.LancamentoService;
+import com.dlima.myfinancas.service.ResumoMensalService;
+import com.dlima.myfinancas.service.importacao.FormatoExtrato;
+import com.dlima.myfinancas.service.importacao.LeitorExtrato;
+import com.dlima.myfinancas.service.importacao.LinhaExtrato;
+
+/*
+ * Sem transacao propria: cada lote faz commit em salvarImportados. A memoria usada depende do
+ * tamanho do lote e do limite de erros, nao do tamanho do arquivo. Os resumos mensais sao
+ * reconstruidos uma vez no fim, como na exclusao em lote.
+ *
+ * Cada linha recebe um hash do seu conteudo (data, valor com sinal, descricao normalizada e
+ * quantas linhas iguais vieram antes), ou do FITID no OFX: reimportar o mesmo extrato, ou um
+ * periodo sobreposto, nao duplica lancamentos. As repeticoes sao contadas so no dia corrente
+ * (Ocorrencias), entao o extrato sem FITID precisa vir ordenado por data.
+ */
+@Service
+public class ImportacaoServiceImpl implements ImportacaoService {
+	
+	private static final int TAMANHO_DESCRICAO = 255;
+	
+	private LancamentoService lancamentoService;
+	
+	private ResumoMensalService resumoService;
+	
+	private int tamanhoLote;
+	
+	private int maximoErros;
+	
+	public ImportacaoServiceImpl(LancamentoService lancamentoService, ResumoMensalService resumoService,
+			@Value("${myfinancas.importacao.tamanho-lote:500}") int tamanhoLote,
+			@Value("${myfinancas.importacao.maximo-erros:100}") int maximoErros) {
+		this.lancamentoService = lancamentoService;
+		this.resumoService = resumoService;
+		this.tamanhoLote = tamanhoLote;
+		this.maximoErros = maximoErros;
+	}
+
+	@Override
+	public ResultadoImportacaoDTO importar(Long idUsuario, Path arquivo, FormatoExtrato formato, Charset charset) throws IOException {
+		ResultadoImportacaoDTO resultado = ResultadoImportacaoDTO.builder().erros(new ArrayList<>()).build();
+		Usuario usuario = Usuario.builder().id(idUsuario).build();
+		Ocorrencias ocorrencias = new Ocorrencias();
+		List<Lancamento> lote = new ArrayList<>(tamanhoLote);
+		
+		try (LeitorExtrato leitor = formato.abrir(arquivo, charset)) {
+			LinhaExtrato linha;
+			while ((linha = leitor.proxima()) != null) {
+				resultado.setLidas(resultado.getLidas() + 1);
+				if (linha.getErro() != null) {
+					registrarErro(resultado, linha.getLinha(), linha.getErro());
+					continue;
+				}
+				
+				Lancamento lancamento = converter(linha, usuario);
+				try {
+					lancamentoService.validar(lancamento);
+				} catch (RegraNegocioException e) {
+					registrarErro(resultado, linha.getLinha(), e.getMessage());
+					continue;
+				}
+				lancamento.setHashImportacao(hash(linha, ocorrencias));
+				lote.add(lancamento);
+				if (lote.size() == tamanhoLote) {
+					gravar(idUsuario, lote, resultado);
+				}
+			}
+			gravar(idUsuario, lote, resultado);
+		} finally {
+			if (resultado.getImportadas() > 0) { // tambem quando um lote falhou depois de outros gravados
+				resumoService.reconstruir(idUsuario);
+			}
+		}
+		return resultado;
+	}
+	
+	private void gravar(Long idUsuario, List<Lancamento> lote, ResultadoImportacaoDTO resultado) {
+		if (lote.isEmpty()) {
+			return;
+		}
+		int gravados = lancamentoService.salvarImportados(idUsuario, lote);
+		resultado.setImportadas(resultado.getImportadas() + gravados);
+		resultado.setDuplicadas(resultado.getDuplicadas() + lote.size() - gravados);
+		lote.clear();
+	}
+	
+	private void registrarErro(ResultadoImportacaoDTO resultado, int linha, String mensagem) {
+		resultado.setComErro(resultado.getComErro() + 1);
+		if (resultado.getErros().size() < maximoErros) {
+			resultado.getErros().add(new ErroImportacaoDTO(linha, mensagem));
+		}
+	}
+	
+	/* o sinal do valor no extrato define o tipo: saidas sao despesas */
+	private static Lancamento converter(LinhaExtrato linha, Usuario usuario) {
+		Money valor = linha.getValor();
+		String descricao = linha.getDescricao() == null ? null : linha.getDescricao().trim();
+		if (descricao != null && descricao.length() > TAMANHO_DESCRICAO) {
+			descricao = descricao.substring(0, TAMANHO_DESCRICAO);
+		}
+		return Lancamento.builder()
+				.usuario(usuario)
+				.descricao(descricao)
+				.ano(linha.getData().getYear())
+				.mes(linha.getData().getMonthValue())
+				.valor(valor.signum() < 0 ? valor.negate() : valor)
+				.tipo(valor.signum() < 0 ? TipoLancamento.DESPESA : TipoLancamento.RECEITA)
+				.status(StatusLancamento.EFETIVADO) // ja compensado no banco
+				.categoria(linha.getCategoria())
+				.build();
+	}
+	
+	private static String hash(LinhaExtrato linha, Ocorrencias ocorrencias) {
+		String conteudo;
+		if (linha.getIdentificador() != null && !linha.getIdentificador().isEmpty()) {
+			conteudo = "fitid|" + linha.getIdentificador() + "|" + linha.getData() + "|" + linha.getValor().cents();
+		} else {
+			conteudo = linha.getData() + "|" + linha.getValor().cents() + "|" 
+					+ linha.getDescricao().trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+			// duas compras iguais no mesmo dia sao dois lancamentos: a repeticao entra no hash
+			conteudo += "|" + ocorrencias.contar(linha, conteudo);
+		}
+		return hex(sha256(conteudo), 16);
+	}
+	
+	private static byte[] sha256(String conteudo) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(conteudo.getBytes(StandardCharsets.UTF_8));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e); // obrigatorio em toda JVM
+		}
+	}
+	
+	private static String hex(byte[] bytes, int quantidade) {
+		StringBuilder texto = new StringBuilder(quantidade * 2);
+		for (int i = 0; i < quantidade; i++) {
+			texto.append(Character.forDigit((bytes[i] >> 4) & 0xF, 16)).append(Character.forDigit(bytes[i] & 0xF, 16));
+		}
+		return texto.toString();
+	}
+	
+	/*
+	 * Linhas iguais ja vistas no dia corrente. Com o extrato ordenado (crescente ou decrescente),
+	 * um dia que ficou para tras nao volta e as contagens dele sao descartadas. Um dia que volta
+	 * recomecaria a contagem e daria hashes de linhas ja importadas: a importacao para com erro
+	 * em vez de descartar repetidas legitimas.
+	 */
+	private static final class Ocorrencias {
+		
+		private final Map<String, Integer> doDia = new HashMap<>();
+		
+		private LocalDate dia;
+		
+		private int sentido; // 1 crescente, -1 decrescente, 0 enquanto so houve um dia
+		
+		int contar(LinhaExtrato linha, String conteudo) {
+			LocalDate data = linha.getData();
+			if (dia != null && !data.equals(dia)) {
+				int passo = data.isAfter(dia) ? 1 : -1;
+				if (sentido != 0 && passo != sentido) {
+					throw new RegraNegocioException("Extrato fora de ordem de data na linha " + linha.getLinha() 
+							+ ": ordene o arquivo por data e importe de novo (as linhas ja importadas não serão duplicadas).");
+				}
+				sentido = passo;
+				doDia.clear();
+			}
+			dia = data;
+			return doDia.merge(conteudo, 1, Integer::sum);
+		}
+		
+	}
+
+}
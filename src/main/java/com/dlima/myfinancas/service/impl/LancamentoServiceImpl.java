@@ -1,31 +1,100 @@
 package com.dlima.myfinancas.service.impl;
 
-import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.ExampleMatcher.StringMatcher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.dlima.myfinancas.api.dto.AlteracoesDTO;
+import com.dlima.myfinancas.api.dto.LancamentoDTO;
+import com.dlima.myfinancas.api.dto.LancamentosPorIdDTO;
+import com.dlima.myfinancas.api.dto.LinhaExtratoDTO;
+import com.dlima.myfinancas.api.dto.SituacaoOrcamentoDTO;
+import com.dlima.myfinancas.api.dto.TotalTagDTO;
+import com.dlima.myfinancas.event.LancamentoAlteradoEvent;
+import com.dlima.myfinancas.event.TipoAlteracao;
 import com.dlima.myfinancas.exception.RegraNegocioException;
+import com.dlima.myfinancas.model.entity.CheckpointJob;
 import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.entity.LancamentoRemovido;
+import com.dlima.myfinancas.model.entity.TagsConverter;
+import com.dlima.myfinancas.model.entity.Usuario;
 import com.dlima.myfinancas.model.enums.StatusLancamento;
 import com.dlima.myfinancas.model.enums.TipoLancamento;
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.model.repository.CheckpointJobRepository;
+import com.dlima.myfinancas.model.repository.FiltroLancamento;
+import com.dlima.myfinancas.model.repository.LancamentoRemovidoRepository;
 import com.dlima.myfinancas.model.repository.LancamentoRepository;
+import com.dlima.myfinancas.prazo.ContextoPrazo;
 import com.dlima.myfinancas.service.LancamentoService;
+import com.dlima.myfinancas.service.OrcamentoService;
+import com.dlima.myfinancas.service.ResumoMensalService;
+import com.dlima.myfinancas.service.cache.CacheBuscaLancamento;
+import com.dlima.myfinancas.service.tags.ConsultaTags;
+import com.dlima.myfinancas.service.tags.IndiceTags;
 
 @Service
 public class LancamentoServiceImpl implements LancamentoService {
 	
 	private LancamentoRepository repository;
 	
-	public LancamentoServiceImpl(LancamentoRepository repository) {
+	private LancamentoRemovidoRepository removidoRepository;
+	
+	private CheckpointJobRepository checkpointRepository;
+	
+	private ResumoMensalService resumoService;
+	
+	private OrcamentoService orcamentoService;
+	
+	private ApplicationEventPublisher publisher;
+	
+	private CacheBuscaLancamento cache;
+	
+	private IndiceTags indiceTags;
+	
+	private int tamanhoLoteExclusao;
+	
+	private int maximoIds;
+	
+	public LancamentoServiceImpl(LancamentoRepository repository, LancamentoRemovidoRepository removidoRepository,
+			CheckpointJobRepository checkpointRepository, ResumoMensalService resumoService, OrcamentoService orcamentoService,
+			ApplicationEventPublisher publisher, CacheBuscaLancamento cache, IndiceTags indiceTags,
+			@Value("${myfinancas.exclusao.tamanho-lote:1000}") int tamanhoLoteExclusao,
+			@Value("${myfinancas.lancamentos.maximo-ids:200}") int maximoIds) {
 		this.repository = repository;
+		this.removidoRepository = removidoRepository;
+		this.checkpointRepository = checkpointRepository;
+		this.resumoService = resumoService;
+		this.orcamentoService = orcamentoService;
+		this.publisher = publisher;
+		this.cache = cache;
+		this.indiceTags = indiceTags;
+		this.tamanhoLoteExclusao = tamanhoLoteExclusao;
+		this.maximoIds = maximoIds;
 	}
 
 	@Override
@@ -34,7 +103,46 @@ public class LancamentoServiceImpl implements LancamentoService {
 		validar(lancamento);
 		lancamento.setStatus(StatusLancamento.PENDENTE);
 		lancamento.setDataCadastro(LocalDate.now());
-		return repository.save(lancamento);
+		lancamento.setCategoria(OrcamentoServiceImpl.normalizarCategoria(lancamento.getCategoria()));
+		lancamento.setTags(IndiceTags.normalizar(lancamento.getTags()));
+		lancamento.setSequenciaAlteracao(novaSequenciaAlteracao(idUsuario(lancamento)));
+		Lancamento salvo = repository.save(lancamento);
+		resumoService.aplicar(null, salvo);
+		salvo.setOrcamentos(orcamentoService.verificar(salvo));
+		indiceTags.aoGravar(idUsuario(salvo), Collections.singletonList(salvo));
+		publicarAlteracao(salvo, TipoAlteracao.CRIADO);
+		return salvo;
+	}
+
+	/*
+	 * Uma consulta aos hashes ja gravados e um saveAll por lote, na mesma transacao. Os resumos
+	 * e orcamentos nao sao tocados linha a linha: quem importa reconstroi os resumos no fim.
+	 */
+	@Override
+	@Transactional
+	public int salvarImportados(Long idUsuario, List<Lancamento> lote) {
+		Set<String> hashes = lote.stream().map(Lancamento::getHashImportacao).collect(Collectors.toSet());
+		Set<String> gravados = new HashSet<>(repository.obterHashesImportados(idUsuario, hashes));
+		List<Lancamento> novos = new ArrayList<>(lote.size());
+		LocalDate hoje = LocalDate.now();
+		repository.bloquearAlteracoes(idUsuario);
+		for (Lancamento lancamento : lote) {
+			if (gravados.add(lancamento.getHashImportacao())) { // tambem descarta repetidos no lote
+				lancamento.setDataCadastro(hoje);
+				lancamento.setCategoria(OrcamentoServiceImpl.normalizarCategoria(lancamento.getCategoria()));
+				lancamento.setTags(IndiceTags.normalizar(lancamento.getTags()));
+				lancamento.setSequenciaAlteracao(repository.proximaSequenciaAlteracao());
+				novos.add(lancamento);
+			}
+		}
+		if (novos.isEmpty()) {
+			return 0;
+		}
+		List<Lancamento> salvos = repository.saveAll(novos);
+		indiceTags.aoGravar(idUsuario, salvos);
+		publisher.publishEvent(new LancamentoAlteradoEvent(idUsuario,
+				salvos.stream().map(Lancamento::getId).collect(Collectors.toList()), TipoAlteracao.CRIADO));
+		return salvos.size();
 	}
 
 	@Override
@@ -42,25 +150,150 @@ public class LancamentoServiceImpl implements LancamentoService {
 	public Lancamento atualizar(Lancamento lancamento) {
 		Objects.requireNonNull(lancamento.getId()); // deve passar um lancamento existente com id
 		validar(lancamento);
-		return repository.save(lancamento);
+		// lido sem flush, antes do save: a entidade gerenciada pode ja ter sido alterada por quem chamou
+		Lancamento anterior = obterValoresGravados(lancamento.getId());
+		lancamento.setCategoria(OrcamentoServiceImpl.normalizarCategoria(lancamento.getCategoria()));
+		lancamento.setTags(IndiceTags.normalizar(lancamento.getTags()));
+		lancamento.setSequenciaAlteracao(novaSequenciaAlteracao(idUsuario(lancamento)));
+		Lancamento atualizado = repository.save(lancamento);
+		resumoService.aplicar(anterior, atualizado);
+		indiceTags.aoGravar(idUsuario(atualizado), Collections.singletonList(atualizado));
+		List<SituacaoOrcamentoDTO> orcamentos = orcamentoService.verificar(atualizado);
+		atualizado.setOrcamentos(orcamentos);
+		lancamento.setOrcamentos(orcamentos); // quem chamou pode devolver o objeto que enviou
+		publicarAlteracao(lancamento, anterior != null && anterior.getStatus() != atualizado.getStatus()
+				? TipoAlteracao.STATUS_ALTERADO : TipoAlteracao.ATUALIZADO);
+		return atualizado;
 	}
 
 	@Override
 	@Transactional
 	public void deletar(Lancamento lancamento) {
 		Objects.requireNonNull(lancamento.getId());
+		Lancamento anterior = obterValoresGravados(lancamento.getId());
 		repository.delete(lancamento);
+		resumoService.aplicar(anterior, null);
+		removidoRepository.save(LancamentoRemovido.builder()
+				.id(lancamento.getId())
+				.idUsuario(lancamento.getUsuario() != null ? lancamento.getUsuario().getId() : null)
+				.sequenciaAlteracao(novaSequenciaAlteracao(idUsuario(lancamento)))
+				.build());
+		indiceTags.aoRemover(idUsuario(lancamento), Collections.singletonList(lancamento.getId()));
+		publicarAlteracao(lancamento, TipoAlteracao.REMOVIDO);
+	}
+	
+	/*
+	 * Sem transacao propria: cada lote e um DELETE que faz commit sozinho,
+	 * para nao manter a tabela bloqueada durante toda a exclusao.
+	 */
+	@Override
+	public int deletarPorPeriodo(Long idUsuario, Integer ano, Integer mes) {
+		Objects.requireNonNull(idUsuario);
+		Objects.requireNonNull(ano);
+		
+		int removidos = 0;
+		try {
+			List<Long> ids;
+			do {
+				ids = repository.obterIdsPorUsuarioEPeriodo(idUsuario, ano, mes, PageRequest.of(0, tamanhoLoteExclusao));
+				if (!ids.isEmpty()) {
+					removidos += deletarLote(idUsuario, ids);
+				}
+			} while (ids.size() == tamanhoLoteExclusao);
+		} finally {
+			reconstruirResumos(idUsuario, removidos);
+		}
+		return removidos;
+	}
+	
+	@Override
+	public int deletarPorIds(Long idUsuario, List<Long> ids) {
+		Objects.requireNonNull(idUsuario);
+		validarQuantidadeIds(ids);
+		
+		int removidos = 0;
+		try {
+			for (int inicio = 0; inicio < ids.size(); inicio += tamanhoLoteExclusao) {
+				removidos += deletarLote(idUsuario, ids.subList(inicio, Math.min(inicio + tamanhoLoteExclusao, ids.size())));
+			}
+		} finally {
+			reconstruirResumos(idUsuario, removidos);
+		}
+		return removidos;
+	}
+	
+	/*
+	 * Os lotes ja fizeram commit: os resumos sao recalculados uma vez, no fim da exclusao, mesmo
+	 * quando um lote falha no meio (bloqueio, erro do banco, prazo da requisicao). O recalculo roda
+	 * sem o prazo: interrompido, deixaria os lancamentos removidos somados no resumo_mensal.
+	 */
+	private void reconstruirResumos(Long idUsuario, int removidos) {
+		if (removidos > 0) {
+			ContextoPrazo.semPrazo(() -> resumoService.reconstruir(idUsuario));
+		}
+	}
+	
+	private int deletarLote(Long idUsuario, List<Long> ids) {
+		int removidos = repository.deletarRegistrandoRemocao(idUsuario, ids);
+		indiceTags.aoRemover(idUsuario, ids);
+		publisher.publishEvent(new LancamentoAlteradoEvent(idUsuario, new ArrayList<>(ids), TipoAlteracao.REMOVIDO));
+		return removidos;
 	}
 
+	/*
+	 * Sem transacao propria: um acerto no cache nao abre transacao nem pega conexao;
+	 * na falta, o findAll do repositorio roda na transacao somente leitura dele.
+	 */
 	@Override
-	@Transactional(readOnly = true)
 	public List<Lancamento> buscar(Lancamento lancamentoFiltro) {
+		CacheBuscaLancamento.Chave chave = cache.chave(lancamentoFiltro);
+		long geracao = 0;
+		if (chave != null) {
+			geracao = cache.geracao(chave.getIdUsuario()); // lida antes da consulta
+			List<Lancamento> emCache = cache.obter(chave);
+			if (emCache != null) {
+				return emCache;
+			}
+		}
+		
 		Example example = Example.of(lancamentoFiltro, 
 				ExampleMatcher.matching()
 					.withIgnoreCase() // IgnoraCase - ignorar maiusculas e minusculas
 					.withStringMatcher(StringMatcher.STARTING)); // contenha tal string
 
-		return repository.findAll(example);
+		List<Lancamento> lancamentos = repository.findAll(example);
+		if (chave != null) {
+			cache.guardar(chave, geracao, lancamentos);
+		}
+		return lancamentos;
+	}
+
+	/*
+	 * Faixas de valor e data, tipo e status pelo LancamentoRepository.buscar (com o mesmo
+	 * cache do buscar por Example) e, sobre o resultado, a consulta aos bitmaps de tags.
+	 */
+	@Override
+	public List<Lancamento> buscar(FiltroLancamento filtro, ConsultaTags tags) {
+		Objects.requireNonNull(filtro.getIdUsuario()); // o cache e o indice de tags sao por usuario
+		CacheBuscaLancamento.Chave chave = cache.chave(filtro);
+		long geracao = cache.geracao(filtro.getIdUsuario()); // lida antes da consulta
+		List<Lancamento> lancamentos = cache.obter(chave);
+		if (lancamentos == null) {
+			lancamentos = repository.buscar(filtro);
+			cache.guardar(chave, geracao, lancamentos);
+		}
+		
+		if (tags == null || tags.vazia()) {
+			return lancamentos;
+		}
+		Predicate<Lancamento> comTags = indiceTags.filtro(filtro.getIdUsuario(), tags);
+		return lancamentos.stream().filter(comTags).collect(Collectors.toList());
+	}
+	
+	@Override
+	public List<TotalTagDTO> obterTotaisPorTag(Long idUsuario, Integer ano, Integer mes, StatusLancamento status) {
+		Objects.requireNonNull(idUsuario);
+		return indiceTags.totais(idUsuario, ano, mes, status);
 	}
 
 	@Override
@@ -94,7 +327,7 @@ public class LancamentoServiceImpl implements LancamentoService {
 		}
 		
 		if (lancamento.getValor() == null 
-			|| lancamento.getValor().compareTo(BigDecimal.ZERO) < 1) { // verificar se esta passando valor maior que 0
+			|| !lancamento.getValor().isPositive()) { // verificar se esta passando valor maior que 0
 			throw new RegraNegocioException("Informe um Valor válido.");
 		}
 		
@@ -102,29 +335,210 @@ public class LancamentoServiceImpl implements LancamentoService {
 			throw new RegraNegocioException("Informe um Tipo de lançamento.");
 		}
 		
+		Set<String> tags = IndiceTags.normalizar(lancamento.getTags());
+		if (tags != null && (tags.size() > IndiceTags.MAXIMO_TAGS || tags.stream()
+				.anyMatch(tag -> tag.length() > IndiceTags.TAMANHO_TAG || tag.indexOf(TagsConverter.SEPARADOR) >= 0))) {
+			throw new RegraNegocioException("Informe até " + IndiceTags.MAXIMO_TAGS + " tags, com até " 
+					+ IndiceTags.TAMANHO_TAG + " caracteres e sem vírgula.");
+		}
+		
+	}
+	
+	/* estado do lancamento no banco, para descontar dos resumos; null se nao existir */
+	private Lancamento obterValoresGravados(Long id) {
+		List<Object[]> linhas = repository.obterValoresGravados(id);
+		if (linhas.isEmpty()) {
+			return null;
+		}
+		Object[] linha = linhas.get(0);
+		return Lancamento.builder()
+				.id(id)
+				.usuario(Usuario.builder().id((Long) linha[0]).build())
+				.ano((Integer) linha[1])
+				.mes((Integer) linha[2])
+				.tipo((TipoLancamento) linha[3])
+				.status((StatusLancamento) linha[4])
+				.valor((Money) linha[5])
+				.categoria((String) linha[6])
+				.build();
+	}
+	
+	/* ouvintes com @TransactionalEventListener recebem o evento apos o commit */
+	private void publicarAlteracao(Lancamento lancamento, TipoAlteracao tipo) {
+		publisher.publishEvent(new LancamentoAlteradoEvent(idUsuario(lancamento), Collections.singletonList(lancamento.getId()), tipo));
+	}
+	
+	private static Long idUsuario(Lancamento lancamento) {
+		return lancamento.getUsuario() != null ? lancamento.getUsuario().getId() : null;
+	}
+
+	/*
+	 * A sequencia e pega com o usuario bloqueado no banco ate o commit: uma alteracao do usuario
+	 * ainda em andamento sempre tem sequencia maior que as ja confirmadas, em qualquer instancia.
+	 * Assim nenhum commit atrasado fica para tras de um token ja devolvido.
+	 */
+	private long novaSequenciaAlteracao(Long idUsuario) {
+		if (idUsuario != null) {
+			repository.bloquearAlteracoes(idUsuario);
+		}
+		return repository.proximaSequenciaAlteracao();
+	}
+	
+	@Override
+	// as duas consultas leem o mesmo snapshot: um commit entre elas nao aparece pela metade
+	@Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+	public AlteracoesDTO obterAlteracoes(Long idUsuario, Long desde, int limite) {
+		Objects.requireNonNull(idUsuario);
+		long inicio = desde == null ? 0 : desde;
+		
+		// marcas ate o token minimo ja foram expurgadas: a partir dele as remocoes viriam incompletas
+		long tokenMinimo = checkpointRepository.findById(LancamentoRemovido.CHECKPOINT_EXPURGO)
+				.map(CheckpointJob::getUltimoIdConcluido)
+				.orElse(0l);
+		if (inicio > 0 && inicio < tokenMinimo) {
+			return AlteracoesDTO.builder()
+					.alterados(new ArrayList<>())
+					.removidos(new ArrayList<>())
+					.token(0l)
+					.ressincronizar(true)
+					.build();
+		}
+		
+		List<Lancamento> alterados = repository.obterAlteradosDesde(idUsuario, inicio, PageRequest.of(0, limite));
+		List<LancamentoRemovido> removidos = removidoRepository.obterRemovidosDesde(idUsuario, inicio, PageRequest.of(0, limite));
+		
+		// as duas listas vem ordenadas pela sequencia: intercala ate completar o limite
+		AlteracoesDTO alteracoes = AlteracoesDTO.builder()
+				.alterados(new ArrayList<>())
+				.removidos(new ArrayList<>())
+				.token(inicio)
+				.build();
+		int a = 0;
+		int r = 0;
+		while (a + r < limite && (a < alterados.size() || r < removidos.size())) {
+			if (r == removidos.size() || (a < alterados.size() 
+					&& alterados.get(a).getSequenciaAlteracao() < removidos.get(r).getSequenciaAlteracao())) {
+				Lancamento alterado = alterados.get(a++);
+				alteracoes.getAlterados().add(alterado);
+				alteracoes.setToken(alterado.getSequenciaAlteracao());
+			} else {
+				LancamentoRemovido removido = removidos.get(r++);
+				alteracoes.getRemovidos().add(removido.getId());
+				alteracoes.setToken(removido.getSequenciaAlteracao());
+			}
+		}
+		alteracoes.setMaisAlteracoes(a < alterados.size() || r < removidos.size() 
+				|| alterados.size() == limite || removidos.size() == limite);
+		return alteracoes;
 	}
 
 	@Override
 	public Optional<Lancamento> obterPorId(Long id) {
 		return repository.findById(id);
 	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public LancamentosPorIdDTO obterPorIds(Long idUsuario, List<Long> ids) {
+		Objects.requireNonNull(idUsuario);
+		validarQuantidadeIds(ids);
+		
+		// uma consulta com os ids distintos; a resposta repete a ordem (e as repeticoes) do pedido
+		Map<Long, LancamentoDTO> encontrados = new HashMap<>();
+		for (Object[] colunas : repository.obterColunasPorIds(idUsuario, new LinkedHashSet<>(ids))) {
+			encontrados.put((Long) colunas[0], lancamentoDTO(idUsuario, colunas));
+		}
+		
+		LancamentosPorIdDTO resultado = LancamentosPorIdDTO.builder()
+				.lancamentos(new ArrayList<>(ids.size()))
+				.naoEncontrados(new ArrayList<>())
+				.build();
+		for (Long id : ids) {
+			LancamentoDTO lancamento = encontrados.get(id);
+			resultado.getLancamentos().add(lancamento);
+			if (lancamento == null) {
+				resultado.getNaoEncontrados().add(id);
+			}
+		}
+		return resultado;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void validarQuantidadeIds(List<Long> ids) {
+		if (ids.isEmpty() || ids.size() > maximoIds) {
+			throw new RegraNegocioException("Informe entre 1 e " + maximoIds + " ids.");
+		}
+	}
+	
+	private static LancamentoDTO lancamentoDTO(Long idUsuario, Object[] colunas) {
+		return LancamentoDTO.builder()
+				.id((Long) colunas[0])
+				.descricao((String) colunas[1])
+				.mes((Integer) colunas[2])
+				.ano((Integer) colunas[3])
+				.valor((Money) colunas[4])
+				.tipo(((TipoLancamento) colunas[5]).name())
+				.status(((StatusLancamento) colunas[6]).name())
+				.categoria((String) colunas[7])
+				.tags((Set<String>) colunas[8])
+				.usuario(idUsuario)
+				.build();
+	}
 
 	@Override
 	@Transactional(readOnly = true)
-	public BigDecimal obterSaldoPorUsuario(Long id) {
+	public Money obterSaldoPorUsuario(Long id) {
 		
-		BigDecimal receitas = repository.obterSaldoPorTipoLancamentoEUsuarioEStatus(id, TipoLancamento.RECEITA, StatusLancamento.EFETIVADO); 
-		BigDecimal despesas = repository.obterSaldoPorTipoLancamentoEUsuarioEStatus(id, TipoLancamento.DESPESA, StatusLancamento.EFETIVADO);
+		Long receitas = repository.obterSaldoPorTipoLancamentoEUsuarioEStatus(id, TipoLancamento.RECEITA, StatusLancamento.EFETIVADO); 
+		Long despesas = repository.obterSaldoPorTipoLancamentoEUsuarioEStatus(id, TipoLancamento.DESPESA, StatusLancamento.EFETIVADO);
 		
 		if (receitas == null) {
-			receitas = BigDecimal.ZERO; // valor 0
+			receitas = 0l; // valor 0
 		}
 		
 		if (despesas == null) {
-			despesas = BigDecimal.ZERO;
+			despesas = 0l;
 		}
 		
-		return receitas.subtract(despesas); // receitas - despesas
+		return Money.ofCents(receitas - despesas); // receitas - despesas
+	}
+	
+	/*
+	 * O saldo anterior vem dos resumos mensais e a soma acumulada do periodo e feita pelo banco;
+	 * as linhas sao entregues ao destino conforme saem do cursor, sem montar a lista.
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public void exportarExtrato(Long idUsuario, Integer ano, Integer mes, Consumer<LinhaExtratoDTO> destino) {
+		int mesDe = mes == null ? 1 : mes;
+		int mesAte = mes == null ? 12 : mes;
+		Money saldoAnterior = resumoService.obterSaldoAntesDe(idUsuario, ano, mesDe);
+		try (Stream<Object[]> linhas = repository.obterExtrato(idUsuario, ano, mesDe, mesAte, saldoAnterior.cents())) {
+			linhas.map(LancamentoServiceImpl::linhaExtrato).forEach(destino);
+		}
+	}
+	
+	// colunas de LancamentoRepository.obterExtrato; os tipos numericos variam com o banco
+	private static LinhaExtratoDTO linhaExtrato(Object[] linha) {
+		return LinhaExtratoDTO.builder()
+				.id(((Number) linha[0]).longValue())
+				.ano(((Number) linha[1]).intValue())
+				.mes(((Number) linha[2]).intValue())
+				.dataCadastro(data(linha[3]))
+				.descricao((String) linha[4])
+				.categoria((String) linha[5])
+				.tipo(TipoLancamento.valueOf((String) linha[6]))
+				.valor(Money.ofCents(((Number) linha[7]).longValue()))
+				.saldo(Money.ofCents(((Number) linha[8]).longValue()))
+				.build();
+	}
+	
+	// data_cadastro e DATE ou TIMESTAMP conforme quem criou a tabela
+	private static LocalDate data(Object coluna) {
+		if (coluna instanceof Timestamp) {
+			return ((Timestamp) coluna).toLocalDateTime().toLocalDate();
+		}
+		return coluna == null ? null : ((Date) coluna).toLocalDate();
 	}
 
 }
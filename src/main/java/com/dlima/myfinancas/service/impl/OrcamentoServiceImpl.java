@@ -0,0 +1,137 @@
+package com.dlima.myfinancas.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.dlima.myfinancas.api.dto.SituacaoOrcamentoDTO;
+import com.dlima.myfinancas.exception.RegraNegocioException;
+import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.entity.Orcamento;
+import com.dlima.myfinancas.model.enums.TipoLancamento;
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.model.repository.OrcamentoRepository;
+import com.dlima.myfinancas.service.OrcamentoService;
+import com.dlima.myfinancas.service.ResumoMensalService;
+
+/*
+ * Os gastos vem dos resumos mensais, mantidos a cada alteracao de lancamento: verificar um
+ * orcamento le poucas linhas por indice, sem somar os lancamentos do mes.
+ */
+@Service
+public class OrcamentoServiceImpl implements OrcamentoService {
+	
+	private static final String ORCAMENTO_CONCORRENTE = "Outra requisição cadastrou ao mesmo tempo o orçamento desta categoria. Tente novamente.";
+	
+	private OrcamentoRepository repository;
+	
+	private ResumoMensalService resumoService;
+	
+	public OrcamentoServiceImpl(OrcamentoRepository repository, ResumoMensalService resumoService) {
+		this.repository = repository;
+		this.resumoService = resumoService;
+	}
+
+	@Override
+	@Transactional
+	public Orcamento salvar(Orcamento orcamento) {
+		if (orcamento.getIdUsuario() == null) {
+			throw new RegraNegocioException("Informe um Usuário.");
+		}
+		if (orcamento.getLimite() == null || !orcamento.getLimite().isPositive()) {
+			throw new RegraNegocioException("Informe um Limite válido.");
+		}
+		
+		String categoria = normalizarCategoria(orcamento.getCategoria());
+		Orcamento existente = repository.findByIdUsuarioAndCategoria(orcamento.getIdUsuario(), categoria)
+				.orElseGet(() -> Orcamento.builder().idUsuario(orcamento.getIdUsuario()).categoria(categoria).build());
+		existente.setLimite(orcamento.getLimite());
+		try {
+			return repository.saveAndFlush(existente);
+		} catch (DataIntegrityViolationException e) {
+			// outro POST da mesma categoria venceu a corrida entre a consulta e o INSERT
+			if (violouOrcamentoUnico(e)) {
+				throw new RegraNegocioException(ORCAMENTO_CONCORRENTE);
+			}
+			throw e;
+		}
+	}
+
+	@Override
+	@Transactional
+	public boolean remover(Long idUsuario, String categoria) {
+		return repository.findByIdUsuarioAndCategoria(idUsuario, normalizarCategoria(categoria))
+				.map(orcamento -> {
+					repository.delete(orcamento);
+					return true;
+				}).orElse(false);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<Orcamento> obterPorUsuario(Long idUsuario) {
+		return repository.findByIdUsuario(idUsuario);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<SituacaoOrcamentoDTO> obterSituacao(Long idUsuario, Integer ano, Integer mes) {
+		return situacao(repository.findByIdUsuario(idUsuario), idUsuario, ano, mes);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<SituacaoOrcamentoDTO> verificar(Lancamento lancamento) {
+		if (lancamento.getTipo() != TipoLancamento.DESPESA) {
+			return Collections.emptyList();
+		}
+		Long idUsuario = lancamento.getUsuario().getId();
+		List<Orcamento> aplicaveis = repository.obterAplicaveis(idUsuario, lancamento.getCategoria());
+		return situacao(aplicaveis, idUsuario, lancamento.getAno(), lancamento.getMes());
+	}
+	
+	private static boolean violouOrcamentoUnico(DataIntegrityViolationException e) {
+		String mensagem = e.getMostSpecificCause().getMessage();
+		return mensagem != null && mensagem.toLowerCase(Locale.ROOT).contains("uk_orcamento_usuario");
+	}
+	
+	/* sem categoria ou em branco: orcamento do mes inteiro */
+	static String normalizarCategoria(String categoria) {
+		if (categoria == null || categoria.trim().isEmpty()) {
+			return null;
+		}
+		return categoria.trim();
+	}
+	
+	private List<SituacaoOrcamentoDTO> situacao(List<Orcamento> orcamentos, Long idUsuario, Integer ano, Integer mes) {
+		if (orcamentos.isEmpty()) {
+			return Collections.emptyList(); // sem orcamento nao consulta os resumos
+		}
+		
+		Map<String, Money> gastos = resumoService.obterGastosDoMes(idUsuario, ano, mes);
+		Money total = gastos.values().stream().reduce(Money.ZERO, Money::plus);
+		List<SituacaoOrcamentoDTO> situacao = new ArrayList<>(orcamentos.size());
+		for (Orcamento orcamento : orcamentos) {
+			Money gasto = orcamento.getCategoria() == null ? total 
+					: gastos.getOrDefault(orcamento.getCategoria(), Money.ZERO);
+			Money disponivel = orcamento.getLimite().minus(gasto);
+			situacao.add(SituacaoOrcamentoDTO.builder()
+					.categoria(orcamento.getCategoria())
+					.ano(ano)
+					.mes(mes)
+					.limite(orcamento.getLimite())
+					.gasto(gasto)
+					.disponivel(disponivel)
+					.excedido(disponivel.signum() < 0)
+					.build());
+		}
+		return situacao;
+	}
+	
+}
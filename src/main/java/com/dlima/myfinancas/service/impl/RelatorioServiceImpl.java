@@ -0,0 +1,179 @@
+package com.dlima.myfinancas.service.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.dlima.myfinancas.api.dto.LancamentoDTO;
+import com.dlima.myfinancas.api.dto.MediaMensalDTO;
+import com.dlima.myfinancas.api.dto.TotalPeriodoDTO;
+import com.dlima.myfinancas.event.LancamentoAlteradoEvent;
+import com.dlima.myfinancas.model.enums.StatusLancamento;
+import com.dlima.myfinancas.model.enums.TipoLancamento;
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.model.repository.LancamentoRepository;
+import com.dlima.myfinancas.service.RelatorioService;
+import com.dlima.myfinancas.service.relatorio.ColunasLancamento;
+import com.dlima.myfinancas.service.relatorio.ColunasLancamento.Agrupamento;
+
+@Service
+public class RelatorioServiceImpl implements RelatorioService {
+
+	// relatorios desconsideram lancamentos cancelados
+	private static final int STATUS_VALIDOS = ColunasLancamento.mascara(StatusLancamento.PENDENTE, StatusLancamento.EFETIVADO);
+
+	private LancamentoRepository repository;
+
+	/*
+	 * Colunas por usuario em ordem LRU, protegido por cache. A entrada e a carga (em andamento ou
+	 * concluida): a consulta roda fora do bloqueio, quem chega durante ela espera a mesma carga,
+	 * e os demais usuarios e invalidar nao esperam por ela.
+	 */
+	private final LinkedHashMap<Long, CompletableFuture<ColunasLancamento>> cache;
+
+	public RelatorioServiceImpl(LancamentoRepository repository,
+			@Value("${myfinancas.relatorio.cache-usuarios:1000}") int maximoUsuarios) {
+		this.repository = repository;
+		this.cache = new LinkedHashMap<Long, CompletableFuture<ColunasLancamento>>(16, 0.75f, true) { // ordem de acesso
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, CompletableFuture<ColunasLancamento>> maisAntiga) {
+				return size() > maximoUsuarios;
+			}
+		};
+	}
+
+	@Override
+	public List<TotalPeriodoDTO> obterTotaisAnuais(Long idUsuario) {
+		return totais(colunas(idUsuario), Agrupamento.ANO, null);
+	}
+
+	@Override
+	public List<TotalPeriodoDTO> obterTotaisMensais(Long idUsuario, Integer ano) {
+		return totais(colunas(idUsuario), Agrupamento.MES, ano);
+	}
+
+	@Override
+	public List<MediaMensalDTO> obterMediasMensais(Long idUsuario) {
+		List<MediaMensalDTO> medias = new ArrayList<>();
+		for (TotalPeriodoDTO mensal : obterTotaisMensais(idUsuario, null)) {
+			MediaMensalDTO media = medias.isEmpty() ? null : medias.get(medias.size() - 1);
+			if (media == null || !media.getAno().equals(mensal.getAno())) {
+				media = MediaMensalDTO.builder().ano(mensal.getAno()).meses(0)
+						.mediaReceitas(Money.ZERO).mediaDespesas(Money.ZERO).build();
+				medias.add(media);
+			}
+			// acumula os totais e divide no final
+			media.setMeses(media.getMeses() + 1);
+			media.setMediaReceitas(media.getMediaReceitas().plus(mensal.getReceitas()));
+			media.setMediaDespesas(media.getMediaDespesas().plus(mensal.getDespesas()));
+		}
+
+		for (MediaMensalDTO media : medias) {
+			media.setMediaReceitas(media.getMediaReceitas().dividedBy(media.getMeses()));
+			media.setMediaDespesas(media.getMediaDespesas().dividedBy(media.getMeses()));
+		}
+		return medias;
+	}
+
+	@Override
+	public List<LancamentoDTO> obterMaioresDespesas(Long idUsuario, Integer ano, int quantidade) {
+		ColunasLancamento colunas = colunas(idUsuario);
+		int[] linhas = new int[quantidade];
+		int encontradas = colunas.maioresDespesas(ano == null ? 0 : ano, STATUS_VALIDOS, linhas);
+
+		List<LancamentoDTO> despesas = new ArrayList<>(encontradas);
+		for (int i = 0; i < encontradas; i++) {
+			int linha = linhas[i];
+			despesas.add(LancamentoDTO.builder()
+					.id(colunas.id(linha))
+					.valor(Money.ofCents(colunas.centavos(linha)))
+					.ano(colunas.ano(linha))
+					.mes(colunas.mes(linha))
+					.tipo(TipoLancamento.DESPESA.name())
+					.usuario(idUsuario)
+					.build());
+		}
+		return despesas;
+	}
+
+	@Override
+	public void invalidar(Long idUsuario) {
+		// uma carga em andamento so serve a quem ja a esperava; a proxima consulta carrega de novo
+		synchronized (cache) {
+			if (idUsuario == null) {
+				cache.clear();
+			} else {
+				cache.remove(idUsuario);
+			}
+		}
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void aoAlterarLancamento(LancamentoAlteradoEvent evento) {
+		invalidar(evento.getIdUsuario());
+	}
+
+	private ColunasLancamento colunas(Long idUsuario) {
+		CompletableFuture<ColunasLancamento> carga;
+		boolean carregar = false;
+		synchronized (cache) {
+			carga = cache.get(idUsuario);
+			if (carga == null) {
+				carga = new CompletableFuture<>();
+				cache.put(idUsuario, carga);
+				carregar = true;
+			}
+		}
+
+		if (carregar) {
+			try {
+				carga.complete(ColunasLancamento.de(repository.obterColunasPorUsuario(idUsuario)));
+			} catch (RuntimeException e) {
+				synchronized (cache) {
+					cache.remove(idUsuario, carga);
+				}
+				carga.completeExceptionally(e);
+				throw e;
+			}
+		}
+
+		try {
+			return carga.join();
+		} catch (CompletionException e) {
+			// a carga de outra thread falhou: repassa o mesmo erro
+			throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+		}
+	}
+
+	private List<TotalPeriodoDTO> totais(ColunasLancamento colunas, Agrupamento agrupamento, Integer ano) {
+		int grupos = colunas.quantidadeGrupos(agrupamento);
+		int[] chaves = new int[grupos];
+		long[] receitas = new long[grupos];
+		long[] despesas = new long[grupos];
+		colunas.agrupar(agrupamento, STATUS_VALIDOS, chaves, receitas, despesas);
+
+		List<TotalPeriodoDTO> totais = new ArrayList<>(grupos);
+		for (int i = 0; i < grupos; i++) {
+			int anoGrupo = agrupamento == Agrupamento.ANO ? chaves[i] : chaves[i] / 12;
+			if (ano != null && anoGrupo != ano) {
+				continue;
+			}
+			totais.add(TotalPeriodoDTO.builder()
+					.ano(anoGrupo)
+					.mes(agrupamento == Agrupamento.MES ? chaves[i] % 12 + 1 : null)
+					.receitas(Money.ofCents(receitas[i]))
+					.despesas(Money.ofCents(despesas[i]))
+					.saldo(Money.ofCents(receitas[i] - despesas[i]))
+					.build());
+		}
+		return totais;
+	}
+
+}
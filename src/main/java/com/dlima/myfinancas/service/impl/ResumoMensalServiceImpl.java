@@ -0,0 +1,199 @@
+package com.dlima.myfinancas.service.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.entity.ResumoMensal;
+import com.dlima.myfinancas.model.enums.StatusLancamento;
+import com.dlima.myfinancas.model.enums.TipoLancamento;
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.model.repository.LancamentoRepository;
+import com.dlima.myfinancas.model.repository.ResumoMensalRepository;
+import com.dlima.myfinancas.model.repository.UsuarioRepository;
+import com.dlima.myfinancas.service.ResumoMensalService;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+
+@Service
+public class ResumoMensalServiceImpl implements ResumoMensalService {
+	
+	private static final String INSERIR_RESUMO = "INSERT INTO financas.resumo_mensal "
+			+ "(id_usuario, ano, mes, categoria, receitas_efetivadas, despesas_efetivadas, receitas_pendentes, despesas_pendentes) "
+			+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+	
+	private static final String SOMAR_RESUMO = "UPDATE financas.resumo_mensal SET "
+			+ "receitas_efetivadas = receitas_efetivadas + ?, despesas_efetivadas = despesas_efetivadas + ?, "
+			+ "receitas_pendentes = receitas_pendentes + ?, despesas_pendentes = despesas_pendentes + ? "
+			+ "WHERE id_usuario = ? AND ano = ? AND mes = ? AND categoria = ?";
+	
+	private static final String GASTOS_DO_MES = "SELECT categoria, SUM(despesas_efetivadas + despesas_pendentes) "
+			+ "FROM financas.resumo_mensal WHERE id_usuario = ? AND ano = ? AND mes = ? GROUP BY categoria";
+	
+	// usa o indice unico (id_usuario, ano, mes, categoria): uma linha por mes e categoria, nao por lancamento
+	private static final String SALDO_ANTES_DE = "SELECT COALESCE(SUM(receitas_efetivadas - despesas_efetivadas), 0) "
+			+ "FROM financas.resumo_mensal WHERE id_usuario = ? AND (ano < ? OR (ano = ? AND mes < ?))";
+	
+	// posicoes do acumulador de cada mes
+	private static final int RECEITAS_EFETIVADAS = 0;
+	private static final int DESPESAS_EFETIVADAS = 1;
+	private static final int RECEITAS_PENDENTES = 2;
+	private static final int DESPESAS_PENDENTES = 3;
+	
+	private LancamentoRepository lancamentoRepository;
+	
+	private ResumoMensalRepository repository;
+	
+	private UsuarioRepository usuarioRepository;
+	
+	private JdbcTemplate jdbcTemplate;
+	
+	public ResumoMensalServiceImpl(LancamentoRepository lancamentoRepository, ResumoMensalRepository repository,
+			UsuarioRepository usuarioRepository, JdbcTemplate jdbcTemplate) {
+		this.lancamentoRepository = lancamentoRepository;
+		this.repository = repository;
+		this.usuarioRepository = usuarioRepository;
+		this.jdbcTemplate = jdbcTemplate;
+	}
+	
+	/*
+	 * Le os lancamentos do usuario em stream (sem carregar entidades) e grava um resumo por mes
+	 * e categoria com um unico INSERT em lote. A exclusao e a gravacao acontecem na mesma transacao,
+	 * com a linha do usuario bloqueada, como em aplicar.
+	 */
+	@Override
+	@Transactional
+	public int reconstruir(Long idUsuario) {
+		if (!usuarioRepository.bloquearPorId(idUsuario).isPresent()) {
+			return 0;
+		}
+		
+		Map<Chave, long[]> porMes = new LinkedHashMap<>();
+		int lidos = 0;
+		try (Stream<Object[]> linhas = lancamentoRepository.obterColunasResumoPorUsuario(idUsuario)) {
+			for (Object[] linha : (Iterable<Object[]>) linhas::iterator) {
+				lidos++;
+				acumular(porMes, (Integer) linha[0], (Integer) linha[1], (String) linha[5],
+						(TipoLancamento) linha[2], (StatusLancamento) linha[3], (Money) linha[4], 1);
+			}
+		}
+		
+		repository.deletarPorUsuario(idUsuario);
+		List<Object[]> resumos = new ArrayList<>(porMes.size());
+		for (Map.Entry<Chave, long[]> mes : porMes.entrySet()) {
+			resumos.add(linhaResumo(idUsuario, mes.getKey(), mes.getValue()));
+		}
+		jdbcTemplate.batchUpdate(INSERIR_RESUMO, resumos);
+		return lidos;
+	}
+	
+	/*
+	 * Atualizacao incremental: soma a diferenca nos meses afetados (no maximo dois) sem reler os
+	 * lancamentos. O bloqueio do usuario serializa com reconstruir e evita dois INSERTs do mesmo mes.
+	 */
+	@Override
+	@Transactional
+	public void aplicar(Lancamento anterior, Lancamento atual) {
+		Map<Chave, long[]> diferencas = new HashMap<>(4);
+		if (anterior != null) {
+			acumular(diferencas, anterior.getAno(), anterior.getMes(), anterior.getCategoria(),
+					anterior.getTipo(), anterior.getStatus(), anterior.getValor(), -1);
+		}
+		if (atual != null) {
+			acumular(diferencas, atual.getAno(), atual.getMes(), atual.getCategoria(),
+					atual.getTipo(), atual.getStatus(), atual.getValor(), 1);
+		}
+		Iterator<long[]> totais = diferencas.values().iterator();
+		while (totais.hasNext()) {
+			long[] diferenca = totais.next();
+			if (diferenca[0] == 0 && diferenca[1] == 0 && diferenca[2] == 0 && diferenca[3] == 0) {
+				totais.remove(); // ex.: descricao alterada
+			}
+		}
+		if (diferencas.isEmpty()) {
+			return;
+		}
+		
+		Long idUsuario = (atual != null ? atual : anterior).getUsuario().getId();
+		usuarioRepository.bloquearPorId(idUsuario);
+		for (Map.Entry<Chave, long[]> mes : diferencas.entrySet()) {
+			Chave chave = mes.getKey();
+			long[] diferenca = mes.getValue();
+			int atualizados = jdbcTemplate.update(SOMAR_RESUMO, diferenca[RECEITAS_EFETIVADAS],
+					diferenca[DESPESAS_EFETIVADAS], diferenca[RECEITAS_PENDENTES], diferenca[DESPESAS_PENDENTES],
+					idUsuario, chave.ano, chave.mes, chave.categoria);
+			if (atualizados == 0) {
+				jdbcTemplate.update(INSERIR_RESUMO, linhaResumo(idUsuario, chave, diferenca));
+			}
+		}
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public Map<String, Money> obterGastosDoMes(Long idUsuario, Integer ano, Integer mes) {
+		Map<String, Money> gastos = new HashMap<>();
+		jdbcTemplate.query(GASTOS_DO_MES, linha -> {
+			gastos.put(linha.getString(1), Money.ofCents(linha.getLong(2)));
+		}, idUsuario, ano, mes);
+		return gastos;
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public List<ResumoMensal> obterPorUsuario(Long idUsuario) {
+		return repository.findByIdUsuarioOrderByAnoAscMesAsc(idUsuario);
+	}
+	
+	@Override
+	public Money obterSaldoAntesDe(Long idUsuario, Integer ano, Integer mes) {
+		return Money.ofCents(jdbcTemplate.queryForObject(SALDO_ANTES_DE, Long.class, idUsuario, ano, ano, mes));
+	}
+	
+	private static void acumular(Map<Chave, long[]> totais, Integer ano, Integer mes, String categoria,
+			TipoLancamento tipo, StatusLancamento status, Money valor, int sinal) {
+		int posicao = posicao(tipo, status);
+		if (posicao < 0 || valor == null || ano == null || mes == null) {
+			return;
+		}
+		Chave chave = new Chave(ano, mes, categoria == null ? ResumoMensal.SEM_CATEGORIA : categoria);
+		totais.computeIfAbsent(chave, c -> new long[4])[posicao] += sinal * valor.cents();
+	}
+	
+	private static Object[] linhaResumo(Long idUsuario, Chave chave, long[] totais) {
+		return new Object[] { idUsuario, chave.ano, chave.mes, chave.categoria,
+				totais[RECEITAS_EFETIVADAS], totais[DESPESAS_EFETIVADAS],
+				totais[RECEITAS_PENDENTES], totais[DESPESAS_PENDENTES] };
+	}
+	
+	// regra dos resumos: cancelados nao entram
+	private static int posicao(TipoLancamento tipo, StatusLancamento status) {
+		if (status == StatusLancamento.EFETIVADO) {
+			return tipo == TipoLancamento.RECEITA ? RECEITAS_EFETIVADAS : DESPESAS_EFETIVADAS;
+		}
+		if (status == StatusLancamento.PENDENTE) {
+			return tipo == TipoLancamento.RECEITA ? RECEITAS_PENDENTES : DESPESAS_PENDENTES;
+		}
+		return -1;
+	}
+	
+	@EqualsAndHashCode
+	@AllArgsConstructor
+	private static final class Chave {
+		
+		private final int ano;
+		private final int mes;
+		private final String categoria;
+		
+	}
+
+}
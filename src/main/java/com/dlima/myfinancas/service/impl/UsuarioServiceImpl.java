@@ -1,7 +1,9 @@
 package com.dlima.myfinancas.service.impl;
 
+import java.util.Locale;
 import java.util.Optional;
 
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -10,17 +12,23 @@ import com.dlima.myfinancas.exception.RegraNegocioException;
 import com.dlima.myfinancas.model.entity.Usuario;
 import com.dlima.myfinancas.model.repository.UsuarioRepository;
 import com.dlima.myfinancas.service.UsuarioService;
+import com.dlima.myfinancas.service.cache.FiltroBloomEmails;
 
 @Service
 public class UsuarioServiceImpl implements UsuarioService {
 	
+	private static final String EMAIL_CADASTRADO = "Já existe um usuário cadastrado com este email.";
+	
 //	@Autowired
 	private UsuarioRepository repository;
 	
+	private FiltroBloomEmails emails;
+	
 //	@Autowired
-	public UsuarioServiceImpl(UsuarioRepository repository) {
+	public UsuarioServiceImpl(UsuarioRepository repository, FiltroBloomEmails emails) {
 		super();
 		this.repository = repository;
+		this.emails = emails;
 	}
 
 	@Override
@@ -42,14 +50,28 @@ public class UsuarioServiceImpl implements UsuarioService {
 	@Transactional
 	public Usuario salvarUsuario(Usuario usuario) {
 		validarEmail(usuario.getEmail());
-		return repository.save(usuario);
+		Usuario salvo;
+		try {
+			salvo = repository.save(usuario);
+		} catch (DataIntegrityViolationException e) {
+			// outro cadastro com o mesmo email venceu a corrida entre validarEmail e o INSERT
+			if (violouEmailUnico(e)) {
+				throw new RegraNegocioException(EMAIL_CADASTRADO);
+			}
+			throw e;
+		}
+		emails.adicionar(usuario.getEmail()); // se a transacao voltar, fica so um falso positivo
+		return salvo;
 	}
 
 	@Override
 	public void validarEmail(String email) {
+		if (!emails.podeConter(email)) {
+			return; // nunca cadastrado: o filtro dispensa a consulta
+		}
 		boolean existe = repository.existsByEmail(email);
 		if(existe) {
-			throw new RegraNegocioException("Já existe um usuário cadastrado com este email.");
+			throw new RegraNegocioException(EMAIL_CADASTRADO);
 		}
 	}
 
@@ -58,4 +80,9 @@ public class UsuarioServiceImpl implements UsuarioService {
 		return repository.findById(id);
 	}
 	
+	private static boolean violouEmailUnico(DataIntegrityViolationException e) {
+		String mensagem = e.getMostSpecificCause().getMessage();
+		return mensagem != null && mensagem.toLowerCase(Locale.ROOT).contains("uk_usuario_email");
+	}
+	
 }
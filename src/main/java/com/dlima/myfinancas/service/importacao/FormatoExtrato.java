@@ -0,0 +1,39 @@
+package com.dlima.myfinancas.service.importacao;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Optional;
+
+public enum FormatoExtrato {
+
+	CSV {
+		@Override
+		public LeitorExtrato abrir(Path arquivo, Charset charset) throws IOException {
+			return new LeitorExtratoCsv(arquivo, charset);
+		}
+	},
+
+	OFX {
+		@Override
+		public LeitorExtrato abrir(Path arquivo, Charset charset) throws IOException {
+			return new LeitorExtratoOfx(arquivo, charset);
+		}
+	};
+
+	public abstract LeitorExtrato abrir(Path arquivo, Charset charset) throws IOException;
+
+	/* pela extensao do arquivo enviado: .ofx/.qfx ou .csv/.txt */
+	public static Optional<FormatoExtrato> doArquivo(String nome) {
+		String minusculo = nome == null ? "" : nome.toLowerCase(Locale.ROOT);
+		if (minusculo.endsWith(".ofx") || minusculo.endsWith(".qfx")) {
+			return Optional.of(OFX);
+		}
+		if (minusculo.endsWith(".csv") || minusculo.endsWith(".txt")) {
+			return Optional.of(CSV);
+		}
+		return Optional.empty();
+	}
+
+}
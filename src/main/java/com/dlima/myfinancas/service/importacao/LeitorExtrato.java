@@ -0,0 +1,12 @@
+package com.dlima.myfinancas.service.importacao;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/* Percorre um extrato uma transacao por vez, sem carregar o arquivo */
+public interface LeitorExtrato extends Closeable {
+
+	/* proxima transacao (valida ou com erro); null no fim do arquivo */
+	LinhaExtrato proxima() throws IOException;
+
+}
@@ -0,0 +1,114 @@
+package com.dlima.myfinancas.service.importacao;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.dlima.myfinancas.model.money.Money;
+
+/*
+ * Colunas data, descricao, valor e, opcionalmente, categoria. O separador (';', ',' ou tab)
+ * vem da primeira linha, que e ignorada quando nao comeca por uma data (cabecalho).
+ * Campos entre aspas podem conter o separador; aspas dobradas viram uma.
+ */
+final class LeitorExtratoCsv implements LeitorExtrato {
+
+	private final LeitorLinhas linhas;
+
+	private char separador;
+
+	private boolean primeira = true;
+
+	LeitorExtratoCsv(Path arquivo, Charset charset) throws IOException {
+		this.linhas = new LeitorLinhas(arquivo, charset, '\n');
+	}
+
+	@Override
+	public LinhaExtrato proxima() throws IOException {
+		String texto;
+		while ((texto = linhas.proximo()) != null) {
+			if (texto.trim().isEmpty()) {
+				continue;
+			}
+			if (primeira) {
+				primeira = false;
+				separador = separador(texto);
+				if (ValoresExtrato.data(campos(texto).get(0)) == null) {
+					continue; // cabecalho
+				}
+			}
+			return converter(linhas.linha(), campos(texto));
+		}
+		return null;
+	}
+
+	private LinhaExtrato converter(int linha, List<String> campos) {
+		if (campos.size() < 3) {
+			return LinhaExtrato.invalida(linha, "Esperadas as colunas data, descrição e valor.");
+		}
+		LocalDate data = ValoresExtrato.data(campos.get(0));
+		if (data == null) {
+			return LinhaExtrato.invalida(linha, "Data inválida: " + campos.get(0));
+		}
+		Money valor;
+		try {
+			valor = ValoresExtrato.valor(campos.get(2));
+		} catch (NumberFormatException | ArithmeticException e) {
+			return LinhaExtrato.invalida(linha, "Valor inválido: " + campos.get(2));
+		}
+		String categoria = campos.size() > 3 ? campos.get(3) : null;
+		return LinhaExtrato.valida(linha, data, campos.get(1).trim(), valor, categoria, null);
+	}
+
+	private static char separador(String linha) {
+		int pontoVirgula = contar(linha, ';');
+		int tab = contar(linha, '\t');
+		if (pontoVirgula == 0 && tab == 0) {
+			return ',';
+		}
+		return pontoVirgula >= tab ? ';' : '\t';
+	}
+
+	private static int contar(String linha, char caractere) {
+		int quantidade = 0;
+		for (int i = 0; i < linha.length(); i++) {
+			if (linha.charAt(i) == caractere) {
+				quantidade++;
+			}
+		}
+		return quantidade;
+	}
+
+	private List<String> campos(String linha) {
+		List<String> campos = new ArrayList<>(4);
+		StringBuilder campo = new StringBuilder();
+		boolean entreAspas = false;
+		for (int i = 0; i < linha.length(); i++) {
+			char c = linha.charAt(i);
+			if (c == '"') {
+				if (entreAspas && i + 1 < linha.length() && linha.charAt(i + 1) == '"') {
+					campo.append('"');
+					i++;
+				} else {
+					entreAspas = !entreAspas;
+				}
+			} else if (c == separador && !entreAspas) {
+				campos.add(campo.toString());
+				campo.setLength(0);
+			} else {
+				campo.append(c);
+			}
+		}
+		campos.add(campo.toString());
+		return campos;
+	}
+
+	@Override
+	public void close() throws IOException {
+		linhas.close();
+	}
+
+}
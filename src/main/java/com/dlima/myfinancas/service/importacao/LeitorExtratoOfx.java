@@ -0,0 +1,97 @@
+package com.dlima.myfinancas.service.importacao;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Locale;
+
+import com.dlima.myfinancas.model.money.Money;
+
+/*
+ * Transacoes (STMTTRN) de OFX 1.x (SGML, sem fechar as tags de valor) ou 2.x (XML).
+ * O arquivo e dividido em '<': cada registro e "TAG>valor", entao arquivos inteiros numa
+ * unica linha tambem sao lidos aos poucos. O cabecalho e as demais tags sao ignorados.
+ */
+final class LeitorExtratoOfx implements LeitorExtrato {
+
+	private final LeitorLinhas registros;
+
+	private int linha;
+
+	private String dataPostagem;
+
+	private String valor;
+
+	private String identificador;
+
+	private String memo;
+
+	private String nome;
+
+	LeitorExtratoOfx(Path arquivo, Charset charset) throws IOException {
+		this.registros = new LeitorLinhas(arquivo, charset, '<');
+	}
+
+	@Override
+	public LinhaExtrato proxima() throws IOException {
+		boolean emTransacao = false;
+		String registro;
+		while ((registro = registros.proximo()) != null) {
+			int fimTag = registro.indexOf('>');
+			if (fimTag < 0) {
+				continue;
+			}
+			String tag = registro.substring(0, fimTag).trim().toUpperCase(Locale.ROOT);
+			String conteudo = decodificar(registro.substring(fimTag + 1).trim());
+			if (tag.equals("STMTTRN")) {
+				emTransacao = true;
+				linha = registros.linha();
+				dataPostagem = valor = identificador = memo = nome = null;
+			} else if (tag.equals("/STMTTRN") && emTransacao) {
+				return transacao();
+			} else if (emTransacao) {
+				switch (tag) {
+				case "DTPOSTED": dataPostagem = conteudo; break;
+				case "TRNAMT": valor = conteudo; break;
+				case "FITID": identificador = conteudo; break;
+				case "MEMO": memo = conteudo; break;
+				case "NAME": nome = conteudo; break;
+				default: break;
+				}
+			}
+		}
+		return emTransacao ? LinhaExtrato.invalida(linha, "Transação sem fim (</STMTTRN>).") : null;
+	}
+
+	private LinhaExtrato transacao() {
+		// DTPOSTED: AAAAMMDD seguido opcionalmente de hora e fuso
+		LocalDate data = dataPostagem == null || dataPostagem.length() < 8 
+				? null : ValoresExtrato.data(dataPostagem.substring(0, 8));
+		if (data == null) {
+			return LinhaExtrato.invalida(linha, "DTPOSTED inválido: " + dataPostagem);
+		}
+		Money quantia;
+		try {
+			quantia = ValoresExtrato.valor(valor);
+		} catch (NumberFormatException | ArithmeticException e) {
+			return LinhaExtrato.invalida(linha, "TRNAMT inválido: " + valor);
+		}
+		String descricao = memo != null && !memo.isEmpty() ? memo : nome;
+		return LinhaExtrato.valida(linha, data, descricao, quantia, null, identificador);
+	}
+
+	private static String decodificar(String texto) {
+		if (texto.indexOf('&') < 0) {
+			return texto;
+		}
+		return texto.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+				.replace("&apos;", "'").replace("&amp;", "&");
+	}
+
+	@Override
+	public void close() throws IOException {
+		registros.close();
+	}
+
+}
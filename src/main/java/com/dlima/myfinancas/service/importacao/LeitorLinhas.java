@@ -0,0 +1,120 @@
+package com.dlima.myfinancas.service.importacao;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/*
+ * Registros de um arquivo separados por um byte delimitador ('\n' no CSV, '<' no OFX), lidos
+ * de janelas mapeadas em memoria. So a janela atual e o registro corrente ficam em memoria,
+ * qualquer que seja o tamanho do arquivo: o sistema operacional le as paginas sob demanda.
+ *
+ * O delimitador e comparado byte a byte: o charset precisa ser compativel com ASCII
+ * (UTF-8, ISO-8859-1, windows-1252).
+ */
+final class LeitorLinhas implements Closeable {
+
+	static final int JANELA = 16 * 1024 * 1024;
+
+	static final int MAXIMO_REGISTRO = 64 * 1024; // o excedente de um registro maior e descartado
+
+	private static final byte[] BOM_UTF8 = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+
+	private final FileChannel canal;
+
+	private final long tamanhoArquivo;
+
+	private final Charset charset;
+
+	private final byte delimitador;
+
+	private final int tamanhoJanela;
+
+	private MappedByteBuffer janela;
+
+	private long fimJanela; // posicao no arquivo logo apos a janela atual
+
+	private byte[] registro = new byte[256];
+
+	private int quebrasLinha;
+
+	private int linhaRegistro;
+
+	private boolean primeiro = true;
+
+	LeitorLinhas(Path arquivo, Charset charset, char delimitador) throws IOException {
+		this(arquivo, charset, delimitador, JANELA);
+	}
+
+	LeitorLinhas(Path arquivo, Charset charset, char delimitador, int tamanhoJanela) throws IOException {
+		this.canal = FileChannel.open(arquivo, StandardOpenOption.READ);
+		this.tamanhoArquivo = canal.size();
+		this.charset = charset;
+		this.delimitador = (byte) delimitador;
+		this.tamanhoJanela = tamanhoJanela;
+	}
+
+	/* proximo registro sem o delimitador (e sem o '\r' final, para '\n'); null no fim do arquivo */
+	String proximo() throws IOException {
+		linhaRegistro = quebrasLinha + 1;
+		int tamanho = 0;
+		boolean leu = false;
+		while (true) {
+			if (janela == null || !janela.hasRemaining()) {
+				if (fimJanela >= tamanhoArquivo) {
+					return leu ? texto(tamanho) : null;
+				}
+				long quantidade = Math.min(tamanhoJanela, tamanhoArquivo - fimJanela);
+				janela = canal.map(FileChannel.MapMode.READ_ONLY, fimJanela, quantidade);
+				fimJanela += quantidade;
+			}
+			byte lido = janela.get();
+			leu = true;
+			if (lido == '\n') {
+				quebrasLinha++;
+			}
+			if (lido == delimitador) {
+				return texto(tamanho);
+			}
+			if (tamanho < MAXIMO_REGISTRO) {
+				if (tamanho == registro.length) {
+					registro = Arrays.copyOf(registro, Math.min(registro.length * 2, MAXIMO_REGISTRO));
+				}
+				registro[tamanho++] = lido;
+			}
+		}
+	}
+
+	/* linha do arquivo (a partir de 1) em que comeca o ultimo registro devolvido */
+	int linha() {
+		return linhaRegistro;
+	}
+
+	private String texto(int tamanho) {
+		int inicio = 0;
+		if (primeiro) {
+			primeiro = false;
+			if (tamanho >= BOM_UTF8.length && StandardCharsets.UTF_8.equals(charset)
+					&& registro[0] == BOM_UTF8[0] && registro[1] == BOM_UTF8[1] && registro[2] == BOM_UTF8[2]) {
+				inicio = BOM_UTF8.length;
+			}
+		}
+		if (delimitador == '\n' && tamanho > inicio && registro[tamanho - 1] == '\r') {
+			tamanho--;
+		}
+		return new String(registro, inicio, tamanho - inicio, charset);
+	}
+
+	@Override
+	public void close() throws IOException {
+		janela = null;
+		canal.close();
+	}
+
+}
@@ -0,0 +1,39 @@
+package com.dlima.myfinancas.service.importacao;
+
+import java.time.LocalDate;
+
+import com.dlima.myfinancas.model.money.Money;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/* Uma transacao do extrato; quando erro nao e nulo, os demais campos podem faltar */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class LinhaExtrato {
+
+	private final int linha; // no arquivo, para o relatorio de erros
+
+	private final LocalDate data;
+
+	private final String descricao;
+
+	private final Money valor; // com sinal: negativo e despesa
+
+	private final String categoria;
+
+	private final String identificador; // FITID do OFX; null no CSV
+
+	private final String erro;
+
+	public static LinhaExtrato valida(int linha, LocalDate data, String descricao, Money valor,
+			String categoria, String identificador) {
+		return new LinhaExtrato(linha, data, descricao, valor, categoria, identificador, null);
+	}
+
+	public static LinhaExtrato invalida(int linha, String erro) {
+		return new LinhaExtrato(linha, null, null, null, null, null, erro);
+	}
+
+}
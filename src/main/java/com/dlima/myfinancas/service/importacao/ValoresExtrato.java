@@ -0,0 +1,73 @@
+package com.dlima.myfinancas.service.importacao;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.Locale;
+
+import com.dlima.myfinancas.model.money.Money;
+
+/* Datas e valores como os bancos costumam exportar */
+final class ValoresExtrato {
+
+	private static final DateTimeFormatter[] FORMATOS_DATA = {
+			formato("dd/MM/uuuu"), formato("uuuu-MM-dd"), formato("dd-MM-uuuu"),
+			formato("dd/MM/uu"), formato("uuuuMMdd") };
+
+	private ValoresExtrato() {
+	}
+
+	/* null se o texto nao for uma data conhecida */
+	static LocalDate data(String texto) {
+		String limpo = texto == null ? "" : texto.trim();
+		for (DateTimeFormatter formato : FORMATOS_DATA) {
+			try {
+				return LocalDate.parse(limpo, formato);
+			} catch (DateTimeParseException e) {
+				// tenta o proximo formato
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * "1.234,56", "1,234.56", "R$ -12,30", "(12,30)", "12,30 D" (debito) ou "12,30-".
+	 * Com ponto e virgula, o ultimo dos dois separa os centavos.
+	 * Lanca NumberFormatException (ou ArithmeticException, se nao couber) se nao for um valor.
+	 */
+	static Money valor(String texto) {
+		String limpo = texto == null ? "" : texto.replace("R$", "").replace("\u00A0", "").replace(" ", "").trim();
+		boolean negativo = false;
+		if (limpo.startsWith("(") && limpo.endsWith(")")) {
+			negativo = true;
+			limpo = limpo.substring(1, limpo.length() - 1);
+		}
+		if (limpo.endsWith("-") || limpo.toUpperCase(Locale.ROOT).endsWith("D")) {
+			negativo = true;
+			limpo = limpo.substring(0, limpo.length() - 1);
+		} else if (limpo.toUpperCase(Locale.ROOT).endsWith("C")) {
+			limpo = limpo.substring(0, limpo.length() - 1);
+		}
+
+		int virgula = limpo.lastIndexOf(',');
+		int ponto = limpo.lastIndexOf('.');
+		if (virgula >= 0 && ponto >= 0) {
+			limpo = virgula > ponto
+					? limpo.replace(".", "").replace(',', '.')
+					: limpo.replace(",", "");
+		} else if (virgula >= 0) {
+			limpo = limpo.replace(',', '.');
+		} else if (ponto >= 0 && ponto != limpo.indexOf('.')) {
+			limpo = limpo.replace(".", ""); // varios pontos: separadores de milhar
+		}
+
+		Money valor = Money.parse(limpo);
+		return negativo ? valor.negate() : valor;
+	}
+
+	private static DateTimeFormatter formato(String padrao) {
+		return DateTimeFormatter.ofPattern(padrao).withResolverStyle(ResolverStyle.STRICT);
+	}
+
+}
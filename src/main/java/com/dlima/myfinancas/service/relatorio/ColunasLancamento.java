@@ -0,0 +1,193 @@
+package com.dlima.myfinancas.service.relatorio;
+
+import java.util.List;
+
+import com.dlima.myfinancas.model.enums.StatusLancamento;
+import com.dlima.myfinancas.model.enums.TipoLancamento;
+import com.dlima.myfinancas.model.money.Money;
+
+/*
+ * Lancamentos de um usuario em colunas primitivas, ordenados por periodo (ano/mes).
+ * Agregacoes, agrupamentos e top-N percorrem os arrays sem criar objetos;
+ * quem chama fornece os arrays de saida.
+ */
+public final class ColunasLancamento {
+
+	public enum Agrupamento { ANO, MES }
+
+	private static final byte RECEITA = (byte) TipoLancamento.RECEITA.ordinal();
+
+	private final int tamanho;
+
+	private final long[] ids;
+
+	private final long[] centavos;
+
+	private final int[] periodos; // ano * 12 + (mes - 1)
+
+	private final byte[] tipos;
+
+	private final byte[] status;
+
+	private ColunasLancamento(int tamanho) {
+		this.tamanho = tamanho;
+		this.ids = new long[tamanho];
+		this.centavos = new long[tamanho];
+		this.periodos = new int[tamanho];
+		this.tipos = new byte[tamanho];
+		this.status = new byte[tamanho];
+	}
+
+	/* linhas: id, valor, ano, mes, tipo, status - ja ordenadas por ano e mes */
+	public static ColunasLancamento de(List<Object[]> linhas) {
+		ColunasLancamento colunas = new ColunasLancamento(linhas.size());
+		for (int i = 0; i < colunas.tamanho; i++) {
+			Object[] linha = linhas.get(i);
+			colunas.ids[i] = (Long) linha[0];
+			colunas.centavos[i] = linha[1] == null ? 0 : ((Money) linha[1]).cents();
+			colunas.periodos[i] = (Integer) linha[2] * 12 + (Integer) linha[3] - 1;
+			colunas.tipos[i] = (byte) ((TipoLancamento) linha[4]).ordinal();
+			colunas.status[i] = (byte) ((StatusLancamento) linha[5]).ordinal();
+		}
+		return colunas;
+	}
+
+	public static int mascara(StatusLancamento... statusConsiderados) {
+		int mascara = 0;
+		for (StatusLancamento s : statusConsiderados) {
+			mascara |= 1 << s.ordinal();
+		}
+		return mascara;
+	}
+
+	public int tamanho() {
+		return tamanho;
+	}
+
+	public long id(int linha) {
+		return ids[linha];
+	}
+
+	public long centavos(int linha) {
+		return centavos[linha];
+	}
+
+	public int ano(int linha) {
+		return periodos[linha] / 12;
+	}
+
+	public int mes(int linha) {
+		return periodos[linha] % 12 + 1;
+	}
+
+	public int quantidadeGrupos(Agrupamento agrupamento) {
+		int grupos = 0;
+		int anterior = -1;
+		for (int i = 0; i < tamanho; i++) {
+			int chave = chave(agrupamento, i);
+			if (chave != anterior) {
+				grupos++;
+				anterior = chave;
+			}
+		}
+		return grupos;
+	}
+
+	/*
+	 * Soma receitas e despesas por grupo. Os arrays de saida precisam ter ao menos
+	 * quantidadeGrupos(agrupamento) posicoes; retorna a quantidade de grupos preenchidos.
+	 * chaves recebe o ano (ANO) ou ano * 12 + (mes - 1) (MES) de cada grupo.
+	 */
+	public int agrupar(Agrupamento agrupamento, int mascaraStatus, int[] chaves, long[] receitas, long[] despesas) {
+		int grupo = -1;
+		int anterior = -1;
+		for (int i = 0; i < tamanho; i++) {
+			int chave = chave(agrupamento, i);
+			if (chave != anterior) {
+				grupo++;
+				chaves[grupo] = chave;
+				receitas[grupo] = 0;
+				despesas[grupo] = 0;
+				anterior = chave;
+			}
+			if ((mascaraStatus & (1 << status[i])) == 0) {
+				continue;
+			}
+			if (tipos[i] == RECEITA) {
+				receitas[grupo] += centavos[i];
+			} else {
+				despesas[grupo] += centavos[i];
+			}
+		}
+		return grupo + 1;
+	}
+
+	/*
+	 * Maiores despesas (opcionalmente de um ano, ano = 0 para todos) usando um heap minimo
+	 * de indices em saida. Retorna quantas linhas foram encontradas, ordenadas da maior para a menor.
+	 */
+	public int maioresDespesas(int ano, int mascaraStatus, int[] saida) {
+		int n = 0;
+		for (int i = 0; i < tamanho; i++) {
+			if (tipos[i] == RECEITA || (mascaraStatus & (1 << status[i])) == 0
+					|| (ano != 0 && periodos[i] / 12 != ano)) {
+				continue;
+			}
+			if (n < saida.length) {
+				saida[n] = i;
+				subir(saida, n++);
+			} else if (saida.length > 0 && centavos[i] > centavos[saida[0]]) {
+				saida[0] = i;
+				descer(saida, 0, n);
+			}
+		}
+
+		// heap sort: remove o menor para o fim ate ficar em ordem decrescente
+		for (int fim = n - 1; fim > 0; fim--) {
+			trocar(saida, 0, fim);
+			descer(saida, 0, fim);
+		}
+		return n;
+	}
+
+	private int chave(Agrupamento agrupamento, int linha) {
+		return agrupamento == Agrupamento.ANO ? periodos[linha] / 12 : periodos[linha];
+	}
+
+	private void subir(int[] heap, int posicao) {
+		while (posicao > 0) {
+			int pai = (posicao - 1) / 2;
+			if (centavos[heap[pai]] <= centavos[heap[posicao]]) {
+				return;
+			}
+			trocar(heap, pai, posicao);
+			posicao = pai;
+		}
+	}
+
+	private void descer(int[] heap, int posicao, int tamanhoHeap) {
+		while (true) {
+			int menor = posicao;
+			int esquerda = 2 * posicao + 1;
+			int direita = esquerda + 1;
+			if (esquerda < tamanhoHeap && centavos[heap[esquerda]] < centavos[heap[menor]]) {
+				menor = esquerda;
+			}
+			if (direita < tamanhoHeap && centavos[heap[direita]] < centavos[heap[menor]]) {
+				menor = direita;
+			}
+			if (menor == posicao) {
+				return;
+			}
+			trocar(heap, posicao, menor);
+			posicao = menor;
+		}
+	}
+
+	private static void trocar(int[] array, int i, int j) {
+		int temp = array[i];
+		array[i] = array[j];
+		array[j] = temp;
+	}
+
+}
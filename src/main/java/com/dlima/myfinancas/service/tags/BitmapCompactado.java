@@ -0,0 +1,395 @@
+package com.dlima.myfinancas.service.tags;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/*
+ * Conjunto de inteiros nao negativos dividido em blocos de 65536 valores (como o Roaring):
+ * cada bloco guarda os 16 bits baixos num array ordenado de char enquanto tem ate 4096
+ * valores e num mapa de bits de 8KB acima disso. Conjuntos esparsos ocupam 2 bytes por
+ * valor; densos, 1 bit.
+ *
+ * Nao e thread-safe. e, ou e exceto devolvem um novo bitmap sem alterar os operandos.
+ */
+public final class BitmapCompactado {
+
+	static final int LIMITE_ARRAY = 4096;
+
+	private static final int PALAVRAS = 1024; // 65536 bits
+
+	private int[] chaves = new int[2]; // 16 bits altos de cada bloco, ordenados
+
+	private Bloco[] blocos = new Bloco[2];
+
+	private int quantidadeBlocos;
+
+	public void adicionar(int valor) {
+		int chave = valor >>> 16;
+		int i = indice(chave);
+		if (i < 0) {
+			i = -i - 1;
+			inserirBloco(i, chave, new BlocoArray());
+		}
+		blocos[i] = blocos[i].adicionar((char) valor);
+	}
+
+	public void remover(int valor) {
+		int i = indice(valor >>> 16);
+		if (i >= 0) {
+			blocos[i] = blocos[i].remover((char) valor);
+			if (blocos[i].cardinalidade() == 0) {
+				removerBloco(i);
+			}
+		}
+	}
+
+	public boolean contem(int valor) {
+		int i = indice(valor >>> 16);
+		return i >= 0 && blocos[i].contem((char) valor);
+	}
+
+	public int cardinalidade() {
+		int total = 0;
+		for (int i = 0; i < quantidadeBlocos; i++) {
+			total += blocos[i].cardinalidade();
+		}
+		return total;
+	}
+
+	public boolean vazio() {
+		return quantidadeBlocos == 0;
+	}
+
+	/* em ordem crescente */
+	public void paraCada(IntConsumer acao) {
+		for (int i = 0; i < quantidadeBlocos; i++) {
+			int alto = chaves[i] << 16;
+			blocos[i].paraCada(baixo -> acao.accept(alto | baixo));
+		}
+	}
+
+	public BitmapCompactado e(BitmapCompactado outro) {
+		BitmapCompactado resultado = new BitmapCompactado();
+		int i = 0;
+		int j = 0;
+		while (i < quantidadeBlocos && j < outro.quantidadeBlocos) {
+			if (chaves[i] < outro.chaves[j]) {
+				i++;
+			} else if (chaves[i] > outro.chaves[j]) {
+				j++;
+			} else {
+				resultado.anexarBloco(chaves[i], blocos[i++].e(outro.blocos[j++]));
+			}
+		}
+		return resultado;
+	}
+
+	public BitmapCompactado ou(BitmapCompactado outro) {
+		BitmapCompactado resultado = new BitmapCompactado();
+		int i = 0;
+		int j = 0;
+		while (i < quantidadeBlocos || j < outro.quantidadeBlocos) {
+			if (j == outro.quantidadeBlocos || (i < quantidadeBlocos && chaves[i] < outro.chaves[j])) {
+				resultado.anexarBloco(chaves[i], blocos[i++].copia());
+			} else if (i == quantidadeBlocos || chaves[i] > outro.chaves[j]) {
+				resultado.anexarBloco(outro.chaves[j], outro.blocos[j++].copia());
+			} else {
+				resultado.anexarBloco(chaves[i], blocos[i++].ou(outro.blocos[j++]));
+			}
+		}
+		return resultado;
+	}
+
+	/* valores deste bitmap que nao estao no outro */
+	public BitmapCompactado exceto(BitmapCompactado outro) {
+		BitmapCompactado resultado = new BitmapCompactado();
+		int j = 0;
+		for (int i = 0; i < quantidadeBlocos; i++) {
+			while (j < outro.quantidadeBlocos && outro.chaves[j] < chaves[i]) {
+				j++;
+			}
+			boolean emAmbos = j < outro.quantidadeBlocos && outro.chaves[j] == chaves[i];
+			resultado.anexarBloco(chaves[i], emAmbos ? blocos[i].exceto(outro.blocos[j]) : blocos[i].copia());
+		}
+		return resultado;
+	}
+
+	public BitmapCompactado copia() {
+		return ou(new BitmapCompactado());
+	}
+
+	/* memoria aproximada dos blocos, para as metricas */
+	public long bytes() {
+		long total = chaves.length * 4L + blocos.length * 8L;
+		for (int i = 0; i < quantidadeBlocos; i++) {
+			total += blocos[i].bytes();
+		}
+		return total;
+	}
+
+	private int indice(int chave) {
+		return Arrays.binarySearch(chaves, 0, quantidadeBlocos, chave);
+	}
+
+	private void inserirBloco(int posicao, int chave, Bloco bloco) {
+		if (quantidadeBlocos == chaves.length) {
+			chaves = Arrays.copyOf(chaves, chaves.length * 2);
+			blocos = Arrays.copyOf(blocos, blocos.length * 2);
+		}
+		System.arraycopy(chaves, posicao, chaves, posicao + 1, quantidadeBlocos - posicao);
+		System.arraycopy(blocos, posicao, blocos, posicao + 1, quantidadeBlocos - posicao);
+		chaves[posicao] = chave;
+		blocos[posicao] = bloco;
+		quantidadeBlocos++;
+	}
+
+	private void removerBloco(int posicao) {
+		System.arraycopy(chaves, posicao + 1, chaves, posicao, quantidadeBlocos - posicao - 1);
+		System.arraycopy(blocos, posicao + 1, blocos, posicao, quantidadeBlocos - posicao - 1);
+		blocos[--quantidadeBlocos] = null;
+	}
+
+	/* chaves chegam em ordem crescente; blocos vazios sao descartados */
+	private void anexarBloco(int chave, Bloco bloco) {
+		if (bloco.cardinalidade() > 0) {
+			inserirBloco(quantidadeBlocos, chave, bloco);
+		}
+	}
+
+	private static Bloco deBits(long[] palavras) {
+		int cardinalidade = 0;
+		for (long palavra : palavras) {
+			cardinalidade += Long.bitCount(palavra);
+		}
+		if (cardinalidade > LIMITE_ARRAY) {
+			return new BlocoBits(palavras, cardinalidade);
+		}
+		BlocoArray array = new BlocoArray(cardinalidade);
+		for (int p = 0; p < PALAVRAS; p++) {
+			long palavra = palavras[p];
+			while (palavra != 0) {
+				array.valores[array.tamanho++] = (char) (p * 64 + Long.numberOfTrailingZeros(palavra));
+				palavra &= palavra - 1;
+			}
+		}
+		return array;
+	}
+
+	private abstract static class Bloco {
+
+		abstract Bloco adicionar(char valor);
+
+		abstract Bloco remover(char valor);
+
+		abstract boolean contem(char valor);
+
+		abstract int cardinalidade();
+
+		abstract void paraCada(IntConsumer acao);
+
+		abstract long[] bits(); // copia em mapa de bits
+
+		abstract Bloco copia();
+
+		abstract long bytes();
+
+		Bloco e(Bloco outro) {
+			if (this instanceof BlocoArray || outro instanceof BlocoArray) {
+				BlocoArray array = (BlocoArray) (this instanceof BlocoArray ? this : outro);
+				Bloco teste = array == this ? outro : this;
+				BlocoArray resultado = new BlocoArray(array.tamanho);
+				for (int i = 0; i < array.tamanho; i++) {
+					if (teste.contem(array.valores[i])) {
+						resultado.valores[resultado.tamanho++] = array.valores[i];
+					}
+				}
+				return resultado;
+			}
+			long[] palavras = bits();
+			long[] outras = ((BlocoBits) outro).palavras;
+			for (int p = 0; p < PALAVRAS; p++) {
+				palavras[p] &= outras[p];
+			}
+			return deBits(palavras);
+		}
+
+		Bloco ou(Bloco outro) {
+			long[] palavras = bits();
+			outro.paraCada(valor -> palavras[valor >>> 6] |= 1L << valor);
+			return deBits(palavras);
+		}
+
+		Bloco exceto(Bloco outro) {
+			if (this instanceof BlocoArray) {
+				BlocoArray array = (BlocoArray) this;
+				BlocoArray resultado = new BlocoArray(array.tamanho);
+				for (int i = 0; i < array.tamanho; i++) {
+					if (!outro.contem(array.valores[i])) {
+						resultado.valores[resultado.tamanho++] = array.valores[i];
+					}
+				}
+				return resultado;
+			}
+			long[] palavras = bits();
+			outro.paraCada(valor -> palavras[valor >>> 6] &= ~(1L << valor));
+			return deBits(palavras);
+		}
+
+	}
+
+	private static final class BlocoArray extends Bloco {
+
+		private char[] valores;
+
+		private int tamanho;
+
+		BlocoArray() {
+			this(4);
+		}
+
+		BlocoArray(int capacidade) {
+			this.valores = new char[Math.max(capacidade, 1)];
+		}
+
+		@Override
+		Bloco adicionar(char valor) {
+			int i = Arrays.binarySearch(valores, 0, tamanho, valor);
+			if (i >= 0) {
+				return this;
+			}
+			if (tamanho == LIMITE_ARRAY) {
+				long[] palavras = bits();
+				palavras[valor >>> 6] |= 1L << valor;
+				return new BlocoBits(palavras, tamanho + 1);
+			}
+			i = -i - 1;
+			if (tamanho == valores.length) {
+				valores = Arrays.copyOf(valores, Math.min(valores.length * 2, LIMITE_ARRAY));
+			}
+			System.arraycopy(valores, i, valores, i + 1, tamanho - i);
+			valores[i] = valor;
+			tamanho++;
+			return this;
+		}
+
+		@Override
+		Bloco remover(char valor) {
+			int i = Arrays.binarySearch(valores, 0, tamanho, valor);
+			if (i >= 0) {
+				System.arraycopy(valores, i + 1, valores, i, tamanho - i - 1);
+				tamanho--;
+			}
+			return this;
+		}
+
+		@Override
+		boolean contem(char valor) {
+			return Arrays.binarySearch(valores, 0, tamanho, valor) >= 0;
+		}
+
+		@Override
+		int cardinalidade() {
+			return tamanho;
+		}
+
+		@Override
+		void paraCada(IntConsumer acao) {
+			for (int i = 0; i < tamanho; i++) {
+				acao.accept(valores[i]);
+			}
+		}
+
+		@Override
+		long[] bits() {
+			long[] palavras = new long[PALAVRAS];
+			for (int i = 0; i < tamanho; i++) {
+				palavras[valores[i] >>> 6] |= 1L << valores[i];
+			}
+			return palavras;
+		}
+
+		@Override
+		Bloco copia() {
+			BlocoArray copia = new BlocoArray(tamanho);
+			System.arraycopy(valores, 0, copia.valores, 0, tamanho);
+			copia.tamanho = tamanho;
+			return copia;
+		}
+
+		@Override
+		long bytes() {
+			return 16 + valores.length * 2L;
+		}
+
+	}
+
+	private static final class BlocoBits extends Bloco {
+
+		private final long[] palavras;
+
+		private int cardinalidade;
+
+		BlocoBits(long[] palavras, int cardinalidade) {
+			this.palavras = palavras;
+			this.cardinalidade = cardinalidade;
+		}
+
+		@Override
+		Bloco adicionar(char valor) {
+			long antes = palavras[valor >>> 6];
+			palavras[valor >>> 6] = antes | 1L << valor;
+			if (antes != palavras[valor >>> 6]) {
+				cardinalidade++;
+			}
+			return this;
+		}
+
+		@Override
+		Bloco remover(char valor) {
+			long antes = palavras[valor >>> 6];
+			palavras[valor >>> 6] = antes & ~(1L << valor);
+			if (antes != palavras[valor >>> 6]) {
+				cardinalidade--;
+			}
+			return cardinalidade <= LIMITE_ARRAY ? deBits(palavras) : this;
+		}
+
+		@Override
+		boolean contem(char valor) {
+			return (palavras[valor >>> 6] & 1L << valor) != 0;
+		}
+
+		@Override
+		int cardinalidade() {
+			return cardinalidade;
+		}
+
+		@Override
+		void paraCada(IntConsumer acao) {
+			for (int p = 0; p < PALAVRAS; p++) {
+				long palavra = palavras[p];
+				while (palavra != 0) {
+					acao.accept(p * 64 + Long.numberOfTrailingZeros(palavra));
+					palavra &= palavra - 1;
+				}
+			}
+		}
+
+		@Override
+		long[] bits() {
+			return palavras.clone();
+		}
+
+		@Override
+		Bloco copia() {
+			return new BlocoBits(palavras.clone(), cardinalidade);
+		}
+
+		@Override
+		long bytes() {
+			return 16 + PALAVRAS * 8L;
+		}
+
+	}
+
+}
@@ -0,0 +1,35 @@
+package com.dlima.myfinancas.service.tags;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/* Lancamentos com todas as tags de todas, com ao menos uma de algumas e sem nenhuma de nenhuma */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class ConsultaTags {
+
+	private final Set<String> todas;
+
+	private final Set<String> algumas;
+
+	private final Set<String> nenhuma;
+
+	public static ConsultaTags de(Collection<String> todas, Collection<String> algumas, Collection<String> nenhuma) {
+		return new ConsultaTags(normalizadas(todas), normalizadas(algumas), normalizadas(nenhuma));
+	}
+
+	public boolean vazia() {
+		return todas.isEmpty() && algumas.isEmpty() && nenhuma.isEmpty();
+	}
+
+	private static Set<String> normalizadas(Collection<String> tags) {
+		Set<String> normalizadas = IndiceTags.normalizar(tags);
+		return normalizadas == null ? Collections.emptySet() : normalizadas;
+	}
+
+}
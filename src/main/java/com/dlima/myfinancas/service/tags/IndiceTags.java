@@ -0,0 +1,398 @@
+package com.dlima.myfinancas.service.tags;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.dlima.myfinancas.api.dto.TotalTagDTO;
+import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.enums.StatusLancamento;
+import com.dlima.myfinancas.model.enums.TipoLancamento;
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.model.repository.LancamentoRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/*
+ * Por usuario, os lancamentos numerados em ordem de id (ordinal = posicao em ids) e, para
+ * cada tag, o BitmapCompactado dos ordinais que a tem. Consultas E/OU/NAO sao operacoes
+ * entre bitmaps; os totais por tag somam colunas primitivas pelos ordinais, sem ir ao banco.
+ *
+ * Carregado na primeira consulta do usuario (ate indice-usuarios, LRU) e mantido pelas
+ * escritas do LancamentoServiceImpl apos o commit. Ordinais removidos nao sao reaproveitados:
+ * quando passam da metade, o indice e descartado e recarregado. Cobre as escritas desta
+ * instancia, como o CacheBuscaLancamento: as de outras instancias aparecem quando o indice
+ * vence (indice-validade-ms) e e recarregado na consulta seguinte.
+ */
+@Component
+public class IndiceTags implements MeterBinder {
+
+	public static final int MAXIMO_TAGS = 20;
+
+	public static final int TAMANHO_TAG = 50;
+
+	private static final byte RECEITA = (byte) TipoLancamento.RECEITA.ordinal();
+
+	private static final byte CANCELADO = (byte) StatusLancamento.CANCELADO.ordinal();
+
+	private final LancamentoRepository repository;
+
+	private final int maximoUsuarios;
+
+	private final long validadeMs;
+
+	private final LongSupplier relogio;
+
+	private final LinkedHashMap<Long, IndiceUsuario> indices = new LinkedHashMap<>(16, 0.75f, true); // ordem de acesso
+
+	private final Map<Long, Long> geracoes = new HashMap<>(); // escritas aplicadas por usuario, protegido por indices
+
+	private final LongAdder carregamentos = new LongAdder();
+
+	@Autowired
+	public IndiceTags(LancamentoRepository repository, 
+			@Value("${myfinancas.tags.indice-usuarios:1000}") int maximoUsuarios,
+			@Value("${myfinancas.tags.indice-validade-ms:30000}") long validadeMs) {
+		this(repository, maximoUsuarios, validadeMs, System::currentTimeMillis);
+	}
+
+	IndiceTags(LancamentoRepository repository, int maximoUsuarios, long validadeMs, LongSupplier relogio) {
+		this.repository = repository;
+		this.maximoUsuarios = maximoUsuarios;
+		this.validadeMs = validadeMs;
+		this.relogio = relogio;
+	}
+
+	/* minusculas, sem espacos nas pontas, sem vazias; null se nao sobrar nenhuma */
+	public static Set<String> normalizar(Collection<String> tags) {
+		if (tags == null) {
+			return null;
+		}
+		Set<String> normalizadas = tags.stream()
+				.filter(tag -> tag != null && !tag.trim().isEmpty())
+				.map(tag -> tag.trim().toLowerCase(Locale.ROOT))
+				.collect(Collectors.toCollection(TreeSet::new));
+		return normalizadas.isEmpty() ? null : normalizadas;
+	}
+
+	/* para filtrar lancamentos do usuario (como os de buscar) pela consulta */
+	public Predicate<Lancamento> filtro(Long idUsuario, ConsultaTags consulta) {
+		IndiceUsuario indice = indice(idUsuario);
+		BitmapCompactado encontrados;
+		long[] ids;
+		int quantidade;
+		synchronized (indice) {
+			encontrados = indice.avaliar(consulta);
+			ids = indice.ids; // posicoes abaixo de quantidade nao mudam mais
+			quantidade = indice.quantidade;
+		}
+		return lancamento -> {
+			int ordinal = Arrays.binarySearch(ids, 0, quantidade, lancamento.getId());
+			return ordinal >= 0 && encontrados.contem(ordinal);
+		};
+	}
+
+	/* receitas e despesas por tag, sem os cancelados (ou so do status informado); ano e mes opcionais */
+	public List<TotalTagDTO> totais(Long idUsuario, Integer ano, Integer mes, StatusLancamento status) {
+		IndiceUsuario indice = indice(idUsuario);
+		List<TotalTagDTO> totais = new ArrayList<>();
+		synchronized (indice) {
+			for (Map.Entry<String, BitmapCompactado> tag : new TreeMap<>(indice.porTag).entrySet()) {
+				long[] soma = new long[3]; // quantidade, receitas, despesas
+				tag.getValue().paraCada(ordinal -> {
+					if (!indice.doPeriodo(ordinal, ano, mes) 
+							|| (status == null ? indice.status[ordinal] == CANCELADO : indice.status[ordinal] != status.ordinal())) {
+						return;
+					}
+					soma[0]++;
+					soma[indice.tipos[ordinal] == RECEITA ? 1 : 2] += indice.centavos[ordinal];
+				});
+				if (soma[0] > 0) {
+					totais.add(TotalTagDTO.builder()
+							.tag(tag.getKey())
+							.quantidade((int) soma[0])
+							.receitas(Money.ofCents(soma[1]))
+							.despesas(Money.ofCents(soma[2]))
+							.saldo(Money.ofCents(soma[1] - soma[2]))
+							.build());
+				}
+			}
+		}
+		return totais;
+	}
+
+	/* aplicado apos o commit da transacao atual (ou ja, fora de transacao) */
+	public void aoGravar(Long idUsuario, Collection<Lancamento> lancamentos) {
+		List<Linha> linhas = lancamentos.stream().map(Linha::new).collect(Collectors.toList()); // valores de agora
+		aposCommit(() -> aplicar(idUsuario, indice -> linhas.stream().allMatch(indice::gravar)));
+	}
+
+	public void aoRemover(Long idUsuario, Collection<Long> ids) {
+		List<Long> removidos = new ArrayList<>(ids);
+		aposCommit(() -> aplicar(idUsuario, indice -> removidos.stream().allMatch(indice::remover)));
+	}
+
+	public int usuariosCarregados() {
+		synchronized (indices) {
+			return indices.size();
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("myfinancas.tags.indice.usuarios", this, IndiceTags::usuariosCarregados).register(registry);
+		FunctionCounter.builder("myfinancas.tags.indice.carregamentos", carregamentos, LongAdder::sum)
+				.description("indices de usuario lidos do banco").register(registry);
+	}
+
+	private static void aposCommit(Runnable acao) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			acao.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCommit() {
+				acao.run();
+			}
+		});
+	}
+
+	private void aplicar(Long idUsuario, Predicate<IndiceUsuario> alteracao) {
+		IndiceUsuario indice;
+		synchronized (indices) {
+			geracoes.merge(idUsuario, 1L, Long::sum); // um carregamento em andamento nao sera guardado
+			indice = indices.get(idUsuario);
+		}
+		if (indice == null) {
+			return;
+		}
+		boolean aplicada;
+		synchronized (indice) {
+			aplicada = alteracao.test(indice);
+		}
+		if (!aplicada) {
+			synchronized (indices) {
+				indices.remove(idUsuario, indice); // recarregado na proxima consulta
+			}
+		}
+	}
+
+	private IndiceUsuario indice(Long idUsuario) {
+		synchronized (indices) {
+			IndiceUsuario indice = indices.get(idUsuario);
+			if (indice != null && relogio.getAsLong() < indice.validoAte) {
+				return indice;
+			}
+			if (indice != null) {
+				indices.remove(idUsuario);
+			}
+		}
+		IndiceUsuario carregado = null;
+		for (int tentativa = 0; tentativa < 3; tentativa++) {
+			long geracao = geracao(idUsuario);
+			carregado = carregar(idUsuario);
+			synchronized (indices) {
+				// so guarda se nenhuma escrita foi aplicada durante a leitura
+				if (geracao == geracoes.getOrDefault(idUsuario, 0L)) {
+					indices.put(idUsuario, carregado);
+					Iterator<Long> menosUsados = indices.keySet().iterator();
+					while (indices.size() > maximoUsuarios) {
+						menosUsados.next();
+						menosUsados.remove();
+					}
+					return carregado;
+				}
+			}
+		}
+		return carregado; // escritas seguidas: responde com a leitura mais recente sem guardar
+	}
+
+	private long geracao(Long idUsuario) {
+		synchronized (indices) {
+			return geracoes.getOrDefault(idUsuario, 0L);
+		}
+	}
+
+	private IndiceUsuario carregar(Long idUsuario) {
+		carregamentos.increment();
+		List<Object[]> linhas = repository.obterColunasTagsPorUsuario(idUsuario);
+		IndiceUsuario indice = new IndiceUsuario(linhas.size(), relogio.getAsLong() + validadeMs);
+		for (Object[] linha : linhas) {
+			indice.gravar(new Linha(linha));
+		}
+		return indice;
+	}
+
+	private static final class Linha {
+
+		private final long id;
+		private final long centavos;
+		private final int periodo;
+		private final byte tipo;
+		private final byte status;
+		private final Set<String> tags;
+
+		Linha(Lancamento lancamento) {
+			this(new Object[] { lancamento.getId(), lancamento.getValor(), lancamento.getAno(), lancamento.getMes(),
+					lancamento.getTipo(), lancamento.getStatus(), lancamento.getTags() });
+		}
+
+		/* id, valor, ano, mes, tipo, status, tags */
+		@SuppressWarnings("unchecked")
+		Linha(Object[] colunas) {
+			this.id = (Long) colunas[0];
+			this.centavos = colunas[1] == null ? 0 : ((Money) colunas[1]).cents();
+			this.periodo = colunas[2] == null || colunas[3] == null ? -1 : (Integer) colunas[2] * 12 + (Integer) colunas[3] - 1;
+			this.tipo = colunas[4] == null ? -1 : (byte) ((TipoLancamento) colunas[4]).ordinal();
+			this.status = colunas[5] == null ? -1 : (byte) ((StatusLancamento) colunas[5]).ordinal();
+			Set<String> tags = (Set<String>) colunas[6];
+			this.tags = tags == null ? null : new TreeSet<>(tags);
+		}
+
+	}
+
+	private static final class IndiceUsuario {
+
+		private long[] ids;
+		private long[] centavos;
+		private int[] periodos; // ano * 12 + (mes - 1); -1 sem periodo
+		private byte[] tipos;
+		private byte[] status;
+		private int quantidade;
+		private int removidos;
+
+		private final Map<String, BitmapCompactado> porTag = new HashMap<>();
+
+		private final BitmapCompactado vivos = new BitmapCompactado();
+
+		private final long validoAte;
+
+		IndiceUsuario(int capacidade, long validoAte) {
+			this.validoAte = validoAte;
+			capacidade = Math.max(capacidade, 16);
+			ids = new long[capacidade];
+			centavos = new long[capacidade];
+			periodos = new int[capacidade];
+			tipos = new byte[capacidade];
+			status = new byte[capacidade];
+		}
+
+		/* false quando o indice precisa ser recarregado */
+		boolean gravar(Linha linha) {
+			int ordinal = Arrays.binarySearch(ids, 0, quantidade, linha.id);
+			if (ordinal < 0) {
+				if (quantidade > 0 && linha.id < ids[quantidade - 1]) {
+					return false; // id fora de ordem: os ordinais deixariam de seguir os ids
+				}
+				ordinal = anexar(linha.id);
+				vivos.adicionar(ordinal);
+			} else {
+				if (!vivos.contem(ordinal)) {
+					return false;
+				}
+				retirarTags(ordinal);
+			}
+			centavos[ordinal] = linha.centavos;
+			periodos[ordinal] = linha.periodo;
+			tipos[ordinal] = linha.tipo;
+			status[ordinal] = linha.status;
+			if (linha.tags != null) {
+				for (String tag : linha.tags) {
+					porTag.computeIfAbsent(tag, t -> new BitmapCompactado()).adicionar(ordinal);
+				}
+			}
+			return true;
+		}
+
+		boolean remover(Long id) {
+			int ordinal = Arrays.binarySearch(ids, 0, quantidade, id);
+			if (ordinal >= 0 && vivos.contem(ordinal)) {
+				vivos.remover(ordinal);
+				retirarTags(ordinal);
+				removidos++;
+			}
+			return removidos <= 1024 || removidos * 2 <= quantidade;
+		}
+
+		BitmapCompactado avaliar(ConsultaTags consulta) {
+			BitmapCompactado resultado = vivos;
+			for (String tag : consulta.getTodas()) {
+				resultado = resultado.e(bitmap(tag));
+			}
+			if (!consulta.getAlgumas().isEmpty()) {
+				BitmapCompactado alguma = new BitmapCompactado();
+				for (String tag : consulta.getAlgumas()) {
+					alguma = alguma.ou(bitmap(tag));
+				}
+				resultado = resultado.e(alguma);
+			}
+			for (String tag : consulta.getNenhuma()) {
+				resultado = resultado.exceto(bitmap(tag));
+			}
+			return resultado == vivos ? vivos.copia() : resultado;
+		}
+
+		boolean doPeriodo(int ordinal, Integer ano, Integer mes) {
+			if (ano == null) {
+				return true;
+			}
+			int periodo = periodos[ordinal];
+			return mes == null ? periodo >= 0 && periodo / 12 == ano : periodo == ano * 12 + mes - 1;
+		}
+
+		private BitmapCompactado bitmap(String tag) {
+			BitmapCompactado bitmap = porTag.get(tag);
+			return bitmap == null ? new BitmapCompactado() : bitmap;
+		}
+
+		private void retirarTags(int ordinal) {
+			Iterator<BitmapCompactado> bitmaps = porTag.values().iterator();
+			while (bitmaps.hasNext()) {
+				BitmapCompactado bitmap = bitmaps.next();
+				bitmap.remover(ordinal);
+				if (bitmap.vazio()) {
+					bitmaps.remove();
+				}
+			}
+		}
+
+		private int anexar(long id) {
+			if (quantidade == ids.length) {
+				int capacidade = ids.length * 2;
+				// um novo array: quem leu ids antes continua com as posicoes que conhecia
+				ids = Arrays.copyOf(ids, capacidade);
+				centavos = Arrays.copyOf(centavos, capacidade);
+				periodos = Arrays.copyOf(periodos, capacidade);
+				tipos = Arrays.copyOf(tipos, capacidade);
+				status = Arrays.copyOf(status, capacidade);
+			}
+			ids[quantidade] = id;
+			return quantidade++;
+		}
+
+	}
+
+}
@@ -0,0 +1,40 @@
+package com.dlima.myfinancas.sharding;
+
+import java.util.function.Supplier;
+
+/* Shard da operacao corrente, lido pelo DataSourceShards ao abrir a conexao */
+public final class ContextoShard {
+	
+	private static final ThreadLocal<Integer> ATUAL = new ThreadLocal<>();
+	
+	private ContextoShard() {
+	}
+	
+	public static Integer atual() {
+		return ATUAL.get();
+	}
+	
+	public static <T> T executar(int shard, Supplier<T> operacao) {
+		Integer anterior = definir(shard);
+		try {
+			return operacao.get();
+		} finally {
+			restaurar(anterior);
+		}
+	}
+	
+	static Integer definir(int shard) {
+		Integer anterior = ATUAL.get();
+		ATUAL.set(shard);
+		return anterior;
+	}
+	
+	static void restaurar(Integer anterior) {
+		if (anterior == null) {
+			ATUAL.remove();
+		} else {
+			ATUAL.set(anterior);
+		}
+	}
+
+}
@@ -0,0 +1,13 @@
+package com.dlima.myfinancas.sharding;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/* Sem shard no contexto (ex.: inicializacao do Hibernate) usa o DataSource padrao, o shard 0 */
+public class DataSourceShards extends AbstractRoutingDataSource {
+	
+	@Override
+	protected Object determineCurrentLookupKey() {
+		return ContextoShard.atual();
+	}
+
+}
@@ -0,0 +1,26 @@
+package com.dlima.myfinancas.sharding;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+
+import lombok.Data;
+
+/* myfinancas.sharding.* */
+@Data
+public class PropriedadesSharding {
+	
+	private boolean habilitado;
+	
+	/*
+	 * Passo das sequences de id em todos os shards: o shard k gera k + 1, k + 1 + intervalo, ...
+	 * Limita a quantidade de shards e nao pode mudar depois que houver dados.
+	 */
+	private int intervaloIds = 64;
+	
+	private int nosVirtuais = 128;
+	
+	private List<DataSourceProperties> shards = new ArrayList<>();
+
+}
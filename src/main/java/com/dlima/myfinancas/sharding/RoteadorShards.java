@@ -0,0 +1,173 @@
+package com.dlima.myfinancas.sharding;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.dlima.myfinancas.event.LancamentoAlteradoEvent;
+import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.entity.Orcamento;
+import com.dlima.myfinancas.model.entity.Usuario;
+import com.dlima.myfinancas.model.repository.FiltroLancamento;
+
+/*
+ * Decide o shard de cada operacao.
+ *
+ * - Ids (de usuario ou de lancamento) carregam o shard: as sequences de cada shard sao
+ *   intercaladas (shard k gera k + 1, k + 1 + intervalo, ...), entao id - 1 mod intervalo e o shard.
+ * - Usuarios novos vao para o shard do email num anel de hash consistente; incluir um shard
+ *   no anel muda o destino de poucos emails e nenhum usuario existente precisa ser movido.
+ * - Um email e procurado primeiro no shard do anel e depois nos demais, pois o usuario pode ter
+ *   sido criado antes de o anel mudar. No cadastro, um email que o filtro de emails garante
+ *   nunca ter visto vai direto para o shard do anel, sem procurar nos shards.
+ */
+public class RoteadorShards implements Closeable {
+	
+	private final int intervaloIds;
+	
+	private final List<DataSource> dataSources;
+	
+	private final List<JdbcTemplate> shards = new ArrayList<>();
+	
+	private final TreeMap<Integer, Integer> anel = new TreeMap<>();
+	
+	private Predicate<String> emailPodeExistir = email -> true;
+	
+	public RoteadorShards(List<DataSource> dataSources, int intervaloIds, int nosVirtuais) {
+		if (dataSources.isEmpty() || dataSources.size() > intervaloIds) {
+			throw new IllegalArgumentException("Configure entre 1 e " + intervaloIds + " shards.");
+		}
+		this.intervaloIds = intervaloIds;
+		this.dataSources = dataSources;
+		for (int shard = 0; shard < dataSources.size(); shard++) {
+			shards.add(new JdbcTemplate(dataSources.get(shard)));
+			for (int no = 0; no < nosVirtuais; no++) {
+				anel.put(hash("shard-" + shard + "#" + no), shard);
+			}
+		}
+	}
+	
+	public void setEmailPodeExistir(Predicate<String> emailPodeExistir) {
+		this.emailPodeExistir = emailPodeExistir;
+	}
+	
+	public int quantidade() {
+		return shards.size();
+	}
+	
+	public DataSource getDataSource(int shard) {
+		return dataSources.get(shard);
+	}
+	
+	public int shardDoId(long id) {
+		int shard = (int) ((id - 1) % intervaloIds);
+		if (id < 1 || shard >= shards.size()) {
+			throw new IllegalArgumentException("Id " + id + " não pertence a nenhum shard configurado.");
+		}
+		return shard;
+	}
+	
+	public int shardDoEmail(String email) {
+		Map.Entry<Integer, Integer> no = anel.ceilingEntry(hash(email));
+		return (no != null ? no : anel.firstEntry()).getValue();
+	}
+	
+	/* shard onde o email ja esta cadastrado ou, se nao estiver em nenhum, o shard do anel */
+	public int localizarEmail(String email) {
+		int preferido = shardDoEmail(email);
+		if (existeEmail(preferido, email)) {
+			return preferido;
+		}
+		for (int shard = 0; shard < shards.size(); shard++) {
+			if (shard != preferido && existeEmail(shard, email)) {
+				return shard;
+			}
+		}
+		return preferido;
+	}
+	
+	/*
+	 * Shard pelo primeiro argumento de um metodo de servico; null quando o argumento nao identifica
+	 * o usuario ou traz um id que nao existe em nenhum shard (a consulta vai ao shard padrao e nao acha nada).
+	 */
+	public Integer resolver(Object argumento) {
+		if (argumento instanceof Long) {
+			return shardValido((Long) argumento);
+		}
+		if (argumento instanceof Lancamento) {
+			Lancamento lancamento = (Lancamento) argumento;
+			if (lancamento.getUsuario() != null && lancamento.getUsuario().getId() != null) {
+				return shardValido(lancamento.getUsuario().getId());
+			}
+			return lancamento.getId() != null ? shardValido(lancamento.getId()) : null;
+		}
+		if (argumento instanceof Usuario) {
+			Usuario usuario = (Usuario) argumento;
+			if (usuario.getId() != null) {
+				return shardValido(usuario.getId());
+			}
+			if (usuario.getEmail() == null) {
+				return null;
+			}
+			// cadastro: sem o email no filtro, nenhum shard o tem
+			return emailPodeExistir.test(usuario.getEmail()) ? localizarEmail(usuario.getEmail()) : shardDoEmail(usuario.getEmail());
+		}
+		if (argumento instanceof Orcamento) {
+			Long idUsuario = ((Orcamento) argumento).getIdUsuario();
+			return idUsuario != null ? shardValido(idUsuario) : null;
+		}
+		if (argumento instanceof FiltroLancamento) {
+			Long idUsuario = ((FiltroLancamento) argumento).getIdUsuario();
+			return idUsuario != null ? shardValido(idUsuario) : null;
+		}
+		if (argumento instanceof LancamentoAlteradoEvent) { // listeners chamados fora de um servico roteado
+			Long idUsuario = ((LancamentoAlteradoEvent) argumento).getIdUsuario();
+			return idUsuario != null ? shardValido(idUsuario) : null;
+		}
+		if (argumento instanceof String) { // email: autenticar e validarEmail
+			return localizarEmail((String) argumento);
+		}
+		return null;
+	}
+	
+	private Integer shardValido(long id) {
+		int shard = (int) ((id - 1) % intervaloIds);
+		return id >= 1 && shard < shards.size() ? shard : null;
+	}
+	
+	private boolean existeEmail(int shard, String email) {
+		return !shards.get(shard)
+				.queryForList("SELECT 1 FROM financas.usuario WHERE email = ?", Integer.class, email)
+				.isEmpty();
+	}
+	
+	@Override
+	public void close() throws IOException {
+		for (DataSource dataSource : dataSources) {
+			if (dataSource instanceof Closeable) {
+				((Closeable) dataSource).close();
+			}
+		}
+	}
+	
+	private static int hash(String chave) {
+		try {
+			byte[] md5 = MessageDigest.getInstance("MD5").digest(chave.getBytes(StandardCharsets.UTF_8));
+			return (md5[0] & 0xff) << 24 | (md5[1] & 0xff) << 16 | (md5[2] & 0xff) << 8 | (md5[3] & 0xff);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
@@ -0,0 +1,43 @@
+package com.dlima.myfinancas.sharding;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+/*
+ * Define o shard antes de qualquer metodo publico dos servicos, por fora do @Transactional:
+ * a conexao da transacao ja e aberta no shard certo. Chamadas aninhadas mantem o shard
+ * de quem chamou.
+ */
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RoteamentoShardAspect {
+	
+	private final RoteadorShards roteador;
+	
+	public RoteamentoShardAspect(RoteadorShards roteador) {
+		this.roteador = roteador;
+	}
+	
+	@Around("execution(public * com.dlima.myfinancas.service..*Service+.*(..))")
+	public Object rotear(ProceedingJoinPoint chamada) throws Throwable {
+		Object[] argumentos = chamada.getArgs();
+		if (ContextoShard.atual() != null || argumentos.length == 0) {
+			return chamada.proceed();
+		}
+		
+		Integer shard = roteador.resolver(argumentos[0]);
+		if (shard == null) {
+			return chamada.proceed();
+		}
+		Integer anterior = ContextoShard.definir(shard);
+		try {
+			return chamada.proceed();
+		} finally {
+			ContextoShard.restaurar(anterior);
+		}
+	}
+
+}
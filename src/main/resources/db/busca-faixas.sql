@@ -0,0 +1,4 @@
+-- Faixas da busca de lancamentos (valorMin/valorMax, dataCadastroDe/dataCadastroAte, tipo, status).
+-- Igualdade em id_usuario (e tipo) seguida da faixa: a busca le so o trecho do indice do usuario.
+CREATE INDEX idx_lancamento_usuario_data_cadastro ON financas.lancamento (id_usuario, data_cadastro);
+CREATE INDEX idx_lancamento_usuario_tipo_valor ON financas.lancamento (id_usuario, tipo, valor);
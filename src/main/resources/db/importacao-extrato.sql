@@ -0,0 +1,5 @@
+-- Importacao de extratos (POST /api/lancamentos/importar).
+-- hash_importacao identifica a linha do extrato que originou o lancamento; reimportar o mesmo
+-- arquivo (ou um periodo sobreposto) nao duplica os lancamentos ja gravados.
+ALTER TABLE financas.lancamento ADD COLUMN hash_importacao varchar(32);
+CREATE INDEX idx_lancamento_usuario_hash_importacao ON financas.lancamento (id_usuario, hash_importacao);
@@ -0,0 +1,49 @@
+-- Tabela de lancamentos particionada por ano (PostgreSQL 11+).
+-- Anos correntes ficam em particoes proprias (lancamento_AAAA); anos encerrados
+-- sao movidos para lancamento_arquivo pelo ArquivamentoLancamentoJob.
+-- Consultas com "ano = ?" sao podadas para uma unica particao.
+
+CREATE TABLE financas.lancamento (
+	id bigserial NOT NULL,
+	descricao varchar(255),
+	mes integer NOT NULL,
+	ano integer NOT NULL,
+	valor bigint, -- centavos (ver db/valor-centavos.sql)
+	tipo varchar(255),
+	status varchar(255),
+	data_cadastro date,
+	id_usuario bigint REFERENCES financas.usuario (id),
+	PRIMARY KEY (id, ano) -- a chave de particionamento deve fazer parte da PK
+) PARTITION BY RANGE (ano);
+
+CREATE INDEX idx_lancamento_usuario_ano_mes ON financas.lancamento (id_usuario, ano, mes);
+CREATE INDEX idx_lancamento_usuario_tipo_status ON financas.lancamento (id_usuario, tipo, status);
+
+-- O arquivo tambem e particionado por ano: arquivar um ano e so desanexar lancamento_AAAA
+-- de lancamento e anexa-la sob lancamento_arquivo, sem copiar linhas.
+CREATE TABLE financas.lancamento_arquivo PARTITION OF financas.lancamento
+	FOR VALUES FROM (MINVALUE) TO (2019) PARTITION BY RANGE (ano);
+CREATE TABLE financas.lancamento_arquivo_antigo PARTITION OF financas.lancamento_arquivo
+	FOR VALUES FROM (MINVALUE) TO (2019);
+
+-- Cada particao folha tem um CHECK igual ao seu intervalo: com ele o ATTACH nao varre as linhas
+CREATE TABLE financas.lancamento_2019 PARTITION OF financas.lancamento FOR VALUES FROM (2019) TO (2020);
+CREATE TABLE financas.lancamento_2020 PARTITION OF financas.lancamento FOR VALUES FROM (2020) TO (2021);
+ALTER TABLE financas.lancamento_arquivo_antigo ADD CONSTRAINT ck_lancamento_arquivo_antigo_ano CHECK (ano < 2019);
+ALTER TABLE financas.lancamento_2019 ADD CONSTRAINT ck_lancamento_2019_ano CHECK (ano >= 2019 AND ano < 2020);
+ALTER TABLE financas.lancamento_2020 ADD CONSTRAINT ck_lancamento_2020_ano CHECK (ano >= 2020 AND ano < 2021);
+
+-- Migracao de uma tabela nao particionada existente:
+-- ALTER TABLE financas.lancamento RENAME TO lancamento_antigo;
+-- (executar o script acima)
+-- INSERT INTO financas.lancamento (id, descricao, mes, ano, valor, tipo, status, data_cadastro, id_usuario)
+--     SELECT id, descricao, mes, ano, valor, tipo, status, data_cadastro, id_usuario FROM financas.lancamento_antigo;
+-- SELECT setval('financas.lancamento_id_seq', (SELECT max(id) FROM financas.lancamento));
+
+-- Migracao de um lancamento_arquivo nao particionado (versao anterior, limite superior AAAA):
+-- ALTER TABLE financas.lancamento DETACH PARTITION financas.lancamento_arquivo;
+-- ALTER TABLE financas.lancamento_arquivo RENAME TO lancamento_arquivo_antigo;
+-- ALTER TABLE financas.lancamento_arquivo_antigo RENAME CONSTRAINT ck_lancamento_arquivo_ano TO ck_lancamento_arquivo_antigo_ano;
+-- CREATE TABLE financas.lancamento_arquivo (LIKE financas.lancamento INCLUDING DEFAULTS INCLUDING CONSTRAINTS) PARTITION BY RANGE (ano);
+-- ALTER TABLE financas.lancamento_arquivo ATTACH PARTITION financas.lancamento_arquivo_antigo FOR VALUES FROM (MINVALUE) TO (AAAA);
+-- ALTER TABLE financas.lancamento ATTACH PARTITION financas.lancamento_arquivo FOR VALUES FROM (MINVALUE) TO (AAAA);
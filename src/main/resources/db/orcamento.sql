@@ -0,0 +1,19 @@
+-- Orcamentos mensais (GET/POST/DELETE /api/orcamentos) e categoria dos lancamentos.
+-- Os resumos passam a ser por categoria ('' para lancamentos sem categoria).
+ALTER TABLE financas.lancamento ADD COLUMN categoria varchar(100);
+
+ALTER TABLE financas.resumo_mensal ADD COLUMN categoria varchar(100) NOT NULL DEFAULT '';
+DROP INDEX financas.idx_resumo_mensal_usuario_ano_mes;
+CREATE UNIQUE INDEX idx_resumo_mensal_usuario_ano_mes ON financas.resumo_mensal (id_usuario, ano, mes, categoria);
+
+CREATE TABLE financas.orcamento
+(
+  id bigserial NOT NULL PRIMARY KEY,
+  id_usuario bigint NOT NULL REFERENCES financas.usuario (id),
+  categoria varchar(100),
+  limite bigint NOT NULL
+);
+-- Um orcamento por categoria: o banco decide a corrida entre dois POSTs da mesma categoria.
+-- NULLs nao se repetem num indice unico, por isso o do mes inteiro tem o seu.
+CREATE UNIQUE INDEX uk_orcamento_usuario_categoria ON financas.orcamento (id_usuario, categoria);
+CREATE UNIQUE INDEX uk_orcamento_usuario_mes ON financas.orcamento (id_usuario) WHERE categoria IS NULL;
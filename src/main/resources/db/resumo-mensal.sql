@@ -0,0 +1,26 @@
+-- Resumos mensais derivados de financas.lancamento e checkpoint dos jobs em lotes.
+-- Depois de criar, rode POST /api/admin/reconstrucao-resumos?reiniciar=true para preencher.
+CREATE TABLE financas.resumo_mensal
+(
+  id bigserial NOT NULL PRIMARY KEY,
+  id_usuario bigint NOT NULL,
+  ano integer NOT NULL,
+  mes integer NOT NULL,
+  receitas_efetivadas bigint,
+  despesas_efetivadas bigint,
+  receitas_pendentes bigint,
+  despesas_pendentes bigint
+);
+CREATE UNIQUE INDEX idx_resumo_mensal_usuario_ano_mes ON financas.resumo_mensal (id_usuario, ano, mes);
+
+CREATE TABLE financas.checkpoint_job
+(
+  nome varchar(100) NOT NULL PRIMARY KEY,
+  situacao varchar(20),
+  ultimo_id_concluido bigint,
+  usuarios_processados bigint,
+  lancamentos_processados bigint,
+  falhas bigint,
+  inicio timestamp,
+  atualizacao timestamp
+);
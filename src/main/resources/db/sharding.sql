@@ -0,0 +1,8 @@
+-- Sharding por usuario (myfinancas.sharding.*): executar em cada shard, com k = indice do shard (0, 1, ...).
+-- Ids intercalados: o shard k gera k + 1, k + 1 + 64, k + 1 + 128, ... e (id - 1) % 64 devolve o shard.
+-- O passo (myfinancas.sharding.intervalo-ids, padrao 64) limita a quantidade de shards e nao pode mudar com dados.
+ALTER SEQUENCE financas.usuario_id_seq INCREMENT BY 64 RESTART WITH :k_mais_1;
+ALTER SEQUENCE financas.lancamento_id_seq INCREMENT BY 64 RESTART WITH :k_mais_1;
+
+-- Migracao de um banco unico existente: ele vira o shard 0 e os ids ja gravados
+-- precisam ser renumerados para (id - 1) % 64 = 0 antes de ativar o roteamento.
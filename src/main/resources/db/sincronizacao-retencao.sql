@@ -0,0 +1,5 @@
+-- Retencao das marcas de exclusao da sincronizacao (ExpurgoRemovidosJob).
+-- As marcas existentes contam a retencao a partir desta migracao.
+ALTER TABLE financas.lancamento_removido ADD COLUMN data_remocao timestamp NOT NULL DEFAULT now();
+CREATE INDEX idx_lancamento_removido_data ON financas.lancamento_removido (data_remocao);
+CREATE INDEX idx_lancamento_removido_sequencia ON financas.lancamento_removido (sequencia_alteracao);
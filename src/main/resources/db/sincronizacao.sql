@@ -0,0 +1,15 @@
+-- Sincronizacao incremental (GET /api/lancamentos/alteracoes).
+-- Cada criacao, atualizacao ou exclusao recebe um valor da sequence; o cliente guarda o ultimo (token).
+CREATE SEQUENCE financas.seq_alteracao_lancamento;
+
+ALTER TABLE financas.lancamento ADD COLUMN sequencia_alteracao bigint;
+UPDATE financas.lancamento SET sequencia_alteracao = nextval('financas.seq_alteracao_lancamento');
+CREATE INDEX idx_lancamento_usuario_sequencia ON financas.lancamento (id_usuario, sequencia_alteracao);
+
+CREATE TABLE financas.lancamento_removido
+(
+  id bigint NOT NULL PRIMARY KEY,
+  id_usuario bigint,
+  sequencia_alteracao bigint
+);
+CREATE INDEX idx_lancamento_removido_usuario_sequencia ON financas.lancamento_removido (id_usuario, sequencia_alteracao);
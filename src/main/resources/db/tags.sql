@@ -0,0 +1,3 @@
+-- Tags dos lancamentos, normalizadas e separadas por virgula ("alimentacao,projeto x").
+-- As consultas por tag nao usam a coluna: o IndiceTags mantem bitmaps por usuario em memoria.
+ALTER TABLE financas.lancamento ADD COLUMN tags varchar(1000);
@@ -0,0 +1,4 @@
+-- Email unico: o banco decide a corrida entre dois cadastros com o mesmo email.
+-- Remova os duplicados antes (SELECT email FROM financas.usuario GROUP BY email HAVING count(*) > 1).
+-- Com sharding, rodar em cada shard; um email novo sempre vai para o shard do anel.
+CREATE UNIQUE INDEX uk_usuario_email ON financas.usuario (email);
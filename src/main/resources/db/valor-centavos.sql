@@ -0,0 +1,3 @@
+-- Lancamento.valor passa a ser Money (long de centavos, ver MoneyConverter).
+-- numeric(19,2) -> bigint: mesma escala de 2 casas, sem perda de precisao.
+ALTER TABLE financas.lancamento ALTER COLUMN valor TYPE bigint USING round(valor * 100)::bigint;
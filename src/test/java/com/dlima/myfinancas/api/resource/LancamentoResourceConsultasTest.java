@@ -0,0 +1,141 @@
+package com.dlima.myfinancas.api.resource;
+
+import java.time.LocalDate;
+import java.util.Collections;
+
+import org.hamcrest.Matchers;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.entity.Usuario;
+import com.dlima.myfinancas.model.repository.LancamentoRepository;
+import com.dlima.myfinancas.model.repository.LancamentoRepositoryTest;
+import com.dlima.myfinancas.model.repository.UsuarioRepository;
+import com.dlima.myfinancas.monitoramento.ConsultasSql;
+
+/* Fixa quantos comandos SQL cada endpoint executa: um N+1 novo quebra o teste */
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@SpringBootTest(properties = "myfinancas.sql.cabecalhos=true")
+@AutoConfigureMockMvc
+public class LancamentoResourceConsultasTest {
+
+	static final String API = "/api/lancamentos";
+
+	@Autowired
+	MockMvc mvc;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@Autowired
+	LancamentoRepository lancamentoRepository;
+
+	Usuario usuario;
+
+	Lancamento lancamento;
+
+	@Before
+	public void setUp() {
+		usuario = usuarioRepository.save(Usuario.builder().nome("usuario").email("consultas"
+				+ System.nanoTime() + "@email.com").senha("senha").build());
+		for (int i = 0; i < 5; i++) {
+			Lancamento novo = LancamentoRepositoryTest.criarLancamento();
+			novo.setUsuario(usuario);
+			lancamento = lancamentoRepository.save(novo);
+		}
+	}
+
+	@Test
+	public void deveObterLancamentoComUmaConsulta() throws Exception {
+		mvc.perform(MockMvcRequestBuilders.get(API + "/" + lancamento.getId()).accept(MediaType.APPLICATION_JSON))
+			.andExpect(MockMvcResultMatchers.status().isOk())
+			.andExpect(ConsultasSql.quantidade(1));
+	}
+
+	@Test
+	public void deveBuscarSemUmaConsultaPorLancamento() throws Exception {
+		mvc.perform(MockMvcRequestBuilders.get(API).param("usuario", usuario.getId().toString())
+				.accept(MediaType.APPLICATION_JSON))
+			.andExpect(MockMvcResultMatchers.status().isOk())
+			.andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(5))
+			.andExpect(ConsultasSql.quantidade(2));
+
+		// repetida: o resultado vem do cache e so o usuario e consultado
+		mvc.perform(MockMvcRequestBuilders.get(API).param("usuario", usuario.getId().toString())
+				.accept(MediaType.APPLICATION_JSON))
+			.andExpect(MockMvcResultMatchers.status().isOk())
+			.andExpect(ConsultasSql.quantidade(1));
+	}
+
+	@Test
+	public void deveBuscarPorFaixasComAsMesmasConsultas() throws Exception {
+		mvc.perform(MockMvcRequestBuilders.get(API).param("usuario", usuario.getId().toString())
+				.param("tipo", "RECEITA").param("valorMin", "10.00").param("valorMax", "10")
+				.param("dataCadastroDe", LocalDate.now().toString())
+				.accept(MediaType.APPLICATION_JSON))
+			.andExpect(MockMvcResultMatchers.status().isOk())
+			.andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(5))
+			.andExpect(ConsultasSql.quantidade(2));
+
+		mvc.perform(MockMvcRequestBuilders.get(API).param("usuario", usuario.getId().toString())
+				.param("valorMin", "10.01")
+				.accept(MediaType.APPLICATION_JSON))
+			.andExpect(MockMvcResultMatchers.status().isOk())
+			.andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(0));
+	}
+
+	@Test
+	public void deveObterVariosLancamentosDoUsuarioComUmaConsulta() throws Exception {
+		Usuario outroUsuario = usuarioRepository.save(Usuario.builder().nome("outro").email("consultas-outro"
+				+ System.nanoTime() + "@email.com").senha("senha").build());
+		Lancamento deOutroUsuario = LancamentoRepositoryTest.criarLancamento();
+		deOutroUsuario.setUsuario(outroUsuario);
+		deOutroUsuario = lancamentoRepository.save(deOutroUsuario);
+		Long primeiro = lancamentoRepository.obterIdsPorUsuarioEPeriodo(usuario.getId(), 2020, 5, PageRequest.of(0, 1)).get(0);
+
+		mvc.perform(MockMvcRequestBuilders.get(API).param("usuario", usuario.getId().toString())
+				.param("ids", lancamento.getId() + "," + deOutroUsuario.getId() + ",0," + primeiro + "," + lancamento.getId())
+				.accept(MediaType.APPLICATION_JSON))
+			.andExpect(MockMvcResultMatchers.status().isOk())
+			.andExpect(MockMvcResultMatchers.jsonPath("$.lancamentos.length()").value(5))
+			.andExpect(MockMvcResultMatchers.jsonPath("$.lancamentos[0].id").value(lancamento.getId().intValue()))
+			.andExpect(MockMvcResultMatchers.jsonPath("$.lancamentos[0].usuario").value(usuario.getId().intValue()))
+			.andExpect(MockMvcResultMatchers.jsonPath("$.lancamentos[0].tipo").value("RECEITA"))
+			.andExpect(MockMvcResultMatchers.jsonPath("$.lancamentos[1]").value(Matchers.nullValue()))
+			.andExpect(MockMvcResultMatchers.jsonPath("$.lancamentos[2]").value(Matchers.nullValue()))
+			.andExpect(MockMvcResultMatchers.jsonPath("$.lancamentos[3].id").value(primeiro.intValue()))
+			.andExpect(MockMvcResultMatchers.jsonPath("$.lancamentos[4].id").value(lancamento.getId().intValue()))
+			.andExpect(MockMvcResultMatchers.jsonPath("$.naoEncontrados").value(
+					Matchers.contains(deOutroUsuario.getId().intValue(), 0)))
+			.andExpect(ConsultasSql.quantidade(1));
+
+		mvc.perform(MockMvcRequestBuilders.get(API).param("usuario", usuario.getId().toString())
+				.param("ids", String.join(",", Collections.nCopies(201, lancamento.getId().toString()))))
+			.andExpect(MockMvcResultMatchers.status().isBadRequest());
+	}
+
+	@Test
+	public void deveAtualizarStatusComQuantidadeFixaDeComandos() throws Exception {
+		// lancamento, valores gravados, bloqueio do usuario e sequencia, merge do lancamento destacado (lancamento e usuario),
+		// bloqueio do resumo, resumo (update e insert do primeiro) e update
+		mvc.perform(MockMvcRequestBuilders.put(API + "/" + lancamento.getId() + "/atualiza-status")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"status\": \"EFETIVADO\"}"))
+			.andExpect(MockMvcResultMatchers.status().isOk())
+			.andExpect(ConsultasSql.quantidade(10));
+	}
+
+}
@@ -1,5 +1,8 @@
 package com.dlima.myfinancas.api.resource;
 
+import java.util.Collections;
+import java.util.Optional;
+
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mockito;
@@ -14,11 +17,16 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import com.dlima.myfinancas.api.dto.DashboardDTO;
 import com.dlima.myfinancas.api.dto.UsuarioDTO;
 import com.dlima.myfinancas.exception.ErroAutenticacao;
 import com.dlima.myfinancas.exception.RegraNegocioException;
 import com.dlima.myfinancas.model.entity.Usuario;
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.service.DashboardService;
+import com.dlima.myfinancas.service.EventosUsuarioService;
 import com.dlima.myfinancas.service.LancamentoService;
 import com.dlima.myfinancas.service.UsuarioService;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -41,6 +49,12 @@ public class UsuarioResourceTest {
 	@MockBean
 	LancamentoService lancamentoService;
 	
+	@MockBean
+	DashboardService dashboardService;
+	
+	@MockBean
+	EventosUsuarioService eventosService;
+	
 	@Test
 	public void deveAutenticarUmUsuario() throws Exception {
 		// cenario
@@ -160,5 +174,80 @@ public class UsuarioResourceTest {
 		;
 		
 	}
+	
+	@Test
+	public void deveObterODashboardDoUsuario() throws Exception {
+		// cenario
+		Usuario usuario = Usuario.builder().id(1l).email("usuario@email.com").build();
+		DashboardDTO dashboard = DashboardDTO.builder()
+				.usuario(usuario)
+				.saldo(Money.of(150))
+				.lancamentosDoMes(Collections.emptyList())
+				.pendentes(Collections.emptyList())
+				.build();
+		
+		Mockito.when(dashboardService.obterDashboard(1l)).thenReturn(Optional.of(dashboard));
+		
+		// execucao e verificacao
+		mvc
+			.perform(MockMvcRequestBuilders.get(API.concat("/1/dashboard")).accept(JSON))
+			.andExpect(MockMvcResultMatchers.status().isOk())
+			.andExpect(MockMvcResultMatchers.jsonPath("usuario.id").value(1))
+			.andExpect(MockMvcResultMatchers.jsonPath("saldo").value(150))
+			.andExpect(MockMvcResultMatchers.jsonPath("pendentes").isEmpty())
+		;
+	}
+	
+	@Test
+	public void deveRetornarNotFoundAoObterDashboardDeUsuarioInexistente() throws Exception {
+		Mockito.when(dashboardService.obterDashboard(1l)).thenReturn(Optional.empty());
+		
+		mvc
+			.perform(MockMvcRequestBuilders.get(API.concat("/1/dashboard")).accept(JSON))
+			.andExpect(MockMvcResultMatchers.status().isNotFound())
+		;
+	}
+	
+	@Test
+	public void deveAbrirOStreamDeEventosDoUsuario() throws Exception {
+		Mockito.when(service.obterPorId(1l)).thenReturn(Optional.of(Usuario.builder().id(1l).build()));
+		Mockito.when(eventosService.assinar(1l)).thenReturn(new SseEmitter());
+		
+		mvc
+			.perform(MockMvcRequestBuilders.get(API.concat("/1/eventos")).accept(MediaType.TEXT_EVENT_STREAM))
+			.andExpect(MockMvcResultMatchers.request().asyncStarted())
+		;
+	}
+	
+	@Test
+	public void deveRetornarNotFoundAoAssinarEventosDeUsuarioInexistente() throws Exception {
+		Mockito.when(service.obterPorId(1l)).thenReturn(Optional.empty());
+		
+		mvc
+			.perform(MockMvcRequestBuilders.get(API.concat("/1/eventos")).accept(MediaType.TEXT_EVENT_STREAM))
+			.andExpect(MockMvcResultMatchers.status().isNotFound())
+		;
+		Mockito.verify(eventosService, Mockito.never()).assinar(1l);
+	}
+	
+	@Test
+	public void deveRetornarNotFoundAoObterExtratoDeUsuarioInexistente() throws Exception {
+		Mockito.when(service.obterPorId(1l)).thenReturn(Optional.empty());
+		
+		mvc
+			.perform(MockMvcRequestBuilders.get(API.concat("/1/extrato")).param("ano", "2020").accept(JSON))
+			.andExpect(MockMvcResultMatchers.status().isNotFound())
+		;
+		Mockito.verify(lancamentoService, Mockito.never())
+			.exportarExtrato(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+	}
+	
+	@Test
+	public void deveRecusarExtratoComMesInvalido() throws Exception {
+		mvc
+			.perform(MockMvcRequestBuilders.get(API.concat("/1/extrato")).param("ano", "2020").param("mes", "13").accept(JSON))
+			.andExpect(MockMvcResultMatchers.status().isBadRequest())
+		;
+	}
 
 }
@@ -0,0 +1,82 @@
+package com.dlima.myfinancas.aquecimento;
+
+import java.time.LocalDate;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.entity.Usuario;
+import com.dlima.myfinancas.model.enums.TipoLancamento;
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.model.repository.UsuarioRepository;
+import com.dlima.myfinancas.service.DashboardService;
+import com.dlima.myfinancas.service.LancamentoService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+		"myfinancas.aquecimento.habilitado=true",
+		"myfinancas.aquecimento.iteracoes=5",
+		"myfinancas.aquecimento.usuarios-ativos=1000" })
+public class AquecimentoTest {
+
+	@Autowired
+	Aquecimento aquecimento;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@Autowired
+	LancamentoService lancamentoService;
+
+	@Autowired
+	DashboardService dashboardService;
+
+	@Autowired
+	MeterRegistry registry;
+
+	@Test
+	public void deveAquecerAntesDeFicarPronto() {
+		Assertions.assertThat(aquecimento.isConcluido()).isTrue();
+		Assertions.assertThat(aquecimento.health().getStatus()).isEqualTo(Status.UP);
+		Assertions.assertThat(aquecimento.getEtapas()).containsOnlyKeys("conexoes", "consultas", "json", "usuarios-ativos");
+		Assertions.assertThat(aquecimento.getEtapas().values()).extracting(Aquecimento.Etapa::getErro).containsOnlyNulls();
+
+		Assertions.assertThat(aquecimento.getEtapas().get("conexoes").getIteracoes()).isEqualTo(2); // OLTP e RELATORIO
+		Assertions.assertThat(aquecimento.getEtapas().get("consultas").getIteracoes()).isEqualTo(5);
+		Assertions.assertThat(aquecimento.getEtapas().get("json").getIteracoes()).isEqualTo(5);
+	}
+
+	@Test
+	public void deveCarregarOsUsuariosMaisAtivosNosCaches() throws Exception {
+		// cenario: um usuario com lancamentos no mes corrente
+		LocalDate hoje = LocalDate.now();
+		Usuario usuario = usuarioRepository.save(Usuario.builder().nome("usuario")
+				.email("aquecimento" + System.nanoTime() + "@email.com").senha("senha").build());
+		lancamentoService.salvar(Lancamento.builder().usuario(usuario).ano(hoje.getYear()).mes(hoje.getMonthValue())
+				.descricao("mercado").tipo(TipoLancamento.DESPESA).valor(Money.of(10)).build());
+
+		// execucao
+		aquecimento.run(null);
+
+		// verificacao: o dashboard do usuario ja encontra as buscas no cache
+		Assertions.assertThat(aquecimento.getEtapas().get("usuarios-ativos").getIteracoes()).isGreaterThanOrEqualTo(1);
+		double acertos = acertosCache();
+		dashboardService.obterDashboard(usuario.getId());
+		Assertions.assertThat(acertosCache()).isGreaterThan(acertos);
+	}
+
+	private double acertosCache() {
+		return registry.get("myfinancas.busca.cache.requisicoes").tag("resultado", "acerto").functionCounter().count();
+	}
+
+}
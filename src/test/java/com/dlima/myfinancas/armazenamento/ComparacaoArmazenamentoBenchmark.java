@@ -0,0 +1,114 @@
+package com.dlima.myfinancas.armazenamento;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.ExampleMatcher.StringMatcher;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.entity.Usuario;
+import com.dlima.myfinancas.model.enums.StatusLancamento;
+import com.dlima.myfinancas.model.enums.TipoLancamento;
+import com.dlima.myfinancas.model.repository.LancamentoRemovidoRepository;
+import com.dlima.myfinancas.model.repository.LancamentoRepository;
+import com.dlima.myfinancas.model.repository.LancamentoRepositoryTest;
+import com.dlima.myfinancas.model.repository.UsuarioRepository;
+
+/*
+ * Mesma carga nos repositorios JPA (H2 em memoria do perfil test) e no armazenamento embarcado.
+ * Fora do surefire por padrao (nome sem Test); rodar com
+ *   mvn test -Dtest=ComparacaoArmazenamentoBenchmark -Dbenchmark.lancamentos=20000
+ * Cada gravacao e confirmada sozinha nos dois lados; o embarcado roda com e sem force.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ComparacaoArmazenamentoBenchmark {
+	
+	private static final int USUARIOS = 20;
+	
+	private static final int LANCAMENTOS = Integer.getInteger("benchmark.lancamentos", 20000);
+	
+	@Autowired
+	LancamentoRepository lancamentoRepository;
+	
+	@Autowired
+	UsuarioRepository usuarioRepository;
+	
+	@Test
+	public void compararH2ComEmbarcado() throws IOException {
+		System.out.printf("%-24s %12s %12s %12s %12s%n", "armazenamento", "gravar", "buscar", "saldo", "atualizar");
+		medir("H2 (JPA)", lancamentoRepository, usuarioRepository);
+		lancamentoRepository.deleteAllInBatch();
+		usuarioRepository.deleteAllInBatch();
+		
+		for (boolean sincronizar : new boolean[] { false, true }) {
+			TemporaryFolder pasta = new TemporaryFolder();
+			pasta.create();
+			try (ArmazenamentoEmbarcado armazenamento = new ArmazenamentoEmbarcado(pasta.getRoot().toPath(), sincronizar)) {
+				medir(sincronizar ? "embarcado (force)" : "embarcado",
+						new LancamentoRepositoryEmbarcado(armazenamento, Mockito.mock(LancamentoRemovidoRepository.class)),
+						new UsuarioRepositoryEmbarcado(armazenamento));
+			} finally {
+				pasta.delete();
+			}
+		}
+	}
+	
+	private void medir(String nome, LancamentoRepository lancamentos, UsuarioRepository usuarios) {
+		List<Usuario> cadastrados = new ArrayList<>();
+		for (int i = 0; i < USUARIOS; i++) {
+			cadastrados.add(usuarios.save(Usuario.builder().nome("usuario").email("benchmark" + i + "@email.com").build()));
+		}
+		List<Lancamento> gravados = new ArrayList<>();
+		ExampleMatcher matcher = ExampleMatcher.matching().withIgnoreCase().withStringMatcher(StringMatcher.STARTING);
+		
+		long gravar = tempo(LANCAMENTOS, i -> {
+			Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+			lancamento.setUsuario(cadastrados.get(i % USUARIOS));
+			lancamento.setMes(i % 12 + 1);
+			lancamento.setDescricao("lançamento " + i);
+			gravados.add(lancamentos.save(lancamento));
+		});
+		long buscar = tempo(USUARIOS * 5, i -> {
+			Lancamento filtro = Lancamento.builder().usuario(cadastrados.get(i % USUARIOS)).mes(i % 12 + 1).build();
+			lancamentos.findAll(Example.of(filtro, matcher));
+		});
+		long saldo = tempo(USUARIOS * 5, i -> lancamentos.obterSaldoPorTipoLancamentoEUsuarioEStatus(
+				cadastrados.get(i % USUARIOS).getId(), TipoLancamento.RECEITA, StatusLancamento.PENDENTE));
+		long atualizar = tempo(LANCAMENTOS / 10, i -> {
+			Lancamento lancamento = gravados.get(i * 10);
+			lancamento.setStatus(StatusLancamento.EFETIVADO);
+			lancamentos.save(lancamento);
+		});
+		
+		System.out.printf("%-24s %9d ms %9d ms %9d ms %9d ms%n", nome, gravar, buscar, saldo, atualizar);
+	}
+	
+	private static long tempo(int vezes, Consumer<Integer> operacao) {
+		long inicio = System.nanoTime();
+		for (int i = 0; i < vezes; i++) {
+			operacao.accept(i);
+		}
+		return (System.nanoTime() - inicio) / 1_000_000;
+	}
+
+}
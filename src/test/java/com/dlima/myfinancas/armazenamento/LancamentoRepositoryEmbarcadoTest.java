@@ -0,0 +1,279 @@
+package com.dlima.myfinancas.armazenamento;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.ExampleMatcher.StringMatcher;
+import org.springframework.data.domain.PageRequest;
+
+import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.entity.LancamentoRemovido;
+import com.dlima.myfinancas.model.entity.Usuario;
+import com.dlima.myfinancas.model.enums.StatusLancamento;
+import com.dlima.myfinancas.model.enums.TipoLancamento;
+import com.dlima.myfinancas.model.repository.LancamentoRemovidoRepository;
+import com.dlima.myfinancas.model.repository.LancamentoRepositoryTest;
+import com.dlima.myfinancas.model.repository.UsuarioRepositoryTest;
+
+// mesmos cenarios de LancamentoRepositoryTest, sobre o armazenamento embarcado
+public class LancamentoRepositoryEmbarcadoTest {
+	
+	@Rule
+	public TemporaryFolder pasta = new TemporaryFolder();
+	
+	LancamentoRemovidoRepository removidoRepository = Mockito.mock(LancamentoRemovidoRepository.class);
+	
+	ArmazenamentoEmbarcado armazenamento;
+	
+	LancamentoRepositoryEmbarcado repository;
+	
+	UsuarioRepositoryEmbarcado usuarioRepository;
+	
+	@Before
+	public void setUp() throws IOException {
+		armazenamento = new ArmazenamentoEmbarcado(pasta.getRoot().toPath(), false);
+		repository = new LancamentoRepositoryEmbarcado(armazenamento, removidoRepository);
+		usuarioRepository = new UsuarioRepositoryEmbarcado(armazenamento);
+	}
+	
+	@After
+	public void tearDown() throws IOException {
+		armazenamento.close();
+	}
+	
+	@Test
+	public void deveSalvarUmLançamento() {
+		Lancamento lancamento = repository.save(LancamentoRepositoryTest.criarLancamento());
+		
+		assertThat(lancamento.getId()).isNotNull();
+	}
+	
+	@Test
+	public void deveDeletarUmLancamento() {
+		Lancamento lancamento = repository.save(LancamentoRepositoryTest.criarLancamento());
+		
+		repository.delete(lancamento);
+		
+		assertThat(repository.findById(lancamento.getId())).isEmpty();
+	}
+	
+	@Test
+	public void deveAtualizarUmLancamento() {
+		Lancamento lancamento = repository.save(LancamentoRepositoryTest.criarLancamento());
+		
+		lancamento.setAno(2019);
+		lancamento.setDescricao("Teste Atualizar");
+		lancamento.setStatus(StatusLancamento.CANCELADO);
+		repository.save(lancamento);
+		
+		Lancamento lancamentoAtualizado = repository.findById(lancamento.getId()).get();
+		assertThat(lancamentoAtualizado.getAno()).isEqualTo(2019);
+		assertThat(lancamentoAtualizado.getDescricao()).isEqualTo("Teste Atualizar");
+		assertThat(lancamentoAtualizado.getStatus()).isEqualTo(StatusLancamento.CANCELADO);
+	}
+	
+	@Test
+	public void deveBuscarUmLancamentoPorId() {
+		Lancamento lancamento = repository.save(LancamentoRepositoryTest.criarLancamento());
+		
+		Optional<Lancamento> lancamentoEncontrado = repository.findById(lancamento.getId());
+		
+		assertThat(lancamentoEncontrado).contains(lancamento);
+	}
+	
+	@Test
+	public void deveSomarOsLancamentosDoUsuarioPorTipoEStatus() {
+		Usuario usuario = usuarioRepository.save(UsuarioRepositoryTest.criarUsuario());
+		
+		Lancamento efetivado = doUsuario(usuario);
+		efetivado.setStatus(StatusLancamento.EFETIVADO);
+		repository.save(efetivado);
+		
+		Lancamento outroAno = doUsuario(usuario);
+		outroAno.setAno(2019);
+		outroAno.setStatus(StatusLancamento.EFETIVADO);
+		repository.save(outroAno);
+		
+		repository.save(doUsuario(usuario)); // pendente
+		
+		assertThat(repository.obterSaldoPorTipoLancamentoEUsuarioEStatus(
+				usuario.getId(), TipoLancamento.RECEITA, StatusLancamento.EFETIVADO)).isEqualTo(2000l); // centavos
+		assertThat(repository.obterSaldoPorTipoLancamentoEUsuarioEStatus(
+				usuario.getId(), TipoLancamento.DESPESA, StatusLancamento.EFETIVADO)).isNull();
+	}
+	
+	@Test
+	public void deveDeletarEmLoteApenasOsLancamentosDoUsuario() {
+		Usuario usuario = usuarioRepository.save(UsuarioRepositoryTest.criarUsuario());
+		Usuario outroUsuario = usuarioRepository.save(Usuario.builder().email("outro@email.com").build());
+		
+		Lancamento doUsuario = repository.save(doUsuario(usuario));
+		
+		Lancamento deOutroMes = doUsuario(usuario);
+		deOutroMes.setMes(6);
+		repository.save(deOutroMes);
+		
+		Lancamento deOutroUsuario = repository.save(doUsuario(outroUsuario));
+		
+		List<Long> ids = repository.obterIdsPorUsuarioEPeriodo(usuario.getId(), 2020, 5, PageRequest.of(0, 10));
+		assertThat(ids).containsExactly(doUsuario.getId());
+		
+		int removidos = repository.deletarRegistrandoRemocao(usuario.getId(), 
+				Arrays.asList(doUsuario.getId(), deOutroUsuario.getId()));
+		
+		assertThat(removidos).isEqualTo(1);
+		assertThat(repository.findById(doUsuario.getId())).isEmpty();
+		assertThat(repository.findById(deOutroMes.getId())).isPresent();
+		assertThat(repository.findById(deOutroUsuario.getId())).isPresent();
+	}
+	
+	@Test
+	public void deveObterAsColunasApenasDosIdsDoUsuario() {
+		Usuario usuario = usuarioRepository.save(UsuarioRepositoryTest.criarUsuario());
+		Usuario outroUsuario = usuarioRepository.save(Usuario.builder().email("outro@email.com").build());
+		
+		Lancamento doUsuario = repository.save(doUsuario(usuario));
+		Lancamento deOutroUsuario = repository.save(doUsuario(outroUsuario));
+		
+		List<Object[]> colunas = repository.obterColunasPorIds(usuario.getId(), 
+				Arrays.asList(doUsuario.getId(), deOutroUsuario.getId(), 999l));
+		
+		assertThat(colunas).hasSize(1);
+		assertThat(colunas.get(0)).containsExactly(doUsuario.getId(), doUsuario.getDescricao(), doUsuario.getMes(),
+				doUsuario.getAno(), doUsuario.getValor(), doUsuario.getTipo(), doUsuario.getStatus(),
+				doUsuario.getCategoria(), doUsuario.getTags());
+	}
+	
+	@Test
+	public void deveRetornarAsAlteracoesEAsRemocoesDesdeOToken() {
+		Usuario usuario = usuarioRepository.save(UsuarioRepositoryTest.criarUsuario());
+		long token = repository.proximaSequenciaAlteracao();
+		
+		Lancamento mantido = doUsuario(usuario);
+		mantido.setSequenciaAlteracao(repository.proximaSequenciaAlteracao());
+		repository.save(mantido);
+		
+		Lancamento excluido = doUsuario(usuario);
+		excluido.setSequenciaAlteracao(repository.proximaSequenciaAlteracao());
+		repository.save(excluido);
+		
+		int removidos = repository.deletarRegistrandoRemocao(usuario.getId(), Arrays.asList(excluido.getId()));
+		
+		assertThat(removidos).isEqualTo(1);
+		assertThat(repository.obterAlteradosDesde(usuario.getId(), token, PageRequest.of(0, 10)))
+			.extracting(Lancamento::getId).containsExactly(mantido.getId());
+		ArgumentCaptor<LancamentoRemovido> marca = ArgumentCaptor.forClass(LancamentoRemovido.class);
+		Mockito.verify(removidoRepository).save(marca.capture());
+		assertThat(marca.getValue().getId()).isEqualTo(excluido.getId());
+		assertThat(marca.getValue().getSequenciaAlteracao()).isGreaterThan(excluido.getSequenciaAlteracao());
+		assertThat(marca.getValue().getDataRemocao()).isNotNull(); // lida pelo expurgo
+		assertThat(repository.obterAlteradosDesde(usuario.getId(), mantido.getSequenciaAlteracao(), PageRequest.of(0, 10)))
+			.isEmpty();
+	}
+	
+	@Test
+	public void deveBuscarPorExampleComoOJpa() {
+		// cenario
+		Usuario usuario = usuarioRepository.save(UsuarioRepositoryTest.criarUsuario());
+		Usuario outroUsuario = usuarioRepository.save(Usuario.builder().email("outro@email.com").build());
+		Lancamento mercado = doUsuario(usuario);
+		mercado.setDescricao("Mercado do mês");
+		repository.save(mercado);
+		repository.save(doUsuario(usuario));
+		Lancamento deOutroUsuario = doUsuario(outroUsuario);
+		deOutroUsuario.setDescricao("Mercado");
+		repository.save(deOutroUsuario);
+		
+		// execucao: mesmo Example de LancamentoServiceImpl.buscar
+		Lancamento filtro = Lancamento.builder().usuario(Usuario.builder().id(usuario.getId()).build()).descricao("merc").build();
+		List<Lancamento> encontrados = repository.findAll(Example.of(filtro, 
+				ExampleMatcher.matching().withIgnoreCase().withStringMatcher(StringMatcher.STARTING)));
+		
+		// verificacao
+		assertThat(encontrados).containsExactly(mercado);
+		assertThat(encontrados.get(0).getUsuario()).isEqualTo(usuario);
+	}
+	
+	@Test
+	public void naoDeveGravarLancamentoDeUsuarioInexistente() {
+		Lancamento lancamento = doUsuario(Usuario.builder().id(99l).build());
+		
+		assertThatThrownBy(() -> repository.save(lancamento)).isInstanceOf(DataIntegrityViolationException.class);
+	}
+	
+	@Test
+	public void deveRecuperarOsLancamentosAoReabrirIgnorandoOFinalCorrompido() throws IOException {
+		// cenario
+		Usuario usuario = usuarioRepository.save(UsuarioRepositoryTest.criarUsuario());
+		Usuario outroUsuario = usuarioRepository.save(Usuario.builder().email("outro@email.com").build());
+		Lancamento mantido = repository.save(doUsuario(usuario));
+		Lancamento transferido = repository.save(doUsuario(usuario));
+		transferido.setUsuario(outroUsuario);
+		repository.save(transferido);
+		Lancamento removido = repository.save(doUsuario(usuario));
+		removido.setSequenciaAlteracao(repository.proximaSequenciaAlteracao());
+		repository.save(removido);
+		repository.delete(removido);
+		
+		// execucao: queda no meio de uma gravacao deixa bytes soltos no fim do arquivo
+		armazenamento.close();
+		Path arquivo = pasta.getRoot().toPath().resolve("lancamentos").resolve("usuario-" + usuario.getId() + ".log");
+		long tamanho = Files.size(arquivo);
+		Files.write(arquivo, new byte[] { 0, 0, 0, 40, 1, 2 }, StandardOpenOption.APPEND);
+		setUp();
+		
+		// verificacao
+		assertThat(Files.size(arquivo)).isEqualTo(tamanho);
+		assertThat(repository.findAll()).containsExactlyInAnyOrder(mantido, transferido);
+		assertThat(repository.findById(transferido.getId()).get().getUsuario()).isEqualTo(outroUsuario);
+		assertThat(repository.save(doUsuario(usuario)).getId()).isGreaterThan(removido.getId());
+		assertThat(repository.proximaSequenciaAlteracao()).isGreaterThan(removido.getSequenciaAlteracao());
+	}
+	
+	@Test
+	public void deveCompactarOArquivoDoUsuarioMantendoApenasAsVersoesAtuais() throws IOException {
+		// cenario: cada lancamento regravado muitas vezes
+		Usuario usuario = usuarioRepository.save(UsuarioRepositoryTest.criarUsuario());
+		Lancamento primeiro = repository.save(doUsuario(usuario));
+		Lancamento segundo = repository.save(doUsuario(usuario));
+		for (int versao = 0; versao < 2000; versao++) {
+			primeiro.setDescricao("versão " + versao);
+			repository.save(primeiro);
+			segundo.setMes(versao % 12 + 1);
+			repository.save(segundo);
+		}
+		
+		// verificacao
+		Path arquivo = pasta.getRoot().toPath().resolve("lancamentos").resolve("usuario-" + usuario.getId() + ".log");
+		assertThat(Files.size(arquivo)).isLessThan(2 * 64 * 1024);
+		assertThat(repository.findById(primeiro.getId()).get().getDescricao()).isEqualTo("versão 1999");
+		
+		armazenamento.close();
+		setUp();
+		assertThat(repository.findAll()).containsExactlyInAnyOrder(primeiro, segundo);
+	}
+	
+	private static Lancamento doUsuario(Usuario usuario) {
+		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+		lancamento.setUsuario(usuario);
+		return lancamento;
+	}
+
+}
@@ -0,0 +1,72 @@
+package com.dlima.myfinancas.armazenamento;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.entity.Usuario;
+import com.dlima.myfinancas.model.enums.StatusLancamento;
+import com.dlima.myfinancas.model.enums.TipoLancamento;
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.model.repository.LancamentoRepository;
+import com.dlima.myfinancas.model.repository.LancamentoRepositoryTest;
+import com.dlima.myfinancas.model.repository.UsuarioRepository;
+import com.dlima.myfinancas.service.LancamentoService;
+import com.dlima.myfinancas.service.ResumoMensalService;
+import com.dlima.myfinancas.service.UsuarioService;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles({ "test", "embarcado" })
+@SpringBootTest(properties = {
+		"myfinancas.embarcado.diretorio=${java.io.tmpdir}/myfinancas-embarcado-${random.uuid}",
+		"myfinancas.embarcado.sincronizar=false",
+		"spring.datasource.url=jdbc:h2:mem:embarcado;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS financas\\\\;CREATE SEQUENCE IF NOT EXISTS financas.seq_alteracao_lancamento",
+		"spring.jpa.hibernate.ddl-auto=create-drop" })
+public class PerfilEmbarcadoTest {
+	
+	@Autowired
+	LancamentoRepository lancamentoRepository;
+	
+	@Autowired
+	UsuarioRepository usuarioRepository;
+	
+	@Autowired
+	UsuarioService usuarioService;
+	
+	@Autowired
+	LancamentoService lancamentoService;
+	
+	@Autowired
+	ResumoMensalService resumoService;
+	
+	@Test
+	public void deveUsarOArmazenamentoEmbarcadoNosServicos() {
+		// cenario
+		Usuario usuario = usuarioService.salvarUsuario(
+				Usuario.builder().nome("usuario").email("embarcado@email.com").senha("senha").build());
+		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+		lancamento.setUsuario(usuario);
+		lancamento.setTipo(TipoLancamento.DESPESA);
+		
+		// execucao
+		Lancamento salvo = lancamentoService.salvar(lancamento);
+		salvo.setStatus(StatusLancamento.EFETIVADO);
+		lancamentoService.atualizar(salvo);
+		
+		// verificacao
+		Assertions.assertThat(lancamentoRepository).isInstanceOf(LancamentoRepositoryEmbarcado.class);
+		Assertions.assertThat(usuarioRepository).isInstanceOf(UsuarioRepositoryEmbarcado.class);
+		Assertions.assertThat(usuarioService.autenticar("embarcado@email.com", "senha").getId()).isEqualTo(usuario.getId());
+		Assertions.assertThat(lancamentoService.buscar(Lancamento.builder().usuario(usuario).build()))
+			.extracting(Lancamento::getStatus).containsExactly(StatusLancamento.EFETIVADO);
+		Assertions.assertThat(lancamentoService.obterSaldoPorUsuario(usuario.getId())).isEqualTo(Money.of(-10));
+		Assertions.assertThat(resumoService.obterPorUsuario(usuario.getId())).hasSize(1);
+		Assertions.assertThat(resumoService.reconstruir(usuario.getId())).isEqualTo(1);
+	}
+
+}
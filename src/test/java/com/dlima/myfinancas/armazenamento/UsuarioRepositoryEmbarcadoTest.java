@@ -0,0 +1,113 @@
+package com.dlima.myfinancas.armazenamento;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+
+import com.dlima.myfinancas.model.entity.Usuario;
+import com.dlima.myfinancas.model.repository.UsuarioRepositoryTest;
+
+// mesmos cenarios de UsuarioRepositoryTest, sobre o armazenamento embarcado
+public class UsuarioRepositoryEmbarcadoTest {
+	
+	@Rule
+	public TemporaryFolder pasta = new TemporaryFolder();
+	
+	ArmazenamentoEmbarcado armazenamento;
+	
+	UsuarioRepositoryEmbarcado repository;
+	
+	@Before
+	public void setUp() throws IOException {
+		armazenamento = new ArmazenamentoEmbarcado(pasta.getRoot().toPath(), false);
+		repository = new UsuarioRepositoryEmbarcado(armazenamento);
+	}
+	
+	@After
+	public void tearDown() throws IOException {
+		armazenamento.close();
+	}
+	
+	@Test
+	public void deveVerificarExistenciaDeEmail() {
+		repository.save(UsuarioRepositoryTest.criarUsuario());
+		
+		Assertions.assertThat(repository.existsByEmail("usuario@email.com")).isTrue();
+	}
+	
+	@Test
+	public void deveRetornarFalsoQuandoNaoHouverUsuarioCadastradoComEmail() {
+		Assertions.assertThat(repository.existsByEmail("usuario@email.com")).isFalse();
+	}
+	
+	@Test
+	public void devePersistirUmUsuarioNaBaseDeDados() {
+		Usuario usuarioSalvo = repository.save(UsuarioRepositoryTest.criarUsuario());
+		
+		Assertions.assertThat(usuarioSalvo.getId()).isNotNull();
+	}
+	
+	@Test
+	public void deveBuscarUmUsuarioPorEmail() {
+		repository.save(UsuarioRepositoryTest.criarUsuario());
+		
+		Optional<Usuario> resultado = repository.findByEmail("usuario@email.com");
+		
+		Assertions.assertThat(resultado.isPresent()).isTrue();
+	}
+	
+	@Test
+	public void deveRetornarVazioAoBuscarUsuarioPorEmailQuandoNaoExisteNaBase() {
+		Assertions.assertThat(repository.findByEmail("usuario@email.com").isPresent()).isFalse();
+	}
+	
+	@Test
+	public void deveRecusarUmSegundoUsuarioComOMesmoEmail() {
+		Usuario usuario = repository.save(UsuarioRepositoryTest.criarUsuario());
+		
+		Assertions.assertThatThrownBy(() -> repository.save(UsuarioRepositoryTest.criarUsuario()))
+			.isInstanceOf(DataIntegrityViolationException.class)
+			.hasMessageContaining("uk_usuario_email");
+		// o proprio usuario pode ser regravado com o mesmo email
+		usuario.setNome("alterado");
+		Assertions.assertThat(repository.save(usuario).getNome()).isEqualTo("alterado");
+	}
+	
+	@Test
+	public void deveLerOsEmailsCadastrados() {
+		repository.save(UsuarioRepositoryTest.criarUsuario());
+		repository.save(Usuario.builder().nome("outro").email("outro@email.com").senha("senha").build());
+		
+		Assertions.assertThat(repository.obterEmails()).containsExactly("usuario@email.com", "outro@email.com");
+	}
+	
+	@Test
+	public void deveRecuperarOsUsuariosEOsIdsAoReabrir() throws IOException {
+		// cenario
+		Usuario usuario = repository.save(UsuarioRepositoryTest.criarUsuario());
+		Usuario alterado = repository.save(Usuario.builder().nome("antigo").email("antigo@email.com").build());
+		alterado.setEmail("novo@email.com");
+		repository.save(alterado);
+		
+		// execucao
+		armazenamento.close();
+		setUp();
+		Usuario novo = repository.save(Usuario.builder().email("depois@email.com").build());
+		
+		// verificacao
+		Assertions.assertThat(repository.findById(usuario.getId())).contains(usuario);
+		Assertions.assertThat(repository.existsByEmail("antigo@email.com")).isFalse();
+		Assertions.assertThat(repository.findByEmail("novo@email.com")).contains(alterado);
+		Assertions.assertThat(novo.getId()).isGreaterThan(alterado.getId());
+		Assertions.assertThat(repository.obterIdsApos(usuario.getId(), PageRequest.of(0, 1))).containsExactly(alterado.getId());
+	}
+
+}
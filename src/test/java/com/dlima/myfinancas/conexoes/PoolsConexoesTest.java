@@ -0,0 +1,183 @@
+package com.dlima.myfinancas.conexoes;
+
+import java.sql.Connection;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.entity.Usuario;
+import com.dlima.myfinancas.model.enums.StatusLancamento;
+import com.dlima.myfinancas.model.enums.TipoLancamento;
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.model.repository.UsuarioRepository;
+import com.dlima.myfinancas.prazo.ContextoPrazo;
+import com.dlima.myfinancas.prazo.DataSourcePrazo;
+import com.dlima.myfinancas.service.LancamentoService;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+		"myfinancas.pools.oltp.maximo-conexoes=2",
+		"myfinancas.pools.oltp.tempo-espera-ms=300",
+		"myfinancas.pools.relatorio.maximo-conexoes=1",
+		"myfinancas.pools.relatorio.tempo-espera-ms=300" })
+@AutoConfigureMockMvc
+public class PoolsConexoesTest {
+
+	@Autowired
+	LancamentoService lancamentoService;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@Autowired
+	MeterRegistry registry;
+
+	@Autowired
+	MockMvc mvc;
+
+	@Autowired
+	DataSource dataSource;
+
+	Usuario usuario;
+
+	@Before
+	public void setUp() {
+		usuario = usuarioRepository.save(Usuario.builder().nome("usuario")
+				.email("pools" + System.nanoTime() + "@email.com").senha("senha").build());
+		lancamentoService.atualizarStatus(lancamentoService.salvar(lancamento(100)), StatusLancamento.EFETIVADO);
+	}
+
+	@Test
+	public void deveEscreverNoOltpComOPoolDeRelatorioEsgotado() throws Exception {
+		// cenario: um extrato parado no meio segura a unica conexao do pool de relatorio
+		CountDownLatch lendo = new CountDownLatch(1);
+		CountDownLatch liberar = new CountDownLatch(1);
+		CompletableFuture<Void> extrato = CompletableFuture.runAsync(() ->
+			lancamentoService.exportarExtrato(usuario.getId(), 2020, 1, linha -> {
+				Assertions.assertThat(ContextoPool.atual()).isEqualTo(TipoPool.RELATORIO);
+				lendo.countDown();
+				aguardar(liberar);
+			}));
+		Assertions.assertThat(lendo.await(10, TimeUnit.SECONDS)).isTrue();
+
+		try {
+			// execucao e verificacao: escritas seguem no OLTP, a outra consulta de relatorio esgota a espera
+			Lancamento salvo = lancamentoService.salvar(lancamento(50));
+			lancamentoService.atualizarStatus(salvo, StatusLancamento.EFETIVADO);
+			Assertions.assertThat(conexoes("myfinancas-relatorio", "ativas")).isEqualTo(1);
+
+			Assertions.assertThatThrownBy(() -> lancamentoService.obterSaldoPorUsuario(usuario.getId()))
+				.isInstanceOf(CannotCreateTransactionException.class);
+		} finally {
+			liberar.countDown();
+			extrato.get(10, TimeUnit.SECONDS);
+		}
+
+		Assertions.assertThat(lancamentoService.obterSaldoPorUsuario(usuario.getId())).isEqualTo(Money.of(150));
+		Assertions.assertThat(ContextoPool.atual()).isNull();
+	}
+
+	@Test
+	public void deveBuscarEExportarPelaApiComOPoolOltpEsgotado() throws Exception {
+		// cenario: todas as conexoes do OLTP ocupadas
+		HikariDataSource oltp = dataSource.unwrap(DataSourcePools.class).getPool(TipoPool.OLTP);
+		List<Connection> ocupadas = new ArrayList<>();
+		try {
+			for (int i = 0; i < oltp.getMaximumPoolSize(); i++) {
+				ocupadas.add(oltp.getConnection());
+			}
+
+			// execucao e verificacao: o usuario, a busca e o extrato saem todos do RELATORIO
+			mvc.perform(MockMvcRequestBuilders.get("/api/lancamentos").param("usuario", usuario.getId().toString()))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1));
+			mvc.perform(MockMvcRequestBuilders.get("/api/usuarios/" + usuario.getId() + "/saldo"))
+				.andExpect(MockMvcResultMatchers.status().isOk());
+			MvcResult extrato = mvc.perform(MockMvcRequestBuilders.get("/api/usuarios/" + usuario.getId() + "/extrato")
+					.param("ano", "2020"))
+				.andExpect(MockMvcResultMatchers.request().asyncStarted())
+				.andReturn();
+			mvc.perform(MockMvcRequestBuilders.asyncDispatch(extrato))
+				.andExpect(MockMvcResultMatchers.status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1));
+			Assertions.assertThat(ContextoPool.atual()).isNull();
+		} finally {
+			for (Connection conexao : ocupadas) {
+				conexao.close();
+			}
+		}
+	}
+
+	@Test
+	public void deveLimitarAEsperaPorConexaoAoPrazoDaRequisicao() throws Exception {
+		// cenario: pool de relatorio com espera longa e a unica conexao ocupada
+		DataSourceProperties banco = new DataSourceProperties();
+		banco.setUrl("jdbc:h2:mem:pools-prazo;DB_CLOSE_DELAY=-1");
+		banco.setUsername("sa");
+		PropriedadesPools propriedades = new PropriedadesPools();
+		propriedades.setRelatorio(new PropriedadesPools.Pool(1, 15000));
+		TipoPool anterior = ContextoPool.definir(TipoPool.RELATORIO);
+		try (DataSourcePools pools = DataSourcePools.criar("prazo", banco, propriedades);
+				Connection ocupada = new DataSourcePrazo(pools).getConnection()) {
+			DataSource comPrazo = new DataSourcePrazo(pools);
+
+			// execucao e verificacao: a espera acaba com o prazo, nao com os 15 s do pool
+			ContextoPrazo.iniciar(300);
+			long inicio = System.nanoTime();
+			Assertions.assertThatThrownBy(comPrazo::getConnection).isInstanceOf(SQLTimeoutException.class);
+			Assertions.assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio)).isLessThan(5000);
+
+			// com o prazo esgotado o pool nem e consultado
+			Assertions.assertThatThrownBy(comPrazo::getConnection).isInstanceOf(SQLTimeoutException.class);
+			Assertions.assertThat(pools.getPool(TipoPool.RELATORIO).getHikariPoolMXBean().getThreadsAwaitingConnection()).isZero();
+		} finally {
+			ContextoPrazo.encerrar();
+			ContextoPool.restaurar(anterior);
+		}
+	}
+
+	private double conexoes(String pool, String estado) {
+		return registry.get("myfinancas.pools.conexoes").tag("pool", pool).tag("estado", estado).gauge().value();
+	}
+
+	private Lancamento lancamento(long valor) {
+		return Lancamento.builder().usuario(usuario).ano(2020).mes(1).descricao("receita")
+				.tipo(TipoLancamento.RECEITA).valor(Money.of(valor)).build();
+	}
+
+	private static void aguardar(CountDownLatch latch) {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
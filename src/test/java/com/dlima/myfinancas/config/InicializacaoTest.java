@@ -0,0 +1,39 @@
+package com.dlima.myfinancas.config;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+		"myfinancas.inicializacao.lazy=true",
+		"myfinancas.inicializacao.beans-criticos=dataSource,entityManagerFactory,transactionManager",
+		"myfinancas.inicializacao.relatorio=true",
+		"spring.data.jpa.repositories.bootstrap-mode=deferred" })
+public class InicializacaoTest {
+	
+	static final long ORCAMENTO_INICIALIZACAO_MS = 15_000;
+	
+	@Autowired
+	RelatorioInicializacao relatorio;
+	
+	@Test
+	public void deveInicializarDentroDoOrcamentoDeTempo() {
+		Assertions.assertThat(relatorio.getTempoContextoMs())
+			.isPositive()
+			.isLessThan(ORCAMENTO_INICIALIZACAO_MS);
+	}
+	
+	@Test
+	public void deveListarTempoPorFaseEPorBean() {
+		Assertions.assertThat(relatorio.getFases())
+			.containsOnlyKeys("jvm-ate-contexto", "criacao-beans", "pos-refresh");
+		Assertions.assertThat(relatorio.getBeansMaisLentos()).isNotEmpty();
+	}
+
+}
@@ -0,0 +1,218 @@
+package com.dlima.myfinancas.event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class AnelEventosTest {
+	
+	@Test
+	public void deveEntregarTodosOsEventosEmOrdemPorProdutor() throws InterruptedException {
+		// cenario
+		ConsumidorTeste consumidor = new ConsumidorTeste(0);
+		AnelEventos<int[]> anel = new AnelEventos<>("teste", 64, EstrategiaEspera.BLOQUEAR, 16, 5000, 1000,
+				Arrays.asList(consumidor));
+		anel.start();
+		
+		// execucao: 4 produtores concorrentes, anel menor que o total publicado
+		List<Thread> produtores = new ArrayList<>();
+		for (int produtor = 0; produtor < 4; produtor++) {
+			int id = produtor;
+			Thread thread = new Thread(() -> {
+				for (int i = 0; i < 2000; i++) {
+					anel.publicar(new int[] { id, i });
+				}
+			});
+			produtores.add(thread);
+			thread.start();
+		}
+		for (Thread thread : produtores) {
+			thread.join();
+		}
+		anel.stop();
+		
+		// verificacao
+		Assertions.assertThat(consumidor.eventos).hasSize(8000);
+		int[] ultimoPorProdutor = { -1, -1, -1, -1 };
+		for (int[] evento : consumidor.eventos) {
+			Assertions.assertThat(evento[1]).isEqualTo(ultimoPorProdutor[evento[0]] + 1);
+			ultimoPorProdutor[evento[0]] = evento[1];
+		}
+		Assertions.assertThat(consumidor.maiorLote).isLessThanOrEqualTo(16);
+	}
+	
+	@Test
+	public void naoDevePerderEventosNoEncerramento() {
+		// cenario: consumidor lento, eventos acumulados no anel
+		ConsumidorTeste lento = new ConsumidorTeste(2);
+		AnelEventos<int[]> anel = new AnelEventos<>("teste", 8, EstrategiaEspera.DORMIR, 4, 5000, 1000,
+				Arrays.asList(lento));
+		anel.start();
+		for (int i = 0; i < 50; i++) {
+			anel.publicar(new int[] { 0, i });
+		}
+		
+		// execucao
+		anel.stop();
+		anel.publicar(new int[] { 0, 50 }); // depois do encerramento: entregue na thread atual
+		
+		// verificacao
+		Assertions.assertThat(lento.eventos).hasSize(51);
+		Assertions.assertThat(anel.pendentes()).isZero();
+		Assertions.assertThat(anel.isRunning()).isFalse();
+	}
+	
+	@Test
+	public void deveIsolarFalhaDeUmConsumidorEPublicarOAtraso() throws InterruptedException {
+		// cenario
+		Preso preso = new Preso();
+		AnelEventos<int[]> anel = new AnelEventos<>("teste", 16, EstrategiaEspera.CEDER, 1, 5000, 1000,
+				Arrays.asList(new ComFalha(), preso));
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		anel.bindTo(registry);
+		anel.start();
+		
+		// execucao
+		for (int i = 0; i < 3; i++) {
+			anel.publicar(new int[] { 0, i });
+		}
+		// a falha e contada antes de a posicao ser liberada: espera pelo atraso
+		while (registry.get("myfinancas.eventos.anel.atraso").tag("consumidor", "ComFalha").gauge().value() > 0) {
+			Thread.sleep(1);
+		}
+		
+		// verificacao: o primeiro lote do consumidor preso ainda esta em andamento
+		Assertions.assertThat(anel.pendentes()).isEqualTo(3);
+		Assertions.assertThat(registry.get("myfinancas.eventos.anel.falhas").tag("consumidor", "ComFalha")
+				.functionCounter().count()).isEqualTo(3);
+		Assertions.assertThat(registry.get("myfinancas.eventos.anel.atraso").tag("consumidor", "Preso").gauge().value())
+			.isEqualTo(3);
+		preso.liberar.countDown();
+		anel.stop();
+		Assertions.assertThat(anel.pendentes()).isZero();
+	}
+	
+	@Test
+	public void deveContinuarConsumindoAposUmError() {
+		// cenario: o primeiro lote lanca um Error, nao uma RuntimeException
+		ComError consumidor = new ComError();
+		AnelEventos<int[]> anel = new AnelEventos<>("teste", 4, EstrategiaEspera.DORMIR, 1, 5000, 1000,
+				Arrays.asList(consumidor));
+		anel.start();
+		
+		// execucao: mais eventos que o anel, so passam se o consumidor seguir vivo
+		for (int i = 0; i < 10; i++) {
+			anel.publicar(new int[] { 0, i });
+		}
+		anel.stop();
+		
+		// verificacao
+		Assertions.assertThat(consumidor.eventos).hasSize(9);
+		Assertions.assertThat(anel.pendentes()).isZero();
+	}
+	
+	@Test
+	public void deveDescartarQuandoOAnelContinuaCheio() {
+		// cenario: consumidor travado no primeiro lote
+		Preso preso = new Preso();
+		AnelEventos<int[]> anel = new AnelEventos<>("teste", 4, EstrategiaEspera.CEDER, 1, 5000, 50,
+				Arrays.asList(preso));
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		anel.bindTo(registry);
+		anel.start();
+		
+		// execucao: o quinto nao cabe
+		for (int i = 0; i < 5; i++) {
+			anel.publicar(new int[] { 0, i });
+		}
+		
+		// verificacao: o produtor voltou e o descarte foi contado
+		Assertions.assertThat(registry.get("myfinancas.eventos.anel.descartados").functionCounter().count()).isEqualTo(1);
+		Assertions.assertThat(anel.pendentes()).isEqualTo(4);
+		preso.liberar.countDown();
+		anel.stop();
+		Assertions.assertThat(anel.pendentes()).isZero();
+	}
+	
+	@Test
+	public void deveExigirCapacidadePotenciaDeDois() {
+		Assertions.assertThatThrownBy(() -> new AnelEventos<>("teste", 100, EstrategiaEspera.BLOQUEAR, 16, 0, 0,
+				Collections.<ConsumidorEventos<Object>>emptyList()))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+	
+	static class ConsumidorTeste implements ConsumidorEventos<int[]> {
+		
+		final List<int[]> eventos = Collections.synchronizedList(new ArrayList<>());
+		
+		final long pausaMs;
+		
+		volatile int maiorLote;
+		
+		ConsumidorTeste(long pausaMs) {
+			this.pausaMs = pausaMs;
+		}
+		
+		@Override
+		public void processar(List<int[]> lote) {
+			maiorLote = Math.max(maiorLote, lote.size());
+			eventos.addAll(lote);
+			if (pausaMs > 0) {
+				try {
+					Thread.sleep(pausaMs);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+		
+	}
+	
+	static class ComFalha implements ConsumidorEventos<int[]> {
+		
+		@Override
+		public void processar(List<int[]> lote) {
+			throw new IllegalStateException("falha");
+		}
+		
+	}
+	
+	static class ComError extends ConsumidorTeste {
+		
+		ComError() {
+			super(0);
+		}
+		
+		@Override
+		public void processar(List<int[]> lote) {
+			if (lote.get(0)[1] == 0) {
+				throw new StackOverflowError();
+			}
+			super.processar(lote);
+		}
+		
+	}
+	
+	static class Preso implements ConsumidorEventos<int[]> {
+		
+		final CountDownLatch liberar = new CountDownLatch(1);
+		
+		@Override
+		public void processar(List<int[]> lote) {
+			try {
+				liberar.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		
+	}
+
+}
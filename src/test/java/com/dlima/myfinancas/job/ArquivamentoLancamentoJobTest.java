@@ -0,0 +1,158 @@
+package com.dlima.myfinancas.job;
+
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.dlima.myfinancas.sharding.ContextoShard;
+import com.dlima.myfinancas.sharding.RoteadorShards;
+
+/*
+ * Os comandos sao de PostgreSQL (particoes, pg_catalog); sem um PostgreSQL os cenarios conferem os
+ * comandos enviados. deveArquivarNoPostgres roda o job de verdade com
+ *   mvn test -Dtest=ArquivamentoLancamentoJobTest -Dmyfinancas.teste.postgres.url=jdbc:postgresql://localhost/descartavel
+ * (e .usuario/.senha): o schema financas desse banco e apagado e recriado.
+ */
+public class ArquivamentoLancamentoJobTest {
+
+	JdbcTemplate jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+
+	TransactionTemplate transactionTemplate = Mockito.mock(TransactionTemplate.class);
+
+	ArquivamentoLancamentoJob job = new ArquivamentoLancamentoJob(jdbcTemplate, transactionTemplate, semSharding(), 2, 5000);
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		Mockito.when(transactionTemplate.execute(Mockito.any()))
+			.thenAnswer(chamada -> ((TransactionCallback<Object>) chamada.getArgument(0)).doInTransaction(null));
+	}
+
+	@Test
+	public void deveArquivarMovendoAParticaoSemCopiarLinhas() {
+		// cenario: ano ainda sem CHECK
+		Mockito.when(jdbcTemplate.queryForObject(Mockito.anyString(), Mockito.eq(Integer.class), Mockito.eq("ck_lancamento_2019_ano")))
+			.thenReturn(0);
+
+		// execucao
+		job.arquivar(2019);
+
+		// verificacao
+		Assertions.assertThat(comandos()).containsExactly(
+				"ALTER TABLE financas.lancamento_2019 ADD CONSTRAINT ck_lancamento_2019_ano CHECK (ano >= 2019 AND ano < 2020) NOT VALID",
+				"ALTER TABLE financas.lancamento_2019 VALIDATE CONSTRAINT ck_lancamento_2019_ano",
+				"SET LOCAL lock_timeout = 5000",
+				"ALTER TABLE financas.lancamento DETACH PARTITION financas.lancamento_2019",
+				"ALTER TABLE financas.lancamento DETACH PARTITION financas.lancamento_arquivo",
+				"ALTER TABLE financas.lancamento_arquivo ATTACH PARTITION financas.lancamento_2019 FOR VALUES FROM (2019) TO (2020)",
+				"ALTER TABLE financas.lancamento ATTACH PARTITION financas.lancamento_arquivo FOR VALUES FROM (MINVALUE) TO (2020)");
+		Mockito.verify(transactionTemplate).execute(Mockito.any());
+	}
+
+	@Test
+	public void naoDeveRevalidarOCheckExistente() {
+		Mockito.when(jdbcTemplate.queryForObject(Mockito.anyString(), Mockito.eq(Integer.class), Mockito.anyString()))
+			.thenReturn(1);
+
+		job.criarParticao(2031);
+
+		Assertions.assertThat(comandos()).containsExactly(
+				"CREATE TABLE IF NOT EXISTS financas.lancamento_2031 PARTITION OF financas.lancamento FOR VALUES FROM (2031) TO (2032)");
+	}
+
+	@Test
+	public void deveCriarAsParticoesDoAnoSeguinteEmTodosOsShards() {
+		// cenario
+		RoteadorShards roteador = Mockito.mock(RoteadorShards.class);
+		Mockito.when(roteador.quantidade()).thenReturn(3);
+		@SuppressWarnings("unchecked")
+		ObjectProvider<RoteadorShards> comSharding = Mockito.mock(ObjectProvider.class);
+		Mockito.when(comSharding.getIfAvailable()).thenReturn(roteador);
+		Mockito.when(jdbcTemplate.queryForObject(Mockito.anyString(), Mockito.eq(Integer.class), Mockito.anyString()))
+			.thenReturn(1);
+		List<Integer> shards = new ArrayList<>();
+		int anoSeguinte = Year.now().getValue() + 1;
+		Mockito.doAnswer(chamada -> shards.add(ContextoShard.atual()))
+			.when(jdbcTemplate).execute(Mockito.contains("lancamento_" + anoSeguinte + " PARTITION OF"));
+
+		// execucao
+		new ArquivamentoLancamentoJob(jdbcTemplate, transactionTemplate, comSharding, 2, 5000).executar();
+
+		// verificacao
+		Assertions.assertThat(shards).containsExactly(0, 1, 2);
+		Assertions.assertThat(ContextoShard.atual()).isNull();
+	}
+
+	@Test
+	public void deveArquivarNoPostgres() {
+		String url = System.getProperty("myfinancas.teste.postgres.url");
+		Assume.assumeTrue("sem -Dmyfinancas.teste.postgres.url", url != null);
+
+		// cenario: schema particionado de db/lancamento-particionado.sql, com lancamentos no arquivo e em 2019 e 2020
+		DriverManagerDataSource dataSource = new DriverManagerDataSource(url,
+				System.getProperty("myfinancas.teste.postgres.usuario", "postgres"),
+				System.getProperty("myfinancas.teste.postgres.senha", "postgres"));
+		JdbcTemplate banco = new JdbcTemplate(dataSource);
+		banco.execute("DROP SCHEMA IF EXISTS financas CASCADE");
+		banco.execute("CREATE SCHEMA financas");
+		banco.execute("CREATE TABLE financas.usuario (id bigserial PRIMARY KEY, nome varchar(150), email varchar(100), senha varchar(20))");
+		new ResourceDatabasePopulator(new ClassPathResource("db/lancamento-particionado.sql")).execute(dataSource);
+		Long idUsuario = banco.queryForObject(
+				"INSERT INTO financas.usuario (nome, email, senha) VALUES ('usuario', 'usuario@email.com', 'senha') RETURNING id", Long.class);
+		for (int ano = 2018; ano <= 2020; ano++) {
+			banco.update("INSERT INTO financas.lancamento (descricao, mes, ano, valor, id_usuario) "
+					+ "SELECT 'lancamento', 1 + n % 12, ?, n, ? FROM generate_series(1, 1000) n", ano, idUsuario);
+		}
+		Long arquivoAntes = arquivoFisico(banco, "lancamento_2019");
+		ArquivamentoLancamentoJob real = new ArquivamentoLancamentoJob(banco,
+				new TransactionTemplate(new DataSourceTransactionManager(dataSource)), semSharding(), 2, 5000);
+
+		// execucao
+		real.arquivar(2019);
+
+		// verificacao: mesma particao fisica, agora sob o arquivo; o ano continua visivel pela tabela pai
+		Assertions.assertThat(arquivoFisico(banco, "lancamento_2019")).isEqualTo(arquivoAntes);
+		Assertions.assertThat(banco.queryForObject("SELECT i.inhparent::regclass::text FROM pg_inherits i "
+				+ "WHERE i.inhrelid = 'financas.lancamento_2019'::regclass", String.class))
+			.isEqualTo("financas.lancamento_arquivo");
+		Assertions.assertThat(banco.queryForObject("SELECT pg_get_expr(relpartbound, oid) FROM pg_class "
+				+ "WHERE oid = 'financas.lancamento_arquivo'::regclass", String.class))
+			.isEqualTo("FOR VALUES FROM (MINVALUE) TO (2020)");
+		Assertions.assertThat(banco.queryForObject("SELECT count(*) FROM financas.lancamento WHERE ano = 2019", Integer.class))
+			.isEqualTo(1000);
+		banco.update("INSERT INTO financas.lancamento (descricao, mes, ano, valor, id_usuario) VALUES ('tardio', 12, 2019, 1, ?)", idUsuario);
+		Assertions.assertThat(banco.queryForObject("SELECT count(*) FROM financas.lancamento_2019", Integer.class)).isEqualTo(1001);
+	}
+
+	private List<String> comandos() {
+		ArgumentCaptor<String> comandos = ArgumentCaptor.forClass(String.class);
+		Mockito.verify(jdbcTemplate, Mockito.atLeastOnce()).execute(comandos.capture());
+		return comandos.getAllValues();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ObjectProvider<RoteadorShards> semSharding() {
+		return Mockito.mock(ObjectProvider.class);
+	}
+
+	private static Long arquivoFisico(JdbcTemplate banco, String tabela) {
+		return banco.queryForObject("SELECT relfilenode::bigint FROM pg_class WHERE oid = ?::regclass", Long.class,
+				"financas." + tabela);
+	}
+
+}
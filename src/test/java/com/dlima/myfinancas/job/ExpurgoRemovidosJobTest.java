@@ -0,0 +1,127 @@
+package com.dlima.myfinancas.job;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.dlima.myfinancas.api.dto.AlteracoesDTO;
+import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.entity.LancamentoRemovido;
+import com.dlima.myfinancas.model.entity.Usuario;
+import com.dlima.myfinancas.model.enums.TipoLancamento;
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.model.repository.CheckpointJobRepository;
+import com.dlima.myfinancas.model.repository.LancamentoRemovidoRepository;
+import com.dlima.myfinancas.model.repository.UsuarioRepository;
+import com.dlima.myfinancas.service.LancamentoService;
+
+/* expurgo contra o banco dos testes; o token minimo e apagado no fim para nao valer nos outros testes */
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@SpringBootTest(properties = "myfinancas.sincronizacao.expurgo-tamanho-lote=1")
+public class ExpurgoRemovidosJobTest {
+
+	@Autowired
+	ExpurgoRemovidosJob job;
+
+	@Autowired
+	LancamentoService lancamentoService;
+
+	@Autowired
+	LancamentoRemovidoRepository removidoRepository;
+
+	@Autowired
+	CheckpointJobRepository checkpointRepository;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	Usuario usuario;
+
+	@Before
+	public void setUp() {
+		usuario = usuarioRepository.save(Usuario.builder().nome("usuario")
+				.email("expurgo" + System.nanoTime() + "@email.com").senha("senha").build());
+	}
+
+	@After
+	public void tearDown() {
+		checkpointRepository.deleteById(LancamentoRemovido.CHECKPOINT_EXPURGO);
+	}
+
+	@Test
+	public void deveExpurgarAsMarcasVencidasEExigirASincronizacaoCompleta() {
+		// cenario: duas remocoes antigas e uma recente
+		long token = lancamentoService.salvar(lancamento("base")).getSequenciaAlteracao();
+		Lancamento primeiro = lancamentoService.salvar(lancamento("primeiro"));
+		Lancamento segundo = lancamentoService.salvar(lancamento("segundo"));
+		Lancamento terceiro = lancamentoService.salvar(lancamento("terceiro"));
+		lancamentoService.deletarPorIds(usuario.getId(), Arrays.asList(primeiro.getId(), segundo.getId()));
+		lancamentoService.deletarPorIds(usuario.getId(), Arrays.asList(terceiro.getId()));
+		LancamentoRemovido ultimoVencido = vencer(primeiro.getId(), segundo.getId());
+
+		// execucao: lotes de 1
+		int expurgados = job.expurgar();
+
+		// verificacao
+		Assertions.assertThat(expurgados).isGreaterThanOrEqualTo(2);
+		Assertions.assertThat(removidoRepository.findById(primeiro.getId())).isEmpty();
+		Assertions.assertThat(removidoRepository.findById(segundo.getId())).isEmpty();
+		Assertions.assertThat(removidoRepository.findById(terceiro.getId())).isPresent();
+		Assertions.assertThat(checkpointRepository.findById(LancamentoRemovido.CHECKPOINT_EXPURGO).get().getUltimoIdConcluido())
+				.isEqualTo(ultimoVencido.getSequenciaAlteracao());
+
+		AlteracoesDTO expirado = lancamentoService.obterAlteracoes(usuario.getId(), token, 100);
+		Assertions.assertThat(expirado.isRessincronizar()).isTrue();
+		AlteracoesDTO aPartirDoMinimo = lancamentoService.obterAlteracoes(usuario.getId(), ultimoVencido.getSequenciaAlteracao(), 100);
+		Assertions.assertThat(aPartirDoMinimo.isRessincronizar()).isFalse();
+		Assertions.assertThat(aPartirDoMinimo.getRemovidos()).containsExactly(terceiro.getId());
+	}
+
+	@Test
+	public void naoDeveBaixarOTokenMinimoJaGravado() {
+		// cenario
+		Lancamento lancamento = lancamentoService.salvar(lancamento("removido"));
+		lancamentoService.deletarPorIds(usuario.getId(), Arrays.asList(lancamento.getId()));
+		LancamentoRemovido vencido = vencer(lancamento.getId());
+		long tokenMaior = vencido.getSequenciaAlteracao() + 1000;
+		checkpointRepository.inserirConcluido(LancamentoRemovido.CHECKPOINT_EXPURGO, tokenMaior, LocalDateTime.now());
+
+		// execucao
+		job.expurgar();
+
+		// verificacao
+		Assertions.assertThat(removidoRepository.findById(lancamento.getId())).isEmpty();
+		Assertions.assertThat(checkpointRepository.findById(LancamentoRemovido.CHECKPOINT_EXPURGO).get().getUltimoIdConcluido())
+				.isEqualTo(tokenMaior);
+	}
+
+	// marcas removidas ha mais tempo que a retencao; devolve a de maior sequencia
+	private LancamentoRemovido vencer(Long... ids) {
+		LancamentoRemovido ultimo = null;
+		for (Long id : ids) {
+			LancamentoRemovido removido = removidoRepository.findById(id).get();
+			removido.setDataRemocao(LocalDateTime.now().minusDays(365));
+			removidoRepository.save(removido);
+			if (ultimo == null || removido.getSequenciaAlteracao() > ultimo.getSequenciaAlteracao()) {
+				ultimo = removido;
+			}
+		}
+		return ultimo;
+	}
+
+	private Lancamento lancamento(String descricao) {
+		return Lancamento.builder().usuario(usuario).ano(2020).mes(1).descricao(descricao)
+				.tipo(TipoLancamento.DESPESA).valor(Money.of(10)).build();
+	}
+
+}
@@ -0,0 +1,185 @@
+package com.dlima.myfinancas.job;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.dlima.myfinancas.model.entity.CheckpointJob;
+import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.entity.ResumoMensal;
+import com.dlima.myfinancas.model.entity.Usuario;
+import com.dlima.myfinancas.model.enums.SituacaoJob;
+import com.dlima.myfinancas.model.enums.StatusLancamento;
+import com.dlima.myfinancas.model.enums.TipoLancamento;
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.model.repository.CheckpointJobRepository;
+import com.dlima.myfinancas.model.repository.LancamentoRepository;
+import com.dlima.myfinancas.model.repository.LancamentoRepositoryTest;
+import com.dlima.myfinancas.model.repository.UsuarioRepository;
+import com.dlima.myfinancas.service.ResumoMensalService;
+import com.dlima.myfinancas.sharding.RoteadorShards;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+		"myfinancas.reconstrucao.tamanho-lote=2",
+		"myfinancas.reconstrucao.threads=2" })
+public class ReconstrucaoResumoJobTest {
+
+	@Autowired
+	ReconstrucaoResumoJob job;
+
+	@Autowired
+	ResumoMensalService resumoService;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@Autowired
+	LancamentoRepository lancamentoRepository;
+
+	@Autowired
+	CheckpointJobRepository checkpointRepository;
+
+	@Test
+	public void deveReconstruirOsResumosDeTodosOsUsuariosEmLotes() throws InterruptedException {
+		// cenario: lancamentos gravados direto no repositorio, sem resumo
+		Usuario[] usuarios = new Usuario[5];
+		for (int i = 0; i < usuarios.length; i++) {
+			usuarios[i] = criarUsuarioComLancamentos("lote" + i + "@email.com");
+		}
+
+		// execucao
+		job.iniciar(true);
+		Assertions.assertThat(job.aguardar(30_000)).isTrue();
+
+		// verificacao
+		for (Usuario usuario : usuarios) {
+			List<ResumoMensal> resumos = resumoService.obterPorUsuario(usuario.getId());
+			Assertions.assertThat(resumos).hasSize(1);
+			Assertions.assertThat(resumos.get(0).getReceitasPendentes()).isEqualTo(Money.of(10));
+			Assertions.assertThat(resumos.get(0).getDespesasEfetivadas()).isEqualTo(Money.of(10));
+		}
+		CheckpointJob checkpoint = checkpointRepository.findById(ReconstrucaoResumoJob.NOME).get();
+		Assertions.assertThat(checkpoint.getSituacao()).isEqualTo(SituacaoJob.CONCLUIDO);
+		Assertions.assertThat(checkpoint.getUltimoIdConcluido()).isGreaterThanOrEqualTo(usuarios[4].getId());
+		Assertions.assertThat(checkpoint.getUsuariosProcessados()).isGreaterThanOrEqualTo(5);
+		Assertions.assertThat(checkpoint.getFalhas()).isZero();
+	}
+
+	@Test
+	public void deveRetomarAPartirDoCheckpoint() throws InterruptedException {
+		// cenario: execucao anterior parou depois do primeiro usuario
+		Usuario processado = criarUsuarioComLancamentos("processado@email.com");
+		Usuario pendente = criarUsuarioComLancamentos("pendente@email.com");
+		checkpointRepository.save(CheckpointJob.builder()
+				.nome(ReconstrucaoResumoJob.NOME)
+				.situacao(SituacaoJob.EXECUTANDO)
+				.ultimoIdConcluido(processado.getId())
+				.usuariosProcessados(1l)
+				.lancamentosProcessados(0l)
+				.falhas(0l)
+				.inicio(LocalDateTime.now())
+				.build());
+
+		// execucao
+		job.iniciar(false);
+		Assertions.assertThat(job.aguardar(30_000)).isTrue();
+
+		// verificacao
+		Assertions.assertThat(resumoService.obterPorUsuario(processado.getId())).isEmpty();
+		Assertions.assertThat(resumoService.obterPorUsuario(pendente.getId())).hasSize(1);
+		Assertions.assertThat(job.obterStatus().getSituacao()).isEqualTo(SituacaoJob.CONCLUIDO);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void deveEsperarOsLotesEmAndamentoAntesDeGravarAFalha() throws InterruptedException {
+		// cenario: o primeiro lote fica parado no primeiro usuario e a leitura do lote seguinte falha
+		ResumoMensalService resumos = Mockito.mock(ResumoMensalService.class);
+		UsuarioRepository usuarios = Mockito.mock(UsuarioRepository.class);
+		CheckpointJobRepository checkpoints = Mockito.mock(CheckpointJobRepository.class);
+		ObjectProvider<RoteadorShards> semSharding = Mockito.mock(ObjectProvider.class);
+		CountDownLatch reconstruindo = new CountDownLatch(1);
+		CountDownLatch liberar = new CountDownLatch(1);
+		Mockito.when(resumos.reconstruir(Mockito.anyLong())).thenAnswer(chamada -> {
+			reconstruindo.countDown();
+			liberar.await(10, TimeUnit.SECONDS);
+			return 0;
+		});
+		Mockito.when(usuarios.obterIdsApos(Mockito.eq(0l), Mockito.any()))
+			.thenAnswer(chamada -> Arrays.asList(1l, 2l));
+		Mockito.when(usuarios.obterIdsApos(Mockito.eq(2l), Mockito.any()))
+			.thenAnswer(chamada -> {
+				reconstruindo.await(10, TimeUnit.SECONDS);
+				throw new IllegalStateException("banco fora do ar");
+			});
+		List<SituacaoJob> gravadas = new CopyOnWriteArrayList<>();
+		Mockito.when(checkpoints.findById(ReconstrucaoResumoJob.NOME)).thenReturn(Optional.empty());
+		Mockito.when(checkpoints.save(Mockito.any())).thenAnswer(chamada -> {
+			CheckpointJob gravado = chamada.getArgument(0);
+			gravadas.add(gravado.getSituacao());
+			return gravado;
+		});
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(2);
+		executor.setMaxPoolSize(2);
+		executor.initialize();
+		ReconstrucaoResumoJob comFalha = new ReconstrucaoResumoJob(resumos, usuarios, checkpoints, executor,
+				semSharding, Mockito.mock(DataSource.class), 2, 0, 1);
+
+		try {
+			// execucao: o coordenador falha com o lote ainda em andamento
+			comFalha.iniciar(true);
+			Assertions.assertThat(comFalha.aguardar(500)).isFalse();
+			liberar.countDown();
+			Assertions.assertThat(comFalha.aguardar(10_000)).isTrue();
+			executor.shutdown();
+			Assertions.assertThat(executor.getThreadPoolExecutor().awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+			// verificacao: FALHOU e a ultima gravacao; o lote interrompido nao avancou o checkpoint
+			Assertions.assertThat(gravadas).last().isEqualTo(SituacaoJob.FALHOU);
+			Assertions.assertThat(comFalha.obterStatus().getUltimoIdConcluido()).isZero();
+			Mockito.verify(resumos, Mockito.times(1)).reconstruir(Mockito.anyLong());
+		} finally {
+			liberar.countDown();
+			executor.shutdown();
+		}
+	}
+
+	private Usuario criarUsuarioComLancamentos(String email) {
+		Usuario usuario = usuarioRepository.save(Usuario.builder().nome("usuario").email(email).senha("senha").build());
+
+		Lancamento receita = LancamentoRepositoryTest.criarLancamento();
+		receita.setUsuario(usuario);
+		Lancamento despesa = LancamentoRepositoryTest.criarLancamento();
+		despesa.setUsuario(usuario);
+		despesa.setTipo(TipoLancamento.DESPESA);
+		despesa.setStatus(StatusLancamento.EFETIVADO);
+		Lancamento cancelado = LancamentoRepositoryTest.criarLancamento();
+		cancelado.setUsuario(usuario);
+		cancelado.setStatus(StatusLancamento.CANCELADO);
+		lancamentoRepository.save(receita);
+		lancamentoRepository.save(despesa);
+		lancamentoRepository.save(cancelado);
+		return usuario;
+	}
+
+}
@@ -0,0 +1,114 @@
+package com.dlima.myfinancas.model.money;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import com.dlima.myfinancas.api.dto.LancamentoDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class MoneyTest {
+	
+	ObjectMapper mapper = new ObjectMapper();
+	
+	@Test
+	public void deveConverterTextoEmCentavos() {
+		Assertions.assertThat(Money.parse("10").cents()).isEqualTo(1000);
+		Assertions.assertThat(Money.parse("10.5").cents()).isEqualTo(1050);
+		Assertions.assertThat(Money.parse("-0.07").cents()).isEqualTo(-7);
+		Assertions.assertThat(Money.parse("1.005").cents()).isEqualTo(101); // metade para longe do zero
+		Assertions.assertThat(Money.parse("1.0049").cents()).isEqualTo(100);
+		Assertions.assertThat(Money.parse("1E+3").cents()).isEqualTo(100000);
+		Assertions.assertThat(Money.of(new BigDecimal("-2.345")).cents()).isEqualTo(-235);
+		Assertions.catchThrowableOfType(() -> Money.parse("1,50"), NumberFormatException.class);
+		Assertions.catchThrowableOfType(() -> Money.parse(""), NumberFormatException.class);
+	}
+	
+	@Test
+	public void deveFormatarComDuasCasas() {
+		Assertions.assertThat(Money.ofCents(5).toString()).isEqualTo("0.05");
+		Assertions.assertThat(Money.ofCents(-1234).toString()).isEqualTo("-12.34");
+		Assertions.assertThat(Money.ofCents(Long.MIN_VALUE).toBigDecimal())
+			.isEqualByComparingTo(new BigDecimal(Money.ofCents(Long.MIN_VALUE).toString()));
+	}
+	
+	@Test
+	public void deveCalcularSemPerderPrecisao() {
+		Assertions.assertThat(Money.parse("0.10").plus(Money.parse("0.20"))).isEqualTo(Money.parse("0.30"));
+		Assertions.assertThat(Money.of(100).minus(Money.parse("0.01"))).isEqualTo(Money.parse("99.99"));
+		Assertions.assertThat(Money.of(10).dividedBy(3)).isEqualTo(Money.parse("3.33"));
+		Assertions.assertThat(Money.ofCents(5).dividedBy(2)).isEqualTo(Money.ofCents(2)); // metade para o par
+		Assertions.assertThat(Money.ofCents(-7).dividedBy(2)).isEqualTo(Money.ofCents(-4));
+		Assertions.catchThrowableOfType(() -> Money.ofCents(Long.MAX_VALUE).plus(Money.ofCents(1)), ArithmeticException.class);
+	}
+	
+	@Test
+	public void deveSerializarComoNumeroJson() throws Exception {
+		LancamentoDTO dto = LancamentoDTO.builder().valor(Money.parse("1234.5")).build();
+		
+		String json = mapper.writeValueAsString(dto);
+		
+		Assertions.assertThat(json).contains("\"valor\":1234.50");
+		Assertions.assertThat(mapper.readValue(json, LancamentoDTO.class).getValor()).isEqualTo(Money.ofCents(123450));
+		Assertions.assertThat(mapper.readValue("{\"valor\":\"7.1\"}", LancamentoDTO.class).getValor()).isEqualTo(Money.ofCents(710));
+		Assertions.assertThat(mapper.readValue("{\"valor\":3}", LancamentoDTO.class).getValor()).isEqualTo(Money.of(3));
+	}
+	
+	/*
+	 * Perfil de alocacao: desserializar, validar (> 0) e somar os valores de uma lista.
+	 * Money aloca apenas o objeto de 24 bytes; BigDecimal aloca o valor e as somas intermediarias.
+	 */
+	@Test
+	public void deveAlocarMenosQueBigDecimal() throws Exception {
+		StringBuilder json = new StringBuilder("[");
+		for (int i = 0; i < 10_000; i++) {
+			json.append(i == 0 ? "" : ",").append(i).append('.').append(i % 100);
+		}
+		String valores = json.append(']').toString();
+		
+		for (int aquecimento = 0; aquecimento < 5; aquecimento++) {
+			somarBigDecimal(valores);
+			somarMoney(valores);
+		}
+		
+		long bytesBigDecimal = bytesAlocados(() -> somarBigDecimal(valores));
+		long bytesMoney = bytesAlocados(() -> somarMoney(valores));
+		
+		Assertions.assertThat(bytesMoney).isLessThan(bytesBigDecimal);
+	}
+	
+	private void somarBigDecimal(String json) throws Exception {
+		BigDecimal total = BigDecimal.ZERO;
+		for (BigDecimal valor : mapper.readValue(json, BigDecimal[].class)) {
+			if (valor.compareTo(BigDecimal.ZERO) >= 1) {
+				total = total.add(valor);
+			}
+		}
+		Assertions.assertThat(total.signum()).isPositive();
+	}
+	
+	private void somarMoney(String json) throws Exception {
+		long total = 0;
+		for (Money valor : mapper.readValue(json, Money[].class)) {
+			if (valor.isPositive()) {
+				total += valor.cents();
+			}
+		}
+		Assertions.assertThat(total).isPositive();
+	}
+	
+	private static long bytesAlocados(Execucao execucao) throws Exception {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long id = Thread.currentThread().getId();
+		long antes = threads.getThreadAllocatedBytes(id);
+		execucao.executar();
+		return threads.getThreadAllocatedBytes(id) - antes;
+	}
+	
+	private interface Execucao {
+		void executar() throws Exception;
+	}
+
+}
@@ -1,7 +1,8 @@
 package com.dlima.myfinancas.model.repository;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.*; // importar todos metodos estaticos da classe
@@ -12,12 +13,16 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.entity.LancamentoRemovido;
+import com.dlima.myfinancas.model.entity.Usuario;
 import com.dlima.myfinancas.model.enums.StatusLancamento;
 import com.dlima.myfinancas.model.enums.TipoLancamento;
+import com.dlima.myfinancas.model.money.Money;
 
 @RunWith(SpringRunner.class)
 @DataJpaTest
@@ -28,6 +33,9 @@ public class LancamentoRepositoryTest {
 	@Autowired
 	LancamentoRepository repository;
 	
+	@Autowired
+	LancamentoRemovidoRepository removidoRepository;
+	
 	@Autowired
 	TestEntityManager entityManager;
 	
@@ -80,18 +88,138 @@ public class LancamentoRepositoryTest {
 		assertThat(lancamentoEncontrado.isPresent()).isTrue();
 	}
 	
+	@Test
+	public void deveSomarOsLancamentosDoUsuarioPorTipoEStatus() {
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+		
+		Lancamento efetivado = criarLancamento();
+		efetivado.setUsuario(usuario);
+		efetivado.setStatus(StatusLancamento.EFETIVADO);
+		entityManager.persist(efetivado);
+		
+		Lancamento outroAno = criarLancamento();
+		outroAno.setUsuario(usuario);
+		outroAno.setAno(2019);
+		outroAno.setStatus(StatusLancamento.EFETIVADO);
+		entityManager.persist(outroAno);
+		
+		Lancamento pendente = criarLancamento();
+		pendente.setUsuario(usuario);
+		entityManager.persist(pendente);
+		
+		Long soma = repository.obterSaldoPorTipoLancamentoEUsuarioEStatus(
+				usuario.getId(), TipoLancamento.RECEITA, StatusLancamento.EFETIVADO);
+		
+		assertThat(soma).isEqualTo(2000l); // centavos
+	}
+	
+	@Test
+	public void deveDeletarEmLoteApenasOsLancamentosDoUsuario() {
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+		Usuario outroUsuario = entityManager.persist(Usuario.builder().email("outro@email.com").build());
+		
+		Lancamento doUsuario = criarLancamento();
+		doUsuario.setUsuario(usuario);
+		entityManager.persist(doUsuario);
+		
+		Lancamento deOutroMes = criarLancamento();
+		deOutroMes.setUsuario(usuario);
+		deOutroMes.setMes(6);
+		entityManager.persist(deOutroMes);
+		
+		Lancamento deOutroUsuario = criarLancamento();
+		deOutroUsuario.setUsuario(outroUsuario);
+		entityManager.persist(deOutroUsuario);
+		
+		List<Long> ids = repository.obterIdsPorUsuarioEPeriodo(usuario.getId(), 2020, 5, PageRequest.of(0, 10));
+		assertThat(ids).containsExactly(doUsuario.getId());
+		
+		int removidos = repository.deletarRegistrandoRemocao(usuario.getId(), 
+				Arrays.asList(doUsuario.getId(), deOutroUsuario.getId()));
+		entityManager.clear();
+		
+		assertThat(removidos).isEqualTo(1);
+		assertThat(entityManager.find(Lancamento.class, doUsuario.getId())).isNull();
+		assertThat(entityManager.find(Lancamento.class, deOutroMes.getId())).isNotNull();
+		assertThat(entityManager.find(Lancamento.class, deOutroUsuario.getId())).isNotNull();
+	}
+	
+	@Test
+	public void deveRetornarAsAlteracoesEAsRemocoesDesdeOToken() {
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+		long token = repository.proximaSequenciaAlteracao();
+		
+		Lancamento mantido = criarLancamento();
+		mantido.setUsuario(usuario);
+		mantido.setSequenciaAlteracao(repository.proximaSequenciaAlteracao());
+		entityManager.persist(mantido);
+		
+		Lancamento excluido = criarLancamento();
+		excluido.setUsuario(usuario);
+		excluido.setSequenciaAlteracao(repository.proximaSequenciaAlteracao());
+		entityManager.persist(excluido);
+		entityManager.flush();
+		
+		int removidos = repository.deletarRegistrandoRemocao(usuario.getId(), Arrays.asList(excluido.getId()));
+		entityManager.clear();
+		
+		assertThat(removidos).isEqualTo(1);
+		assertThat(repository.obterAlteradosDesde(usuario.getId(), token, PageRequest.of(0, 10)))
+			.extracting(Lancamento::getId).containsExactly(mantido.getId());
+		assertThat(removidoRepository.obterRemovidosDesde(usuario.getId(), token, PageRequest.of(0, 10)))
+			.extracting(LancamentoRemovido::getId).containsExactly(excluido.getId());
+		assertThat(removidoRepository.findById(excluido.getId()).get().getDataRemocao()).isNotNull(); // lida pelo expurgo
+		assertThat(repository.obterAlteradosDesde(usuario.getId(), mantido.getSequenciaAlteracao(), PageRequest.of(0, 10)))
+			.isEmpty();
+	}
+	
+	@Test
+	public void deveBuscarPorFaixasDeValorEDataTipoEStatus() {
+		Usuario usuario = entityManager.persist(UsuarioRepositoryTest.criarUsuario());
+		Lancamento mercado = persistirParaBusca(usuario, "Mercado", TipoLancamento.DESPESA, 150, LocalDate.of(2020, 5, 10));
+		Lancamento farmacia = persistirParaBusca(usuario, "Farmácia", TipoLancamento.DESPESA, 40, LocalDate.of(2020, 5, 20));
+		Lancamento salario = persistirParaBusca(usuario, "Salário", TipoLancamento.RECEITA, 3000, LocalDate.of(2020, 6, 1));
+		salario.setStatus(StatusLancamento.EFETIVADO);
+		
+		FiltroLancamento doUsuario = FiltroLancamento.builder().idUsuario(usuario.getId()).build();
+		
+		assertThat(repository.buscar(doUsuario.toBuilder().valorMin(Money.of(40)).valorMax(Money.of(150)).build()))
+			.containsExactlyInAnyOrder(mercado, farmacia); // faixas inclusivas
+		assertThat(repository.buscar(doUsuario.toBuilder().tipo(TipoLancamento.DESPESA).valorMin(Money.of(100)).build()))
+			.containsExactly(mercado);
+		assertThat(repository.buscar(doUsuario.toBuilder()
+				.dataCadastroDe(LocalDate.of(2020, 5, 15)).dataCadastroAte(LocalDate.of(2020, 6, 1)).build()))
+			.containsExactlyInAnyOrder(farmacia, salario);
+		assertThat(repository.buscar(doUsuario.toBuilder().status(StatusLancamento.EFETIVADO).build()))
+			.containsExactly(salario);
+		assertThat(repository.buscar(doUsuario.toBuilder().descricao("far").build()))
+			.containsExactly(farmacia);
+		assertThat(repository.buscar(doUsuario.toBuilder().descricao("%").build())).isEmpty(); // sem curinga
+		assertThat(repository.buscar(FiltroLancamento.builder().idUsuario(usuario.getId() + 1000).build())).isEmpty();
+	}
+	
 	public static Lancamento criarLancamento() {
 		 return Lancamento.builder()
 							.ano(2020)
 							.mes(5)
 							.descricao("lançamento qualquer")
-							.valor(BigDecimal.valueOf(10))
+							.valor(Money.of(10))
 							.tipo(TipoLancamento.RECEITA)
 							.status(StatusLancamento.PENDENTE)
 							.dataCadastro(LocalDate.now()) // ja configurado no metodo de salvar
 							.build();
 	}
 	
+	private Lancamento persistirParaBusca(Usuario usuario, String descricao, TipoLancamento tipo, long valor, LocalDate data) {
+		Lancamento lancamento = criarLancamento();
+		lancamento.setUsuario(usuario);
+		lancamento.setDescricao(descricao);
+		lancamento.setTipo(tipo);
+		lancamento.setValor(Money.of(valor));
+		lancamento.setDataCadastro(data);
+		return entityManager.persist(lancamento);
+	}
+	
 	private Lancamento criarEPersistirUmLancamento() {
 		Lancamento lancamento = criarLancamento();
 		entityManager.persist(lancamento);
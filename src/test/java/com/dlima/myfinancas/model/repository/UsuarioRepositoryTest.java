@@ -1,6 +1,8 @@
 package com.dlima.myfinancas.model.repository;
 
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.assertj.core.api.Assertions;
 import org.junit.Test;
@@ -11,6 +13,7 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 
@@ -85,6 +88,32 @@ public class UsuarioRepositoryTest {
 		Assertions.assertThat(resultado.isPresent()).isFalse();
 	}
 	
+	@Test
+	public void deveRecusarUmSegundoUsuarioComOMesmoEmail() {
+		// cenario
+		repository.saveAndFlush(criarUsuario());
+		
+		// acao
+		Throwable excecao = Assertions.catchThrowable(() -> repository.saveAndFlush(criarUsuario()));
+		
+		// verificacao: UsuarioServiceImpl reconhece a violacao pelo nome do indice
+		Assertions.assertThat(excecao).isInstanceOf(DataIntegrityViolationException.class);
+		Assertions.assertThat(((DataIntegrityViolationException) excecao).getMostSpecificCause().getMessage())
+			.containsIgnoringCase("uk_usuario_email");
+	}
+	
+	@Test
+	public void deveLerOsEmailsCadastradosPorCursor() {
+		// cenario
+		entityManager.persist(criarUsuario());
+		entityManager.persist(Usuario.builder().nome("outro").email("outro@email.com").senha("senha").build());
+		
+		// acao
+		try (Stream<String> emails = repository.obterEmails()) {
+			// verificacao
+			Assertions.assertThat(emails.collect(Collectors.toList())).contains("usuario@email.com", "outro@email.com");
+		}
+	}
 
 	public static Usuario criarUsuario() {
 		return Usuario
@@ -0,0 +1,37 @@
+package com.dlima.myfinancas.monitoramento;
+
+import org.assertj.core.api.Assertions;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+/*
+ * Matchers do MockMvc para fixar a quantidade de comandos SQL de um endpoint.
+ * O teste precisa subir com myfinancas.sql.cabecalhos=true.
+ */
+public final class ConsultasSql {
+
+	private ConsultasSql() {
+	}
+
+	public static ResultMatcher quantidade(int esperada) {
+		return resultado -> Assertions.assertThat(quantidadeExecutada(resultado))
+				.as("comandos SQL em %s", resultado.getRequest().getRequestURI())
+				.isEqualTo(esperada);
+	}
+
+	public static ResultMatcher ateMaximo(int maximo) {
+		return resultado -> Assertions.assertThat(quantidadeExecutada(resultado))
+				.as("comandos SQL em %s", resultado.getRequest().getRequestURI())
+				.isLessThanOrEqualTo(maximo);
+	}
+
+	private static int quantidadeExecutada(MvcResult resultado) {
+		String quantidade = resultado.getResponse().getHeader(FiltroOrcamentoSql.CABECALHO_QUANTIDADE);
+		Assertions.assertThat(quantidade)
+				.as("cabeçalho %s ausente: suba o teste com myfinancas.sql.cabecalhos=true",
+						FiltroOrcamentoSql.CABECALHO_QUANTIDADE)
+				.isNotNull();
+		return Integer.parseInt(quantidade);
+	}
+
+}
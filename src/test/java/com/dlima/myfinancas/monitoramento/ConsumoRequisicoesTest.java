@@ -0,0 +1,89 @@
+package com.dlima.myfinancas.monitoramento;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import com.dlima.myfinancas.api.dto.ConsumoDTO;
+import com.dlima.myfinancas.api.dto.RankingConsumoDTO;
+
+public class ConsumoRequisicoesTest {
+
+	AtomicLong agora = new AtomicLong(1_000_000);
+
+	// 6 fatias de 10 s, sketch 4 x 1024, 20 candidatos
+	ConsumoRequisicoes consumo = new ConsumoRequisicoes(6, 10_000, 4, 1024, 20, agora::get);
+
+	@Test
+	public void deveEncontrarOsMaioresEntreMuitosUsuarios() {
+		// cenario: 20000 usuarios com uma requisicao e tres com muitas, misturados
+		for (long usuario = 1; usuario <= 20_000; usuario++) {
+			consumo.registrar(usuario, "GET /api/lancamentos", 100, 10);
+			if (usuario % 100 == 0) {
+				for (int i = 0; i < 5; i++) {
+					consumo.registrar(-1l, "GET /api/lancamentos", 100, 10);
+					consumo.registrar(-2l, "GET /api/lancamentos", 100, 10);
+				}
+				for (int i = 0; i < 3; i++) {
+					consumo.registrar(-3l, "GET /api/usuarios/{id}/saldo", 100, 10);
+				}
+			}
+		}
+
+		// execucao
+		RankingConsumoDTO ranking = consumo.obterMaiores(MetricaConsumo.REQUISICOES, 60, 3);
+
+		// verificacao: estimativas nunca abaixo do real e perto dele
+		List<ConsumoDTO> usuarios = ranking.getUsuarios();
+		Assertions.assertThat(usuarios).extracting(ConsumoDTO::getChave).containsExactlyInAnyOrder("-1", "-2", "-3");
+		Assertions.assertThat(usuarios.get(2).getChave()).isEqualTo("-3");
+		Assertions.assertThat(usuarios.get(2).getRequisicoes()).isBetween(600l, 700l);
+		Assertions.assertThat(usuarios.get(0).getRequisicoes()).isBetween(1000l, 1100l);
+		Assertions.assertThat(usuarios.get(0).getTempoBancoMs()).isGreaterThanOrEqualTo(100.0);
+
+		Assertions.assertThat(ranking.getEndpoints()).extracting(ConsumoDTO::getChave)
+			.containsExactly("GET /api/lancamentos", "GET /api/usuarios/{id}/saldo");
+		Assertions.assertThat(ranking.getEndpoints().get(0).getRequisicoes()).isEqualTo(22_000);
+	}
+
+	@Test
+	public void deveOrdenarPelaMetricaPedida() {
+		consumo.registrar(1l, "GET /api/lancamentos", 50_000, 100);
+		consumo.registrar(2l, "GET /api/usuarios/{id}/extrato", 1_000, 900_000);
+		consumo.registrar(3l, "GET /api/lancamentos", 1_000, 100);
+		consumo.registrar(3l, "GET /api/lancamentos", 1_000, 100);
+
+		Assertions.assertThat(consumo.obterMaiores(MetricaConsumo.TEMPO_BANCO, 60, 1).getUsuarios())
+			.extracting(ConsumoDTO::getChave, ConsumoDTO::getTempoBancoMs).containsExactly(Assertions.tuple("1", 50.0));
+		Assertions.assertThat(consumo.obterMaiores(MetricaConsumo.BYTES, 60, 1).getUsuarios())
+			.extracting(ConsumoDTO::getChave).containsExactly("2");
+		Assertions.assertThat(consumo.obterMaiores(MetricaConsumo.REQUISICOES, 60, 1).getUsuarios())
+			.extracting(ConsumoDTO::getChave).containsExactly("3");
+		Assertions.assertThat(consumo.obterMaiores(MetricaConsumo.BYTES, 60, 1).getEndpoints())
+			.extracting(ConsumoDTO::getChave).containsExactly("GET /api/usuarios/{id}/extrato");
+	}
+
+	@Test
+	public void deveConsiderarApenasAsFatiasDaJanela() {
+		consumo.registrar(1l, "GET /api/lancamentos", 0, 0);
+		agora.addAndGet(30_000);
+		consumo.registrar(2l, "GET /api/lancamentos", 0, 0);
+
+		Assertions.assertThat(consumo.obterMaiores(MetricaConsumo.REQUISICOES, 10, 10).getUsuarios())
+			.extracting(ConsumoDTO::getChave).containsExactly("2");
+		RankingConsumoDTO janelaToda = consumo.obterMaiores(MetricaConsumo.REQUISICOES, 3600, 10);
+		Assertions.assertThat(janelaToda.getJanelaSegundos()).isEqualTo(60);
+		Assertions.assertThat(janelaToda.getUsuarios()).extracting(ConsumoDTO::getChave).containsExactlyInAnyOrder("1", "2");
+
+		// a fatia do usuario 1 sai da janela e e reaproveitada
+		agora.addAndGet(35_000);
+		consumo.registrar(3l, "GET /api/lancamentos", 0, 0);
+		Assertions.assertThat(consumo.obterMaiores(MetricaConsumo.REQUISICOES, 60, 10).getUsuarios())
+			.extracting(ConsumoDTO::getChave).containsExactlyInAnyOrder("2", "3");
+		Assertions.assertThat(consumo.obterMaiores(MetricaConsumo.REQUISICOES, 60, 10).getEndpoints().get(0).getRequisicoes())
+			.isEqualTo(2);
+	}
+
+}
@@ -0,0 +1,58 @@
+package com.dlima.myfinancas.monitoramento;
+
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import com.dlima.myfinancas.model.entity.Usuario;
+import com.dlima.myfinancas.model.repository.UsuarioRepository;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@SpringBootTest
+@AutoConfigureMockMvc
+public class FiltroConsumoTest {
+
+	@Autowired
+	MockMvc mvc;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@Test
+	public void deveExporOsMaioresConsumidoresNoAdmin() throws Exception {
+		// cenario
+		Usuario usuario = usuarioRepository.save(Usuario.builder().nome("usuario")
+				.email("consumo" + System.nanoTime() + "@email.com").senha("senha").build());
+		for (int i = 0; i < 3; i++) {
+			mvc.perform(MockMvcRequestBuilders.get("/api/lancamentos").param("usuario", usuario.getId().toString()))
+				.andExpect(MockMvcResultMatchers.status().isOk());
+		}
+		mvc.perform(MockMvcRequestBuilders.get("/api/usuarios/" + usuario.getId() + "/saldo"))
+			.andExpect(MockMvcResultMatchers.status().isOk());
+
+		// execucao e verificacao
+		String chave = usuario.getId().toString();
+		mvc.perform(MockMvcRequestBuilders.get("/api/admin/consumo").param("metrica", "REQUISICOES").param("limite", "50"))
+			.andExpect(MockMvcResultMatchers.status().isOk())
+			.andExpect(MockMvcResultMatchers.jsonPath("$.janelaSegundos").value(60))
+			.andExpect(MockMvcResultMatchers.jsonPath("$.usuarios[?(@.chave == '" + chave + "')].requisicoes")
+					.value(Matchers.contains(Matchers.greaterThanOrEqualTo(4))))
+			.andExpect(MockMvcResultMatchers.jsonPath("$.usuarios[?(@.chave == '" + chave + "')].bytes")
+					.value(Matchers.contains(Matchers.greaterThan(0))))
+			.andExpect(MockMvcResultMatchers.jsonPath("$.endpoints[*].chave")
+					.value(Matchers.hasItems("GET /api/lancamentos", "GET /api/usuarios/{id}/saldo")));
+
+		mvc.perform(MockMvcRequestBuilders.get("/api/admin/consumo").param("limite", "0"))
+			.andExpect(MockMvcResultMatchers.status().isBadRequest());
+	}
+
+}
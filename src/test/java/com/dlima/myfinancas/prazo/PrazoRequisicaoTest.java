@@ -0,0 +1,164 @@
+package com.dlima.myfinancas.prazo;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import com.dlima.myfinancas.model.entity.Usuario;
+import com.dlima.myfinancas.model.repository.UsuarioRepository;
+import com.dlima.myfinancas.service.LancamentoService;
+import com.dlima.myfinancas.service.UsuarioService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@SpringBootTest(properties = { "myfinancas.prazo.padrao-ms=20000", "myfinancas.prazo.maximo-ms=40000" })
+@AutoConfigureMockMvc
+public class PrazoRequisicaoTest {
+
+	@Autowired
+	MockMvc mvc;
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@Autowired
+	MeterRegistry registry;
+
+	@SpyBean
+	UsuarioService usuarioService;
+
+	@SpyBean
+	LancamentoService lancamentoService;
+
+	Usuario usuario;
+
+	List<Long> restantes = new ArrayList<>(); // prazo visto pelo servico
+
+	@Before
+	public void setUp() {
+		usuario = usuarioRepository.save(Usuario.builder().nome("usuario")
+				.email("prazo" + System.nanoTime() + "@email.com").senha("senha").build());
+		Mockito.doAnswer(chamada -> {
+			restantes.add(ContextoPrazo.restanteMs());
+			return chamada.callRealMethod();
+		}).when(usuarioService).obterPorId(ArgumentMatchers.anyLong());
+		Mockito.doAnswer(chamada -> {
+			restantes.add(ContextoPrazo.restanteMs());
+			return chamada.callRealMethod();
+		}).when(lancamentoService).deletarPorPeriodo(ArgumentMatchers.anyLong(), ArgumentMatchers.anyInt(), ArgumentMatchers.any());
+	}
+
+	@After
+	public void finalizar() {
+		ContextoPrazo.encerrar();
+	}
+
+	@Test
+	public void deveUsarOCabecalhoOuOPadraoDoEndpoint() throws Exception {
+		mvc.perform(MockMvcRequestBuilders.get("/api/lancamentos").param("usuario", usuario.getId().toString()))
+			.andExpect(MockMvcResultMatchers.status().isOk());
+		mvc.perform(MockMvcRequestBuilders.get("/api/usuarios/" + usuario.getId() + "/saldo"))
+			.andExpect(MockMvcResultMatchers.status().isOk());
+		mvc.perform(MockMvcRequestBuilders.get("/api/usuarios/" + usuario.getId() + "/saldo")
+				.header(InterceptorPrazo.CABECALHO, "5000"))
+			.andExpect(MockMvcResultMatchers.status().isOk());
+		mvc.perform(MockMvcRequestBuilders.get("/api/usuarios/" + usuario.getId() + "/saldo")
+				.header(InterceptorPrazo.CABECALHO, "90000"))
+			.andExpect(MockMvcResultMatchers.status().isOk());
+
+		// @PrazoPadrao da busca, myfinancas.prazo.padrao-ms, cabecalho, cabecalho limitado ao maximo
+		Assertions.assertThat(restantes).hasSize(4);
+		Assertions.assertThat(restantes.get(0)).isBetween(9000l, 10000l);
+		Assertions.assertThat(restantes.get(1)).isBetween(19000l, 20000l);
+		Assertions.assertThat(restantes.get(2)).isBetween(4000l, 5000l);
+		Assertions.assertThat(restantes.get(3)).isBetween(39000l, 40000l);
+		Assertions.assertThat(ContextoPrazo.restanteMs()).isNull();
+	}
+
+	@Test
+	public void naoDeveLimitarAExclusaoEmLotesPeloPrazoPadrao() throws Exception {
+		mvc.perform(MockMvcRequestBuilders.delete("/api/lancamentos").param("usuario", usuario.getId().toString())
+				.param("ano", "2020"))
+			.andExpect(MockMvcResultMatchers.status().isOk());
+
+		Assertions.assertThat(restantes).containsExactly((Long) null);
+	}
+
+	@Test
+	public void deveRecusarCabecalhoInvalido() throws Exception {
+		mvc.perform(MockMvcRequestBuilders.get("/api/usuarios/" + usuario.getId() + "/saldo")
+				.header(InterceptorPrazo.CABECALHO, "0"))
+			.andExpect(MockMvcResultMatchers.status().isBadRequest());
+		mvc.perform(MockMvcRequestBuilders.get("/api/usuarios/" + usuario.getId() + "/saldo")
+				.header(InterceptorPrazo.CABECALHO, "dez"))
+			.andExpect(MockMvcResultMatchers.status().isBadRequest());
+
+		Assertions.assertThat(restantes).isEmpty();
+	}
+
+	@Test
+	public void deveResponder504SemIrAoBancoComOPrazoEsgotado() throws Exception {
+		// cenario: o servico demora mais que o prazo antes da primeira consulta
+		Mockito.doAnswer(chamada -> {
+			Thread.sleep(100);
+			return chamada.callRealMethod();
+		}).when(usuarioService).obterPorId(ArgumentMatchers.anyLong());
+		double antes = cancelamentos("GET /api/lancamentos");
+
+		// execucao e verificacao
+		mvc.perform(MockMvcRequestBuilders.get("/api/lancamentos").param("usuario", usuario.getId().toString())
+				.header(InterceptorPrazo.CABECALHO, "20"))
+			.andExpect(MockMvcResultMatchers.status().isGatewayTimeout());
+
+		Assertions.assertThat(cancelamentos("GET /api/lancamentos")).isEqualTo(antes + 1);
+		Assertions.assertThat(ContextoPrazo.restanteMs()).isNull();
+	}
+
+	@Test
+	public void deveCancelarNoBancoAConsultaQuePassaDoPrazo() {
+		ContextoPrazo.iniciar(500);
+		long inicio = System.nanoTime();
+
+		// o H2 varre a faixa inteira para somar: sem o query timeout levaria minutos
+		Assertions.assertThatThrownBy(() -> jdbcTemplate.queryForObject(
+				"SELECT SUM(X) FROM SYSTEM_RANGE(1, 100000000000)", Long.class))
+			.isInstanceOf(QueryTimeoutException.class);
+		Assertions.assertThat(System.nanoTime() - inicio).isLessThan(5_000_000_000l);
+
+		// sem prazo o timeout da conexao devolvida ao pool volta a zero
+		ContextoPrazo.encerrar();
+		Assertions.assertThat(jdbcTemplate.queryForObject("SELECT SUM(X) FROM SYSTEM_RANGE(1, 10)", Long.class))
+			.isEqualTo(55l);
+		Assertions.assertThat(jdbcTemplate.execute((Statement comando) -> comando.getQueryTimeout()))
+			.isZero();
+	}
+
+	private double cancelamentos(String endpoint) {
+		return registry.counter("myfinancas.requisicoes.canceladas", "endpoint", endpoint, "motivo", "prazo").count();
+	}
+
+}
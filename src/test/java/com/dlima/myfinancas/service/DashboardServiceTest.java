@@ -0,0 +1,91 @@
+package com.dlima.myfinancas.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.dlima.myfinancas.api.dto.DashboardDTO;
+import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.entity.Usuario;
+import com.dlima.myfinancas.model.enums.StatusLancamento;
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.model.repository.LancamentoRepositoryTest;
+import com.dlima.myfinancas.service.impl.DashboardServiceImpl;
+
+public class DashboardServiceTest {
+	
+	UsuarioService usuarioService = Mockito.mock(UsuarioService.class);
+	
+	LancamentoService lancamentoService = Mockito.mock(LancamentoService.class);
+	
+	ExecutorService executor = Executors.newFixedThreadPool(4);
+	
+	DashboardService service = new DashboardServiceImpl(usuarioService, lancamentoService, executor);
+	
+	@After
+	public void finalizar() {
+		executor.shutdownNow();
+	}
+	
+	@Test
+	public void deveMontarODashboardComTodasAsConsultas() {
+		// cenario
+		Usuario usuario = Usuario.builder().id(1l).build();
+		Lancamento pendente = LancamentoRepositoryTest.criarLancamento();
+		
+		Mockito.when(usuarioService.obterPorId(1l)).thenReturn(Optional.of(usuario));
+		Mockito.when(lancamentoService.obterSaldoPorUsuario(1l)).thenReturn(Money.of(10));
+		Mockito.when(lancamentoService.buscar(Mockito.argThat(f -> f != null && f.getStatus() == null)))
+			.thenReturn(Collections.emptyList());
+		Mockito.when(lancamentoService.buscar(Mockito.argThat(f -> f != null && f.getStatus() == StatusLancamento.PENDENTE)))
+			.thenReturn(Arrays.asList(pendente));
+		
+		// execucao
+		Optional<DashboardDTO> dashboard = service.obterDashboard(1l);
+		
+		// verificacao
+		Assertions.assertThat(dashboard).isPresent();
+		Assertions.assertThat(dashboard.get().getUsuario()).isEqualTo(usuario);
+		Assertions.assertThat(dashboard.get().getSaldo()).isEqualTo(Money.of(10));
+		Assertions.assertThat(dashboard.get().getLancamentosDoMes()).isEmpty();
+		Assertions.assertThat(dashboard.get().getPendentes()).containsExactly(pendente);
+		Mockito.verify(usuarioService, Mockito.times(1)).obterPorId(1l);
+	}
+	
+	@Test
+	public void deveExecutarAsConsultasEmParalelo() {
+		// cada consulta de lancamentos so termina quando as tres estiverem em execucao ao mesmo tempo
+		CountDownLatch emExecucao = new CountDownLatch(3);
+		Mockito.when(usuarioService.obterPorId(1l)).thenReturn(Optional.of(new Usuario()));
+		Mockito.when(lancamentoService.obterSaldoPorUsuario(1l)).thenAnswer(i -> aguardar(emExecucao, Money.ZERO));
+		Mockito.when(lancamentoService.buscar(Mockito.any())).thenAnswer(i -> aguardar(emExecucao, Collections.emptyList()));
+		
+		Assertions.assertThat(service.obterDashboard(1l)).isPresent();
+	}
+	
+	@Test
+	public void deveRetornarVazioQuandoUsuarioNaoExiste() {
+		Mockito.when(usuarioService.obterPorId(1l)).thenReturn(Optional.empty());
+		
+		Assertions.assertThat(service.obterDashboard(1l)).isEmpty();
+		Mockito.verifyZeroInteractions(lancamentoService);
+	}
+	
+	private static <T> T aguardar(CountDownLatch latch, T retorno) throws InterruptedException {
+		latch.countDown();
+		if (!latch.await(5, TimeUnit.SECONDS)) {
+			throw new IllegalStateException("consultas executadas em sequencia");
+		}
+		return retorno;
+	}
+
+}
@@ -0,0 +1,194 @@
+package com.dlima.myfinancas.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.dlima.myfinancas.api.dto.AlteracaoSaldoDTO;
+import com.dlima.myfinancas.event.LancamentoAlteradoEvent;
+import com.dlima.myfinancas.event.TipoAlteracao;
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.service.impl.EventosUsuarioServiceImpl;
+
+public class EventosUsuarioServiceTest {
+
+	LancamentoService lancamentoService = Mockito.mock(LancamentoService.class);
+
+	// executa as tarefas so quando o teste manda, simulando um consumidor lento
+	Queue<Runnable> tarefas = new LinkedList<>();
+
+	EventosUsuarioServiceImpl service = new EventosUsuarioServiceImpl(lancamentoService, tarefas::add, 60000, 2, 3);
+
+	@Test
+	public void deveEnviarSaldoEIdsAlteradosCalculandoOSaldoUmaVezPorUsuario() {
+		// cenario
+		EmissorTeste primeiro = new EmissorTeste();
+		EmissorTeste segundo = new EmissorTeste();
+		service.registrar(1l, primeiro);
+		service.registrar(1l, segundo);
+		Mockito.when(lancamentoService.obterSaldoPorUsuario(1l)).thenReturn(Money.of(50));
+
+		// execucao
+		service.processar(Arrays.asList(new LancamentoAlteradoEvent(1l, Arrays.asList(7l), TipoAlteracao.ATUALIZADO)));
+		executarTarefas();
+
+		// verificacao
+		Mockito.verify(lancamentoService, Mockito.times(1)).obterSaldoPorUsuario(1l);
+		for (EmissorTeste emissor : Arrays.asList(primeiro, segundo)) {
+			Assertions.assertThat(emissor.alteracoes).hasSize(1);
+			Assertions.assertThat(emissor.alteracoes.get(0).getSaldo()).isEqualTo(Money.of(50));
+			Assertions.assertThat(emissor.alteracoes.get(0).getLancamentos()).containsExactly(7l);
+		}
+	}
+
+	@Test
+	public void deveSomarAsAlteracoesDoUsuarioNoMesmoLote() {
+		// cenario
+		EmissorTeste emissor = new EmissorTeste();
+		service.registrar(1l, emissor);
+		Mockito.when(lancamentoService.obterSaldoPorUsuario(1l)).thenReturn(Money.of(30));
+
+		// execucao
+		service.processar(Arrays.asList(
+				new LancamentoAlteradoEvent(1l, Arrays.asList(7l), TipoAlteracao.CRIADO),
+				new LancamentoAlteradoEvent(2l, Arrays.asList(9l), TipoAlteracao.CRIADO),
+				new LancamentoAlteradoEvent(1l, Arrays.asList(8l), TipoAlteracao.STATUS_ALTERADO)));
+		executarTarefas();
+
+		// verificacao
+		Mockito.verify(lancamentoService, Mockito.times(1)).obterSaldoPorUsuario(1l);
+		Mockito.verify(lancamentoService, Mockito.never()).obterSaldoPorUsuario(2l);
+		Assertions.assertThat(emissor.alteracoes).hasSize(1);
+		Assertions.assertThat(emissor.alteracoes.get(0).getLancamentos()).containsExactly(7l, 8l);
+	}
+
+	@Test
+	public void naoDeveConsultarSaldoDeUsuarioSemAssinantes() {
+		service.processar(Arrays.asList(new LancamentoAlteradoEvent(1l, Arrays.asList(7l), TipoAlteracao.ATUALIZADO)));
+		executarTarefas();
+
+		Mockito.verify(lancamentoService, Mockito.never()).obterSaldoPorUsuario(Mockito.anyLong());
+	}
+
+	@Test
+	public void deveAglutinarAlteracoesEnquantoOEnvioEstaPendente() {
+		// cenario
+		EmissorTeste emissor = new EmissorTeste();
+		service.registrar(1l, emissor);
+		Mockito.when(lancamentoService.obterSaldoPorUsuario(1l)).thenReturn(Money.of(10), Money.of(20));
+
+		// execucao: duas alteracoes antes do envio sair
+		service.distribuir(1l, Arrays.asList(1l));
+		service.distribuir(1l, Arrays.asList(2l));
+		executarTarefas();
+
+		// verificacao
+		Assertions.assertThat(emissor.alteracoes).hasSize(1);
+		Assertions.assertThat(emissor.alteracoes.get(0).getSaldo()).isEqualTo(Money.of(20));
+		Assertions.assertThat(emissor.alteracoes.get(0).getLancamentos()).containsExactly(1l, 2l);
+		Assertions.assertThat(emissor.alteracoes.get(0).isRessincronizar()).isFalse();
+	}
+
+	@Test
+	public void deveDescartarIdsEPedirRessincronizacaoAoPassarDoLimite() {
+		// cenario
+		EmissorTeste emissor = new EmissorTeste();
+		service.registrar(1l, emissor);
+		Mockito.when(lancamentoService.obterSaldoPorUsuario(1l)).thenReturn(Money.of(10));
+
+		// execucao
+		service.distribuir(1l, Arrays.asList(1l, 2l, 3l, 4l));
+		executarTarefas();
+
+		// verificacao
+		Assertions.assertThat(emissor.alteracoes).hasSize(1);
+		Assertions.assertThat(emissor.alteracoes.get(0).getLancamentos()).isEmpty();
+		Assertions.assertThat(emissor.alteracoes.get(0).isRessincronizar()).isTrue();
+	}
+
+	@Test
+	public void deveRemoverAssinanteDesconectado() {
+		// cenario
+		EmissorTeste emissor = new EmissorTeste();
+		emissor.desconectado = true;
+		service.registrar(1l, emissor);
+		Mockito.when(lancamentoService.obterSaldoPorUsuario(1l)).thenReturn(Money.of(10));
+
+		// execucao
+		service.distribuir(1l, Arrays.asList(1l));
+		executarTarefas();
+
+		// verificacao
+		Assertions.assertThat(service.quantidadeAssinantes(1l)).isZero();
+	}
+
+	@Test
+	public void deveEncerrarAConexaoMaisAntigaAoPassarDoLimitePorUsuario() {
+		service.registrar(1l, new EmissorTeste());
+		service.registrar(1l, new EmissorTeste());
+		service.registrar(1l, new EmissorTeste());
+
+		Assertions.assertThat(service.quantidadeAssinantes(1l)).isEqualTo(2);
+	}
+
+	@Test
+	public void deveEnviarOHeartbeatForaDaThreadDoAgendador() {
+		// cenario
+		EmissorTeste ocupado = new EmissorTeste();
+		EmissorTeste livre = new EmissorTeste();
+		service.registrar(1l, ocupado);
+		service.registrar(2l, livre);
+		Mockito.when(lancamentoService.obterSaldoPorUsuario(1l)).thenReturn(Money.of(10));
+		service.distribuir(1l, Arrays.asList(5l)); // envio da alteracao ainda na fila
+
+		// execucao
+		service.enviarHeartbeat();
+
+		// verificacao: nada enviado pela thread do agendador, e so um envio por vez em cada assinante
+		Assertions.assertThat(ocupado.envios + livre.envios).isZero();
+		executarTarefas();
+		Assertions.assertThat(ocupado.envios).isEqualTo(1);
+		Assertions.assertThat(ocupado.alteracoes).hasSize(1);
+		Assertions.assertThat(livre.envios).isEqualTo(1);
+	}
+
+	private void executarTarefas() {
+		Runnable tarefa;
+		while ((tarefa = tarefas.poll()) != null) {
+			tarefa.run();
+		}
+	}
+
+	static class EmissorTeste extends SseEmitter {
+
+		List<AlteracaoSaldoDTO> alteracoes = new ArrayList<>();
+
+		boolean desconectado;
+
+		int envios;
+
+		@Override
+		public void send(SseEventBuilder evento) throws IOException {
+			if (desconectado) {
+				throw new IOException("Broken pipe");
+			}
+			envios++;
+			for (DataWithMediaType dado : evento.build()) {
+				if (dado.getData() instanceof AlteracaoSaldoDTO) {
+					alteracoes.add((AlteracaoSaldoDTO) dado.getData());
+				}
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,96 @@
+package com.dlima.myfinancas.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import com.dlima.myfinancas.api.dto.LinhaExtratoDTO;
+import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.entity.Usuario;
+import com.dlima.myfinancas.model.enums.StatusLancamento;
+import com.dlima.myfinancas.model.enums.TipoLancamento;
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.model.repository.UsuarioRepository;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ExtratoLancamentoTest {
+
+	@Autowired
+	LancamentoService lancamentoService;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@Autowired
+	MockMvc mvc;
+
+	Usuario usuario;
+
+	@Before
+	public void setUp() {
+		usuario = usuarioRepository.save(Usuario.builder().nome("usuario")
+				.email("extrato" + System.nanoTime() + "@email.com").senha("senha").build());
+		salvar(2019, 12, "Salário", TipoLancamento.RECEITA, 1000, StatusLancamento.EFETIVADO);
+		salvar(2019, 12, "Conta futura", TipoLancamento.DESPESA, 200, StatusLancamento.PENDENTE);
+		salvar(2020, 1, "Mercado", TipoLancamento.DESPESA, 100, StatusLancamento.EFETIVADO);
+		salvar(2020, 1, "Reembolso", TipoLancamento.RECEITA, 50, StatusLancamento.EFETIVADO);
+		salvar(2020, 1, "Compra desfeita", TipoLancamento.DESPESA, 30, StatusLancamento.CANCELADO);
+		salvar(2020, 2, "Aluguel", TipoLancamento.DESPESA, 400, StatusLancamento.EFETIVADO);
+	}
+
+	@Test
+	public void deveAcumularOSaldoAPartirDoSaldoAnteriorAoPeriodo() {
+		List<LinhaExtratoDTO> janeiro = extrato(2020, 1);
+		Assertions.assertThat(janeiro).extracting(LinhaExtratoDTO::getDescricao).containsExactly("Mercado", "Reembolso");
+		Assertions.assertThat(janeiro).extracting(LinhaExtratoDTO::getSaldo).containsExactly(Money.of(900), Money.of(950));
+
+		Assertions.assertThat(extrato(2020, 2)).extracting(LinhaExtratoDTO::getSaldo).containsExactly(Money.of(550));
+		Assertions.assertThat(extrato(2020, null)).extracting(LinhaExtratoDTO::getSaldo)
+			.containsExactly(Money.of(900), Money.of(950), Money.of(550));
+		Assertions.assertThat(extrato(2021, null)).isEmpty();
+	}
+
+	@Test
+	public void deveEscreverOExtratoPeloEndpoint() throws Exception {
+		MvcResult resultado = mvc.perform(MockMvcRequestBuilders.get("/api/usuarios/" + usuario.getId() + "/extrato")
+				.param("ano", "2020").param("mes", "1"))
+			.andExpect(MockMvcResultMatchers.request().asyncStarted())
+			.andReturn();
+
+		mvc.perform(MockMvcRequestBuilders.asyncDispatch(resultado))
+			.andExpect(MockMvcResultMatchers.status().isOk())
+			.andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(2))
+			.andExpect(MockMvcResultMatchers.jsonPath("$[0].valor").value(100.0))
+			.andExpect(MockMvcResultMatchers.jsonPath("$[0].tipo").value("DESPESA"))
+			.andExpect(MockMvcResultMatchers.jsonPath("$[1].saldo").value(950.0));
+	}
+
+	private List<LinhaExtratoDTO> extrato(Integer ano, Integer mes) {
+		List<LinhaExtratoDTO> linhas = new ArrayList<>();
+		lancamentoService.exportarExtrato(usuario.getId(), ano, mes, linhas::add);
+		return linhas;
+	}
+
+	private void salvar(int ano, int mes, String descricao, TipoLancamento tipo, long valor, StatusLancamento status) {
+		Lancamento lancamento = Lancamento.builder().usuario(usuario).ano(ano).mes(mes).descricao(descricao)
+				.tipo(tipo).valor(Money.of(valor)).build();
+		lancamentoService.atualizarStatus(lancamentoService.salvar(lancamento), status);
+	}
+
+}
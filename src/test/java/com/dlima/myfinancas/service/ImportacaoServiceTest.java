@@ -0,0 +1,164 @@
+package com.dlima.myfinancas.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import com.dlima.myfinancas.api.dto.ResultadoImportacaoDTO;
+import com.dlima.myfinancas.exception.RegraNegocioException;
+import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.entity.Usuario;
+import com.dlima.myfinancas.model.enums.StatusLancamento;
+import com.dlima.myfinancas.model.enums.TipoLancamento;
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.model.repository.UsuarioRepository;
+import com.dlima.myfinancas.service.importacao.FormatoExtrato;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@SpringBootTest(properties = { "myfinancas.importacao.tamanho-lote=2", "myfinancas.importacao.maximo-erros=1" })
+@AutoConfigureMockMvc
+public class ImportacaoServiceTest {
+	
+	static final String EXTRATO = "data;descricao;valor\n"
+			+ "05/01/2020;Mercado;-100,00\n"
+			+ "05/01/2020;Mercado;-100,00\n" // mesma compra duas vezes no dia: dois lancamentos
+			+ "10/01/2020;Salário;1.000,00\n"
+			+ "11/01/2020;;-5,00\n"
+			+ "12/01/2020;Zerado;0,00\n"
+			+ "03/02/2020;Aluguel;-500,00\n";
+	
+	@Rule
+	public TemporaryFolder pasta = new TemporaryFolder();
+	
+	@Autowired
+	ImportacaoService service;
+	
+	@Autowired
+	LancamentoService lancamentoService;
+	
+	@Autowired
+	ResumoMensalService resumoService;
+	
+	@Autowired
+	UsuarioRepository usuarioRepository;
+	
+	@Autowired
+	MockMvc mvc;
+	
+	Usuario usuario;
+	
+	@Before
+	public void setUp() {
+		usuario = usuarioRepository.save(Usuario.builder().nome("usuario")
+				.email("importacao" + System.nanoTime() + "@email.com").senha("senha").build());
+	}
+	
+	@Test
+	public void deveImportarEmLotesComTipoPeloSinalEErrosPorLinha() throws IOException {
+		// execucao
+		ResultadoImportacaoDTO resultado = service.importar(usuario.getId(), arquivo(EXTRATO), FormatoExtrato.CSV, StandardCharsets.UTF_8);
+		
+		// verificacao
+		Assertions.assertThat(resultado.getLidas()).isEqualTo(6);
+		Assertions.assertThat(resultado.getImportadas()).isEqualTo(4);
+		Assertions.assertThat(resultado.getDuplicadas()).isZero();
+		Assertions.assertThat(resultado.getComErro()).isEqualTo(2);
+		Assertions.assertThat(resultado.getErros()).hasSize(1); // limitado pela configuracao
+		Assertions.assertThat(resultado.getErros().get(0).getLinha()).isEqualTo(5);
+		
+		List<Lancamento> lancamentos = lancamentoService.buscar(Lancamento.builder().usuario(usuario).build());
+		Assertions.assertThat(lancamentos).hasSize(4);
+		Assertions.assertThat(lancamentos).allMatch(l -> l.getStatus() == StatusLancamento.EFETIVADO);
+		Assertions.assertThat(lancamentos).filteredOn(l -> l.getTipo() == TipoLancamento.RECEITA)
+			.extracting(Lancamento::getValor).containsExactly(Money.of(1000));
+		Assertions.assertThat(lancamentos).filteredOn(l -> l.getDescricao().equals("Aluguel"))
+			.extracting(Lancamento::getMes).containsExactly(2);
+		
+		// resumos reconstruidos no fim da importacao
+		Assertions.assertThat(lancamentoService.obterSaldoPorUsuario(usuario.getId())).isEqualTo(Money.of(300));
+		Assertions.assertThat(resumoService.obterPorUsuario(usuario.getId())).hasSize(2);
+	}
+	
+	@Test
+	public void naoDeveDuplicarAoReimportarOMesmoExtrato() throws IOException {
+		service.importar(usuario.getId(), arquivo(EXTRATO), FormatoExtrato.CSV, StandardCharsets.UTF_8);
+		
+		// o mesmo periodo, agora com um lancamento a mais
+		ResultadoImportacaoDTO resultado = service.importar(usuario.getId(), 
+				arquivo(EXTRATO + "04/02/2020;Mercado;-100,00\n"), FormatoExtrato.CSV, StandardCharsets.UTF_8);
+		
+		Assertions.assertThat(resultado.getImportadas()).isEqualTo(1);
+		Assertions.assertThat(resultado.getDuplicadas()).isEqualTo(4);
+		Assertions.assertThat(lancamentoService.buscar(Lancamento.builder().usuario(usuario).build())).hasSize(5);
+	}
+	
+	@Test
+	public void deveContarRepetidasNoExtratoEmOrdemDecrescente() throws IOException {
+		ResultadoImportacaoDTO resultado = service.importar(usuario.getId(), arquivo("data;descricao;valor\n"
+				+ "06/01/2020;Padaria;-10,00\n"
+				+ "05/01/2020;Padaria;-10,00\n"
+				+ "05/01/2020;Padaria;-10,00\n"), FormatoExtrato.CSV, StandardCharsets.UTF_8);
+		
+		Assertions.assertThat(resultado.getImportadas()).isEqualTo(3);
+	}
+	
+	@Test
+	public void deveRecusarExtratoForaDeOrdemDeData() {
+		String foraDeOrdem = "data;descricao;valor\n"
+				+ "05/01/2020;Padaria;-10,00\n"
+				+ "06/01/2020;Padaria;-10,00\n"
+				+ "05/01/2020;Padaria;-10,00\n"; // o dia 5 volta: a contagem de repetidas ja foi descartada
+		
+		Assertions.assertThatThrownBy(() -> service.importar(usuario.getId(), arquivo(foraDeOrdem), 
+				FormatoExtrato.CSV, StandardCharsets.UTF_8))
+			.isInstanceOf(RegraNegocioException.class)
+			.hasMessageContaining("linha 4");
+	}
+	
+	@Test
+	public void deveImportarOExtratoEnviadoPeloEndpoint() throws Exception {
+		MockMultipartFile arquivo = new MockMultipartFile("arquivo", "extrato.ofx", "application/x-ofx",
+				("<OFX><STMTTRN><DTPOSTED>20200105<TRNAMT>-45.90<FITID>A1<MEMO>Farmacia</STMTTRN></OFX>")
+				.getBytes(StandardCharsets.UTF_8));
+		
+		mvc.perform(MockMvcRequestBuilders.multipart("/api/lancamentos/importar").file(arquivo)
+				.param("usuario", usuario.getId().toString()))
+			.andExpect(MockMvcResultMatchers.status().isOk())
+			.andExpect(MockMvcResultMatchers.jsonPath("$.importadas").value(1));
+		
+		mvc.perform(MockMvcRequestBuilders.multipart("/api/lancamentos/importar").file(arquivo)
+				.param("usuario", usuario.getId().toString()))
+			.andExpect(MockMvcResultMatchers.jsonPath("$.duplicadas").value(1));
+		
+		MockMultipartFile semFormato = new MockMultipartFile("arquivo", "extrato.pdf", null, new byte[1]);
+		mvc.perform(MockMvcRequestBuilders.multipart("/api/lancamentos/importar").file(semFormato)
+				.param("usuario", usuario.getId().toString()))
+			.andExpect(MockMvcResultMatchers.status().isBadRequest());
+	}
+	
+	private Path arquivo(String conteudo) throws IOException {
+		Path arquivo = pasta.newFile().toPath();
+		Files.write(arquivo, conteudo.getBytes(StandardCharsets.UTF_8));
+		return arquivo;
+	}
+
+}
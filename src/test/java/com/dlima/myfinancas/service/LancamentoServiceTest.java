@@ -1,26 +1,45 @@
 package com.dlima.myfinancas.service;
 
-import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import org.assertj.core.api.Assertions;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import com.dlima.myfinancas.api.dto.AlteracoesDTO;
+import com.dlima.myfinancas.api.dto.SituacaoOrcamentoDTO;
 import com.dlima.myfinancas.exception.RegraNegocioException;
+import com.dlima.myfinancas.model.entity.CheckpointJob;
 import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.entity.LancamentoRemovido;
 import com.dlima.myfinancas.model.entity.Usuario;
 import com.dlima.myfinancas.model.enums.StatusLancamento;
+import com.dlima.myfinancas.model.enums.TipoLancamento;
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.model.repository.CheckpointJobRepository;
+import com.dlima.myfinancas.model.repository.LancamentoRemovidoRepository;
 import com.dlima.myfinancas.model.repository.LancamentoRepository;
 import com.dlima.myfinancas.model.repository.LancamentoRepositoryTest;
+import com.dlima.myfinancas.prazo.ContextoPrazo;
+import com.dlima.myfinancas.service.cache.CacheBuscaLancamento;
+import com.dlima.myfinancas.service.tags.IndiceTags;
 import com.dlima.myfinancas.service.impl.LancamentoServiceImpl;
 
 @RunWith(SpringRunner.class)
@@ -33,6 +52,24 @@ public class LancamentoServiceTest {
 	@MockBean
 	LancamentoRepository repository;
 	
+	@MockBean
+	LancamentoRemovidoRepository removidoRepository;
+	
+	@MockBean
+	CheckpointJobRepository checkpointRepository;
+	
+	@MockBean
+	CacheBuscaLancamento cache;
+	
+	@MockBean
+	ResumoMensalService resumoService;
+	
+	@MockBean
+	OrcamentoService orcamentoService;
+	
+	@MockBean
+	IndiceTags indiceTags;
+	
 	@Test
 	public void deveSalvarUmLancamento() {
 		// cenario
@@ -81,6 +118,50 @@ public class LancamentoServiceTest {
 		Mockito.verify(repository, Mockito.times(1)).save(lancamentoSalvo);
 	}
 	
+	@Test
+	public void deveDevolverASituacaoDoOrcamentoAoSalvar() {
+		// cenario
+		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+		lancamento.setTipo(TipoLancamento.DESPESA);
+		Mockito.doNothing().when(service).validar(lancamento);
+		Mockito.when(repository.save(lancamento)).thenReturn(lancamento);
+		List<SituacaoOrcamentoDTO> situacao = Arrays.asList(SituacaoOrcamentoDTO.builder().excedido(true).build());
+		Mockito.when(orcamentoService.verificar(lancamento)).thenReturn(situacao);
+		
+		// execucao
+		Lancamento salvo = service.salvar(lancamento);
+		
+		// verificacao: o resumo recebe o lancamento antes da verificacao
+		InOrder ordem = Mockito.inOrder(resumoService, orcamentoService);
+		ordem.verify(resumoService).aplicar(null, lancamento);
+		ordem.verify(orcamentoService).verificar(lancamento);
+		Assertions.assertThat(salvo.getOrcamentos()).isEqualTo(situacao);
+	}
+	
+	@Test
+	public void deveTrocarNoResumoOValorGravadoPeloNovoAoAtualizar() {
+		// cenario: gravado como pendente de 10, atualizado para efetivado de 25
+		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+		lancamento.setId(1l);
+		lancamento.setUsuario(Usuario.builder().id(2l).build());
+		lancamento.setValor(Money.of(25));
+		lancamento.setStatus(StatusLancamento.EFETIVADO);
+		Mockito.doNothing().when(service).validar(lancamento);
+		Mockito.when(repository.obterValoresGravados(1l)).thenReturn(Collections.singletonList(new Object[] {
+				2l, 2020, 5, TipoLancamento.RECEITA, StatusLancamento.PENDENTE, Money.of(10), null }));
+		Mockito.when(repository.save(lancamento)).thenReturn(lancamento);
+		
+		// execucao
+		service.atualizar(lancamento);
+		
+		// verificacao
+		ArgumentCaptor<Lancamento> anterior = ArgumentCaptor.forClass(Lancamento.class);
+		Mockito.verify(resumoService).aplicar(anterior.capture(), Mockito.eq(lancamento));
+		Assertions.assertThat(anterior.getValue().getValor()).isEqualTo(Money.of(10));
+		Assertions.assertThat(anterior.getValue().getStatus()).isEqualTo(StatusLancamento.PENDENTE);
+		Assertions.assertThat(anterior.getValue().getUsuario().getId()).isEqualTo(2l);
+	}
+	
 	@Test
 	public void deveLancarErroAoTentarAtualizarUmLancamentoQueAindaNaoFoiSalvo() {
 		// cenario
@@ -102,6 +183,7 @@ public class LancamentoServiceTest {
 		
 		// verificicao
 		Mockito.verify(repository).delete(lancamento);
+		Mockito.verify(removidoRepository).save(Mockito.argThat(removido -> removido.getId().equals(1l)));
 	}
 	
 	@Test
@@ -116,6 +198,150 @@ public class LancamentoServiceTest {
 		Mockito.verify(repository, Mockito.never()).delete(lancamento);
 	}
 	
+	@Test
+	public void deveDeletarPorPeriodoEmLotes() {
+		// cenario
+		List<Long> primeiroLote = LongStream.rangeClosed(1, 1000).boxed().collect(Collectors.toList());
+		List<Long> ultimoLote = Arrays.asList(1001l, 1002l);
+		Mockito.when(repository.obterIdsPorUsuarioEPeriodo(Mockito.eq(1l), Mockito.eq(2020), Mockito.isNull(), Mockito.any(Pageable.class)))
+			.thenReturn(primeiroLote, ultimoLote);
+		Mockito.when(repository.deletarRegistrandoRemocao(Mockito.eq(1l), Mockito.anyCollection()))
+			.thenAnswer(invocacao -> ((Collection<?>) invocacao.getArgument(1)).size());
+		
+		// execucao
+		int removidos = service.deletarPorPeriodo(1l, 2020, null);
+		
+		// verificacao
+		Assertions.assertThat(removidos).isEqualTo(1002);
+		Mockito.verify(repository).deletarRegistrandoRemocao(1l, primeiroLote);
+		Mockito.verify(repository).deletarRegistrandoRemocao(1l, ultimoLote);
+		Mockito.verify(repository, Mockito.never()).delete(Mockito.any(Lancamento.class));
+	}
+	
+	@Test
+	public void deveReconstruirOsResumosSemPrazoQuandoUmLoteFalha() {
+		// cenario: o primeiro lote faz commit, o segundo falha
+		List<Long> primeiroLote = LongStream.rangeClosed(1, 1000).boxed().collect(Collectors.toList());
+		Mockito.when(repository.obterIdsPorUsuarioEPeriodo(Mockito.eq(1l), Mockito.eq(2020), Mockito.isNull(), Mockito.any(Pageable.class)))
+			.thenReturn(primeiroLote, Arrays.asList(1001l));
+		Mockito.when(repository.deletarRegistrandoRemocao(1l, primeiroLote)).thenReturn(1000);
+		Mockito.when(repository.deletarRegistrandoRemocao(1l, Arrays.asList(1001l)))
+			.thenThrow(new QueryTimeoutException("prazo"));
+		List<Long> prazoNoRecalculo = new ArrayList<>();
+		Mockito.when(resumoService.reconstruir(1l)).thenAnswer(invocacao -> {
+			prazoNoRecalculo.add(ContextoPrazo.restanteMs());
+			return 0;
+		});
+		
+		// execucao
+		ContextoPrazo.iniciar(30000);
+		try {
+			Assertions.assertThatThrownBy(() -> service.deletarPorPeriodo(1l, 2020, null))
+				.isInstanceOf(QueryTimeoutException.class);
+			Assertions.assertThat(ContextoPrazo.restanteMs()).isNotNull();
+		} finally {
+			ContextoPrazo.encerrar();
+		}
+		
+		// verificacao: o lote ja removido sai dos resumos, sem o prazo da requisicao
+		Assertions.assertThat(prazoNoRecalculo).containsExactly((Long) null);
+	}
+	
+	@Test
+	public void naoDeveDeletarMaisIdsQueOMaximo() {
+		List<Long> ids = LongStream.rangeClosed(1, 201).boxed().collect(Collectors.toList());
+		
+		Assertions.assertThatThrownBy(() -> service.deletarPorIds(1l, ids))
+			.isInstanceOf(RegraNegocioException.class)
+			.hasMessage("Informe entre 1 e 200 ids.");
+		Mockito.verify(repository, Mockito.never()).deletarRegistrandoRemocao(Mockito.anyLong(), Mockito.anyCollection());
+	}
+	
+	@Test
+	public void deveDeletarPorIdsComUmDeletePorLote() {
+		Mockito.when(repository.deletarRegistrandoRemocao(Mockito.eq(1l), Mockito.anyCollection())).thenReturn(3);
+		
+		int removidos = service.deletarPorIds(1l, Arrays.asList(1l, 2l, 3l));
+		
+		Assertions.assertThat(removidos).isEqualTo(3);
+		Mockito.verify(repository, Mockito.times(1)).deletarRegistrandoRemocao(Mockito.eq(1l), Mockito.anyCollection());
+		Mockito.verify(repository, Mockito.never()).findById(Mockito.anyLong());
+	}
+	
+	@Test
+	public void deveIntercalarAlteracoesERemocoesPelaSequencia() {
+		// cenario
+		Lancamento criado = LancamentoRepositoryTest.criarLancamento();
+		criado.setId(1l);
+		criado.setSequenciaAlteracao(11l);
+		Lancamento atualizado = LancamentoRepositoryTest.criarLancamento();
+		atualizado.setId(2l);
+		atualizado.setSequenciaAlteracao(13l);
+		LancamentoRemovido removido = LancamentoRemovido.builder().id(3l).idUsuario(1l).sequenciaAlteracao(12l).build();
+		
+		Mockito.when(repository.obterAlteradosDesde(Mockito.eq(1l), Mockito.eq(10l), Mockito.any(Pageable.class)))
+			.thenReturn(Arrays.asList(criado, atualizado));
+		Mockito.when(removidoRepository.obterRemovidosDesde(Mockito.eq(1l), Mockito.eq(10l), Mockito.any(Pageable.class)))
+			.thenReturn(Arrays.asList(removido));
+		
+		// execucao: limite menor que o total de alteracoes
+		AlteracoesDTO alteracoes = service.obterAlteracoes(1l, 10l, 2);
+		
+		// verificacao
+		Assertions.assertThat(alteracoes.getAlterados()).containsExactly(criado);
+		Assertions.assertThat(alteracoes.getRemovidos()).containsExactly(3l);
+		Assertions.assertThat(alteracoes.getToken()).isEqualTo(12l);
+		Assertions.assertThat(alteracoes.isMaisAlteracoes()).isTrue();
+	}
+	
+	@Test
+	public void deveExigirASincronizacaoCompletaParaUmTokenAnteriorAoExpurgo() {
+		// cenario: marcas ate a sequencia 20 ja expurgadas
+		Mockito.when(checkpointRepository.findById(LancamentoRemovido.CHECKPOINT_EXPURGO))
+			.thenReturn(Optional.of(CheckpointJob.builder().nome(LancamentoRemovido.CHECKPOINT_EXPURGO).ultimoIdConcluido(20l).build()));
+		
+		// execucao
+		AlteracoesDTO expirado = service.obterAlteracoes(1l, 10l, 500);
+		AlteracoesDTO noLimite = service.obterAlteracoes(1l, 20l, 500);
+		AlteracoesDTO completo = service.obterAlteracoes(1l, 0l, 500);
+		
+		// verificacao: sem consultar alteracoes que viriam sem as remocoes expurgadas
+		Assertions.assertThat(expirado.isRessincronizar()).isTrue();
+		Assertions.assertThat(expirado.getToken()).isZero();
+		Assertions.assertThat(noLimite.isRessincronizar()).isFalse();
+		Assertions.assertThat(completo.isRessincronizar()).isFalse();
+		Mockito.verify(repository, Mockito.never()).obterAlteradosDesde(Mockito.eq(1l), Mockito.eq(10l), Mockito.any(Pageable.class));
+	}
+	
+	@Test
+	public void deveManterOTokenQuandoNaoHouverAlteracoes() {
+		AlteracoesDTO alteracoes = service.obterAlteracoes(1l, 10l, 500);
+		
+		Assertions.assertThat(alteracoes.getAlterados()).isEmpty();
+		Assertions.assertThat(alteracoes.getRemovidos()).isEmpty();
+		Assertions.assertThat(alteracoes.getToken()).isEqualTo(10l);
+		Assertions.assertThat(alteracoes.isMaisAlteracoes()).isFalse();
+	}
+	
+	@Test
+	public void deveRetornarOResultadoEmCacheSemConsultarOBanco() {
+		// cenario
+		Lancamento filtro = LancamentoRepositoryTest.criarLancamento();
+		filtro.setUsuario(Usuario.builder().id(1l).build());
+		CacheBuscaLancamento.Chave chave = new CacheBuscaLancamento(100, 5000).chave(filtro);
+		List<Lancamento> emCache = Arrays.asList(LancamentoRepositoryTest.criarLancamento());
+		
+		Mockito.when(cache.chave(filtro)).thenReturn(chave);
+		Mockito.when(cache.obter(chave)).thenReturn(emCache);
+		
+		// execucao
+		List<Lancamento> resultado = service.buscar(filtro);
+		
+		// verificacao
+		Assertions.assertThat(resultado).isSameAs(emCache);
+		Mockito.verify(repository, Mockito.never()).findAll(Mockito.any(Example.class));
+	}
+	
 	@Test
 	public void deveFiltrarLancamentos() {
 		// cenario
@@ -243,13 +469,13 @@ public class LancamentoServiceTest {
 		erro = Assertions.catchThrowable( () -> service.validar(lancamento));
 		Assertions.assertThat(erro).isInstanceOf(RegraNegocioException.class).hasMessage("Informe um Valor válido.");
 		
-		lancamento.setValor(BigDecimal.ZERO);
+		lancamento.setValor(Money.ZERO);
 		
 		erro = Assertions.catchThrowable( () -> service.validar(lancamento));
 		Assertions.assertThat(erro).isInstanceOf(RegraNegocioException.class).hasMessage("Informe um Valor válido.");
 		
 //		lancamento.setValor(new BigDecimal(2_500));
-		lancamento.setValor(BigDecimal.valueOf(2_500));
+		lancamento.setValor(Money.of(2_500));
 		
 		erro = Assertions.catchThrowable( () -> service.validar(lancamento));
 		Assertions.assertThat(erro).isInstanceOf(RegraNegocioException.class).hasMessage("Informe um Tipo de lançamento.");
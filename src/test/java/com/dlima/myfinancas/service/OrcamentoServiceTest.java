@@ -0,0 +1,157 @@
+package com.dlima.myfinancas.service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.dlima.myfinancas.api.dto.SituacaoOrcamentoDTO;
+import com.dlima.myfinancas.exception.RegraNegocioException;
+import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.entity.Orcamento;
+import com.dlima.myfinancas.model.entity.ResumoMensal;
+import com.dlima.myfinancas.model.entity.Usuario;
+import com.dlima.myfinancas.model.enums.StatusLancamento;
+import com.dlima.myfinancas.model.enums.TipoLancamento;
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.model.repository.LancamentoRepositoryTest;
+import com.dlima.myfinancas.model.repository.OrcamentoRepository;
+import com.dlima.myfinancas.model.repository.UsuarioRepository;
+import com.dlima.myfinancas.service.impl.OrcamentoServiceImpl;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@SpringBootTest
+public class OrcamentoServiceTest {
+	
+	@Autowired
+	OrcamentoService service;
+	
+	@Autowired
+	LancamentoService lancamentoService;
+	
+	@Autowired
+	ResumoMensalService resumoService;
+	
+	@Autowired
+	UsuarioRepository usuarioRepository;
+	
+	@Autowired
+	OrcamentoRepository orcamentoRepository;
+	
+	Usuario usuario;
+	
+	@Before
+	public void setUp() {
+		usuario = usuarioRepository.save(Usuario.builder().nome("usuario")
+				.email("orcamento" + System.nanoTime() + "@email.com").senha("senha").build());
+		service.salvar(Orcamento.builder().idUsuario(usuario.getId()).limite(Money.of(100)).build());
+		service.salvar(Orcamento.builder().idUsuario(usuario.getId()).categoria("mercado").limite(Money.of(30)).build());
+	}
+	
+	@Test
+	public void deveInformarNoSalvarQuandoADespesaPassaDoOrcamento() {
+		// execucao
+		Lancamento primeira = lancamentoService.salvar(despesa("mercado", 25));
+		Lancamento segunda = lancamentoService.salvar(despesa(" mercado ", 10));
+		
+		// verificacao
+		Assertions.assertThat(primeira.getOrcamentos()).extracting(SituacaoOrcamentoDTO::isExcedido)
+			.containsOnly(false);
+		SituacaoOrcamentoDTO mercado = porCategoria(segunda.getOrcamentos(), "mercado");
+		Assertions.assertThat(mercado.isExcedido()).isTrue();
+		Assertions.assertThat(mercado.getGasto()).isEqualTo(Money.of(35));
+		Assertions.assertThat(mercado.getDisponivel()).isEqualTo(Money.of(-5));
+		Assertions.assertThat(porCategoria(segunda.getOrcamentos(), null).isExcedido()).isFalse();
+	}
+	
+	@Test
+	public void deveManterOsTotaisIguaisAosDaReconstrucao() {
+		// cenario: criacao, troca de categoria, mudanca de status e exclusao
+		Lancamento mercado = lancamentoService.salvar(despesa("mercado", 20));
+		Lancamento lazer = lancamentoService.salvar(despesa(null, 40));
+		Lancamento receita = LancamentoRepositoryTest.criarLancamento();
+		receita.setUsuario(usuario);
+		lancamentoService.salvar(receita);
+		
+		lazer.setCategoria("lazer");
+		lazer.setValor(Money.of(45));
+		lancamentoService.atualizar(lazer);
+		lancamentoService.atualizarStatus(mercado, StatusLancamento.EFETIVADO);
+		Lancamento cancelada = lancamentoService.salvar(despesa("mercado", 7));
+		lancamentoService.atualizarStatus(cancelada, StatusLancamento.CANCELADO);
+		lancamentoService.deletar(lancamentoService.salvar(despesa("lazer", 3)));
+		
+		// verificacao
+		List<ResumoMensal> incrementais = resumoService.obterPorUsuario(usuario.getId());
+		resumoService.reconstruir(usuario.getId());
+		List<ResumoMensal> reconstruidos = resumoService.obterPorUsuario(usuario.getId());
+		Assertions.assertThat(incrementais)
+			.usingElementComparatorIgnoringFields("id")
+			.containsExactlyInAnyOrderElementsOf(reconstruidos);
+		
+		List<SituacaoOrcamentoDTO> situacao = service.obterSituacao(usuario.getId(), 2020, 5);
+		Assertions.assertThat(porCategoria(situacao, null).getGasto()).isEqualTo(Money.of(65));
+		Assertions.assertThat(porCategoria(situacao, "mercado").getGasto()).isEqualTo(Money.of(20));
+	}
+	
+	@Test
+	public void deveSubstituirOLimiteDaMesmaCategoria() {
+		service.salvar(Orcamento.builder().idUsuario(usuario.getId()).categoria("mercado").limite(Money.of(50)).build());
+		
+		List<Orcamento> orcamentos = service.obterPorUsuario(usuario.getId());
+		Assertions.assertThat(orcamentos).hasSize(2);
+		Assertions.assertThat(orcamentos.stream().filter(o -> "mercado".equals(o.getCategoria()))
+				.map(Orcamento::getLimite).collect(Collectors.toList())).containsExactly(Money.of(50));
+	}
+	
+	@Test
+	public void deveRecusarOOrcamentoDaMesmaCategoriaCadastradoAoMesmoTempo() {
+		// cenario: a consulta nao ve o orcamento que outra requisicao acabou de gravar
+		OrcamentoRepository concorrente = Mockito.mock(OrcamentoRepository.class);
+		Mockito.when(concorrente.findByIdUsuarioAndCategoria(usuario.getId(), "mercado")).thenReturn(Optional.empty());
+		Mockito.when(concorrente.saveAndFlush(Mockito.any()))
+			.thenAnswer(chamada -> orcamentoRepository.saveAndFlush(chamada.getArgument(0)));
+		OrcamentoService atrasado = new OrcamentoServiceImpl(concorrente, resumoService);
+		
+		// execucao e verificacao: o indice unico recusa o segundo e a categoria continua com um orcamento so
+		Assertions.assertThatThrownBy(() -> atrasado.salvar(
+				Orcamento.builder().idUsuario(usuario.getId()).categoria("mercado").limite(Money.of(50)).build()))
+			.isInstanceOf(RegraNegocioException.class)
+			.hasMessageContaining("ao mesmo tempo");
+		Assertions.assertThat(service.obterPorUsuario(usuario.getId())).hasSize(2);
+		Assertions.assertThat(service.remover(usuario.getId(), "mercado")).isTrue();
+	}
+	
+	@Test
+	public void naoDeveSalvarOrcamentoSemLimite() {
+		Assertions.assertThatThrownBy(() -> service.salvar(Orcamento.builder().idUsuario(usuario.getId()).build()))
+			.isInstanceOf(RegraNegocioException.class);
+	}
+	
+	private Lancamento despesa(String categoria, long valor) {
+		Lancamento despesa = LancamentoRepositoryTest.criarLancamento();
+		despesa.setUsuario(usuario);
+		despesa.setTipo(TipoLancamento.DESPESA);
+		despesa.setCategoria(categoria);
+		despesa.setValor(Money.of(valor));
+		return despesa;
+	}
+	
+	private static SituacaoOrcamentoDTO porCategoria(List<SituacaoOrcamentoDTO> situacao, String categoria) {
+		return situacao.stream()
+				.filter(s -> categoria == null ? s.getCategoria() == null : categoria.equals(s.getCategoria()))
+				.findFirst()
+				.orElseThrow(AssertionError::new);
+	}
+
+}
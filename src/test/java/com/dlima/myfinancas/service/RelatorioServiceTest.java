@@ -0,0 +1,120 @@
+package com.dlima.myfinancas.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.dlima.myfinancas.api.dto.MediaMensalDTO;
+import com.dlima.myfinancas.api.dto.TotalPeriodoDTO;
+import com.dlima.myfinancas.event.LancamentoAlteradoEvent;
+import com.dlima.myfinancas.event.TipoAlteracao;
+import com.dlima.myfinancas.model.enums.StatusLancamento;
+import com.dlima.myfinancas.model.enums.TipoLancamento;
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.model.repository.LancamentoRepository;
+import com.dlima.myfinancas.service.impl.RelatorioServiceImpl;
+
+public class RelatorioServiceTest {
+	
+	LancamentoRepository repository = Mockito.mock(LancamentoRepository.class);
+	
+	RelatorioServiceImpl service = new RelatorioServiceImpl(repository, 10);
+	
+	@Test
+	public void deveCalcularTotaisEMediasMensais() {
+		// cenario
+		List<Object[]> linhas = new ArrayList<>();
+		linhas.add(new Object[] { 1l, Money.of(100), 2020, 1, TipoLancamento.RECEITA, StatusLancamento.EFETIVADO });
+		linhas.add(new Object[] { 2l, Money.of(40), 2020, 1, TipoLancamento.DESPESA, StatusLancamento.PENDENTE });
+		linhas.add(new Object[] { 3l, Money.of(60), 2020, 3, TipoLancamento.DESPESA, StatusLancamento.EFETIVADO });
+		linhas.add(new Object[] { 4l, Money.of(99), 2020, 3, TipoLancamento.DESPESA, StatusLancamento.CANCELADO });
+		Mockito.when(repository.obterColunasPorUsuario(1l)).thenReturn(linhas);
+		
+		// execucao
+		List<TotalPeriodoDTO> anuais = service.obterTotaisAnuais(1l);
+		List<MediaMensalDTO> medias = service.obterMediasMensais(1l);
+		
+		// verificacao
+		Assertions.assertThat(anuais).hasSize(1);
+		Assertions.assertThat(anuais.get(0).getReceitas()).isEqualTo(Money.of(100));
+		Assertions.assertThat(anuais.get(0).getDespesas()).isEqualTo(Money.of(100));
+		Assertions.assertThat(anuais.get(0).getSaldo()).isEqualTo(Money.ZERO);
+		Assertions.assertThat(medias.get(0).getMeses()).isEqualTo(2);
+		Assertions.assertThat(medias.get(0).getMediaReceitas()).isEqualTo(Money.of(50));
+		Assertions.assertThat(medias.get(0).getMediaDespesas()).isEqualTo(Money.of(50));
+		Mockito.verify(repository, Mockito.times(1)).obterColunasPorUsuario(1l); // segunda consulta vem do cache
+	}
+	
+	@Test
+	public void deveRecarregarAsColunasAposAlteracaoDoUsuario() {
+		Mockito.when(repository.obterColunasPorUsuario(Mockito.anyLong())).thenReturn(Collections.emptyList());
+		service.obterTotaisAnuais(1l);
+		service.obterTotaisAnuais(2l);
+		
+		service.aoAlterarLancamento(new LancamentoAlteradoEvent(1l, Arrays.asList(10l), TipoAlteracao.ATUALIZADO));
+		service.obterTotaisAnuais(1l);
+		service.obterTotaisAnuais(2l);
+		
+		Mockito.verify(repository, Mockito.times(2)).obterColunasPorUsuario(1l);
+		Mockito.verify(repository, Mockito.times(1)).obterColunasPorUsuario(2l);
+	}
+
+	@Test
+	public void deveCarregarUmaVezSemBloquearOutrosUsuarios() throws Exception {
+		// cenario: a carga do usuario 1 fica parada no banco
+		CountDownLatch carregando = new CountDownLatch(1);
+		CountDownLatch liberar = new CountDownLatch(1);
+		Mockito.when(repository.obterColunasPorUsuario(1l)).thenAnswer(i -> {
+			carregando.countDown();
+			liberar.await(10, TimeUnit.SECONDS);
+			return Collections.emptyList();
+		});
+		Mockito.when(repository.obterColunasPorUsuario(2l)).thenReturn(Collections.emptyList());
+		CompletableFuture<List<TotalPeriodoDTO>> primeira = CompletableFuture.supplyAsync(() -> service.obterTotaisAnuais(1l));
+		Assertions.assertThat(carregando.await(10, TimeUnit.SECONDS)).isTrue();
+		CompletableFuture<List<TotalPeriodoDTO>> segunda = CompletableFuture.supplyAsync(() -> service.obterTotaisAnuais(1l));
+
+		// execucao e verificacao: outro usuario e a invalidacao nao esperam a carga
+		Assertions.assertThat(service.obterTotaisAnuais(2l)).isEmpty();
+		service.invalidar(2l);
+		liberar.countDown();
+		Assertions.assertThat(primeira.get(10, TimeUnit.SECONDS)).isEmpty();
+		Assertions.assertThat(segunda.get(10, TimeUnit.SECONDS)).isEmpty();
+		Mockito.verify(repository, Mockito.times(1)).obterColunasPorUsuario(1l);
+	}
+
+	@Test
+	public void deveDescartarOUsuarioMenosUsadoRecentemente() {
+		RelatorioServiceImpl pequeno = new RelatorioServiceImpl(repository, 2);
+		Mockito.when(repository.obterColunasPorUsuario(Mockito.anyLong())).thenReturn(Collections.emptyList());
+
+		pequeno.obterTotaisAnuais(1l);
+		pequeno.obterTotaisAnuais(2l);
+		pequeno.obterTotaisAnuais(1l); // 2 passa a ser o menos usado
+		pequeno.obterTotaisAnuais(3l);
+		pequeno.obterTotaisAnuais(1l);
+		pequeno.obterTotaisAnuais(2l);
+
+		Mockito.verify(repository, Mockito.times(1)).obterColunasPorUsuario(1l);
+		Mockito.verify(repository, Mockito.times(2)).obterColunasPorUsuario(2l);
+	}
+
+	@Test
+	public void deveTentarDeNovoAposFalhaNaCarga() {
+		Mockito.when(repository.obterColunasPorUsuario(1l))
+			.thenThrow(new IllegalStateException("banco fora do ar"))
+			.thenReturn(Collections.emptyList());
+
+		Assertions.assertThatThrownBy(() -> service.obterTotaisAnuais(1l)).isInstanceOf(IllegalStateException.class);
+		Assertions.assertThat(service.obterTotaisAnuais(1l)).isEmpty();
+	}
+
+}
@@ -0,0 +1,92 @@
+package com.dlima.myfinancas.service;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.dlima.myfinancas.api.dto.AlteracoesDTO;
+import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.entity.Usuario;
+import com.dlima.myfinancas.model.enums.TipoLancamento;
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.model.repository.UsuarioRepository;
+
+/* sincronizacao com escritores concorrentes, contra o banco dos testes */
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@SpringBootTest
+public class SincronizacaoLancamentoTest {
+
+	@Autowired
+	LancamentoService lancamentoService;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@Autowired
+	TransactionTemplate transactionTemplate;
+
+	Usuario usuario;
+
+	@Before
+	public void setUp() {
+		usuario = usuarioRepository.save(Usuario.builder().nome("usuario")
+				.email("sincronizacao" + System.nanoTime() + "@email.com").senha("senha").build());
+	}
+
+	@Test
+	public void naoDevePerderOCommitAtrasadoDeOutroEscritor() throws Exception {
+		// cenario: uma importacao pega a sequencia e segura o commit
+		CountDownLatch gravou = new CountDownLatch(1);
+		CountDownLatch liberar = new CountDownLatch(1);
+		Lancamento importado = lancamento("primeiro");
+		importado.setHashImportacao("primeiro");
+		CompletableFuture<Integer> primeiro = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(status -> {
+			int importados = lancamentoService.salvarImportados(usuario.getId(), Collections.singletonList(importado));
+			gravou.countDown();
+			aguardar(liberar);
+			return importados;
+		}));
+		Assertions.assertThat(gravou.await(5, TimeUnit.SECONDS)).isTrue();
+		CompletableFuture<Lancamento> segundo = CompletableFuture.supplyAsync(() -> lancamentoService.salvar(lancamento("segundo")));
+
+		// execucao: o segundo espera o commit do primeiro; a leitura no meio nao ve nenhum dos dois
+		Thread.sleep(300);
+		Assertions.assertThat(segundo.isDone()).isFalse();
+		AlteracoesDTO antes = lancamentoService.obterAlteracoes(usuario.getId(), null, 100);
+		liberar.countDown();
+		Assertions.assertThat(primeiro.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+		Lancamento gravadoSegundo = segundo.get(5, TimeUnit.SECONDS);
+
+		// verificacao: a ordem das sequencias e a dos commits, e o token do meio entrega os dois
+		Assertions.assertThat(antes.getAlterados()).isEmpty();
+		AlteracoesDTO depois = lancamentoService.obterAlteracoes(usuario.getId(), antes.getToken(), 100);
+		Assertions.assertThat(depois.getAlterados()).extracting(Lancamento::getDescricao).containsExactly("primeiro", "segundo");
+		Assertions.assertThat(depois.getToken()).isEqualTo(gravadoSegundo.getSequenciaAlteracao());
+	}
+
+	private Lancamento lancamento(String descricao) {
+		return Lancamento.builder().usuario(usuario).ano(2020).mes(1).descricao(descricao)
+				.tipo(TipoLancamento.DESPESA).valor(Money.of(10)).build();
+	}
+
+	private static void aguardar(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
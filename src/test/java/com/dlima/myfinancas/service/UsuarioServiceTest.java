@@ -8,6 +8,7 @@ import org.junit.runner.RunWith;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 
@@ -15,6 +16,7 @@ import com.dlima.myfinancas.exception.ErroAutenticacao;
 import com.dlima.myfinancas.exception.RegraNegocioException;
 import com.dlima.myfinancas.model.entity.Usuario;
 import com.dlima.myfinancas.model.repository.UsuarioRepository;
+import com.dlima.myfinancas.service.cache.FiltroBloomEmails;
 import com.dlima.myfinancas.service.impl.UsuarioServiceImpl;
 
 @RunWith(SpringRunner.class)
@@ -27,6 +29,9 @@ public class UsuarioServiceTest {
 	@MockBean // criar instancia fake
 	UsuarioRepository repository;
 	
+	@SpyBean // sem carga, todo email "pode existir"
+	FiltroBloomEmails emails;
+	
 	@Test(expected = Test.None.class) // nao espera excecao
 	public void deveValidarEmail() {
 		// cenario
@@ -129,4 +134,55 @@ public class UsuarioServiceTest {
 		Mockito.verify(repository, Mockito.never()).save(usuario); // espera que nunca tenha sido chamado o metodo de salvar com este usuario
 	}
 	
+	@Test
+	public void naoDeveConsultarOBancoQuandoOFiltroNaoConhecerOEmail() {
+		// cenario
+		Mockito.doReturn(false).when(emails).podeConter("novo@email.com");
+		
+		// acao
+		service.validarEmail("novo@email.com");
+		
+		// verificacao
+		Mockito.verify(repository, Mockito.never()).existsByEmail(Mockito.anyString());
+	}
+	
+	@Test
+	public void deveAdicionarAoFiltroOEmailSalvo() {
+		// cenario
+		Usuario usuario = Usuario.builder().nome("nome").email("salvo@email.com").senha("senha").build();
+		Mockito.when(repository.save(usuario)).thenReturn(usuario);
+		
+		// acao
+		service.salvarUsuario(usuario);
+		
+		// verificacao
+		Mockito.verify(emails).adicionar("salvo@email.com");
+	}
+	
+	@Test
+	public void deveTraduzirAViolacaoDoEmailUnicoEmRegraDeNegocio() {
+		// cenario: outro cadastro gravou o email depois de validarEmail
+		Usuario usuario = Usuario.builder().email("corrida@email.com").build();
+		Mockito.when(repository.save(usuario)).thenThrow(new DataIntegrityViolationException(
+				"Unique index or primary key violation: \"FINANCAS.UK_USUARIO_EMAIL ON FINANCAS.USUARIO(EMAIL)\""));
+		
+		// acao
+		Throwable excecao = Assertions.catchThrowable(() -> service.salvarUsuario(usuario));
+		
+		// verificacao
+		Assertions.assertThat(excecao).isInstanceOf(RegraNegocioException.class)
+			.hasMessage("Já existe um usuário cadastrado com este email.");
+		Mockito.verify(emails, Mockito.never()).adicionar(Mockito.anyString());
+	}
+	
+	@Test
+	public void deveRepassarOutrasViolacoesDeIntegridade() {
+		// cenario
+		Usuario usuario = Usuario.builder().email("email@email.com").build();
+		Mockito.when(repository.save(usuario)).thenThrow(new DataIntegrityViolationException("value too long for column nome"));
+		
+		// acao e verificacao
+		Assertions.assertThatThrownBy(() -> service.salvarUsuario(usuario)).isInstanceOf(DataIntegrityViolationException.class);
+	}
+	
 }
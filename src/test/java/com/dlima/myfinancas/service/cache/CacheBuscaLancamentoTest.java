@@ -0,0 +1,237 @@
+package com.dlima.myfinancas.service.cache;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.persistence.Transient;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import com.dlima.myfinancas.event.LancamentoAlteradoEvent;
+import com.dlima.myfinancas.event.TipoAlteracao;
+import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.entity.Usuario;
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.model.repository.LancamentoRepositoryTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class CacheBuscaLancamentoTest {
+
+	AtomicLong agora = new AtomicLong();
+
+	CacheBuscaLancamento cache = new CacheBuscaLancamento(10, 5000, agora::get);
+
+	@Test
+	public void deveNormalizarOFiltroNaChave() {
+		Lancamento filtro = filtro(1l, "Mercado");
+		Lancamento mesmoFiltro = filtro(1l, "mercado");
+		mesmoFiltro.getUsuario().setNome("nome nao faz parte da chave");
+
+		Assertions.assertThat(cache.chave(filtro)).isEqualTo(cache.chave(mesmoFiltro));
+		Assertions.assertThat(cache.chave(filtro)).isNotEqualTo(cache.chave(filtro(2l, "mercado")));
+		Assertions.assertThat(cache.chave(new Lancamento())).isNull();
+	}
+
+	@Test
+	public void deveDiferenciarAChavePorTodoCampoDoExample() throws Exception {
+		CacheBuscaLancamento.Chave semCriterios = cache.chave(filtro(1l, null));
+		for (Field campo : Lancamento.class.getDeclaredFields()) {
+			// usuario ja e parte da chave; @Transient e estaticos ficam fora do Example
+			if (Modifier.isStatic(campo.getModifiers()) || campo.isAnnotationPresent(Transient.class)
+					|| campo.getName().equals("usuario")) {
+				continue;
+			}
+			Lancamento filtro = filtro(1l, null);
+			campo.setAccessible(true);
+			campo.set(filtro, exemplo(campo.getType()));
+
+			Assertions.assertThat(cache.chave(filtro)).as(campo.getName()).isNotEqualTo(semCriterios);
+		}
+	}
+
+	@Test
+	public void deveInvalidarApenasAsEntradasDoUsuarioAlterado() {
+		// cenario
+		CacheBuscaLancamento.Chave doUsuario = cache.chave(filtro(1l, null));
+		CacheBuscaLancamento.Chave deOutroUsuario = cache.chave(filtro(2l, null));
+		cache.guardar(doUsuario, cache.geracao(1l), lancamentos(2));
+		cache.guardar(deOutroUsuario, cache.geracao(2l), lancamentos(2));
+
+		// execucao
+		cache.aoAlterarLancamento(new LancamentoAlteradoEvent(1l, Collections.singletonList(5l), TipoAlteracao.ATUALIZADO));
+
+		// verificacao
+		Assertions.assertThat(cache.obter(doUsuario)).isNull();
+		Assertions.assertThat(cache.obter(deOutroUsuario)).hasSize(2);
+		Assertions.assertThat(cache.taxaAcerto()).isEqualTo(0.5);
+	}
+
+	@Test
+	public void deveVencerAEntradaNaoInvalidadaPorEstaInstancia() {
+		// cenario: a alteracao foi feita em outra instancia, sem evento aqui
+		CacheBuscaLancamento.Chave chave = cache.chave(filtro(1l, null));
+		cache.guardar(chave, cache.geracao(1l), lancamentos(2));
+
+		// execucao e verificacao
+		agora.set(4999);
+		Assertions.assertThat(cache.obter(chave)).hasSize(2);
+		agora.set(5000);
+		Assertions.assertThat(cache.obter(chave)).isNull();
+		Assertions.assertThat(cache.ocupacao()).isZero();
+	}
+
+	@Test
+	public void naoDeveGuardarResultadoConsultadoAntesDeUmaAlteracao() {
+		CacheBuscaLancamento.Chave chave = cache.chave(filtro(1l, null));
+		long geracao = cache.geracao(1l);
+
+		cache.invalidar(1l); // alteracao durante a consulta
+		cache.guardar(chave, geracao, lancamentos(1));
+
+		Assertions.assertThat(cache.obter(chave)).isNull();
+	}
+
+	@Test
+	public void deveRemoverAsEntradasMenosUsadasAoPassarDaCapacidade() {
+		// cenario: capacidade de 10 lancamentos, cada entrada pesa tamanho + 1
+		CacheBuscaLancamento.Chave primeira = cache.chave(filtro(1l, "a"));
+		CacheBuscaLancamento.Chave segunda = cache.chave(filtro(1l, "b"));
+		CacheBuscaLancamento.Chave terceira = cache.chave(filtro(1l, "c"));
+		cache.guardar(primeira, 0, lancamentos(3));
+		cache.guardar(segunda, 0, lancamentos(3));
+		cache.obter(primeira); // a segunda passa a ser a menos usada
+
+		// execucao
+		cache.guardar(terceira, 0, lancamentos(3));
+
+		// verificacao
+		Assertions.assertThat(cache.obter(segunda)).isNull();
+		Assertions.assertThat(cache.obter(primeira)).isNotNull();
+		Assertions.assertThat(cache.obter(terceira)).isNotNull();
+		Assertions.assertThat(cache.ocupacao()).isEqualTo(8);
+	}
+
+	@Test
+	public void naoDeveCompartilharOsLancamentosGuardadosComQuemConsulta() {
+		// cenario
+		CacheBuscaLancamento.Chave chave = cache.chave(filtro(1l, null));
+		List<Lancamento> consultados = new ArrayList<>(lancamentos(1));
+		consultados.get(0).setUsuario(Usuario.builder().id(1l).nome("usuario").build());
+		consultados.get(0).setTags(new TreeSet<>(Collections.singleton("casa")));
+		cache.guardar(chave, cache.geracao(1l), consultados);
+
+		// execucao: quem consultou e quem recebeu do cache alteram o resultado
+		consultados.get(0).setDescricao("alterada por quem consultou");
+		List<Lancamento> recebidos = cache.obter(chave);
+		recebidos.get(0).setDescricao("alterada por quem recebeu");
+		recebidos.get(0).getTags().add("mercado");
+		recebidos.get(0).getUsuario().setNome("outro");
+		recebidos.clear();
+
+		// verificacao
+		Lancamento guardado = cache.obter(chave).get(0);
+		Assertions.assertThat(guardado.getDescricao()).isEqualTo(LancamentoRepositoryTest.criarLancamento().getDescricao());
+		Assertions.assertThat(guardado.getTags()).containsExactly("casa");
+		Assertions.assertThat(guardado.getUsuario().getNome()).isEqualTo("usuario");
+	}
+
+	@Test
+	public void deveCopiarTodoCampoPersistidoDoLancamento() throws Exception {
+		Lancamento lancamento = new Lancamento();
+		for (Field campo : Lancamento.class.getDeclaredFields()) {
+			if (Modifier.isStatic(campo.getModifiers()) || campo.isAnnotationPresent(Transient.class)
+					|| campo.getName().equals("usuario")) {
+				continue;
+			}
+			campo.setAccessible(true);
+			campo.set(lancamento, exemplo(campo.getType()));
+		}
+		lancamento.setUsuario(Usuario.builder().id(1l).nome("usuario").email("u@email.com").senha("senha").build());
+		CacheBuscaLancamento.Chave chave = cache.chave(filtro(1l, null));
+
+		cache.guardar(chave, cache.geracao(1l), Collections.singletonList(lancamento));
+
+		Assertions.assertThat(cache.obter(chave).get(0)).isEqualTo(lancamento).isNotSameAs(lancamento);
+	}
+
+	@Test
+	public void deveManterAsGeracoesLimitadasComMuitosUsuarios() {
+		CacheBuscaLancamento.Chave chave = cache.chave(filtro(1l, null));
+		cache.guardar(chave, cache.geracao(1l), lancamentos(1));
+
+		// usuarios da mesma faixa dividem a geracao: a entrada do usuario 1 cai junto
+		cache.invalidar(1l + CacheBuscaLancamento.FAIXAS);
+
+		Assertions.assertThat(cache.geracao(1l)).isEqualTo(1);
+		Assertions.assertThat(cache.obter(chave)).isNull();
+	}
+
+	@Test
+	public void devePublicarAsMetricasDeAcerto() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		cache.bindTo(registry);
+		CacheBuscaLancamento.Chave chave = cache.chave(filtro(1l, null));
+
+		cache.obter(chave);
+		cache.guardar(chave, 0, lancamentos(1));
+		cache.obter(chave);
+
+		Assertions.assertThat(registry.get("myfinancas.busca.cache.requisicoes").tag("resultado", "acerto")
+				.functionCounter().count()).isEqualTo(1);
+		Assertions.assertThat(registry.get("myfinancas.busca.cache.requisicoes").tag("resultado", "falta")
+				.functionCounter().count()).isEqualTo(1);
+		Assertions.assertThat(registry.get("myfinancas.busca.cache.ocupacao").gauge().value()).isEqualTo(2);
+	}
+
+	private static Lancamento filtro(Long idUsuario, String descricao) {
+		Lancamento filtro = new Lancamento();
+		filtro.setUsuario(Usuario.builder().id(idUsuario).build());
+		filtro.setDescricao(descricao);
+		filtro.setAno(2020);
+		return filtro;
+	}
+
+	private static List<Lancamento> lancamentos(int quantidade) {
+		Lancamento[] lancamentos = new Lancamento[quantidade];
+		for (int i = 0; i < quantidade; i++) {
+			lancamentos[i] = LancamentoRepositoryTest.criarLancamento();
+		}
+		return Arrays.asList(lancamentos);
+	}
+
+	private static Object exemplo(Class<?> tipo) {
+		if (tipo == String.class) {
+			return "a";
+		}
+		if (tipo == Integer.class) {
+			return 1;
+		}
+		if (tipo == Long.class) {
+			return 1l;
+		}
+		if (tipo == Money.class) {
+			return Money.of(1);
+		}
+		if (tipo == LocalDate.class) {
+			return LocalDate.of(2020, 1, 1);
+		}
+		if (tipo == Set.class) {
+			return Collections.singleton("a");
+		}
+		if (tipo.isEnum()) {
+			return tipo.getEnumConstants()[0];
+		}
+		throw new IllegalArgumentException("Campo novo em Lancamento: incluir na chave do cache e aqui: " + tipo);
+	}
+
+}
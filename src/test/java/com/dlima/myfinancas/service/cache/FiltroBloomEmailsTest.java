@@ -0,0 +1,57 @@
+package com.dlima.myfinancas.service.cache;
+
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class FiltroBloomEmailsTest {
+
+	FiltroBloomEmails filtro = new FiltroBloomEmails(10000, 0.01);
+
+	@Test
+	public void deveResponderPodeConterAntesDaCarga() {
+		filtro.carregar(Stream.of("cadastrado@email.com"));
+
+		Assertions.assertThat(filtro.isCarregado()).isFalse();
+		Assertions.assertThat(filtro.podeConter("novo@email.com")).isTrue();
+	}
+
+	@Test
+	public void deveConterTodosOsEmailsCarregadosEAdicionados() {
+		// cenario
+		long carregados = filtro.carregar(IntStream.range(0, 5000).mapToObj(i -> "carga" + i + "@email.com"));
+		filtro.concluirCarga();
+		IntStream.range(0, 5000).forEach(i -> filtro.adicionar("cadastro" + i + "@email.com"));
+
+		// verificacao: nenhum falso negativo
+		Assertions.assertThat(carregados).isEqualTo(5000);
+		Assertions.assertThat(filtro.quantidade()).isEqualTo(10000);
+		Assertions.assertThat(IntStream.range(0, 5000)
+				.allMatch(i -> filtro.podeConter("carga" + i + "@email.com") && filtro.podeConter("cadastro" + i + "@email.com")))
+			.isTrue();
+	}
+
+	@Test
+	public void deveManterOsFalsosPositivosPertoDaTaxaConfigurada() {
+		// cenario: filtro cheio ate a capacidade
+		filtro.carregar(IntStream.range(0, 10000).mapToObj(i -> "usuario" + i + "@email.com"));
+		filtro.concluirCarga();
+
+		// execucao
+		long falsosPositivos = IntStream.range(0, 100000)
+				.filter(i -> filtro.podeConter("novo" + i + "@email.com"))
+				.count();
+
+		// verificacao: 1% esperado
+		Assertions.assertThat(falsosPositivos).isLessThan(2000);
+	}
+
+	@Test
+	public void deveRecusarConfiguracaoInvalida() {
+		Assertions.assertThatThrownBy(() -> new FiltroBloomEmails(0, 0.01)).isInstanceOf(IllegalArgumentException.class);
+		Assertions.assertThatThrownBy(() -> new FiltroBloomEmails(1000, 1)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+}
@@ -0,0 +1,147 @@
+package com.dlima.myfinancas.service.importacao;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.dlima.myfinancas.model.money.Money;
+
+public class LeitorExtratoTest {
+
+	@Rule
+	public TemporaryFolder pasta = new TemporaryFolder();
+
+	@Test
+	public void deveLerRegistrosQueAtravessamAsJanelas() throws IOException {
+		// janela de 5 bytes: quase toda linha comeca numa janela e termina em outra
+		Path arquivo = arquivo("primeira linha\r\n\nsegunda\nterceira sem fim", StandardCharsets.UTF_8);
+		List<String> registros = new ArrayList<>();
+		List<Integer> numeros = new ArrayList<>();
+		try (LeitorLinhas linhas = new LeitorLinhas(arquivo, StandardCharsets.UTF_8, '\n', 5)) {
+			String registro;
+			while ((registro = linhas.proximo()) != null) {
+				registros.add(registro);
+				numeros.add(linhas.linha());
+			}
+		}
+
+		Assertions.assertThat(registros).containsExactly("primeira linha", "", "segunda", "terceira sem fim");
+		Assertions.assertThat(numeros).containsExactly(1, 2, 3, 4);
+	}
+
+	@Test
+	public void deveLerCsvComCabecalhoSeparadorEFormatoBrasileiro() throws IOException {
+		Path arquivo = arquivo("\uFEFFData;Descrição;Valor;Categoria\n"
+				+ "05/01/2020;\"Mercado; filial 2\";-1.234,56;alimentacao\n"
+				+ "\n"
+				+ "2020-01-06;Salário;R$ 5.000,00\n"
+				+ "07/01/2020;Tarifa;12,30 D\n", StandardCharsets.UTF_8);
+
+		List<LinhaExtrato> linhas = ler(FormatoExtrato.CSV, arquivo, StandardCharsets.UTF_8);
+
+		Assertions.assertThat(linhas).hasSize(3);
+		Assertions.assertThat(linhas.get(0).getLinha()).isEqualTo(2);
+		Assertions.assertThat(linhas.get(0).getData()).isEqualTo(LocalDate.of(2020, 1, 5));
+		Assertions.assertThat(linhas.get(0).getDescricao()).isEqualTo("Mercado; filial 2");
+		Assertions.assertThat(linhas.get(0).getValor()).isEqualTo(Money.parse("-1234.56"));
+		Assertions.assertThat(linhas.get(0).getCategoria()).isEqualTo("alimentacao");
+		Assertions.assertThat(linhas.get(1).getLinha()).isEqualTo(4);
+		Assertions.assertThat(linhas.get(1).getValor()).isEqualTo(Money.of(5000));
+		Assertions.assertThat(linhas.get(1).getCategoria()).isNull();
+		Assertions.assertThat(linhas.get(2).getValor()).isEqualTo(Money.parse("-12.30"));
+	}
+
+	@Test
+	public void deveApontarAsLinhasInvalidasSemInterromperALeitura() throws IOException {
+		Path arquivo = arquivo("05/01/2020,Mercado,-10.50\n"
+				+ "32/01/2020,Data errada,1.00\n"
+				+ "06/01/2020,Valor errado,dez reais\n"
+				+ "07/01/2020,Faltam colunas\n"
+				+ "08/01/2020,Padaria,-3.20\n", StandardCharsets.UTF_8);
+
+		List<LinhaExtrato> linhas = ler(FormatoExtrato.CSV, arquivo, StandardCharsets.UTF_8);
+
+		Assertions.assertThat(linhas).extracting(LinhaExtrato::getLinha).containsExactly(1, 2, 3, 4, 5);
+		Assertions.assertThat(linhas.get(0).getErro()).isNull();
+		Assertions.assertThat(linhas.get(1).getErro()).startsWith("Data inválida");
+		Assertions.assertThat(linhas.get(2).getErro()).startsWith("Valor inválido");
+		Assertions.assertThat(linhas.get(3).getErro()).startsWith("Esperadas as colunas");
+		Assertions.assertThat(linhas.get(4).getValor()).isEqualTo(Money.parse("-3.20"));
+	}
+
+	@Test
+	public void deveLerOfxSgmlNumaUnicaLinha() throws IOException {
+		Charset latin1 = Charset.forName("ISO-8859-1");
+		Path arquivo = arquivo("OFXHEADER:100\nDATA:OFXSGML\nCHARSET:1252\n\n"
+				+ "<OFX><BANKMSGSRSV1><STMTTRNRS><STMTRS><BANKTRANLIST><DTSTART>20200101"
+				+ "<STMTTRN><TRNTYPE>DEBIT<DTPOSTED>20200105120000[-3:BRT]<TRNAMT>-45.90<FITID>A1<MEMO>Farmácia &amp; cia</STMTTRN>"
+				+ "<STMTTRN><TRNTYPE>CREDIT<DTPOSTED>20200110<TRNAMT>1500.00<FITID>A2<NAME>Transferência</STMTTRN>"
+				+ "<STMTTRN><DTPOSTED>2020<TRNAMT>1.00<FITID>A3<MEMO>Sem data</STMTTRN>"
+				+ "</BANKTRANLIST></STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>", latin1);
+
+		List<LinhaExtrato> linhas = ler(FormatoExtrato.OFX, arquivo, latin1);
+
+		Assertions.assertThat(linhas).hasSize(3);
+		Assertions.assertThat(linhas.get(0).getData()).isEqualTo(LocalDate.of(2020, 1, 5));
+		Assertions.assertThat(linhas.get(0).getValor()).isEqualTo(Money.parse("-45.90"));
+		Assertions.assertThat(linhas.get(0).getDescricao()).isEqualTo("Farmácia & cia");
+		Assertions.assertThat(linhas.get(0).getIdentificador()).isEqualTo("A1");
+		Assertions.assertThat(linhas.get(0).getLinha()).isEqualTo(5);
+		Assertions.assertThat(linhas.get(1).getDescricao()).isEqualTo("Transferência");
+		Assertions.assertThat(linhas.get(1).getValor()).isEqualTo(Money.of(1500));
+		Assertions.assertThat(linhas.get(2).getErro()).startsWith("DTPOSTED inválido");
+	}
+
+	@Test
+	public void deveLerOfxXml() throws IOException {
+		Path arquivo = arquivo("<?xml version=\"1.0\"?>\n<OFX>\n<BANKTRANLIST>\n"
+				+ "<STMTTRN>\n<DTPOSTED>20200203</DTPOSTED>\n<TRNAMT>-9.99</TRNAMT>\n"
+				+ "<FITID>X9</FITID>\n<MEMO>Streaming</MEMO>\n</STMTTRN>\n"
+				+ "</BANKTRANLIST>\n</OFX>\n", StandardCharsets.UTF_8);
+
+		List<LinhaExtrato> linhas = ler(FormatoExtrato.OFX, arquivo, StandardCharsets.UTF_8);
+
+		Assertions.assertThat(linhas).hasSize(1);
+		Assertions.assertThat(linhas.get(0).getLinha()).isEqualTo(4);
+		Assertions.assertThat(linhas.get(0).getDescricao()).isEqualTo("Streaming");
+		Assertions.assertThat(linhas.get(0).getValor()).isEqualTo(Money.parse("-9.99"));
+	}
+
+	@Test
+	public void deveReconhecerFormatosDeValor() {
+		Assertions.assertThat(ValoresExtrato.valor("1,234.56")).isEqualTo(Money.parse("1234.56"));
+		Assertions.assertThat(ValoresExtrato.valor("1.234.567")).isEqualTo(Money.of(1234567));
+		Assertions.assertThat(ValoresExtrato.valor("(12,00)")).isEqualTo(Money.of(-12));
+		Assertions.assertThat(ValoresExtrato.valor("12,00-")).isEqualTo(Money.of(-12));
+		Assertions.assertThat(ValoresExtrato.valor("+7")).isEqualTo(Money.of(7));
+		Assertions.assertThatThrownBy(() -> ValoresExtrato.valor("")).isInstanceOf(NumberFormatException.class);
+	}
+
+	private Path arquivo(String conteudo, Charset charset) throws IOException {
+		Path arquivo = pasta.newFile().toPath();
+		Files.write(arquivo, conteudo.getBytes(charset));
+		return arquivo;
+	}
+
+	private static List<LinhaExtrato> ler(FormatoExtrato formato, Path arquivo, Charset charset) throws IOException {
+		List<LinhaExtrato> linhas = new ArrayList<>();
+		try (LeitorExtrato leitor = formato.abrir(arquivo, charset)) {
+			LinhaExtrato linha;
+			while ((linha = leitor.proxima()) != null) {
+				linhas.add(linha);
+			}
+		}
+		return linhas;
+	}
+
+}
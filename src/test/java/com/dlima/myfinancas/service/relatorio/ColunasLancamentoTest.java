@@ -0,0 +1,81 @@
+package com.dlima.myfinancas.service.relatorio;
+
+import java.util.Arrays;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import com.dlima.myfinancas.model.enums.StatusLancamento;
+import com.dlima.myfinancas.model.enums.TipoLancamento;
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.service.relatorio.ColunasLancamento.Agrupamento;
+
+public class ColunasLancamentoTest {
+	
+	static final int TODOS = ColunasLancamento.mascara(StatusLancamento.values());
+	
+	ColunasLancamento colunas = ColunasLancamento.de(Arrays.asList(
+			linha(1l, "100.00", 2019, 12, TipoLancamento.RECEITA, StatusLancamento.EFETIVADO),
+			linha(2l, "30.50", 2019, 12, TipoLancamento.DESPESA, StatusLancamento.EFETIVADO),
+			linha(3l, "1000.00", 2020, 1, TipoLancamento.RECEITA, StatusLancamento.PENDENTE),
+			linha(4l, "250.00", 2020, 1, TipoLancamento.DESPESA, StatusLancamento.CANCELADO),
+			linha(5l, "80.00", 2020, 2, TipoLancamento.DESPESA, StatusLancamento.PENDENTE),
+			linha(6l, "120.00", 2020, 2, TipoLancamento.DESPESA, StatusLancamento.EFETIVADO)));
+	
+	@Test
+	public void deveAgruparPorAno() {
+		int grupos = colunas.quantidadeGrupos(Agrupamento.ANO);
+		int[] chaves = new int[grupos];
+		long[] receitas = new long[grupos];
+		long[] despesas = new long[grupos];
+		
+		colunas.agrupar(Agrupamento.ANO, TODOS, chaves, receitas, despesas);
+		
+		Assertions.assertThat(chaves).containsExactly(2019, 2020);
+		Assertions.assertThat(receitas).containsExactly(10000, 100000);
+		Assertions.assertThat(despesas).containsExactly(3050, 45000);
+	}
+	
+	@Test
+	public void deveAgruparPorMesConsiderandoApenasOsStatusInformados() {
+		int grupos = colunas.quantidadeGrupos(Agrupamento.MES);
+		int[] chaves = new int[grupos];
+		long[] receitas = new long[grupos];
+		long[] despesas = new long[grupos];
+		
+		colunas.agrupar(Agrupamento.MES, ColunasLancamento.mascara(StatusLancamento.EFETIVADO), chaves, receitas, despesas);
+		
+		Assertions.assertThat(grupos).isEqualTo(3);
+		Assertions.assertThat(chaves).containsExactly(2019 * 12 + 11, 2020 * 12, 2020 * 12 + 1);
+		Assertions.assertThat(receitas).containsExactly(10000, 0, 0);
+		Assertions.assertThat(despesas).containsExactly(3050, 0, 12000);
+	}
+	
+	@Test
+	public void deveRetornarAsMaioresDespesasEmOrdemDecrescente() {
+		int[] linhas = new int[2];
+		
+		int encontradas = colunas.maioresDespesas(0, TODOS, linhas);
+		
+		Assertions.assertThat(encontradas).isEqualTo(2);
+		Assertions.assertThat(colunas.id(linhas[0])).isEqualTo(4l);
+		Assertions.assertThat(colunas.id(linhas[1])).isEqualTo(6l);
+	}
+	
+	@Test
+	public void deveFiltrarAsMaioresDespesasPorAnoEStatus() {
+		int[] linhas = new int[5];
+		
+		int encontradas = colunas.maioresDespesas(2020, ColunasLancamento.mascara(StatusLancamento.PENDENTE), linhas);
+		
+		Assertions.assertThat(encontradas).isEqualTo(1);
+		Assertions.assertThat(colunas.id(linhas[0])).isEqualTo(5l);
+		Assertions.assertThat(colunas.ano(linhas[0])).isEqualTo(2020);
+		Assertions.assertThat(colunas.mes(linhas[0])).isEqualTo(2);
+	}
+	
+	private static Object[] linha(Long id, String valor, Integer ano, Integer mes, TipoLancamento tipo, StatusLancamento status) {
+		return new Object[] { id, Money.parse(valor), ano, mes, tipo, status };
+	}
+
+}
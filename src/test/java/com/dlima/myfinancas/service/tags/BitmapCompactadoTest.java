@@ -0,0 +1,79 @@
+package com.dlima.myfinancas.service.tags;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class BitmapCompactadoTest {
+
+	@Test
+	public void deveTrocarDeArrayParaMapaDeBitsENaoPerderValores() {
+		BitmapCompactado bitmap = new BitmapCompactado();
+		for (int i = 0; i <= BitmapCompactado.LIMITE_ARRAY; i++) {
+			bitmap.adicionar(i * 2);
+		}
+		long emBits = bitmap.bytes();
+		bitmap.remover(0); // volta para array
+		bitmap.adicionar(70000); // segundo bloco
+
+		Assertions.assertThat(emBits).isGreaterThan(8 * 1024);
+		Assertions.assertThat(bitmap.bytes()).isLessThan(emBits + 64);
+		Assertions.assertThat(bitmap.cardinalidade()).isEqualTo(BitmapCompactado.LIMITE_ARRAY + 1);
+		Assertions.assertThat(bitmap.contem(2)).isTrue();
+		Assertions.assertThat(bitmap.contem(0)).isFalse();
+		Assertions.assertThat(bitmap.contem(3)).isFalse();
+		Assertions.assertThat(valores(bitmap)).endsWith(BitmapCompactado.LIMITE_ARRAY * 2, 70000);
+	}
+
+	@Test
+	public void deveCombinarComoConjuntos() {
+		Random aleatorio = new Random(42);
+		for (int rodada = 0; rodada < 20; rodada++) {
+			// densidades variadas para cruzar blocos array e mapa de bits
+			TreeSet<Integer> a = new TreeSet<>();
+			TreeSet<Integer> b = new TreeSet<>();
+			BitmapCompactado bitmapA = preencher(aleatorio, a, 1 + aleatorio.nextInt(20000));
+			BitmapCompactado bitmapB = preencher(aleatorio, b, 1 + aleatorio.nextInt(20000));
+
+			TreeSet<Integer> e = new TreeSet<>(a);
+			e.retainAll(b);
+			TreeSet<Integer> ou = new TreeSet<>(a);
+			ou.addAll(b);
+			TreeSet<Integer> exceto = new TreeSet<>(a);
+			exceto.removeAll(b);
+
+			Assertions.assertThat(valores(bitmapA.e(bitmapB))).containsExactlyElementsOf(e);
+			Assertions.assertThat(valores(bitmapA.ou(bitmapB))).containsExactlyElementsOf(ou);
+			Assertions.assertThat(valores(bitmapA.exceto(bitmapB))).containsExactlyElementsOf(exceto);
+			Assertions.assertThat(bitmapA.ou(bitmapB).cardinalidade()).isEqualTo(ou.size());
+			Assertions.assertThat(valores(bitmapA)).containsExactlyElementsOf(a); // operandos intactos
+		}
+	}
+
+	private static BitmapCompactado preencher(Random aleatorio, TreeSet<Integer> esperado, int quantidade) {
+		BitmapCompactado bitmap = new BitmapCompactado();
+		int limite = 1 + aleatorio.nextInt(200000);
+		for (int i = 0; i < quantidade; i++) {
+			int valor = aleatorio.nextInt(limite);
+			bitmap.adicionar(valor);
+			esperado.add(valor);
+		}
+		for (int i = 0; i < quantidade / 4; i++) {
+			int valor = aleatorio.nextInt(limite);
+			bitmap.remover(valor);
+			esperado.remove(valor);
+		}
+		return bitmap;
+	}
+
+	private static List<Integer> valores(BitmapCompactado bitmap) {
+		List<Integer> valores = new ArrayList<>();
+		bitmap.paraCada(valores::add);
+		return valores;
+	}
+
+}
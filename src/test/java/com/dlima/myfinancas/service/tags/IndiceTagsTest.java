@@ -0,0 +1,151 @@
+package com.dlima.myfinancas.service.tags;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.dlima.myfinancas.api.dto.TotalTagDTO;
+import com.dlima.myfinancas.exception.RegraNegocioException;
+import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.entity.Usuario;
+import com.dlima.myfinancas.model.enums.StatusLancamento;
+import com.dlima.myfinancas.model.enums.TipoLancamento;
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.model.repository.FiltroLancamento;
+import com.dlima.myfinancas.model.repository.LancamentoRepository;
+import com.dlima.myfinancas.model.repository.UsuarioRepository;
+import com.dlima.myfinancas.service.LancamentoService;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@SpringBootTest
+public class IndiceTagsTest {
+
+	@Autowired
+	LancamentoService service;
+
+	@Autowired
+	UsuarioRepository usuarioRepository;
+
+	@Autowired
+	LancamentoRepository lancamentoRepository;
+
+	Usuario usuario;
+
+	Lancamento mercado;
+
+	Lancamento onibus;
+
+	Lancamento viagem;
+
+	@Before
+	public void setUp() {
+		usuario = usuarioRepository.save(Usuario.builder().nome("usuario")
+				.email("tags" + System.nanoTime() + "@email.com").senha("senha").build());
+		mercado = salvar("Mercado", TipoLancamento.DESPESA, 100, 1, "Alimentação ", "casa");
+		onibus = salvar("Ônibus", TipoLancamento.DESPESA, 5, 1, "transporte");
+		viagem = salvar("Reembolso viagem", TipoLancamento.RECEITA, 300, 2, "transporte", "projeto x");
+	}
+
+	@Test
+	public void deveFiltrarComTodasAlgumasENenhumaDasTags() {
+		Assertions.assertThat(buscar(ConsultaTags.de(Arrays.asList("transporte", "Projeto X"), null, null)))
+			.containsExactly(viagem.getId());
+		Assertions.assertThat(buscar(ConsultaTags.de(null, Arrays.asList("casa", "projeto x"), null)))
+			.containsExactlyInAnyOrder(mercado.getId(), viagem.getId());
+		Assertions.assertThat(buscar(ConsultaTags.de(null, null, Collections.singletonList("transporte"))))
+			.containsExactly(mercado.getId());
+		Assertions.assertThat(buscar(ConsultaTags.de(Collections.singletonList("inexistente"), null, null))).isEmpty();
+
+		// combinada com os filtros de buscar
+		FiltroLancamento filtro = FiltroLancamento.builder().idUsuario(usuario.getId()).mes(1).build();
+		Assertions.assertThat(service.buscar(filtro, ConsultaTags.de(Collections.singletonList("transporte"), null, null)))
+			.extracting(Lancamento::getId).containsExactly(onibus.getId());
+	}
+
+	@Test
+	public void deveManterOIndiceNasEscritas() {
+		buscar(ConsultaTags.de(Collections.singletonList("transporte"), null, null)); // indice carregado
+
+		onibus.setTags(Collections.singleton("projeto x"));
+		service.atualizar(onibus);
+		service.deletar(viagem);
+		Lancamento novo = salvar("Metrô", TipoLancamento.DESPESA, 4, 1, "transporte");
+
+		Assertions.assertThat(buscar(ConsultaTags.de(Collections.singletonList("transporte"), null, null)))
+			.containsExactly(novo.getId());
+		Assertions.assertThat(buscar(ConsultaTags.de(Collections.singletonList("projeto x"), null, null)))
+			.containsExactly(onibus.getId());
+	}
+
+	@Test
+	public void deveSomarPorTag() {
+		viagem.setStatus(StatusLancamento.EFETIVADO);
+		service.atualizar(viagem);
+
+		List<TotalTagDTO> totais = service.obterTotaisPorTag(usuario.getId(), null, null, null);
+		Assertions.assertThat(totais).extracting(TotalTagDTO::getTag)
+			.containsExactly("alimentação", "casa", "projeto x", "transporte");
+		TotalTagDTO transporte = totais.get(3);
+		Assertions.assertThat(transporte.getQuantidade()).isEqualTo(2);
+		Assertions.assertThat(transporte.getReceitas()).isEqualTo(Money.of(300));
+		Assertions.assertThat(transporte.getDespesas()).isEqualTo(Money.of(5));
+		Assertions.assertThat(transporte.getSaldo()).isEqualTo(Money.of(295));
+
+		Assertions.assertThat(service.obterTotaisPorTag(usuario.getId(), 2020, 2, null))
+			.extracting(TotalTagDTO::getTag).containsExactly("projeto x", "transporte");
+		Assertions.assertThat(service.obterTotaisPorTag(usuario.getId(), null, null, StatusLancamento.EFETIVADO))
+			.extracting(TotalTagDTO::getQuantidade).containsExactly(1, 1);
+	}
+
+	@Test
+	public void deveRecarregarOIndiceVencidoComAsEscritasDeOutraInstancia() {
+		// cenario: indice carregado numa instancia que nao recebe as escritas desta
+		AtomicLong agora = new AtomicLong();
+		IndiceTags outraInstancia = new IndiceTags(lancamentoRepository, 10, 30000, agora::get);
+		Assertions.assertThat(outraInstancia.totais(usuario.getId(), null, null, null)).extracting(TotalTagDTO::getTag)
+			.doesNotContain("mercado");
+
+		// execucao
+		salvar("Feira", TipoLancamento.DESPESA, 20, 1, "mercado");
+
+		// verificacao: desatualizado ate vencer
+		agora.set(29999);
+		Assertions.assertThat(outraInstancia.totais(usuario.getId(), null, null, null)).extracting(TotalTagDTO::getTag)
+			.doesNotContain("mercado");
+		agora.set(30000);
+		Assertions.assertThat(outraInstancia.totais(usuario.getId(), null, null, null)).extracting(TotalTagDTO::getTag)
+			.contains("mercado");
+	}
+
+	@Test
+	public void deveRejeitarTagComVirgula() {
+		Lancamento lancamento = Lancamento.builder().usuario(usuario).descricao("x").mes(1).ano(2020)
+				.valor(Money.of(1)).tipo(TipoLancamento.DESPESA).tags(Collections.singleton("a,b")).build();
+
+		Assertions.assertThatThrownBy(() -> service.salvar(lancamento)).isInstanceOf(RegraNegocioException.class);
+	}
+
+	private List<Long> buscar(ConsultaTags consulta) {
+		return service.buscar(FiltroLancamento.builder().idUsuario(usuario.getId()).build(), consulta).stream()
+				.map(Lancamento::getId).collect(Collectors.toList());
+	}
+
+	private Lancamento salvar(String descricao, TipoLancamento tipo, long valor, int mes, String... tags) {
+		return service.salvar(Lancamento.builder().usuario(usuario).descricao(descricao).mes(mes).ano(2020)
+				.valor(Money.of(valor)).tipo(tipo).tags(new HashSet<>(Arrays.asList(tags))).build());
+	}
+
+}
@@ -0,0 +1,180 @@
+package com.dlima.myfinancas.sharding;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.dlima.myfinancas.exception.RegraNegocioException;
+import com.dlima.myfinancas.model.entity.Lancamento;
+import com.dlima.myfinancas.model.entity.Usuario;
+import com.dlima.myfinancas.model.enums.StatusLancamento;
+import com.dlima.myfinancas.model.enums.TipoLancamento;
+import com.dlima.myfinancas.model.money.Money;
+import com.dlima.myfinancas.model.repository.LancamentoRepositoryTest;
+import com.dlima.myfinancas.service.LancamentoService;
+import com.dlima.myfinancas.service.UsuarioService;
+import com.dlima.myfinancas.service.cache.CargaFiltroBloomEmails;
+
+@RunWith(SpringRunner.class)
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+		"myfinancas.sharding.habilitado=true",
+		"myfinancas.sharding.shards[0].url=jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:shard/schema-shard-0.sql'",
+		"myfinancas.sharding.shards[0].username=sa",
+		"myfinancas.sharding.shards[1].url=jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:shard/schema-shard-1.sql'",
+		"myfinancas.sharding.shards[1].username=sa",
+		"myfinancas.sharding.shards[2].url=jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:shard/schema-shard-2.sql'",
+		"myfinancas.sharding.shards[2].username=sa",
+		"spring.jpa.hibernate.ddl-auto=none" })
+public class ShardingTest {
+
+	@Autowired
+	UsuarioService usuarioService;
+
+	@Autowired
+	LancamentoService lancamentoService;
+
+	@Autowired
+	RoteadorShards roteador;
+	
+	@Autowired
+	CargaFiltroBloomEmails cargaFiltroEmails;
+
+	@Test
+	public void deveDistribuirUsuariosEntreOsShardsComIdsUnicos() {
+		// execucao
+		List<Usuario> usuarios = new ArrayList<>();
+		for (int i = 0; i < 30; i++) {
+			usuarios.add(usuarioService.salvarUsuario(usuario("distribuido" + i + "@email.com")));
+		}
+
+		// verificacao
+		Set<Long> ids = new HashSet<>();
+		Set<Integer> shardsUsados = new HashSet<>();
+		for (Usuario usuario : usuarios) {
+			int shard = roteador.shardDoId(usuario.getId());
+			Assertions.assertThat(shard).isEqualTo(roteador.shardDoEmail(usuario.getEmail()));
+			Assertions.assertThat(contarUsuarios(shard, usuario.getEmail())).isEqualTo(1);
+			ids.add(usuario.getId());
+			shardsUsados.add(shard);
+		}
+		Assertions.assertThat(ids).hasSize(30);
+		Assertions.assertThat(shardsUsados).hasSize(3);
+	}
+
+	@Test
+	public void deveAutenticarEObterUsuarioDeQualquerShard() {
+		for (int i = 0; i < 10; i++) {
+			Usuario salvo = usuarioService.salvarUsuario(usuario("autenticado" + i + "@email.com"));
+
+			Assertions.assertThat(usuarioService.autenticar(salvo.getEmail(), "senha").getId()).isEqualTo(salvo.getId());
+			Assertions.assertThat(usuarioService.obterPorId(salvo.getId())).contains(salvo);
+		}
+	}
+
+	@Test
+	public void deveGravarOsLancamentosNoShardDoUsuario() {
+		// cenario
+		Usuario usuario = usuarioService.salvarUsuario(usuario("lancamentos@email.com"));
+		int shard = roteador.shardDoId(usuario.getId());
+
+		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+		lancamento.setUsuario(usuario);
+		lancamento.setTipo(TipoLancamento.DESPESA);
+
+		// execucao
+		Lancamento salvo = lancamentoService.salvar(lancamento);
+
+		// verificacao
+		Assertions.assertThat(roteador.shardDoId(salvo.getId())).isEqualTo(shard);
+		Assertions.assertThat(lancamentoService.obterPorId(salvo.getId())).isPresent();
+		Assertions.assertThat(lancamentoService.buscar(Lancamento.builder().usuario(usuario).build())).hasSize(1);
+		for (int outro = 0; outro < roteador.quantidade(); outro++) {
+			Assertions.assertThat(contarLancamentos(outro, usuario.getId())).isEqualTo(outro == shard ? 1 : 0);
+		}
+
+		salvo.setStatus(StatusLancamento.EFETIVADO);
+		lancamentoService.atualizar(salvo);
+		Assertions.assertThat(lancamentoService.obterSaldoPorUsuario(usuario.getId())).isEqualTo(Money.of(-10));
+	}
+
+	@Test
+	public void deveEncontrarEmailCadastradoForaDoShardDoAnel() {
+		// cenario: usuario criado antes de o anel mudar, fora do shard que o anel indica hoje
+		String email = "anterior@email.com";
+		int outroShard = (roteador.shardDoEmail(email) + 1) % roteador.quantidade();
+		new JdbcTemplate(roteador.getDataSource(outroShard)).update(
+				"INSERT INTO financas.usuario (nome, email, senha) VALUES ('anterior', ?, 'senha')", email);
+		cargaFiltroEmails.run(null); // como na inicializacao: o usuario ja existia ao subir a aplicacao
+
+		// execucao e verificacao
+		Usuario autenticado = usuarioService.autenticar(email, "senha");
+		Assertions.assertThat(roteador.shardDoId(autenticado.getId())).isEqualTo(outroShard);
+		Assertions.assertThatThrownBy(() -> usuarioService.salvarUsuario(usuario(email)))
+			.isInstanceOf(RegraNegocioException.class);
+	}
+
+	@Test
+	public void deveCadastrarOEmailUmaUnicaVezComCadastrosSimultaneos() throws Exception {
+		// cenario: email novo, o filtro dispensa a validacao e so o indice unico separa os cadastros
+		String email = "simultaneo@email.com";
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		CountDownLatch largada = new CountDownLatch(1);
+		List<Future<Usuario>> cadastros = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			cadastros.add(executor.submit(() -> {
+				largada.await();
+				return usuarioService.salvarUsuario(usuario(email));
+			}));
+		}
+
+		// execucao
+		largada.countDown();
+		int salvos = 0;
+		for (Future<Usuario> cadastro : cadastros) {
+			try {
+				cadastro.get(10, TimeUnit.SECONDS);
+				salvos++;
+			} catch (ExecutionException e) {
+				Assertions.assertThat(e.getCause()).isInstanceOf(RegraNegocioException.class)
+					.hasMessage("Já existe um usuário cadastrado com este email.");
+			}
+		}
+		executor.shutdown();
+
+		// verificacao
+		Assertions.assertThat(salvos).isEqualTo(1);
+		Assertions.assertThat(contarUsuarios(roteador.shardDoEmail(email), email)).isEqualTo(1);
+	}
+
+	private Usuario usuario(String email) {
+		return Usuario.builder().nome("usuario").email(email).senha("senha").build();
+	}
+
+	private int contarUsuarios(int shard, String email) {
+		return new JdbcTemplate(roteador.getDataSource(shard))
+				.queryForObject("SELECT count(*) FROM financas.usuario WHERE email = ?", Integer.class, email);
+	}
+
+	private int contarLancamentos(int shard, Long idUsuario) {
+		return new JdbcTemplate(roteador.getDataSource(shard))
+				.queryForObject("SELECT count(*) FROM financas.lancamento WHERE id_usuario = ?", Integer.class, idUsuario);
+	}
+
+}
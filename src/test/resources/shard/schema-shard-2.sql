@@ -0,0 +1,78 @@
+-- Shard 2: ids comecam em 3 e andam de 64 em 64 (myfinancas.sharding.intervalo-ids)
+-- Executado a cada conexao (INIT do H2), por isso IF NOT EXISTS
+CREATE SCHEMA IF NOT EXISTS financas;
+
+CREATE TABLE IF NOT EXISTS financas.usuario (
+	id bigint GENERATED BY DEFAULT AS IDENTITY (START WITH 3 INCREMENT BY 64) PRIMARY KEY,
+	nome varchar(150),
+	email varchar(100),
+	senha varchar(20)
+);
+
+CREATE TABLE IF NOT EXISTS financas.lancamento (
+	id bigint GENERATED BY DEFAULT AS IDENTITY (START WITH 3 INCREMENT BY 64) PRIMARY KEY,
+	descricao varchar(255),
+	mes integer,
+	ano integer,
+	id_usuario bigint REFERENCES financas.usuario (id),
+	valor bigint,
+	data_cadastro date,
+	tipo varchar(255),
+	status varchar(255),
+	sequencia_alteracao bigint,
+	categoria varchar(255),
+	hash_importacao varchar(32),
+	tags varchar(1000)
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_usuario_email ON financas.usuario (email);
+CREATE INDEX IF NOT EXISTS idx_lancamento_usuario_ano_mes ON financas.lancamento (id_usuario, ano, mes);
+CREATE INDEX IF NOT EXISTS idx_lancamento_usuario_tipo_status ON financas.lancamento (id_usuario, tipo, status);
+CREATE INDEX IF NOT EXISTS idx_lancamento_usuario_sequencia ON financas.lancamento (id_usuario, sequencia_alteracao);
+CREATE INDEX IF NOT EXISTS idx_lancamento_usuario_hash_importacao ON financas.lancamento (id_usuario, hash_importacao);
+CREATE INDEX IF NOT EXISTS idx_lancamento_usuario_data_cadastro ON financas.lancamento (id_usuario, data_cadastro);
+CREATE INDEX IF NOT EXISTS idx_lancamento_usuario_tipo_valor ON financas.lancamento (id_usuario, tipo, valor);
+
+CREATE TABLE IF NOT EXISTS financas.lancamento_removido (
+	id bigint PRIMARY KEY,
+	id_usuario bigint,
+	sequencia_alteracao bigint,
+	data_remocao timestamp
+);
+CREATE INDEX IF NOT EXISTS idx_lancamento_removido_usuario_sequencia ON financas.lancamento_removido (id_usuario, sequencia_alteracao);
+CREATE INDEX IF NOT EXISTS idx_lancamento_removido_sequencia ON financas.lancamento_removido (sequencia_alteracao);
+CREATE INDEX IF NOT EXISTS idx_lancamento_removido_data ON financas.lancamento_removido (data_remocao);
+
+CREATE SEQUENCE IF NOT EXISTS financas.seq_alteracao_lancamento;
+
+CREATE TABLE IF NOT EXISTS financas.resumo_mensal (
+	id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+	id_usuario bigint,
+	ano integer,
+	mes integer,
+	categoria varchar(255),
+	receitas_efetivadas bigint,
+	despesas_efetivadas bigint,
+	receitas_pendentes bigint,
+	despesas_pendentes bigint
+);
+CREATE UNIQUE INDEX IF NOT EXISTS idx_resumo_mensal_usuario_ano_mes ON financas.resumo_mensal (id_usuario, ano, mes, categoria);
+
+CREATE TABLE IF NOT EXISTS financas.checkpoint_job (
+	nome varchar(255) PRIMARY KEY,
+	situacao varchar(255),
+	ultimo_id_concluido bigint,
+	usuarios_processados bigint,
+	lancamentos_processados bigint,
+	falhas bigint,
+	inicio timestamp,
+	atualizacao timestamp
+);
+
+CREATE TABLE IF NOT EXISTS financas.orcamento (
+	id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+	id_usuario bigint,
+	categoria varchar(255),
+	limite bigint
+);
+CREATE INDEX IF NOT EXISTS idx_orcamento_usuario_categoria ON financas.orcamento (id_usuario, categoria);